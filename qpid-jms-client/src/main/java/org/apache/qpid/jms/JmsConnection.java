@@ -18,12 +18,17 @@ package org.apache.qpid.jms;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -74,6 +79,7 @@ import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.provider.ProviderListener;
 import org.apache.qpid.jms.provider.ProviderSynchronization;
+import org.apache.qpid.jms.provider.ProviderWaitStrategy;
 import org.apache.qpid.jms.util.IdGenerator;
 import org.apache.qpid.jms.util.ThreadPoolUtils;
 import org.slf4j.Logger;
@@ -97,6 +103,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
     private final AtomicBoolean failed = new AtomicBoolean();
     private final JmsConnectionInfo connectionInfo;
     private final ThreadPoolExecutor executor;
+    private volatile ScheduledThreadPoolExecutor redeliveryScheduler;
 
     private volatile IOException firstFailureError;
     private boolean clientIdSet;
@@ -114,6 +121,8 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
     private final AtomicLong transactionIdGenerator = new AtomicLong();
 
     private final ConcurrentMap<AsyncResult, AsyncResult> requests = new ConcurrentHashMap<AsyncResult, AsyncResult>();
+    private volatile ProviderWaitStrategy waitStrategy = ProviderWaitStrategy.PARK;
+    private volatile Map<String, Long> recoveryTimes = Collections.emptyMap();
 
     protected JmsConnection(final String connectionId, Provider provider, IdGenerator clientIdGenerator) throws JMSException {
 
@@ -212,6 +221,12 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
                 LOG.warn("Error shutting down thread pool: " + executor + ". This exception will be ignored.", e);
             }
 
+            synchronized (connectionInfo) {
+                if (redeliveryScheduler != null) {
+                    redeliveryScheduler.shutdownNow();
+                }
+            }
+
             if (provider != null) {
                 provider.close();
                 provider = null;
@@ -546,7 +561,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.create(resource, request);
@@ -559,6 +574,98 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         }
     }
 
+    ProviderFuture createResourceAsync(JmsResource resource, ProviderSynchronization synchronization) throws JMSException {
+        checkClosedOrFailed();
+
+        try {
+            ProviderFuture request = new AsyncResourceRequest(synchronization);
+            requests.put(request, request);
+            try {
+                provider.create(resource, request);
+            } catch (Exception ex) {
+                requests.remove(request);
+                throw ex;
+            }
+
+            return request;
+        } catch (Exception ex) {
+            throw JmsExceptionSupport.create(ex);
+        }
+    }
+
+    ProviderFuture startResourceAsync(JmsResource resource, ProviderSynchronization synchronization) throws JMSException {
+        checkClosedOrFailed();
+
+        try {
+            ProviderFuture request = new AsyncResourceRequest(synchronization);
+            requests.put(request, request);
+            try {
+                provider.start(resource, request);
+            } catch (Exception ex) {
+                requests.remove(request);
+                throw ex;
+            }
+
+            return request;
+        } catch (Exception ex) {
+            throw JmsExceptionSupport.create(ex);
+        }
+    }
+
+    /**
+     * Waits for a request issued by one of the asynchronous resource methods to complete.
+     * A failed request is not thrown from here, the resource it targeted is closed when the
+     * failure arrives and reports it from its own closed state checks.
+     *
+     * @param request
+     *        the pending request returned when the asynchronous operation was issued.
+     *
+     * @throws JMSException if the wait is interrupted.
+     */
+    void awaitResource(ProviderFuture request) throws JMSException {
+        try {
+            request.sync();
+        } catch (Exception ex) {
+            if (!request.isComplete()) {
+                throw JmsExceptionSupport.create(ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the scheduler used to hold back messages that are being redelivered until
+     * their redelivery delay has elapsed, it is created on first use and shut down when
+     * the connection is closed.
+     *
+     * @return the scheduler used for delayed redelivery.
+     */
+    ScheduledExecutorService getRedeliveryScheduler() {
+        ScheduledThreadPoolExecutor scheduler = redeliveryScheduler;
+        if (scheduler == null) {
+            synchronized (connectionInfo) {
+                if (closed.get()) {
+                    throw new RejectedExecutionException("The connection is closed");
+                }
+
+                if (redeliveryScheduler == null) {
+                    redeliveryScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runner) {
+                            Thread thread = new Thread(runner, "QpidJMS Connection Redelivery Scheduler: " + connectionInfo.getId());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    redeliveryScheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+                }
+
+                scheduler = redeliveryScheduler;
+            }
+        }
+
+        return scheduler;
+    }
+
     void startResource(JmsResource resource) throws JMSException {
         startResource(resource, null);
     }
@@ -567,7 +674,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.start(resource, request);
@@ -588,7 +695,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.stop(resource, request);
@@ -609,7 +716,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.destroy(resource, request);
@@ -630,7 +737,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.send(envelope, request);
@@ -651,7 +758,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             provider.acknowledge(envelope, ackType, request);
             request.sync();
         } catch (Exception ioe) {
@@ -667,7 +774,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             provider.acknowledge(sessionId, ackType, request);
             request.sync();
         } catch (Exception ioe) {
@@ -683,7 +790,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.unsubscribe(name, request);
@@ -704,7 +811,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.commit(transactionInfo, request);
@@ -725,7 +832,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.rollback(transactionInfo, request);
@@ -746,7 +853,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.recover(sessionId, request);
@@ -767,7 +874,7 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         checkClosedOrFailed();
 
         try {
-            ProviderFuture request = new ProviderFuture(synchronization);
+            ProviderFuture request = new ProviderFuture(synchronization, waitStrategy);
             requests.put(request, request);
             try {
                 provider.pull(consumerId, timeout, request);
@@ -889,6 +996,48 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         this.connectionInfo.setReceiveNoWaitLocalOnly(receiveNoWaitLocalOnly);
     }
 
+    public long getReceiveNoWaitDrainInterval() {
+        return connectionInfo.getReceiveNoWaitDrainInterval();
+    }
+
+    public void setReceiveNoWaitDrainInterval(long receiveNoWaitDrainInterval) {
+        this.connectionInfo.setReceiveNoWaitDrainInterval(receiveNoWaitDrainInterval);
+    }
+
+    public long getQueueBrowserStreamTimeout() {
+        return connectionInfo.getQueueBrowserStreamTimeout();
+    }
+
+    public void setQueueBrowserStreamTimeout(long queueBrowserStreamTimeout) {
+        this.connectionInfo.setQueueBrowserStreamTimeout(queueBrowserStreamTimeout);
+    }
+
+    public boolean isCreateResourcesAsync() {
+        return connectionInfo.isCreateResourcesAsync();
+    }
+
+    public void setCreateResourcesAsync(boolean createResourcesAsync) {
+        this.connectionInfo.setCreateResourcesAsync(createResourcesAsync);
+    }
+
+    public long getSyncSpinTime() {
+        return connectionInfo.getSyncSpinTime();
+    }
+
+    public void setSyncSpinTime(long syncSpinTime) {
+        this.connectionInfo.setSyncSpinTime(syncSpinTime);
+        this.waitStrategy = ProviderWaitStrategy.create(syncSpinTime, connectionInfo.getSyncYieldTime());
+    }
+
+    public long getSyncYieldTime() {
+        return connectionInfo.getSyncYieldTime();
+    }
+
+    public void setSyncYieldTime(long syncYieldTime) {
+        this.connectionInfo.setSyncYieldTime(syncYieldTime);
+        this.waitStrategy = ProviderWaitStrategy.create(connectionInfo.getSyncSpinTime(), syncYieldTime);
+    }
+
     public boolean isLocalMessagePriority() {
         return connectionInfo.isLocalMessagePriority();
     }
@@ -981,6 +1130,18 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         return connectionInfo.getId();
     }
 
+    /**
+     * Returns the time in milliseconds that the most recent failover recovery took to
+     * recreate each type of resource, keyed by the resource type, for example "sessions"
+     * or "consumers".  Temporary destinations are recreated before any other resource and
+     * the time of every other type is measured from when they had all been recreated.
+     *
+     * @return the recovery time of each resource type, empty if no recovery has completed.
+     */
+    public Map<String, Long> getRecoveryTimes() {
+        return recoveryTimes;
+    }
+
     public JmsMessageFactory getMessageFactory() {
         if (messageFactory == null) {
             throw new RuntimeException("Message factory should never be null");
@@ -1077,13 +1238,27 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         provider.create(connectionInfo, request);
         request.sync();
 
+        // The remote assigns each temporary destination a new address, these must be known
+        // before any producer or consumer on them is recreated so they are awaited first.
+        JmsResourceRecovery destinations = new JmsResourceRecovery(provider);
         for (JmsTemporaryDestination tempDestination : tempDestinations.values()) {
-            createResource(tempDestination);
+            destinations.create(tempDestination);
         }
 
+        destinations.awaitCompletion();
+
+        JmsResourceRecovery recovery = new JmsResourceRecovery(provider);
         for (JmsSession session : sessions.values()) {
-            session.onConnectionRecovery(provider);
+            session.onConnectionRecovery(recovery);
         }
+
+        recovery.awaitCompletion();
+
+        Map<String, Long> times = new LinkedHashMap<String, Long>(destinations.getRecoveryTimes());
+        times.putAll(recovery.getRecoveryTimes());
+        recoveryTimes = Collections.unmodifiableMap(times);
+
+        LOG.debug("Connection {} recreated {}, {}", connectionInfo.getId(), destinations, recovery);
     }
 
     @Override
@@ -1093,9 +1268,15 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
         setMessageFactory(provider.getMessageFactory());
         setConnectedURI(provider.getRemoteURI());
 
+        JmsResourceRecovery recovery = new JmsResourceRecovery(provider);
+
         for (JmsSession session : sessions.values()) {
-            session.onConnectionRecovered(provider);
+            session.onConnectionRecovered(recovery);
         }
+
+        recovery.awaitCompletion();
+
+        LOG.debug("Connection {} restarted {}", connectionInfo.getId(), recovery);
     }
 
     @Override
@@ -1269,4 +1450,28 @@ public class JmsConnection implements AutoCloseable, Connection, TopicConnection
             firstFailureError = error;
         }
     }
+
+    /*
+     * A request that is not waited on by its issuer, it removes itself from the set of
+     * outstanding requests once completed so it is only failed on connection loss while
+     * it is still pending.
+     */
+    private final class AsyncResourceRequest extends ProviderFuture {
+
+        public AsyncResourceRequest(ProviderSynchronization synchronization) {
+            super(synchronization, waitStrategy);
+        }
+
+        @Override
+        public void onFailure(Throwable result) {
+            requests.remove(this);
+            super.onFailure(result);
+        }
+
+        @Override
+        public void onSuccess() {
+            requests.remove(this);
+            super.onSuccess();
+        }
+    }
 }
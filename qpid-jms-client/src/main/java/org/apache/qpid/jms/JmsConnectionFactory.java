@@ -70,6 +70,11 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
     private boolean localMessageExpiry = true;
     private boolean receiveLocalOnly;
     private boolean receiveNoWaitLocalOnly;
+    private long receiveNoWaitDrainInterval;
+    private long queueBrowserStreamTimeout;
+    private boolean createResourcesAsync;
+    private long syncSpinTime;
+    private long syncYieldTime;
     private String queuePrefix = null;
     private String topicPrefix = null;
     private boolean validatePropertyNames = true;
@@ -770,6 +775,102 @@ public class JmsConnectionFactory extends JNDIStorable implements ConnectionFact
         this.receiveNoWaitLocalOnly = receiveNoWaitLocalOnly;
     }
 
+    public long getReceiveNoWaitDrainInterval() {
+        return receiveNoWaitDrainInterval;
+    }
+
+    /**
+     * Sets the minimum time in milliseconds between the credit drains that a prefetching
+     * consumer performs when receiveNoWait finds its local message buffer empty.  Once a
+     * drain has come back without a message, further receiveNoWait calls made within this
+     * interval only check the local buffer and so return without a round trip to the remote
+     * peer.  Messages that arrive in the buffer during the interval are still returned.
+     * A value of zero (the default) drains on every receiveNoWait call that finds the
+     * buffer empty.  Has no effect when receiveNoWaitLocalOnly is enabled or for consumers
+     * with a prefetch of zero.
+     *
+     * @param receiveNoWaitDrainInterval
+     *        the minimum time in milliseconds between receiveNoWait initiated drains.
+     */
+    public void setReceiveNoWaitDrainInterval(long receiveNoWaitDrainInterval) {
+        this.receiveNoWaitDrainInterval = receiveNoWaitDrainInterval;
+    }
+
+    public long getQueueBrowserStreamTimeout() {
+        return queueBrowserStreamTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds that a QueueBrowser waits for messages already in flight
+     * under its credit window to arrive once its local buffer runs empty.  Only when no
+     * message arrives in that time is the link credit drained to confirm the end of the
+     * queue, so a browser that consumes faster than messages arrive keeps streaming rather
+     * than stalling on a drain round trip each time its buffer empties.  The default of zero
+     * drains as soon as the local buffer is found empty.
+     *
+     * @param queueBrowserStreamTimeout
+     *        the time in milliseconds to wait for in-flight messages before draining.
+     */
+    public void setQueueBrowserStreamTimeout(long queueBrowserStreamTimeout) {
+        this.queueBrowserStreamTimeout = queueBrowserStreamTimeout;
+    }
+
+    public boolean isCreateResourcesAsync() {
+        return createResourcesAsync;
+    }
+
+    /**
+     * Controls whether Sessions, MessageProducers and MessageConsumers are created without
+     * waiting for the remote peer to respond.  When enabled the begin and attach requests
+     * are sent back to back and the creating call returns immediately, the first operation
+     * that needs the resource, such as a send or receive, waits for any creation that is
+     * still outstanding.  A resource whose creation fails is closed and the failure is
+     * reported to the connection ExceptionListener and thrown from its next use.  Default
+     * is false, each resource is created before the creating call returns.
+     *
+     * @param createResourcesAsync
+     *        true if resources should be created without waiting for the remote peer.
+     */
+    public void setCreateResourcesAsync(boolean createResourcesAsync) {
+        this.createResourcesAsync = createResourcesAsync;
+    }
+
+    public long getSyncSpinTime() {
+        return syncSpinTime;
+    }
+
+    /**
+     * Sets the time in nanoseconds that a thread blocked on a synchronous operation, such
+     * as a persistent send, a commit or the creation of a resource, busy spins waiting for
+     * the response before yielding and then parking.  A thread that is answered while
+     * spinning avoids the cost of being parked and woken again, which can be a large part
+     * of the operation latency when the remote peer responds in microseconds, at the cost
+     * of keeping a CPU busy.  Default is zero, the thread parks immediately.
+     *
+     * @param syncSpinTime
+     *        the time in nanoseconds to spin before yielding.
+     */
+    public void setSyncSpinTime(long syncSpinTime) {
+        this.syncSpinTime = syncSpinTime;
+    }
+
+    public long getSyncYieldTime() {
+        return syncYieldTime;
+    }
+
+    /**
+     * Sets the time in nanoseconds that a thread blocked on a synchronous operation yields
+     * its time slice, once any spin time has elapsed, before it parks to wait for the
+     * response.  Yielding lets other threads run while still avoiding a park for a response
+     * that arrives soon after.  Default is zero, the thread parks once done spinning.
+     *
+     * @param syncYieldTime
+     *        the time in nanoseconds to yield before parking.
+     */
+    public void setSyncYieldTime(long syncYieldTime) {
+        this.syncYieldTime = syncYieldTime;
+    }
+
     //----- Static Methods ---------------------------------------------------//
 
     /**
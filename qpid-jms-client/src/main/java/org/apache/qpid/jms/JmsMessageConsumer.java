@@ -16,7 +16,12 @@
  */
 package org.apache.qpid.jms;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -34,9 +39,9 @@ import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsMessage;
 import org.apache.qpid.jms.meta.JmsConsumerId;
 import org.apache.qpid.jms.meta.JmsConsumerInfo;
-import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
+import org.apache.qpid.jms.provider.ProviderSynchronization;
 import org.apache.qpid.jms.util.FifoMessageQueue;
 import org.apache.qpid.jms.util.MessageQueue;
 import org.apache.qpid.jms.util.PriorityMessageQueue;
@@ -62,6 +67,10 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
     protected final Lock lock = new ReentrantLock();
     protected final AtomicBoolean suspendedConnection = new AtomicBoolean();
     protected final AtomicReference<Exception> failureCause = new AtomicReference<>();
+    protected long lastEmptyNoWaitDrain;
+    protected volatile ProviderFuture pendingCreate;
+    protected volatile ProviderFuture pendingStart;
+    private final Map<JmsInboundMessageDispatch, ScheduledFuture<?>> delayedRedeliveries = new HashMap<>();
 
     protected JmsMessageConsumer(JmsConsumerId consumerId, JmsSession session, JmsDestination destination,
                                  String selector, boolean noLocal) throws JMSException {
@@ -99,7 +108,11 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
         consumerInfo.setRedeliveryPolicy(redeliveryPolicy);
         consumerInfo.setLocalMessageExpiry(connection.isLocalMessageExpiry());
 
-        session.getConnection().createResource(consumerInfo);
+        if (connection.isCreateResourcesAsync()) {
+            pendingCreate = connection.createResourceAsync(consumerInfo, new CreateFailureHandler());
+        } else {
+            connection.createResource(consumerInfo);
+        }
     }
 
     public void init() throws JMSException {
@@ -109,7 +122,12 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
 
     private void startConsumerResource() throws JMSException {
         try {
-            session.getConnection().startResource(consumerInfo);
+            if (pendingCreate != null) {
+                // Ordered behind the create on the provider so the credit follows the attach.
+                pendingStart = connection.startResourceAsync(consumerInfo, new CreateFailureHandler());
+            } else {
+                connection.startResource(consumerInfo);
+            }
         } catch (JMSException ex) {
             session.remove(this);
             throw ex;
@@ -151,6 +169,11 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
      * @throws JMSException if an error occurs during the consumer close operation.
      */
     protected void doClose() throws JMSException {
+        awaitCreated();
+        if (closed.get()) {
+            return;
+        }
+
         shutdown();
         this.connection.destroyResource(consumerInfo);
     }
@@ -171,6 +194,7 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
             setFailureCause(cause);
             session.remove(this);
             stop(true);
+            cancelDelayedRedeliveries();
         }
     }
 
@@ -181,6 +205,7 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
 
     @Override
     public Message receive(long timeout) throws JMSException {
+        awaitCreated();
         checkClosed();
         checkMessageListener();
 
@@ -194,10 +219,57 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
 
     @Override
     public Message receiveNoWait() throws JMSException {
+        awaitCreated();
         checkClosed();
         checkMessageListener();
 
-        return copy(ackFromReceive(dequeue(0, connection.isReceiveNoWaitLocalOnly())));
+        boolean localCheckOnly = connection.isReceiveNoWaitLocalOnly();
+        boolean drainThrottled = !localCheckOnly && !isPullConsumer() && connection.getReceiveNoWaitDrainInterval() > 0;
+
+        if (drainThrottled && lastEmptyNoWaitDrain != 0) {
+            long elapsed = System.nanoTime() - lastEmptyNoWaitDrain;
+            localCheckOnly = elapsed < TimeUnit.MILLISECONDS.toNanos(connection.getReceiveNoWaitDrainInterval());
+        }
+
+        JmsInboundMessageDispatch envelope = dequeue(0, localCheckOnly);
+        if (drainThrottled && !localCheckOnly && envelope == null) {
+            // The remote was checked and had nothing for us, avoid doing so again
+            // until the configured drain interval has elapsed.
+            lastEmptyNoWaitDrain = System.nanoTime();
+        }
+
+        return copy(ackFromReceive(envelope));
+    }
+
+    /**
+     * Receive used by the QueueBrowser to stream messages from the remote.  A prefetching
+     * browser first waits up to the given time for messages that are already in flight
+     * under its open credit window, only when none arrive is the remaining credit drained
+     * to confirm that the end of the queue has really been reached.  The remote is always
+     * checked before returning null regardless of the receiveNoWait options configured
+     * on the connection.
+     *
+     * @param streamTimeout
+     *        time in milliseconds to wait for in-flight messages before draining.
+     *
+     * @return the next browsed message or null if there are no more messages.
+     *
+     * @throws JMSException if an error occurs during the receive.
+     */
+    Message receiveBrowsed(long streamTimeout) throws JMSException {
+        awaitCreated();
+        checkClosed();
+
+        JmsInboundMessageDispatch envelope = null;
+        if (streamTimeout > 0 && !isPullConsumer()) {
+            envelope = dequeue(streamTimeout, true);
+        }
+
+        if (envelope == null) {
+            envelope = dequeue(0, false);
+        }
+
+        return copy(ackFromReceive(envelope));
     }
 
     /**
@@ -313,6 +385,29 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
                redeliveryPolicy.getMaxRedeliveries() < envelope.getRedeliveryCount();
     }
 
+    /**
+     * Waits for the create and start requests still outstanding from construction of this
+     * consumer, once this returns the consumer is either ready for use or has been closed
+     * with the cause of the failure.
+     *
+     * @throws JMSException if the wait is interrupted.
+     */
+    protected void awaitCreated() throws JMSException {
+        ProviderFuture pending = pendingCreate;
+        if (pending != null) {
+            session.awaitCreated();
+            if (!closed.get()) {
+                connection.awaitResource(pending);
+            }
+            ProviderFuture start = pendingStart;
+            if (start != null && !closed.get()) {
+                connection.awaitResource(start);
+            }
+            pendingCreate = null;
+            pendingStart = null;
+        }
+    }
+
     protected void checkClosed() throws IllegalStateException {
         if (closed.get()) {
             IllegalStateException jmsEx = null;
@@ -424,31 +519,91 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
                 envelope.getMessage().setAcknowledgeCallback(new JmsAcknowledgeCallback(session));
             }
 
-            if (envelope.isEnqueueFirst()) {
-                this.messageQueue.enqueueFirst(envelope);
-            } else {
-                this.messageQueue.enqueue(envelope);
+            if (envelope.isEnqueueFirst() && scheduleDelayedRedelivery(envelope)) {
+                return;
             }
 
-            if (this.messageListener != null && this.started) {
-                session.getExecutor().execute(new MessageDeliverTask());
-            } else {
-                if (availableListener != null) {
-                    session.getExecutor().execute(new Runnable() {
-                        @Override
-                        public void run() {
-                            if (session.isStarted()) {
-                                availableListener.onMessageAvailable(JmsMessageConsumer.this);
-                            }
+            dispatch(envelope);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch(final JmsInboundMessageDispatch envelope) {
+        if (envelope.isEnqueueFirst()) {
+            this.messageQueue.enqueueFirst(envelope);
+        } else {
+            this.messageQueue.enqueue(envelope);
+        }
+
+        if (this.messageListener != null && this.started) {
+            session.getExecutor().execute(new MessageDeliverTask());
+        } else {
+            if (availableListener != null) {
+                session.getExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (session.isStarted()) {
+                            availableListener.onMessageAvailable(JmsMessageConsumer.this);
                         }
-                    });
-                }
+                    }
+                });
+            }
+        }
+    }
+
+    /*
+     * Holds a redelivered message back from the consumer for the time given by the
+     * redelivery policy, other messages continue to be dispatched while it waits.
+     * Must be called with the consumer lock held.
+     */
+    private boolean scheduleDelayedRedelivery(final JmsInboundMessageDispatch envelope) {
+        JmsRedeliveryPolicy redeliveryPolicy = consumerInfo.getRedeliveryPolicy();
+        if (redeliveryPolicy == null || closed.get()) {
+            return false;
+        }
+
+        long delay = redeliveryPolicy.getRedeliveryDelay(envelope.getRedeliveryCount());
+        if (delay <= 0) {
+            return false;
+        }
+
+        ScheduledFuture<?> pending;
+        try {
+            pending = connection.getRedeliveryScheduler().schedule(new DelayedRedeliveryTask(envelope), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ree) {
+            LOG.trace("{} could not delay redelivery of message: {}", getConsumerId(), envelope);
+            return false;
+        }
+
+        LOG.trace("{} delaying redelivery of message for {} ms: {}", getConsumerId(), delay, envelope);
+
+        // A message recovered again while held replaces the earlier scheduled redelivery.
+        ScheduledFuture<?> previous = delayedRedeliveries.put(envelope, pending);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+
+        return true;
+    }
+
+    private void cancelDelayedRedeliveries() {
+        lock.lock();
+        try {
+            for (ScheduledFuture<?> pending : delayedRedeliveries.values()) {
+                pending.cancel(false);
             }
+            delayedRedeliveries.clear();
         } finally {
             lock.unlock();
         }
     }
 
+    private boolean isRedeliveryDelayed() {
+        JmsRedeliveryPolicy redeliveryPolicy = consumerInfo.getRedeliveryPolicy();
+        return redeliveryPolicy != null && redeliveryPolicy.getInitialRedeliveryDelay() > 0;
+    }
+
     public void start() {
         lock.lock();
         try {
@@ -593,18 +748,15 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
 
     protected void onConnectionInterrupted() {
         messageQueue.clear();
+        cancelDelayedRedeliveries();
     }
 
-    protected void onConnectionRecovery(Provider provider) throws Exception {
-        ProviderFuture request = new ProviderFuture();
-        provider.create(consumerInfo, request);
-        request.sync();
+    protected void onConnectionRecovery(JmsResourceRecovery recovery) throws Exception {
+        recovery.create(consumerInfo);
     }
 
-    protected void onConnectionRecovered(Provider provider) throws Exception {
-        ProviderFuture request = new ProviderFuture();
-        provider.start(consumerInfo, request);
-        request.sync();
+    protected void onConnectionRecovered(JmsResourceRecovery recovery) throws Exception {
+        recovery.start(consumerInfo);
     }
 
     protected void onConnectionRestored() {
@@ -689,6 +841,11 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
                         if (autoAckOrDupsOk && !session.isSessionRecovered()) {
                             if (!deliveryFailed) {
                                 doAckConsumed(envelope);
+                            } else if (isRedeliveryDelayed()) {
+                                // Keep the message and redeliver it locally once its delay expires.
+                                envelope.getMessage().getFacade().setRedeliveryCount(envelope.getRedeliveryCount() + 1);
+                                envelope.setEnqueueFirst(true);
+                                onInboundMessage(envelope);
                             } else {
                                 doAckReleased(envelope);
                             }
@@ -704,4 +861,49 @@ public class JmsMessageConsumer implements AutoCloseable, MessageConsumer, JmsMe
             }
         }
     }
+
+    private final class DelayedRedeliveryTask implements Runnable {
+
+        private final JmsInboundMessageDispatch envelope;
+
+        public DelayedRedeliveryTask(JmsInboundMessageDispatch envelope) {
+            this.envelope = envelope;
+        }
+
+        @Override
+        public void run() {
+            lock.lock();
+            try {
+                ScheduledFuture<?> pending = delayedRedeliveries.remove(envelope);
+                if (pending == null || closed.get()) {
+                    return;
+                }
+
+                LOG.trace("{} redelivering delayed message: {}", getConsumerId(), envelope);
+                dispatch(envelope);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private final class CreateFailureHandler implements ProviderSynchronization {
+
+        @Override
+        public void onPendingSuccess() {
+        }
+
+        @Override
+        public void onPendingFailure(Throwable cause) {
+            if (!closed.get()) {
+                try {
+                    shutdown(JmsExceptionSupport.create(cause));
+                } catch (Throwable error) {
+                    LOG.trace("Ignoring exception thrown during cleanup of failed consumer", error);
+                }
+
+                connection.onAsyncException(cause);
+            }
+        }
+    }
 }
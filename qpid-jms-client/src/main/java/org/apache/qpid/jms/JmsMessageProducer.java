@@ -27,16 +27,21 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageProducer;
 
+import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.meta.JmsProducerId;
 import org.apache.qpid.jms.meta.JmsProducerInfo;
-import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderFuture;
+import org.apache.qpid.jms.provider.ProviderSynchronization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Implementation of a JMS MessageProducer
  */
 public class JmsMessageProducer implements AutoCloseable, MessageProducer {
 
+    private static final Logger LOG = LoggerFactory.getLogger(JmsMessageProducer.class);
+
     protected final JmsSession session;
     protected final JmsConnection connection;
     protected JmsProducerInfo producerInfo;
@@ -49,6 +54,7 @@ public class JmsMessageProducer implements AutoCloseable, MessageProducer {
     protected boolean disableTimestamp;
     protected final AtomicLong messageSequence = new AtomicLong();
     protected Exception failureCause;
+    protected volatile ProviderFuture pendingCreate;
 
     protected JmsMessageProducer(JmsProducerId producerId, JmsSession session, JmsDestination destination) throws JMSException {
         this.session = session;
@@ -57,7 +63,29 @@ public class JmsMessageProducer implements AutoCloseable, MessageProducer {
         this.producerInfo = new JmsProducerInfo(producerId);
         this.producerInfo.setDestination(destination);
 
-        session.getConnection().createResource(producerInfo);
+        if (connection.isCreateResourcesAsync()) {
+            pendingCreate = connection.createResourceAsync(producerInfo, new ProviderSynchronization() {
+
+                @Override
+                public void onPendingSuccess() {
+                }
+
+                @Override
+                public void onPendingFailure(Throwable cause) {
+                    if (!closed.get()) {
+                        try {
+                            shutdown(JmsExceptionSupport.create(cause));
+                        } catch (Throwable error) {
+                            LOG.trace("Ignoring exception thrown during cleanup of failed producer", error);
+                        }
+
+                        connection.onAsyncException(cause);
+                    }
+                }
+            });
+        } else {
+            connection.createResource(producerInfo);
+        }
     }
 
     @Override
@@ -74,6 +102,11 @@ public class JmsMessageProducer implements AutoCloseable, MessageProducer {
      * @throws JMSException if an internal error occurs during the close operation.
      */
     protected void doClose() throws JMSException {
+        awaitCreated();
+        if (closed.get()) {
+            return;
+        }
+
         shutdown();
         this.connection.destroyResource(producerInfo);
     }
@@ -169,6 +202,9 @@ public class JmsMessageProducer implements AutoCloseable, MessageProducer {
             throw new InvalidDestinationException("Don't understand null destinations");
         }
 
+        awaitCreated();
+        checkClosed();
+
         this.session.send(this, destination, message, deliveryMode, priority, timeToLive, disableMessageId, disableTimestamp);
     }
 
@@ -216,6 +252,24 @@ public class JmsMessageProducer implements AutoCloseable, MessageProducer {
         return this.messageSequence.incrementAndGet();
     }
 
+    /**
+     * Waits for a create request still outstanding from construction of this producer,
+     * once this returns the producer is either ready for use or has been closed with the
+     * cause of the failure.
+     *
+     * @throws JMSException if the wait is interrupted.
+     */
+    protected void awaitCreated() throws JMSException {
+        ProviderFuture pending = pendingCreate;
+        if (pending != null) {
+            session.awaitCreated();
+            if (!closed.get()) {
+                connection.awaitResource(pending);
+            }
+            pendingCreate = null;
+        }
+    }
+
     protected void checkClosed() throws IllegalStateException {
         if (closed.get()) {
             IllegalStateException jmsEx = null;
@@ -238,13 +292,11 @@ public class JmsMessageProducer implements AutoCloseable, MessageProducer {
     protected void onConnectionInterrupted() {
     }
 
-    protected void onConnectionRecovery(Provider provider) throws Exception {
-        ProviderFuture request = new ProviderFuture();
-        provider.create(producerInfo, request);
-        request.sync();
+    protected void onConnectionRecovery(JmsResourceRecovery recovery) throws Exception {
+        recovery.create(producerInfo);
     }
 
-    protected void onConnectionRecovered(Provider provider) throws Exception {
+    protected void onConnectionRecovered(JmsResourceRecovery recovery) throws Exception {
     }
 
     protected void onConnectionRestored() {
@@ -17,13 +17,13 @@
 package org.apache.qpid.jms;
 
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.jms.IllegalStateException;
 import javax.jms.JMSException;
 import javax.jms.Message;
-import javax.jms.MessageConsumer;
 import javax.jms.Queue;
 import javax.jms.QueueBrowser;
 
@@ -102,20 +102,58 @@ public class JmsQueueBrowser implements AutoCloseable, QueueBrowser, Enumeration
         return this;
     }
 
+    /**
+     * Gets an iterator for browsing the current queue messages in the order they would be
+     * received.  The iterator is a view onto the same scan as the browser's enumeration,
+     * messages are streamed using the configured queue browser prefetch as the credit window
+     * which is only replenished as messages are consumed from the iterator.
+     *
+     * @return an iterator for browsing the messages
+     * @throws javax.jms.JMSException
+     *         if the JMS provider fails to get the iterator for this browser due to some
+     *         internal error.
+     */
+    public Iterator<Message> getIterator() throws JMSException {
+        final Enumeration<Message> enumeration = getEnumeration();
+
+        return new Iterator<Message>() {
+
+            @Override
+            public boolean hasNext() {
+                return enumeration.hasMoreElements();
+            }
+
+            @Override
+            public Message next() {
+                Message message = enumeration.nextElement();
+                if (message == null) {
+                    throw new NoSuchElementException();
+                }
+
+                return message;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("QueueBrowser does not support removal");
+            }
+        };
+    }
+
     /**
      * @return true if more messages to process
      */
     @Override
     public boolean hasMoreElements() {
         while (true) {
-            MessageConsumer consumer = this.consumer;
+            JmsMessageConsumer consumer = this.consumer;
             if (consumer == null) {
                 return false;
             }
 
             if (next == null) {
                 try {
-                    next = consumer.receiveNoWait();
+                    next = consumer.receiveBrowsed(session.getConnection().getQueueBrowserStreamTimeout());
                 } catch (JMSException e) {
                     LOG.warn("Error while receive the next message: {}", e.getMessage());
                 }
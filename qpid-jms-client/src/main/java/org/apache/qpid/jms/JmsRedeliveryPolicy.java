@@ -16,21 +16,39 @@
  */
 package org.apache.qpid.jms;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Defines the policy used to manage redelivered and recovered Messages.
  */
 public class JmsRedeliveryPolicy {
 
     public static final int DEFAULT_MAX_REDELIVERIES = -1;
+    public static final long DEFAULT_INITIAL_REDELIVERY_DELAY = 0;
+    public static final double DEFAULT_BACK_OFF_MULTIPLIER = 1.0d;
+    public static final long DEFAULT_MAX_REDELIVERY_DELAY = -1;
+    public static final double DEFAULT_REDELIVERY_DELAY_JITTER = 0.0d;
 
     private int maxRedeliveries;
+    private long initialRedeliveryDelay;
+    private double backOffMultiplier;
+    private long maxRedeliveryDelay;
+    private double redeliveryDelayJitter;
 
     public JmsRedeliveryPolicy() {
         maxRedeliveries = DEFAULT_MAX_REDELIVERIES;
+        initialRedeliveryDelay = DEFAULT_INITIAL_REDELIVERY_DELAY;
+        backOffMultiplier = DEFAULT_BACK_OFF_MULTIPLIER;
+        maxRedeliveryDelay = DEFAULT_MAX_REDELIVERY_DELAY;
+        redeliveryDelayJitter = DEFAULT_REDELIVERY_DELAY_JITTER;
     }
 
     public JmsRedeliveryPolicy(JmsRedeliveryPolicy source) {
         maxRedeliveries = source.maxRedeliveries;
+        initialRedeliveryDelay = source.initialRedeliveryDelay;
+        backOffMultiplier = source.backOffMultiplier;
+        maxRedeliveryDelay = source.maxRedeliveryDelay;
+        redeliveryDelayJitter = source.redeliveryDelayJitter;
     }
 
     public JmsRedeliveryPolicy copy() {
@@ -59,4 +77,110 @@ public class JmsRedeliveryPolicy {
     public void setMaxRedeliveries(int maxRedeliveries) {
         this.maxRedeliveries = maxRedeliveries;
     }
+
+    /**
+     * @return the delay in milliseconds before the first redelivery of a message.
+     */
+    public long getInitialRedeliveryDelay() {
+        return initialRedeliveryDelay;
+    }
+
+    /**
+     * Configures the time in milliseconds that a message recovered by the client is held
+     * back before it is redelivered to the consumer for the first time.  While held the
+     * message is kept off the dispatch path so other messages continue to be delivered.
+     *
+     * The default value of zero redelivers messages immediately.
+     *
+     * @param initialRedeliveryDelay the initial redelivery delay in milliseconds.
+     */
+    public void setInitialRedeliveryDelay(long initialRedeliveryDelay) {
+        this.initialRedeliveryDelay = initialRedeliveryDelay;
+    }
+
+    /**
+     * @return the multiplier applied to the redelivery delay on each further redelivery.
+     */
+    public double getBackOffMultiplier() {
+        return backOffMultiplier;
+    }
+
+    /**
+     * Configures the multiplier applied to the redelivery delay for each redelivery after
+     * the first, so that a message which keeps failing is retried less and less often.
+     *
+     * The default value of 1.0 keeps the delay constant.
+     *
+     * @param backOffMultiplier the multiplier used to grow the redelivery delay.
+     */
+    public void setBackOffMultiplier(double backOffMultiplier) {
+        this.backOffMultiplier = backOffMultiplier;
+    }
+
+    /**
+     * @return the maximum delay in milliseconds before a message is redelivered.
+     */
+    public long getMaxRedeliveryDelay() {
+        return maxRedeliveryDelay;
+    }
+
+    /**
+     * Configures the upper limit in milliseconds on the redelivery delay as it grows
+     * by the back off multiplier.
+     *
+     * The default value of (-1) places no limit on the delay.
+     *
+     * @param maxRedeliveryDelay the maximum redelivery delay in milliseconds.
+     */
+    public void setMaxRedeliveryDelay(long maxRedeliveryDelay) {
+        this.maxRedeliveryDelay = maxRedeliveryDelay;
+    }
+
+    /**
+     * @return the fraction of the redelivery delay that is randomly added or removed.
+     */
+    public double getRedeliveryDelayJitter() {
+        return redeliveryDelayJitter;
+    }
+
+    /**
+     * Configures a random variation applied to each redelivery delay, given as a fraction
+     * of the delay, so that messages recovered together are not all redelivered at the
+     * same moment.  A value of 0.2 varies the delay by up to 20 percent either way.
+     * Messages held with different delays may be redelivered out of their original order.
+     *
+     * The default value of zero applies no variation.
+     *
+     * @param redeliveryDelayJitter the fraction of the delay to vary it by.
+     */
+    public void setRedeliveryDelayJitter(double redeliveryDelayJitter) {
+        this.redeliveryDelayJitter = redeliveryDelayJitter;
+    }
+
+    /**
+     * Returns the time in milliseconds that a message should be held before it is
+     * redelivered based on the number of times it has already been redelivered.
+     *
+     * @param redeliveryCount
+     *        the number of times the message has been redelivered, including this one.
+     *
+     * @return the delay in milliseconds before redelivery, zero for no delay.
+     */
+    public long getRedeliveryDelay(int redeliveryCount) {
+        if (initialRedeliveryDelay <= 0 || redeliveryCount <= 0) {
+            return 0;
+        }
+
+        double delay = initialRedeliveryDelay * Math.pow(Math.max(backOffMultiplier, 1.0d), redeliveryCount - 1);
+        if (maxRedeliveryDelay > 0) {
+            delay = Math.min(delay, maxRedeliveryDelay);
+        }
+
+        if (redeliveryDelayJitter > 0) {
+            double variation = ThreadLocalRandom.current().nextDouble(-redeliveryDelayJitter, redeliveryDelayJitter);
+            delay += delay * variation;
+        }
+
+        return Math.max(0, Math.round(delay));
+    }
 }
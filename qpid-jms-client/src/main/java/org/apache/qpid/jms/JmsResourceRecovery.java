@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.meta.JmsConsumerInfo;
+import org.apache.qpid.jms.meta.JmsProducerInfo;
+import org.apache.qpid.jms.meta.JmsResource;
+import org.apache.qpid.jms.meta.JmsSessionInfo;
+import org.apache.qpid.jms.provider.Provider;
+import org.apache.qpid.jms.provider.ProviderFuture;
+import org.apache.qpid.jms.provider.ProviderSynchronization;
+
+/**
+ * Issues the requests that restore a Connection's resources during failover recovery
+ * without waiting on each one in turn, so that all the begins and attaches are sent to
+ * the provider back to back and are then awaited together.
+ *
+ * The time taken to restore each type of resource is recorded as the time from creation
+ * of this batch until the last request for that type completed.
+ */
+final class JmsResourceRecovery {
+
+    private final Provider provider;
+    private final long startTime = System.nanoTime();
+    private final List<ProviderFuture> requests = new ArrayList<ProviderFuture>();
+    private final Map<String, ResourceStatistics> statistics = new LinkedHashMap<String, ResourceStatistics>();
+
+    public JmsResourceRecovery(Provider provider) {
+        this.provider = provider;
+    }
+
+    public Provider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Requests that the provider create the given resource, the result is checked
+     * when {@link #awaitCompletion()} is called.
+     *
+     * @param resource
+     *        the resource to recreate.
+     *
+     * @throws Exception if the provider rejects the request.
+     */
+    public void create(JmsResource resource) throws Exception {
+        ProviderFuture request = new ProviderFuture(track(resource));
+        requests.add(request);
+        provider.create(resource, request);
+    }
+
+    /**
+     * Requests that the provider start the given resource, the result is checked
+     * when {@link #awaitCompletion()} is called.
+     *
+     * @param resource
+     *        the resource to restart.
+     *
+     * @throws Exception if the provider rejects the request.
+     */
+    public void start(JmsResource resource) throws Exception {
+        ProviderFuture request = new ProviderFuture(track(resource));
+        requests.add(request);
+        provider.start(resource, request);
+    }
+
+    /**
+     * Waits for every request issued through this batch to complete.
+     *
+     * @throws Exception the failure of the first request found to have failed.
+     */
+    public void awaitCompletion() throws Exception {
+        for (ProviderFuture request : requests) {
+            request.sync();
+        }
+    }
+
+    /**
+     * @return the time in milliseconds from creation of this batch until the last request
+     *         for each type of resource completed, keyed by the resource type.
+     */
+    public Map<String, Long> getRecoveryTimes() {
+        Map<String, Long> times = new LinkedHashMap<String, Long>();
+        synchronized (statistics) {
+            for (Map.Entry<String, ResourceStatistics> entry : statistics.entrySet()) {
+                times.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().lastCompleted - startTime));
+            }
+        }
+
+        return times;
+    }
+
+    /**
+     * @return a summary of the number of each type of resource restored and the time
+     *         in milliseconds it took for the last of them to complete.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        synchronized (statistics) {
+            for (Map.Entry<String, ResourceStatistics> entry : statistics.entrySet()) {
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+
+                ResourceStatistics stats = entry.getValue();
+                builder.append(stats.count).append(' ').append(entry.getKey());
+                builder.append(" in ").append(TimeUnit.NANOSECONDS.toMillis(stats.lastCompleted - startTime)).append(" ms");
+            }
+        }
+
+        return builder.length() == 0 ? "no resources" : builder.toString();
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private ProviderSynchronization track(JmsResource resource) {
+        final ResourceStatistics stats;
+        synchronized (statistics) {
+            String type = typeOf(resource);
+            ResourceStatistics existing = statistics.get(type);
+            if (existing == null) {
+                existing = new ResourceStatistics();
+                existing.lastCompleted = startTime;
+                statistics.put(type, existing);
+            }
+
+            existing.count++;
+            stats = existing;
+        }
+
+        return new ProviderSynchronization() {
+
+            @Override
+            public void onPendingSuccess() {
+                synchronized (statistics) {
+                    stats.lastCompleted = Math.max(stats.lastCompleted, System.nanoTime());
+                }
+            }
+
+            @Override
+            public void onPendingFailure(Throwable cause) {
+            }
+        };
+    }
+
+    private static String typeOf(JmsResource resource) {
+        if (resource instanceof JmsSessionInfo) {
+            return "sessions";
+        } else if (resource instanceof JmsProducerInfo) {
+            return "producers";
+        } else if (resource instanceof JmsConsumerInfo) {
+            return "consumers";
+        } else if (resource instanceof JmsTemporaryDestination) {
+            return "temporary destinations";
+        } else {
+            return resource.getClass().getSimpleName();
+        }
+    }
+
+    private static final class ResourceStatistics {
+
+        private int count;
+        private long lastCompleted;
+    }
+}
@@ -58,6 +58,7 @@ import javax.jms.TopicPublisher;
 import javax.jms.TopicSession;
 import javax.jms.TopicSubscriber;
 
+import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 import org.apache.qpid.jms.message.JmsMessage;
 import org.apache.qpid.jms.message.JmsMessageIDBuilder;
@@ -70,9 +71,9 @@ import org.apache.qpid.jms.meta.JmsProducerInfo;
 import org.apache.qpid.jms.meta.JmsResource;
 import org.apache.qpid.jms.meta.JmsSessionId;
 import org.apache.qpid.jms.meta.JmsSessionInfo;
-import org.apache.qpid.jms.provider.Provider;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
+import org.apache.qpid.jms.provider.ProviderSynchronization;
 import org.apache.qpid.jms.selector.SelectorParser;
 import org.apache.qpid.jms.selector.filter.FilterException;
 import org.slf4j.Logger;
@@ -105,6 +106,7 @@ public class JmsSession implements AutoCloseable, Session, QueueSession, TopicSe
     private JmsTransactionContext transactionContext;
     private boolean sessionRecovered;
     private final AtomicReference<Exception> failureCause = new AtomicReference<Exception>();
+    private volatile ProviderFuture pendingCreate;
 
     protected JmsSession(JmsConnection connection, JmsSessionId sessionId, int acknowledgementMode) throws JMSException {
         this.connection = connection;
@@ -122,7 +124,30 @@ public class JmsSession implements AutoCloseable, Session, QueueSession, TopicSe
         sessionInfo.setAcknowledgementMode(acknowledgementMode);
         sessionInfo.setSendAcksAsync(connection.isForceAsyncAcks());
 
-        connection.createResource(sessionInfo);
+        if (connection.isCreateResourcesAsync()) {
+            pendingCreate = connection.createResourceAsync(sessionInfo, new ProviderSynchronization() {
+
+                @Override
+                public void onPendingSuccess() {
+                }
+
+                @Override
+                public void onPendingFailure(Throwable cause) {
+                    if (!closed.get()) {
+                        try {
+                            JmsSession.this.connection.removeSession(sessionInfo);
+                        } catch (Throwable error) {
+                            LOG.trace("Ignoring exception thrown during cleanup of failed session", error);
+                        }
+
+                        remotelyClosed(JmsExceptionSupport.create(cause));
+                        JmsSession.this.connection.onAsyncException(cause);
+                    }
+                }
+            });
+        } else {
+            connection.createResource(sessionInfo);
+        }
 
         // We always keep an open TX so start now.
         getTransactionContext().begin();
@@ -228,9 +253,12 @@ public class JmsSession implements AutoCloseable, Session, QueueSession, TopicSe
      */
     protected void doClose() throws JMSException {
         boolean interrupted = Thread.interrupted();
-        shutdown();
-        connection.removeSession(sessionInfo);
-        connection.destroyResource(sessionInfo);
+        awaitCreated();
+        if (!closed.get()) {
+            shutdown();
+            connection.removeSession(sessionInfo);
+            connection.destroyResource(sessionInfo);
+        }
         if (interrupted) {
             Thread.currentThread().interrupt();
         }
@@ -745,6 +773,21 @@ public class JmsSession implements AutoCloseable, Session, QueueSession, TopicSe
         return acknowledgementMode == Session.DUPS_OK_ACKNOWLEDGE;
     }
 
+    /**
+     * Waits for a create request still outstanding from construction of this session,
+     * once this returns the session is either ready for use or has been closed with the
+     * cause of the failure.
+     *
+     * @throws JMSException if the wait is interrupted.
+     */
+    protected void awaitCreated() throws JMSException {
+        ProviderFuture pending = pendingCreate;
+        if (pending != null) {
+            connection.awaitResource(pending);
+            pendingCreate = null;
+        }
+    }
+
     protected void checkClosed() throws IllegalStateException {
         if (closed.get()) {
             IllegalStateException jmsEx = null;
@@ -921,30 +964,29 @@ public class JmsSession implements AutoCloseable, Session, QueueSession, TopicSe
         }
     }
 
-    protected void onConnectionRecovery(Provider provider) throws Exception {
-
-        ProviderFuture request = new ProviderFuture();
-        provider.create(sessionInfo, request);
-        request.sync();
-
-        transactionContext.onConnectionRecovery(provider);
+    protected void onConnectionRecovery(JmsResourceRecovery recovery) throws Exception {
+        // The provider handles requests in order, so the producers and consumers can
+        // be requested without waiting for the session begin to complete.
+        recovery.create(sessionInfo);
 
         for (JmsMessageProducer producer : producers.values()) {
-            producer.onConnectionRecovery(provider);
+            producer.onConnectionRecovery(recovery);
         }
 
         for (JmsMessageConsumer consumer : consumers.values()) {
-            consumer.onConnectionRecovery(provider);
+            consumer.onConnectionRecovery(recovery);
         }
+
+        transactionContext.onConnectionRecovery(recovery.getProvider());
     }
 
-    protected void onConnectionRecovered(Provider provider) throws Exception {
+    protected void onConnectionRecovered(JmsResourceRecovery recovery) throws Exception {
         for (JmsMessageProducer producer : producers.values()) {
-            producer.onConnectionRecovered(provider);
+            producer.onConnectionRecovered(recovery);
         }
 
         for (JmsMessageConsumer consumer : consumers.values()) {
-            consumer.onConnectionRecovered(provider);
+            consumer.onConnectionRecovered(recovery);
         }
     }
 
@@ -84,6 +84,8 @@ public interface JmsBytesMessageFacade extends JmsMessageFacade {
 
     /**
      * @return the number of bytes contained in the body of the message.
+     *
+     * @throws JMSException if the body of the message cannot be read.
      */
-    int getBodyLength();
+    int getBodyLength() throws JMSException;
 }
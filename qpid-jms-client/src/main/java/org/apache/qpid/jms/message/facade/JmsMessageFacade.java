@@ -407,4 +407,13 @@ public interface JmsMessageFacade {
      */
     void setProviderMessageIdObject(Object messageId);
 
+    /**
+     * Returns an estimate of the size of this message once encoded for transmission, used
+     * to account for the memory held by messages that are awaiting a send to complete.
+     * The estimate need not be exact but should grow in line with the message contents.
+     *
+     * @return the estimated encoded size of this message in bytes.
+     */
+    int getEstimatedSize();
+
 }
@@ -46,6 +46,11 @@ public final class JmsConnectionInfo implements JmsResource, Comparable<JmsConne
     private boolean validatePropertyNames = true;
     private boolean receiveLocalOnly;
     private boolean receiveNoWaitLocalOnly;
+    private long receiveNoWaitDrainInterval;
+    private long queueBrowserStreamTimeout;
+    private boolean createResourcesAsync;
+    private long syncSpinTime;
+    private long syncYieldTime;
     private boolean localMessagePriority;
     private boolean localMessageExpiry;
     private long sendTimeout = DEFAULT_SEND_TIMEOUT;
@@ -85,6 +90,11 @@ public final class JmsConnectionInfo implements JmsResource, Comparable<JmsConne
         copy.topicPrefix = topicPrefix;
         copy.connectTimeout = connectTimeout;
         copy.validatePropertyNames = validatePropertyNames;
+        copy.receiveNoWaitDrainInterval = receiveNoWaitDrainInterval;
+        copy.queueBrowserStreamTimeout = queueBrowserStreamTimeout;
+        copy.createResourcesAsync = createResourcesAsync;
+        copy.syncSpinTime = syncSpinTime;
+        copy.syncYieldTime = syncYieldTime;
     }
 
     public boolean isForceAsyncSend() {
@@ -236,6 +246,46 @@ public final class JmsConnectionInfo implements JmsResource, Comparable<JmsConne
         this.receiveNoWaitLocalOnly = receiveNoWaitLocalOnly;
     }
 
+    public long getReceiveNoWaitDrainInterval() {
+        return receiveNoWaitDrainInterval;
+    }
+
+    public void setReceiveNoWaitDrainInterval(long receiveNoWaitDrainInterval) {
+        this.receiveNoWaitDrainInterval = receiveNoWaitDrainInterval;
+    }
+
+    public long getQueueBrowserStreamTimeout() {
+        return queueBrowserStreamTimeout;
+    }
+
+    public void setQueueBrowserStreamTimeout(long queueBrowserStreamTimeout) {
+        this.queueBrowserStreamTimeout = queueBrowserStreamTimeout;
+    }
+
+    public boolean isCreateResourcesAsync() {
+        return createResourcesAsync;
+    }
+
+    public void setCreateResourcesAsync(boolean createResourcesAsync) {
+        this.createResourcesAsync = createResourcesAsync;
+    }
+
+    public long getSyncSpinTime() {
+        return syncSpinTime;
+    }
+
+    public void setSyncSpinTime(long syncSpinTime) {
+        this.syncSpinTime = syncSpinTime;
+    }
+
+    public long getSyncYieldTime() {
+        return syncYieldTime;
+    }
+
+    public void setSyncYieldTime(long syncYieldTime) {
+        this.syncYieldTime = syncYieldTime;
+    }
+
     public boolean isLocalMessageExpiry() {
         return localMessageExpiry;
     }
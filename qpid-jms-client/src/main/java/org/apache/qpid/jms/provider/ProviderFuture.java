@@ -31,6 +31,7 @@ public class ProviderFuture implements AsyncResult {
     private final AtomicBoolean completer = new AtomicBoolean();
     private final CountDownLatch latch = new CountDownLatch(1);
     private final ProviderSynchronization synchronization;
+    private final ProviderWaitStrategy waitStrategy;
     private volatile Throwable error;
 
     public ProviderFuture() {
@@ -38,7 +39,12 @@ public class ProviderFuture implements AsyncResult {
     }
 
     public ProviderFuture(ProviderSynchronization synchronization) {
+        this(synchronization, ProviderWaitStrategy.PARK);
+    }
+
+    public ProviderFuture(ProviderSynchronization synchronization, ProviderWaitStrategy waitStrategy) {
         this.synchronization = synchronization;
+        this.waitStrategy = waitStrategy;
     }
 
     @Override
@@ -79,7 +85,7 @@ public class ProviderFuture implements AsyncResult {
      */
     public void sync(long amount, TimeUnit unit) throws IOException {
         try {
-            latch.await(amount, unit);
+            waitStrategy.await(latch, amount, unit);
         } catch (InterruptedException e) {
             Thread.interrupted();
             throw IOExceptionSupport.create(e);
@@ -94,7 +100,7 @@ public class ProviderFuture implements AsyncResult {
      */
     public void sync() throws IOException {
         try {
-            latch.await();
+            waitStrategy.await(latch);
         } catch (InterruptedException e) {
             Thread.interrupted();
             throw IOExceptionSupport.create(e);
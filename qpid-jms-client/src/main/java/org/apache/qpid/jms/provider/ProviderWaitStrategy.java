@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controls how a thread waits for a {@link ProviderFuture} to complete.
+ *
+ * The waiting thread first busy spins for the configured spin time, then yields its
+ * time slice until the configured yield time has also elapsed and only then parks until
+ * the future completes.  When the remote peer responds within the spin or yield window
+ * the waiting thread never parks, which avoids the cost of parking and the latency of
+ * being woken again at the price of keeping a CPU busy while waiting.
+ */
+public final class ProviderWaitStrategy {
+
+    /**
+     * Parks the waiting thread immediately, using no CPU while waiting.
+     */
+    public static final ProviderWaitStrategy PARK = new ProviderWaitStrategy(0, 0);
+
+    private final long spinTime;
+    private final long yieldTime;
+
+    private ProviderWaitStrategy(long spinTime, long yieldTime) {
+        this.spinTime = Math.max(0, spinTime);
+        this.yieldTime = Math.max(0, yieldTime);
+    }
+
+    /**
+     * Returns a wait strategy that spins and then yields for the given times before
+     * parking the waiting thread.
+     *
+     * @param spinTime
+     *        the time in nanoseconds to busy spin before yielding.
+     * @param yieldTime
+     *        the time in nanoseconds to yield once spinning has ended before parking.
+     *
+     * @return a wait strategy using the given spin and yield times.
+     */
+    public static ProviderWaitStrategy create(long spinTime, long yieldTime) {
+        if (spinTime <= 0 && yieldTime <= 0) {
+            return PARK;
+        }
+
+        return new ProviderWaitStrategy(spinTime, yieldTime);
+    }
+
+    /**
+     * Waits for the given latch to be released.
+     *
+     * @param latch
+     *        the latch to wait on.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public void await(CountDownLatch latch) throws InterruptedException {
+        spinThenYield(latch, Long.MAX_VALUE);
+        latch.await();
+    }
+
+    /**
+     * Waits for the given latch to be released or for the given time to elapse.
+     *
+     * @param latch
+     *        the latch to wait on.
+     * @param amount
+     *        the maximum time to wait.
+     * @param unit
+     *        the unit of the amount value.
+     *
+     * @return true if the latch was released before the time elapsed.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted.
+     */
+    public boolean await(CountDownLatch latch, long amount, TimeUnit unit) throws InterruptedException {
+        long limit = unit.toNanos(amount);
+        long elapsed = spinThenYield(latch, limit);
+        return latch.await(limit - elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the time in nanoseconds spent busy spinning before yielding.
+     */
+    public long getSpinTime() {
+        return spinTime;
+    }
+
+    /**
+     * @return the time in nanoseconds spent yielding before parking.
+     */
+    public long getYieldTime() {
+        return yieldTime;
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderWaitStrategy { spinTime = " + spinTime + "ns, yieldTime = " + yieldTime + "ns }";
+    }
+
+    private long spinThenYield(CountDownLatch latch, long limit) {
+        if (this == PARK || latch.getCount() == 0) {
+            return 0;
+        }
+
+        final long start = System.nanoTime();
+        final long spinLimit = Math.min(spinTime, limit);
+        // Bounded by the time left after spinning so that large configured times cannot overflow.
+        final long yieldLimit = spinLimit + Math.min(yieldTime, limit - spinLimit);
+
+        long elapsed = 0;
+        while (elapsed < spinLimit && latch.getCount() != 0) {
+            elapsed = System.nanoTime() - start;
+        }
+
+        while (elapsed < yieldLimit && latch.getCount() != 0) {
+            Thread.yield();
+            elapsed = System.nanoTime() - start;
+        }
+
+        return elapsed;
+    }
+}
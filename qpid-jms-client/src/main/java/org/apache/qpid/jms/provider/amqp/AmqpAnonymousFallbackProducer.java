@@ -17,7 +17,12 @@
 package org.apache.qpid.jms.provider.amqp;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.jms.JMSException;
 
@@ -38,7 +43,10 @@ import org.slf4j.LoggerFactory;
  * Handles the case of anonymous JMS MessageProducers.
  *
  * In order to simulate the anonymous producer we must create a sender for each message
- * send attempt and close it following a successful send.
+ * send attempt and close it following a successful send.  When the connection has been
+ * configured to cache the fallback producers the created senders are instead held in an
+ * LRU cache keyed by destination, senders that remain unused for longer than the configured
+ * cache timeout after their last send completed are closed by a periodic sweep of the cache.
  */
 public class AmqpAnonymousFallbackProducer extends AmqpProducer {
 
@@ -49,6 +57,12 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
     private final String producerIdKey = producerIdGenerator.generateId();
     private long producerIdCount;
 
+    private long cacheHits;
+    private long cacheMisses;
+    private long cacheEvictions;
+    private long cacheIdleEvictions;
+    private ScheduledFuture<?> cacheSweepTask;
+
     /**
      * Creates the Anonymous Producer object.
      *
@@ -62,6 +76,10 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
 
         if (connection.isAnonymousProducerCache()) {
             producerCache.setMaxCacheSize(connection.getAnonymousProducerCacheSize());
+
+            if (connection.getAnonymousProducerCacheTimeout() > 0) {
+                cacheSweepTask = connection.schedule(new CacheSweepTask(), getCacheSweepInterval());
+            }
         }
     }
 
@@ -69,12 +87,17 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
     public boolean send(JmsOutboundMessageDispatch envelope, AsyncResult request) throws IOException, JMSException {
         LOG.trace("Started send chain for anonymous producer: {}", getProducerId());
 
-        AmqpProducer producer = null;
+        CachedProducer cached = null;
         if (connection.isAnonymousProducerCache()) {
-            producer = producerCache.get(envelope.getDestination());
+            cached = producerCache.get(envelope.getDestination());
+            if (cached != null) {
+                cacheHits++;
+            } else {
+                cacheMisses++;
+            }
         }
 
-        if (producer == null) {
+        if (cached == null) {
             // Create a new ProducerInfo for the short lived producer that's created to perform the
             // send to the given AMQP target.
             JmsProducerInfo info = new JmsProducerInfo(getNextProducerId());
@@ -84,26 +107,49 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
             // it will trigger the open event which will in turn trigger the send event.
             // If caching is disabled the created producer will be closed immediately.
             AmqpProducerBuilder builder = new AmqpProducerBuilder(session, info);
-            builder.buildResource(new AnonymousSendRequest(request, builder, envelope));
 
             if (connection.isAnonymousProducerCache()) {
+                CachedSendRequest cachedSend = new CachedSendRequest(request);
+                builder.buildResource(new AnonymousSendRequest(cachedSend, builder, envelope));
+
                 // Cache it in hopes of not needing to create large numbers of producers.
-                producerCache.put(envelope.getDestination(), builder.getResource());
+                cached = new CachedProducer(builder.getResource());
+                cachedSend.bind(cached);
+                producerCache.put(envelope.getDestination(), cached);
+            } else {
+                builder.buildResource(new AnonymousSendRequest(request, builder, envelope));
             }
 
             return true;
         } else {
-            return producer.send(envelope, request);
+            CachedSendRequest cachedSend = new CachedSendRequest(request);
+            cachedSend.bind(cached);
+            try {
+                return cached.producer.send(envelope, cachedSend);
+            } catch (IOException | JMSException | RuntimeException e) {
+                cachedSend.release();
+                throw e;
+            }
         }
     }
 
     @Override
     public void close(AsyncResult request) {
+        if (cacheSweepTask != null) {
+            cacheSweepTask.cancel(false);
+            cacheSweepTask = null;
+        }
+
+        LOG.debug("Anonymous producer {} closing, producer cache hits: {}, misses: {}, evictions: {}, idle evictions: {}",
+                  new Object[] { getProducerId(), cacheHits, cacheMisses, cacheEvictions, cacheIdleEvictions });
+
         // Trigger an immediate close, the internal producers that are currently in the cache
-        for (AmqpProducer producer : producerCache.values()) {
-            producer.close(new CloseRequest(producer));
+        for (CachedProducer cached : producerCache.values()) {
+            cached.producer.close(new CloseRequest(cached.producer));
         }
 
+        producerCache.clear();
+
         request.onSuccess();
     }
 
@@ -122,10 +168,62 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
         return EndpointState.ACTIVE;
     }
 
+    /**
+     * @return the number of sends that found an open producer in the producer cache.
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return the number of sends that required a new producer to be created.
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return the number of producers closed because the cache reached its maximum size.
+     */
+    public long getCacheEvictions() {
+        return cacheEvictions;
+    }
+
+    /**
+     * @return the number of producers closed because they were idle longer than the cache timeout.
+     */
+    public long getCacheIdleEvictions() {
+        return cacheIdleEvictions;
+    }
+
+    /**
+     * @return the number of producers currently held in the producer cache.
+     */
+    public int getCacheSize() {
+        return producerCache.size();
+    }
+
     private JmsProducerId getNextProducerId() {
         return new JmsProducerId(producerIdKey, -1, producerIdCount++);
     }
 
+    private long getCacheSweepInterval() {
+        // Sweeping at half the timeout bounds the time a producer can outlive its timeout.
+        return Math.max(1, connection.getAnonymousProducerCacheTimeout() / 2);
+    }
+
+    private void removeFromCache(AmqpProducer producer) {
+        JmsDestination destination = producer.getResourceInfo().getDestination();
+        CachedProducer cached = producerCache.get(destination);
+        if (cached != null && cached.producer == producer) {
+            producerCache.remove(destination);
+        }
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
     private abstract class AnonymousRequest extends WrappedAsyncResult {
 
         protected final JmsOutboundMessageDispatch envelope;
@@ -169,6 +267,13 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
             }
         }
 
+        @Override
+        public void onFailure(Throwable result) {
+            // The producer never opened so ensure it doesn't linger in the cache.
+            AmqpAnonymousFallbackProducer.this.removeFromCache(getProducer());
+            super.onFailure(result);
+        }
+
         @Override
         public AmqpProducer getProducer() {
             return producerBuilder.getResource();
@@ -188,7 +293,7 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
         @Override
         public void onFailure(Throwable result) {
             // Ensure that cache get purged of any failed producers.
-            AmqpAnonymousFallbackProducer.this.producerCache.remove(producer.getResourceInfo().getDestination());
+            AmqpAnonymousFallbackProducer.this.removeFromCache(producer);
             super.onFailure(result);
         }
 
@@ -255,7 +360,102 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
         }
     }
 
-    private final class AnonymousProducerCache extends LRUCache<JmsDestination, AmqpProducer> {
+    private final class CacheSweepTask implements Runnable {
+
+        @Override
+        public void run() {
+            if (cacheSweepTask == null) {
+                return;
+            }
+
+            long idleLimit = now() - connection.getAnonymousProducerCacheTimeout();
+            List<AmqpProducer> expired = new ArrayList<AmqpProducer>();
+
+            // A producer is idle from when its last send completed, producers with sends
+            // still waiting on credit or a disposition are never closed by the sweep.
+            Iterator<CachedProducer> entries = producerCache.values().iterator();
+            while (entries.hasNext()) {
+                CachedProducer cached = entries.next();
+                if (cached.inFlight > 0 || cached.lastUsed > idleLimit) {
+                    continue;
+                }
+
+                entries.remove();
+                expired.add(cached.producer);
+            }
+
+            for (AmqpProducer producer : expired) {
+                LOG.trace("Producer: {} evicted from producer cache after idle timeout", producer);
+                cacheIdleEvictions++;
+                producer.close(new CloseRequest(producer));
+            }
+
+            if (!expired.isEmpty()) {
+                connection.getProvider().pumpToProtonTransport();
+            }
+
+            cacheSweepTask = connection.schedule(this, getCacheSweepInterval());
+        }
+    }
+
+    private static final class CachedProducer {
+
+        private final AmqpProducer producer;
+        private long lastUsed = now();
+        private int inFlight;
+
+        public CachedProducer(AmqpProducer producer) {
+            this.producer = producer;
+        }
+
+        @Override
+        public String toString() {
+            return producer.toString();
+        }
+    }
+
+    /*
+     * Tracks a send through a cached producer so that the producer is not considered idle
+     * until the send has completed.
+     */
+    private static final class CachedSendRequest extends WrappedAsyncResult {
+
+        private CachedProducer cached;
+
+        public CachedSendRequest(AsyncResult request) {
+            super(request);
+        }
+
+        public void bind(CachedProducer cached) {
+            // The send can fail before the producer is bound if the attach fails immediately.
+            if (!isComplete()) {
+                this.cached = cached;
+                cached.inFlight++;
+            }
+        }
+
+        public void release() {
+            if (cached != null) {
+                cached.inFlight--;
+                cached.lastUsed = now();
+                cached = null;
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable result) {
+            release();
+            super.onFailure(result);
+        }
+
+        @Override
+        public void onSuccess() {
+            release();
+            super.onSuccess();
+        }
+    }
+
+    private final class AnonymousProducerCache extends LRUCache<JmsDestination, CachedProducer> {
 
         private static final long serialVersionUID = 1L;
 
@@ -264,9 +464,11 @@ public class AmqpAnonymousFallbackProducer extends AmqpProducer {
         }
 
         @Override
-        protected void onCacheEviction(Map.Entry<JmsDestination, AmqpProducer> cached) {
+        protected void onCacheEviction(Map.Entry<JmsDestination, CachedProducer> cached) {
             LOG.trace("Producer: {} evicted from producer cache", cached.getValue());
-            cached.getValue().close(new CloseRequest(cached.getValue()));
+            cacheEvictions++;
+            AmqpProducer producer = cached.getValue().producer;
+            producer.close(new CloseRequest(producer));
         }
     }
 }
@@ -33,6 +33,8 @@ import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.amqp.builders.AmqpSessionBuilder;
 import org.apache.qpid.jms.provider.amqp.builders.AmqpTemporaryDestinationBuilder;
 import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFactory;
+import org.apache.qpid.jms.serialization.ObjectSerializer;
+import org.apache.qpid.jms.serialization.ObjectSerializerFinder;
 import org.apache.qpid.proton.engine.Connection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +55,14 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
     private boolean objectMessageUsesAmqpTypes = false;
     private boolean anonymousProducerCache = false;
     private int anonymousProducerCacheSize = 10;
+    private long anonymousProducerCacheTimeout = 30000;
+    private boolean clientSideSelectors = false;
+    private boolean topicFanout = false;
+    private boolean textAsData = false;
+    private ObjectSerializer objectMessageSerializer;
+    private boolean compression = false;
+    private int compressionThreshold;
+    private int maxInflatedSize;
 
     public AmqpConnection(AmqpProvider provider, JmsConnectionInfo info, Connection protonConnection) {
         super(info, protonConnection, provider);
@@ -63,6 +73,17 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
 
         // Create connection properties initialized with defaults from the JmsConnectionInfo
         this.properties = new AmqpConnectionProperties(info);
+
+        this.anonymousProducerCache = provider.isAnonymousProducerCache();
+        this.anonymousProducerCacheSize = provider.getAnonymousProducerCacheSize();
+        this.anonymousProducerCacheTimeout = provider.getAnonymousProducerCacheTimeout();
+        this.clientSideSelectors = provider.isClientSideSelectors();
+        this.topicFanout = provider.isTopicFanout();
+        this.textAsData = provider.isTextAsData();
+        this.objectMessageSerializer = ObjectSerializerFinder.findSerializer(provider.getObjectMessageSerializer());
+        this.compression = provider.isCompression();
+        this.compressionThreshold = provider.getCompressionThreshold();
+        this.maxInflatedSize = provider.getMaxInflatedSize();
     }
 
     public void createSession(JmsSessionInfo sessionInfo, AsyncResult request) {
@@ -198,6 +219,73 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
         this.anonymousProducerCacheSize = anonymousProducerCacheSize;
     }
 
+    /**
+     * @return the time in milliseconds a cached anonymous producer may remain unused before it is closed.
+     */
+    public long getAnonymousProducerCacheTimeout() {
+        return anonymousProducerCacheTimeout;
+    }
+
+    /**
+     * @param anonymousProducerCacheTimeout
+     *        the time in milliseconds a cached anonymous producer may remain unused, zero or less disables.
+     */
+    public void setAnonymousProducerCacheTimeout(long anonymousProducerCacheTimeout) {
+        this.anonymousProducerCacheTimeout = anonymousProducerCacheTimeout;
+    }
+
+    /**
+     * @return true if consumer selectors are evaluated by the client instead of the remote peer.
+     */
+    public boolean isClientSideSelectors() {
+        return clientSideSelectors;
+    }
+
+    /**
+     * @param clientSideSelectors
+     *        true if consumer selectors should be evaluated by the client instead of the remote peer.
+     */
+    public void setClientSideSelectors(boolean clientSideSelectors) {
+        this.clientSideSelectors = clientSideSelectors;
+    }
+
+    /**
+     * @return true if non-durable topic consumers share a single receiver link per topic.
+     */
+    public boolean isTopicFanout() {
+        return topicFanout;
+    }
+
+    /**
+     * @param topicFanout
+     *        true if non-durable topic consumers should share a single receiver link per topic.
+     */
+    public void setTopicFanout(boolean topicFanout) {
+        this.topicFanout = topicFanout;
+    }
+
+    /**
+     * @return true if TextMessage bodies are sent as UTF-8 encoded Data sections.
+     */
+    public boolean isTextAsData() {
+        return textAsData;
+    }
+
+    /**
+     * @param textAsData
+     *        true if TextMessage bodies should be sent as UTF-8 encoded Data sections.
+     */
+    public void setTextAsData(boolean textAsData) {
+        this.textAsData = textAsData;
+    }
+
+    /**
+     * @return the session owned by the connection for managing connection level resources.
+     */
+    public AmqpConnectionSession getConnectionSession() {
+        return connectionSession;
+    }
+
     /**
      * @return true if new ObjectMessage instance should default to using AMQP Typed bodies.
      */
@@ -216,6 +304,66 @@ public class AmqpConnection extends AmqpAbstractResource<JmsConnectionInfo, Conn
         this.objectMessageUsesAmqpTypes = objectMessageUsesAmqpTypes;
     }
 
+    /**
+     * @return the serializer used for ObjectMessage bodies that are not sent as AMQP types.
+     */
+    public ObjectSerializer getObjectMessageSerializer() {
+        return objectMessageSerializer;
+    }
+
+    /**
+     * @param objectMessageSerializer
+     *        the serializer to use for ObjectMessage bodies that are not sent as AMQP types.
+     */
+    public void setObjectMessageSerializer(ObjectSerializer objectMessageSerializer) {
+        this.objectMessageSerializer = objectMessageSerializer;
+    }
+
+    /**
+     * @return true if large message bodies are compressed when sent and inflated when received.
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * @param compression
+     *        true if large message bodies should be compressed when sent and inflated when received.
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @return the size in bytes at or above which a message body is compressed.
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * @param compressionThreshold
+     *        the size in bytes at or above which a message body is compressed.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @return the largest size in bytes a received compressed body may inflate to.
+     */
+    public int getMaxInflatedSize() {
+        return maxInflatedSize;
+    }
+
+    /**
+     * @param maxInflatedSize
+     *        the largest size in bytes a received compressed body may inflate to.
+     */
+    public void setMaxInflatedSize(int maxInflatedSize) {
+        this.maxInflatedSize = maxInflatedSize;
+    }
+
     /**
      * @return the AMQP based JmsMessageFactory for this Connection.
      */
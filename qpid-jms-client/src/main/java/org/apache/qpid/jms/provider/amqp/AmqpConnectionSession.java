@@ -16,15 +16,20 @@
  */
 package org.apache.qpid.jms.provider.amqp;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.jms.InvalidDestinationException;
 
+import org.apache.qpid.jms.JmsDestination;
+import org.apache.qpid.jms.meta.JmsConsumerInfo;
 import org.apache.qpid.jms.meta.JmsSessionInfo;
 import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.NoOpAsyncResult;
 import org.apache.qpid.jms.provider.WrappedAsyncResult;
+import org.apache.qpid.jms.provider.amqp.builders.AmqpConsumerBuilder;
 import org.apache.qpid.jms.provider.amqp.builders.AmqpResourceBuilder;
 import org.apache.qpid.proton.amqp.messaging.Target;
 import org.apache.qpid.proton.amqp.transport.ReceiverSettleMode;
@@ -43,6 +48,10 @@ public class AmqpConnectionSession extends AmqpSession {
     private static final Logger LOG = LoggerFactory.getLogger(AmqpConnectionSession.class);
 
     private final Map<String, AsyncResult> pendingUnsubs = new HashMap<String, AsyncResult>();
+    private final Map<JmsDestination, AmqpFanoutConsumer> fanoutConsumers = new HashMap<JmsDestination, AmqpFanoutConsumer>();
+    private final Map<JmsDestination, List<PendingFanoutSubscriber>> pendingFanoutSubscribers =
+        new HashMap<JmsDestination, List<PendingFanoutSubscriber>>();
+    private long nextFanoutConsumerId = 1;
 
     /**
      * Create a new instance of a Connection owned Session object.
@@ -75,6 +84,100 @@ public class AmqpConnectionSession extends AmqpSession {
         builder.buildResource(subscribeRequest);
     }
 
+    /**
+     * Creates a consumer whose messages arrive on a receiver link shared with all other
+     * fanout subscribers of the same destination in this connection, the link is created
+     * when the first such consumer is created and closed once the last one is closed.
+     *
+     * @param session
+     *        the session that the consumer belongs to.
+     * @param consumerInfo
+     *        the information for the consumer being created.
+     * @param request
+     *        the request that awaits the completion of this action.
+     */
+    public void createFanoutSubscriber(AmqpSession session, JmsConsumerInfo consumerInfo, AsyncResult request) {
+        final JmsDestination destination = consumerInfo.getDestination();
+
+        AmqpFanoutConsumer fanout = fanoutConsumers.get(destination);
+        if (fanout != null) {
+            fanout.subscribe(session, consumerInfo);
+            request.onSuccess();
+            return;
+        }
+
+        List<PendingFanoutSubscriber> pending = pendingFanoutSubscribers.get(destination);
+        if (pending != null) {
+            // The shared link is still being opened.
+            pending.add(new PendingFanoutSubscriber(session, consumerInfo, request));
+            return;
+        }
+
+        pending = new ArrayList<PendingFanoutSubscriber>();
+        pending.add(new PendingFanoutSubscriber(session, consumerInfo, request));
+        pendingFanoutSubscribers.put(destination, pending);
+
+        JmsConsumerInfo fanoutInfo = new JmsConsumerInfo(getResourceInfo(), nextFanoutConsumerId++);
+        fanoutInfo.setDestination(destination);
+        fanoutInfo.setPrefetchSize(consumerInfo.getPrefetchSize());
+
+        LOG.debug("Creating fanout consumer {} for: {}", fanoutInfo.getId(), destination);
+
+        final AmqpConsumerBuilder builder = new AmqpConsumerBuilder(this, fanoutInfo) {
+
+            @Override
+            protected AmqpConsumer createResource(AmqpSession parent, JmsConsumerInfo resourceInfo, Receiver endpoint) {
+                return new AmqpFanoutConsumer(AmqpConnectionSession.this, resourceInfo, endpoint);
+            }
+        };
+
+        builder.buildResource(new AsyncResult() {
+
+            @Override
+            public void onSuccess() {
+                AmqpFanoutConsumer fanout = (AmqpFanoutConsumer) builder.getResource();
+                fanoutConsumers.put(destination, fanout);
+
+                for (PendingFanoutSubscriber subscriber : pendingFanoutSubscribers.remove(destination)) {
+                    fanout.subscribe(subscriber.session, subscriber.consumerInfo);
+                    subscriber.request.onSuccess();
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable result) {
+                for (PendingFanoutSubscriber subscriber : pendingFanoutSubscribers.remove(destination)) {
+                    subscriber.request.onFailure(result);
+                }
+            }
+
+            @Override
+            public boolean isComplete() {
+                return !pendingFanoutSubscribers.containsKey(destination);
+            }
+        });
+    }
+
+    void removeFanoutConsumer(AmqpFanoutConsumer fanout) {
+        JmsDestination destination = fanout.getDestination();
+        if (fanoutConsumers.get(destination) == fanout) {
+            fanoutConsumers.remove(destination);
+        }
+    }
+
+    private static final class PendingFanoutSubscriber {
+
+        private final AmqpSession session;
+        private final JmsConsumerInfo consumerInfo;
+        private final AsyncResult request;
+
+        public PendingFanoutSubscriber(AmqpSession session, JmsConsumerInfo consumerInfo, AsyncResult request) {
+            this.session = session;
+            this.consumerInfo = consumerInfo;
+            this.request = request;
+        }
+    }
+
     private class DurableSubscriptionReattach extends AmqpAbstractResource<JmsSessionInfo, Receiver> {
 
         public DurableSubscriptionReattach(JmsSessionInfo resource, Receiver receiver, AmqpResourceParent parent) {
@@ -18,6 +18,7 @@ package org.apache.qpid.jms.provider.amqp;
 
 import static org.apache.qpid.jms.provider.amqp.AmqpSupport.MODIFIED_FAILED;
 import static org.apache.qpid.jms.provider.amqp.AmqpSupport.MODIFIED_FAILED_UNDELIVERABLE;
+import static org.apache.qpid.jms.provider.amqp.AmqpSupport.MODIFIED_UNDELIVERABLE_HERE;
 import static org.apache.qpid.jms.provider.amqp.AmqpSupport.REJECTED;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -43,6 +44,11 @@ import org.apache.qpid.jms.provider.AsyncResult;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderListener;
 import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageBuilder;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFacade;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFilterable;
+import org.apache.qpid.jms.selector.SelectorParser;
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.apache.qpid.jms.selector.filter.FilterException;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.messaging.Accepted;
@@ -69,13 +75,33 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
     protected boolean presettle;
     protected AsyncResult stopRequest;
     protected AsyncResult pullRequest;
+    protected AsyncResult drainingPullRequest;
     protected final ByteBuf incomingBuffer = Unpooled.buffer(INITIAL_BUFFER_CAPACITY);
     protected final AtomicLong incomingSequence = new AtomicLong(0);
+    protected final BooleanExpression selector;
+    protected final AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable();
 
     public AmqpConsumer(AmqpSession session, JmsConsumerInfo info, Receiver receiver) {
+        this(session, info, receiver, session.getConnection().isClientSideSelectors());
+    }
+
+    protected AmqpConsumer(AmqpSession session, JmsConsumerInfo info, Receiver receiver, boolean clientSideSelector) {
         super(info, receiver, session);
 
         this.session = session;
+
+        BooleanExpression selector = null;
+        if (clientSideSelector && info.getSelector() != null && !info.getSelector().trim().isEmpty()) {
+
+            try {
+                selector = SelectorParser.parse(info.getSelector());
+            } catch (FilterException e) {
+                // Selectors are validated before the consumer is created so this is unexpected.
+                throw new IllegalArgumentException("Invalid selector: " + info.getSelector(), e);
+            }
+        }
+
+        this.selector = selector;
     }
 
     /**
@@ -278,7 +304,7 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
      * then we open the window back up to full prefetch size.  If this is a pull consumer
      * or we are stopping then we never send credit here.
      */
-    private void sendFlowIfNeeded() {
+    protected void sendFlowIfNeeded() {
         if (getResourceInfo().getPrefetchSize() == 0 || isStopping()) {
             // TODO: isStopping isnt effective when this method is called following
             // processing the last of any messages received while stopping, since that
@@ -353,6 +379,7 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
 
             // Drain immediately and wait for the message(s) to arrive,
             // or a flow indicating removal of the remaining credit.
+            drainingPullRequest = request;
             stop(request);
         } else if (timeout > 0) {
             // If we have no credit then we need to issue some so that we can
@@ -366,6 +393,7 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
             // Wait for the timeout for the message(s) to arrive, then drain if required
             // and wait for remaining message(s) to arrive or a flow indicating
             // removal of the remaining credit.
+            drainingPullRequest = request;
             stopOnSchedule(timeout, request);
         }
     }
@@ -409,7 +437,7 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         super.processDeliveryUpdates(provider);
     }
 
-    private boolean processDelivery(Delivery incoming) throws Exception {
+    protected boolean processDelivery(Delivery incoming) throws Exception {
         setDefaultDeliveryState(incoming, Released.getInstance());
         Message amqpMessage = decodeIncomingMessage(incoming);
         JmsMessage message = null;
@@ -428,6 +456,11 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
 
         getEndpoint().advance();
 
+        if (selector != null && !matchesSelector(message)) {
+            deliveryFilteredBySelector(incoming);
+            return false;
+        }
+
         // Let the message do any final processing before sending it onto a consumer.
         // We could defer this to a later stage such as the JmsConnection or even in
         // the JmsMessageConsumer dispatch method if we needed to.
@@ -448,7 +481,7 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         return true;
     }
 
-    private void setDefaultDeliveryState(Delivery incoming, DeliveryState state) {
+    protected void setDefaultDeliveryState(Delivery incoming, DeliveryState state) {
         // TODO: temporary to maintain runtime compatibility with older
         // Proton releases. Replace with direct invocation in future.
         try {
@@ -513,6 +546,46 @@ public class AmqpConsumer extends AmqpAbstractResource<JmsConsumerInfo, Receiver
         sendFlowIfNeeded();
     }
 
+    protected boolean matchesSelector(JmsMessage message) {
+        try {
+            return selector.matches(filterable.reset((AmqpJmsMessageFacade) message.getFacade()));
+        } catch (FilterException e) {
+            LOG.debug("{} failed to evaluate selector, message does not match: {}", this, e.getMessage());
+            return false;
+        } finally {
+            filterable.reset(null);
+        }
+    }
+
+    /**
+     * Returns a message that did not match a client side selector to the remote peer,
+     * marked as undeliverable here so that it is not sent to this consumer again.
+     * Presettled messages are simply dropped.
+     *
+     * A pull consumer only holds the credit granted for the pull, when the returned message
+     * used it up and the pull is still outstanding the credit is granted again, or the link
+     * drained again, so that a matching message can still answer the pull.
+     */
+    protected void deliveryFilteredBySelector(Delivery incoming) {
+        LOG.trace("{} message did not match client side selector, returning it to the remote", this);
+        if (!incoming.remotelySettled()) {
+            incoming.disposition(MODIFIED_UNDELIVERABLE_HERE);
+        }
+        incoming.settle();
+
+        if (getResourceInfo().getPrefetchSize() != 0) {
+            sendFlowIfNeeded();
+        } else if (getEndpoint().getCredit() == 0) {
+            if (pullRequest != null || stopRequest instanceof ScheduledStopRequest) {
+                LOG.trace("Consumer {} granting 1 additional credit for pull.", getConsumerId());
+                getEndpoint().flow(1);
+            } else if (stopRequest != null && stopRequest == drainingPullRequest) {
+                LOG.trace("Consumer {} draining 1 additional credit for pull.", getConsumerId());
+                getEndpoint().drain(1);
+            }
+        }
+    }
+
     protected void deliver(JmsInboundMessageDispatch envelope) throws Exception {
         ProviderListener listener = session.getProvider().getProviderListener();
         if (listener != null) {
@@ -0,0 +1,490 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+
+import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
+import org.apache.qpid.jms.message.JmsMessage;
+import org.apache.qpid.jms.meta.JmsConsumerInfo;
+import org.apache.qpid.jms.provider.AsyncResult;
+import org.apache.qpid.jms.provider.NoOpAsyncResult;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageBuilder;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.apache.qpid.proton.engine.Delivery;
+import org.apache.qpid.proton.engine.Receiver;
+import org.apache.qpid.proton.message.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A consumer that owns a single receiver link for a topic and fans each incoming message
+ * out to all of the {@link AmqpFanoutSubscriber} instances in the connection that were
+ * created for that topic and whose selector matches it.
+ *
+ * Each subscriber receives its own copy of the message.  Link credit is replenished once
+ * every subscriber a message was dispatched to has had it delivered, so the slowest
+ * subscriber governs the rate at which messages arrive, and the delivery is settled once
+ * every subscriber has acknowledged it.  The delivery is accepted if any subscriber
+ * accepted its copy, otherwise the outcome applied by the last subscriber is used.
+ * Messages that match no subscriber are accepted, as the peer would have discarded them
+ * had no subscriber with a matching selector been attached to the topic.
+ *
+ * Credit is only granted on the link while at least one subscriber is started or has a
+ * pull outstanding.  Once every subscriber has been stopped the link is drained, and a
+ * subscriber pull that must complete without waiting for a message drains the link on
+ * its behalf, the pull completing when a message is dispatched to that subscriber or
+ * the drain has finished.
+ */
+public class AmqpFanoutConsumer extends AmqpConsumer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AmqpFanoutConsumer.class);
+
+    private final AmqpConnectionSession connectionSession;
+    private final List<AmqpFanoutSubscriber> subscribers = new ArrayList<AmqpFanoutSubscriber>();
+    private final Set<AmqpFanoutSubscriber> started = new LinkedHashSet<AmqpFanoutSubscriber>();
+    private final Map<AmqpFanoutSubscriber, PendingPull> pendingPulls = new LinkedHashMap<AmqpFanoutSubscriber, PendingPull>();
+    private final List<AsyncResult> pendingStops = new ArrayList<AsyncResult>();
+
+    public AmqpFanoutConsumer(AmqpConnectionSession session, JmsConsumerInfo info, Receiver receiver) {
+        super(session, info, receiver, false);
+
+        this.connectionSession = session;
+    }
+
+    /**
+     * Creates a subscriber that will receive the messages arriving on this consumer's link.
+     *
+     * @param session
+     *        the session that the JMS consumer belongs to.
+     * @param consumerInfo
+     *        the information for the JMS consumer being created.
+     *
+     * @return the newly created subscriber.
+     */
+    public AmqpFanoutSubscriber subscribe(AmqpSession session, JmsConsumerInfo consumerInfo) {
+        AmqpFanoutSubscriber subscriber = new AmqpFanoutSubscriber(session, consumerInfo, this);
+        subscribers.add(subscriber);
+        session.addChildResource(subscriber);
+
+        // The link credit window is sized for the subscriber with the largest prefetch.
+        if (consumerInfo.getPrefetchSize() > getResourceInfo().getPrefetchSize()) {
+            getResourceInfo().setPrefetchSize(consumerInfo.getPrefetchSize());
+            openCreditWindow();
+        }
+
+        LOG.debug("{} added subscriber {}, now has {} subscribers", this, consumerInfo.getId(), subscribers.size());
+
+        return subscriber;
+    }
+
+    /**
+     * Removes a subscriber, once no subscribers remain the link is closed.
+     *
+     * @param subscriber
+     *        the subscriber that is being closed.
+     */
+    public void unsubscribe(AmqpFanoutSubscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+
+        started.remove(subscriber);
+        PendingPull pull = pendingPulls.remove(subscriber);
+        if (pull != null) {
+            pull.complete();
+        }
+
+        if (subscribers.isEmpty()) {
+            LOG.debug("{} has no remaining subscribers, closing link", this);
+            connectionSession.removeFanoutConsumer(this);
+            close(NoOpAsyncResult.INSTANCE);
+            return;
+        }
+
+        // Credit already granted stays outstanding, but it is no longer topped up beyond
+        // what the remaining subscribers asked for.
+        int prefetch = 0;
+        for (AmqpFanoutSubscriber remaining : subscribers) {
+            prefetch = Math.max(prefetch, remaining.getResourceInfo().getPrefetchSize());
+        }
+        getResourceInfo().setPrefetchSize(prefetch);
+
+        if (started.isEmpty() && pendingPulls.isEmpty()) {
+            drain();
+        }
+    }
+
+    /**
+     * Starts delivery to the given subscriber, granting credit on the link if needed.
+     *
+     * @param subscriber
+     *        the subscriber that is being started.
+     * @param request
+     *        the request that awaits completion of the subscriber start.
+     */
+    void start(AmqpFanoutSubscriber subscriber, AsyncResult request) {
+        started.add(subscriber);
+        sendFlowIfNeeded();
+        request.onSuccess();
+    }
+
+    /**
+     * Stops the given subscriber.  Once no subscriber remains started the link is drained
+     * and the request completes when all in-flight messages have arrived, otherwise the
+     * request completes immediately and messages dispatched to the subscriber are held by
+     * it until it is restarted.
+     *
+     * @param subscriber
+     *        the subscriber that is being stopped.
+     * @param request
+     *        the request that awaits completion of the subscriber stop.
+     */
+    void stop(AmqpFanoutSubscriber subscriber, AsyncResult request) {
+        started.remove(subscriber);
+        if (!started.isEmpty()) {
+            request.onSuccess();
+            return;
+        }
+
+        pendingStops.add(request);
+        drain();
+    }
+
+    /**
+     * Pulls a message from the link on behalf of the given subscriber, see
+     * {@link AmqpConsumer#pull(long, AsyncResult)} for the meaning of the timeout.  The
+     * request completes when a message is dispatched to the subscriber, or for a timeout
+     * that is not negative once the link has been drained.
+     *
+     * @param subscriber
+     *        the subscriber that is pulling a message.
+     * @param timeout
+     *        the amount of time the pull request remains valid.
+     * @param request
+     *        the request that awaits completion of the pull.
+     */
+    void pull(final AmqpFanoutSubscriber subscriber, long timeout, AsyncResult request) {
+        LOG.trace("Pull on {} for subscriber {} with timeout = {}", this, subscriber.getConsumerId(), timeout);
+
+        final PendingPull pull = new PendingPull(request, timeout != 0);
+        pendingPulls.put(subscriber, pull);
+        sendFlowIfNeeded();
+
+        if (timeout == 0) {
+            drain();
+        } else if (timeout > 0) {
+            pull.timeoutTask = getSession().schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    if (pendingPulls.get(subscriber) == pull) {
+                        LOG.trace("{} pull for subscriber {} timed out, draining", AmqpFanoutConsumer.this, subscriber.getConsumerId());
+                        pull.awaitMessage = false;
+                        drain();
+                        session.getProvider().pumpToProtonTransport(pull.request);
+                    }
+                }
+            }, timeout);
+        }
+    }
+
+    public List<AmqpFanoutSubscriber> getSubscribers() {
+        return subscribers;
+    }
+
+    @Override
+    public void remotelyClosed(AmqpProvider provider) {
+        Exception error = AmqpSupport.convertToException(getEndpoint(), getEndpoint().getRemoteCondition());
+
+        connectionSession.removeFanoutConsumer(this);
+        getParent().removeChildResource(this);
+        getEndpoint().close();
+
+        // The link is not known outside the provider, report the closure to each subscriber.
+        for (AmqpFanoutSubscriber subscriber : new ArrayList<AmqpFanoutSubscriber>(subscribers)) {
+            subscriber.getParent().removeChildResource(subscriber);
+            provider.fireResourceRemotelyClosed(subscriber.getResourceInfo(), error);
+        }
+
+        for (PendingPull pull : pendingPulls.values()) {
+            pull.cancelTimeout();
+            pull.request.onFailure(error);
+        }
+        for (AsyncResult stop : pendingStops) {
+            stop.onFailure(error);
+        }
+
+        subscribers.clear();
+        started.clear();
+        pendingPulls.clear();
+        pendingStops.clear();
+    }
+
+    @Override
+    protected boolean processDelivery(Delivery incoming) throws Exception {
+        setDefaultDeliveryState(incoming, Released.getInstance());
+        Message amqpMessage = decodeIncomingMessage(incoming);
+        JmsMessage message = null;
+        try {
+            message = AmqpJmsMessageBuilder.createJmsMessage(this, amqpMessage);
+        } catch (Exception e) {
+            LOG.warn("Error on transform: {}", e.getMessage());
+            deliveryFailedUndeliverable(incoming);
+            return false;
+        }
+
+        getEndpoint().advance();
+
+        List<AmqpFanoutSubscriber> targets = new ArrayList<AmqpFanoutSubscriber>(subscribers.size());
+        for (AmqpFanoutSubscriber subscriber : subscribers) {
+            if (subscriber.selector == null || subscriber.matchesSelector(message)) {
+                targets.add(subscriber);
+            }
+        }
+
+        if (targets.isEmpty()) {
+            LOG.trace("{} message matched no subscribers", this);
+            if (!incoming.remotelySettled()) {
+                incoming.disposition(Accepted.getInstance());
+            }
+            incoming.settle();
+            sendFlowIfNeeded();
+            return false;
+        }
+
+        FanoutDelivery delivery = new FanoutDelivery(incoming, targets.size());
+
+        // Copy the message for all but the last subscriber before any of them are dispatched.
+        List<JmsMessage> copies = new ArrayList<JmsMessage>(targets.size());
+        for (int i = 0; i < targets.size() - 1; ++i) {
+            copies.add(message.copy());
+        }
+        copies.add(message);
+
+        for (int i = 0; i < targets.size(); ++i) {
+            JmsMessage copy = copies.get(i);
+            copy.onDispatch();
+
+            AmqpFanoutSubscriber subscriber = targets.get(i);
+
+            JmsInboundMessageDispatch envelope = new JmsInboundMessageDispatch(subscriber.getNextIncomingSequenceNumber());
+            envelope.setMessage(copy);
+            envelope.setConsumerId(subscriber.getConsumerId());
+            envelope.setProviderHint(delivery);
+            envelope.setMessageId(copy.getFacade().getProviderMessageIdObject());
+
+            subscriber.dispatch(envelope, delivery);
+
+            PendingPull pull = pendingPulls.remove(subscriber);
+            if (pull != null) {
+                pull.complete();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Credit is granted while any subscriber is started, up to the largest prefetch of
+     * the subscribers, or while a subscriber has a pull outstanding, in which case a
+     * single credit is enough.  No credit is granted while the link is being drained.
+     */
+    @Override
+    protected void sendFlowIfNeeded() {
+        if (isStopping()) {
+            return;
+        }
+
+        if (!started.isEmpty()) {
+            super.sendFlowIfNeeded();
+        }
+
+        if (!pendingPulls.isEmpty() && getEndpoint().getCredit() == 0) {
+            LOG.trace("{} granting 1 additional credit for pull.", this);
+            getEndpoint().flow(1);
+        }
+    }
+
+    /**
+     * Called when a subscriber has had its copy of the message delivered, or has completed
+     * it without a delivered acknowledgement.
+     */
+    void dispatched(FanoutDelivery delivery) {
+        if (--delivery.pendingDispatch == 0) {
+            sendFlowIfNeeded();
+        }
+    }
+
+    /**
+     * Called when a subscriber has finished with its copy of the message.
+     */
+    void completed(FanoutDelivery delivery, DeliveryState outcome) {
+        if (outcome instanceof Accepted) {
+            delivery.accepted = true;
+        } else {
+            delivery.outcome = outcome;
+        }
+
+        if (--delivery.pendingCompletion == 0) {
+            Delivery incoming = delivery.delivery;
+            if (!incoming.remotelySettled()) {
+                incoming.disposition(delivery.accepted ? Accepted.getInstance() : delivery.outcome);
+            }
+            incoming.settle();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AmqpFanoutConsumer { " + getResourceInfo().getId() + " }";
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    /*
+     * Grants enough credit to fill the window to the current prefetch, used when the
+     * window grows rather than waiting for the credit in use to run low.
+     */
+    private void openCreditWindow() {
+        if (isStopping() || started.isEmpty()) {
+            return;
+        }
+
+        int prefetch = getResourceInfo().getPrefetchSize();
+        int credit = getEndpoint().getCredit();
+        if (credit < prefetch) {
+            LOG.trace("{} granting additional credit: {}", this, prefetch - credit);
+            getEndpoint().flow(prefetch - credit);
+        }
+    }
+
+    /*
+     * Drains the link unless a drain is already in progress, in which case any request
+     * that was just registered is completed along with it.
+     */
+    private void drain() {
+        if (!isStopping()) {
+            stop(new DrainRequest());
+        }
+    }
+
+    private void drainCompleted() {
+        LOG.trace("{} link drain completed", this);
+
+        for (AsyncResult stop : pendingStops) {
+            stop.onSuccess();
+        }
+        pendingStops.clear();
+
+        Iterator<PendingPull> pulls = pendingPulls.values().iterator();
+        while (pulls.hasNext()) {
+            PendingPull pull = pulls.next();
+            if (!pull.awaitMessage) {
+                pulls.remove();
+                pull.complete();
+            }
+        }
+
+        // Subscribers that are still started or waiting on a message need credit again.
+        sendFlowIfNeeded();
+    }
+
+    private final class DrainRequest implements AsyncResult {
+
+        private boolean complete;
+
+        @Override
+        public void onFailure(Throwable result) {
+            complete = true;
+            for (AsyncResult stop : pendingStops) {
+                stop.onFailure(result);
+            }
+            pendingStops.clear();
+
+            for (PendingPull pull : pendingPulls.values()) {
+                pull.cancelTimeout();
+                pull.request.onFailure(result);
+            }
+            pendingPulls.clear();
+        }
+
+        @Override
+        public void onSuccess() {
+            complete = true;
+            drainCompleted();
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    /**
+     * Tracks a pull request made by a subscriber.
+     */
+    private static final class PendingPull {
+
+        private final AsyncResult request;
+        private ScheduledFuture<?> timeoutTask;
+        private boolean awaitMessage;
+
+        public PendingPull(AsyncResult request, boolean awaitMessage) {
+            this.request = request;
+            this.awaitMessage = awaitMessage;
+        }
+
+        public void complete() {
+            cancelTimeout();
+            request.onSuccess();
+        }
+
+        public void cancelTimeout() {
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Tracks the state of an incoming delivery that was dispatched to one or more subscribers.
+     */
+    static final class FanoutDelivery {
+
+        private final Delivery delivery;
+        private int pendingDispatch;
+        private int pendingCompletion;
+        private boolean accepted;
+        private DeliveryState outcome = Released.getInstance();
+
+        public FanoutDelivery(Delivery delivery, int subscribers) {
+            this.delivery = delivery;
+            this.pendingDispatch = subscribers;
+            this.pendingCompletion = subscribers;
+        }
+    }
+}
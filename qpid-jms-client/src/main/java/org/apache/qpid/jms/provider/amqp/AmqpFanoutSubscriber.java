@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp;
+
+import static org.apache.qpid.jms.provider.amqp.AmqpSupport.MODIFIED_FAILED;
+import static org.apache.qpid.jms.provider.amqp.AmqpSupport.MODIFIED_FAILED_UNDELIVERABLE;
+import static org.apache.qpid.jms.provider.amqp.AmqpSupport.REJECTED;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
+import org.apache.qpid.jms.meta.JmsConsumerInfo;
+import org.apache.qpid.jms.provider.AsyncResult;
+import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
+import org.apache.qpid.jms.provider.amqp.AmqpFanoutConsumer.FanoutDelivery;
+import org.apache.qpid.proton.amqp.messaging.Accepted;
+import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.transport.DeliveryState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Represents a JMS MessageConsumer whose messages arrive on a receiver link that is shared
+ * with other consumers of the same topic, see {@link AmqpFanoutConsumer}.  The selector of
+ * the consumer is always evaluated locally and acknowledgements are applied to the shared
+ * delivery only once every consumer it was dispatched to has completed it.
+ */
+public class AmqpFanoutSubscriber extends AmqpConsumer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AmqpFanoutSubscriber.class);
+
+    private final AmqpFanoutConsumer fanout;
+
+    // All dispatched messages that have not been completed.
+    private final Map<JmsInboundMessageDispatch, FanoutDelivery> outstanding = new LinkedHashMap<JmsInboundMessageDispatch, FanoutDelivery>();
+    // Messages whose delivery has been reported to the fanout consumer, survives recover.
+    private final Set<JmsInboundMessageDispatch> reported = new LinkedHashSet<JmsInboundMessageDispatch>();
+    // Messages that were delivered to the application but are not yet acknowledged.
+    private final Set<JmsInboundMessageDispatch> deliveredEnvelopes = new LinkedHashSet<JmsInboundMessageDispatch>();
+
+    public AmqpFanoutSubscriber(AmqpSession session, JmsConsumerInfo info, AmqpFanoutConsumer fanout) {
+        super(session, info, fanout.getEndpoint(), true);
+
+        this.fanout = fanout;
+    }
+
+    @Override
+    public void start(AsyncResult request) {
+        fanout.start(this, request);
+    }
+
+    @Override
+    public void stop(AsyncResult request) {
+        // The shared link is only drained once every subscriber has stopped, messages
+        // that arrive while stopped are held by the consumer until it is restarted.
+        fanout.stop(this, request);
+    }
+
+    @Override
+    public void pull(long timeout, AsyncResult request) {
+        fanout.pull(this, timeout, request);
+    }
+
+    @Override
+    public void close(AsyncResult request) {
+        getParent().removeChildResource(this);
+
+        // Anything not yet acknowledged is no longer of interest to this subscriber.
+        for (JmsInboundMessageDispatch envelope : new ArrayList<JmsInboundMessageDispatch>(outstanding.keySet())) {
+            complete(envelope, Released.getInstance());
+        }
+
+        fanout.unsubscribe(this);
+        request.onSuccess();
+    }
+
+    @Override
+    public void acknowledge(JmsInboundMessageDispatch envelope, ACK_TYPE ackType) {
+        if (!outstanding.containsKey(envelope)) {
+            LOG.warn("Received Ack for unknown message: {}", envelope);
+            return;
+        }
+
+        switch (ackType) {
+            case DELIVERED:
+                LOG.debug("Delivered Ack of message: {}", envelope);
+                deliveredEnvelopes.add(envelope);
+                if (reported.add(envelope)) {
+                    fanout.dispatched(outstanding.get(envelope));
+                }
+                break;
+            case ACCEPTED:
+                LOG.debug("Accepted Ack of message: {}", envelope);
+                complete(envelope, Accepted.getInstance());
+                break;
+            case MODIFIED_FAILED_UNDELIVERABLE:
+            case EXPIRED:
+                complete(envelope, MODIFIED_FAILED_UNDELIVERABLE);
+                break;
+            case RELEASED:
+                complete(envelope, Released.getInstance());
+                break;
+            default:
+                LOG.warn("Unsupported Ack Type for message: {}", envelope);
+        }
+    }
+
+    @Override
+    public void acknowledge(ACK_TYPE ackType) {
+        LOG.trace("Session Acknowledge for consumer {} with ack type {}", getResourceInfo().getId(), ackType);
+
+        DeliveryState outcome;
+        switch (ackType) {
+            case ACCEPTED:
+                outcome = Accepted.getInstance();
+                break;
+            case RELEASED:
+                outcome = Released.getInstance();
+                break;
+            case REJECTED:
+                outcome = REJECTED;
+                break;
+            case MODIFIED_FAILED:
+                outcome = MODIFIED_FAILED;
+                break;
+            case MODIFIED_FAILED_UNDELIVERABLE:
+                outcome = MODIFIED_FAILED_UNDELIVERABLE;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid acknowledgement type specified: " + ackType);
+        }
+
+        for (JmsInboundMessageDispatch envelope : new ArrayList<JmsInboundMessageDispatch>(deliveredEnvelopes)) {
+            complete(envelope, outcome);
+        }
+    }
+
+    @Override
+    public void recover() throws Exception {
+        LOG.debug("Session Recover for consumer: {}", getResourceInfo().getId());
+        List<JmsInboundMessageDispatch> envelopes = new ArrayList<JmsInboundMessageDispatch>(deliveredEnvelopes);
+        ListIterator<JmsInboundMessageDispatch> reverseIterator = envelopes.listIterator(envelopes.size());
+
+        while (reverseIterator.hasPrevious()) {
+            JmsInboundMessageDispatch envelope = reverseIterator.previous();
+            envelope.getMessage().getFacade().setRedeliveryCount(
+                envelope.getMessage().getFacade().getRedeliveryCount() + 1);
+            envelope.setEnqueueFirst(true);
+            deliver(envelope);
+        }
+
+        deliveredEnvelopes.clear();
+    }
+
+    @Override
+    public boolean isPresettle() {
+        return fanout.isPresettle();
+    }
+
+    @Override
+    public String toString() {
+        return "AmqpFanoutSubscriber { " + getResourceInfo().getId() + " }";
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    void dispatch(JmsInboundMessageDispatch envelope, FanoutDelivery delivery) throws Exception {
+        outstanding.put(envelope, delivery);
+        deliver(envelope);
+    }
+
+    private void complete(JmsInboundMessageDispatch envelope, DeliveryState outcome) {
+        FanoutDelivery delivery = outstanding.remove(envelope);
+        if (delivery == null) {
+            return;
+        }
+
+        deliveredEnvelopes.remove(envelope);
+        if (!reported.remove(envelope)) {
+            fanout.dispatched(delivery);
+        }
+
+        fanout.completed(delivery, outcome);
+    }
+}
@@ -32,7 +32,10 @@ import org.apache.qpid.jms.message.facade.JmsMessageFacade;
 import org.apache.qpid.jms.meta.JmsConnectionInfo;
 import org.apache.qpid.jms.meta.JmsProducerInfo;
 import org.apache.qpid.jms.provider.AsyncResult;
+import org.apache.qpid.jms.provider.amqp.message.AmqpCompressionSupport;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsBytesMessageFacade;
 import org.apache.qpid.jms.provider.amqp.message.AmqpJmsMessageFacade;
+import org.apache.qpid.jms.provider.amqp.message.AmqpJmsTextMessageFacade;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.messaging.Accepted;
@@ -40,6 +43,7 @@ import org.apache.qpid.proton.amqp.messaging.Modified;
 import org.apache.qpid.proton.amqp.messaging.Outcome;
 import org.apache.qpid.proton.amqp.messaging.Rejected;
 import org.apache.qpid.proton.amqp.messaging.Released;
+import org.apache.qpid.proton.amqp.messaging.Section;
 import org.apache.qpid.proton.amqp.transaction.TransactionalState;
 import org.apache.qpid.proton.amqp.transport.DeliveryState;
 import org.apache.qpid.proton.amqp.transport.ErrorCondition;
@@ -138,7 +142,13 @@ public class AmqpFixedProducer extends AmqpProducer {
         }
 
         AmqpJmsMessageFacade amqpMessageFacade = (AmqpJmsMessageFacade) facade;
-        encodeAndSend(amqpMessageFacade.getAmqpMessage(), delivery);
+        AmqpConnection connection = session.getConnection();
+        if (connection.isCompression() && (amqpMessageFacade instanceof AmqpJmsBytesMessageFacade ||
+                                           amqpMessageFacade instanceof AmqpJmsTextMessageFacade)) {
+            encodeCompressedAndSend(amqpMessageFacade.getAmqpMessage(), delivery, connection.getCompressionThreshold());
+        } else {
+            encodeAndSend(amqpMessageFacade.getAmqpMessage(), delivery);
+        }
 
         if (presettle) {
             delivery.settle();
@@ -160,6 +170,25 @@ public class AmqpFixedProducer extends AmqpProducer {
         }
     }
 
+    private void encodeCompressedAndSend(Message message, Delivery delivery, int threshold) throws IOException {
+        Section body = message.getBody();
+        String contentType = message.getContentType();
+
+        if (AmqpCompressionSupport.compressBody(message, threshold)) {
+            // The compressed form only exists on the wire, the message itself is left unchanged
+            // so that it can be read or sent again by the application.
+            try {
+                encodeAndSend(message, delivery);
+            } finally {
+                message.setBody(body);
+                message.setContentEncoding(null);
+                message.setContentType(contentType);
+            }
+        } else {
+            encodeAndSend(message, delivery);
+        }
+    }
+
     private void encodeAndSend(Message message, Delivery delivery) throws IOException {
 
         int encodedSize;
@@ -26,6 +26,7 @@ import java.nio.ByteBuffer;
 import java.security.Principal;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
@@ -59,10 +60,14 @@ import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.provider.ProviderListener;
 import org.apache.qpid.jms.provider.amqp.builders.AmqpConnectionBuilder;
+import org.apache.qpid.jms.provider.amqp.message.AmqpCompressionSupport;
+import org.apache.qpid.jms.serialization.JavaObjectSerializer;
+import org.apache.qpid.jms.serialization.ObjectSerializerFinder;
 import org.apache.qpid.jms.transports.SSLTransport;
 import org.apache.qpid.jms.transports.TransportFactory;
 import org.apache.qpid.jms.transports.TransportListener;
 import org.apache.qpid.jms.util.IOExceptionSupport;
+import org.apache.qpid.jms.util.LowResolutionTimer;
 import org.apache.qpid.proton.engine.Collector;
 import org.apache.qpid.proton.engine.Connection;
 import org.apache.qpid.proton.engine.EndpointState;
@@ -99,8 +104,13 @@ public class AmqpProvider implements Provider, TransportListener , AmqpResourceP
     // NOTE: Limit default channel max to signed short range to deal with
     //       brokers that don't currently handle the unsigned range well.
     private static final int DEFAULT_CHANNEL_MAX = 32767;
+    private static final int DEFAULT_ANONYMOUS_PRODUCER_CACHE_SIZE = 10;
+    private static final long DEFAULT_ANONYMOUS_PRODUCER_CACHE_TIMEOUT = 30000;
     private static final AtomicInteger PROVIDER_SEQUENCE = new AtomicInteger();
     private static final NoOpAsyncResult NOOP_REQUEST = new NoOpAsyncResult();
+    private static final long IDLE_TIMEOUT_TIMER_RESOLUTION = 10;
+    private static final LowResolutionTimer IDLE_TIMEOUT_TIMER =
+        new LowResolutionTimer("QpidJMS AmqpProvider Idle Timeout Timer", IDLE_TIMEOUT_TIMER_RESOLUTION);
 
     private ProviderListener listener;
     private AmqpConnection connection;
@@ -120,6 +130,16 @@ public class AmqpProvider implements Provider, TransportListener , AmqpResourceP
     private int idleTimeout = 60000;
     private long sessionOutoingWindow = -1; //Use proton default
     private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private boolean anonymousProducerCache;
+    private int anonymousProducerCacheSize = DEFAULT_ANONYMOUS_PRODUCER_CACHE_SIZE;
+    private long anonymousProducerCacheTimeout = DEFAULT_ANONYMOUS_PRODUCER_CACHE_TIMEOUT;
+    private boolean clientSideSelectors;
+    private boolean topicFanout;
+    private boolean textAsData;
+    private String objectMessageSerializer = JavaObjectSerializer.NAME;
+    private boolean compression;
+    private int compressionThreshold = AmqpCompressionSupport.DEFAULT_COMPRESSION_THRESHOLD;
+    private int maxInflatedSize = AmqpCompressionSupport.DEFAULT_MAX_INFLATED_SIZE;
 
     private final URI remoteURI;
     private final AtomicBoolean closed = new AtomicBoolean();
@@ -129,7 +149,7 @@ public class AmqpProvider implements Provider, TransportListener , AmqpResourceP
     private final Connection protonConnection = Connection.Factory.create();
 
     private AsyncResult connectionOpenRequest;
-    private ScheduledFuture<?> nextIdleTimeoutCheck;
+    private LowResolutionTimer.Timeout nextIdleTimeoutCheck;
 
     /**
      * Create a new instance of an AmqpProvider bonded to the given remote URI.
@@ -212,7 +232,7 @@ public class AmqpProvider implements Provider, TransportListener , AmqpResourceP
                     } finally {
                         if (nextIdleTimeoutCheck != null) {
                             LOG.trace("Cancelling scheduled IdleTimeoutCheck");
-                            nextIdleTimeoutCheck.cancel(false);
+                            nextIdleTimeoutCheck.cancel();
                             nextIdleTimeoutCheck = null;
                         }
                     }
@@ -896,7 +916,7 @@ public class AmqpProvider implements Provider, TransportListener , AmqpResourceP
         if (deadline > 0) {
             long delay = deadline - now;
             LOG.trace("IdleTimeoutCheck being initiated, initial delay: {}", delay);
-            nextIdleTimeoutCheck = serializer.schedule(new IdleTimeoutCheck(), delay, TimeUnit.MILLISECONDS);
+            nextIdleTimeoutCheck = IDLE_TIMEOUT_TIMER.schedule(new IdleTimeoutCheck(), delay);
         }
 
         ProviderListener listener = this.listener;
@@ -1058,6 +1078,169 @@ public class AmqpProvider implements Provider, TransportListener , AmqpResourceP
         this.sessionOutoingWindow = sessionOutoingWindow;
     }
 
+    public boolean isAnonymousProducerCache() {
+        return anonymousProducerCache;
+    }
+
+    /**
+     * Sets whether the senders created to fulfill sends from an anonymous producer when
+     * the remote does not support the anonymous relay are cached for reuse instead of
+     * being closed after each send completes.
+     *
+     * @param anonymousProducerCache true to cache the senders used by anonymous producers.
+     */
+    public void setAnonymousProducerCache(boolean anonymousProducerCache) {
+        this.anonymousProducerCache = anonymousProducerCache;
+    }
+
+    public int getAnonymousProducerCacheSize() {
+        return anonymousProducerCacheSize;
+    }
+
+    /**
+     * Sets the number of senders each anonymous producer will cache, once the limit is
+     * reached the least recently used sender is closed.
+     *
+     * @param anonymousProducerCacheSize the maximum number of cached senders per producer.
+     */
+    public void setAnonymousProducerCacheSize(int anonymousProducerCacheSize) {
+        this.anonymousProducerCacheSize = anonymousProducerCacheSize;
+    }
+
+    public long getAnonymousProducerCacheTimeout() {
+        return anonymousProducerCacheTimeout;
+    }
+
+    /**
+     * Sets the time (in milliseconds) that a cached anonymous producer sender can remain
+     * unused before it is closed.  Values of zero or less disable the idle timeout.
+     *
+     * @param anonymousProducerCacheTimeout the idle timeout in milliseconds.
+     */
+    public void setAnonymousProducerCacheTimeout(long anonymousProducerCacheTimeout) {
+        this.anonymousProducerCacheTimeout = anonymousProducerCacheTimeout;
+    }
+
+    public boolean isClientSideSelectors() {
+        return clientSideSelectors;
+    }
+
+    /**
+     * Sets whether consumer selectors are evaluated by the client rather than being sent
+     * to the remote peer as a link filter.  Messages that do not match are returned to
+     * the remote peer as undeliverable to this consumer without being dispatched, which
+     * allows selectors to be used with peers that do not support JMS selector filters.
+     *
+     * @param clientSideSelectors true to evaluate consumer selectors on the client.
+     */
+    public void setClientSideSelectors(boolean clientSideSelectors) {
+        this.clientSideSelectors = clientSideSelectors;
+    }
+
+    public boolean isTopicFanout() {
+        return topicFanout;
+    }
+
+    /**
+     * Sets whether non-durable topic consumers in a connection share a single receiver link
+     * per topic.  Each message arriving on the shared link is copied to every consumer of
+     * the topic whose selector matches it, the selectors being evaluated by the client.
+     * Consumers in transacted sessions, durable subscribers, browsers, consumers with
+     * noLocal set and consumers with a prefetch of zero always use their own link.
+     *
+     * @param topicFanout true to share one receiver link between consumers of the same topic.
+     */
+    public void setTopicFanout(boolean topicFanout) {
+        this.topicFanout = topicFanout;
+    }
+
+    public boolean isTextAsData() {
+        return textAsData;
+    }
+
+    /**
+     * Sets whether the body of an outgoing TextMessage is sent as a Data section holding the
+     * UTF-8 encoded text along with a text/plain content type, rather than as an AmqpValue
+     * section holding a String.
+     *
+     * @param textAsData true to send TextMessage bodies as UTF-8 encoded Data sections.
+     */
+    public void setTextAsData(boolean textAsData) {
+        this.textAsData = textAsData;
+    }
+
+    public String getObjectMessageSerializer() {
+        return objectMessageSerializer;
+    }
+
+    /**
+     * Sets the name of the ObjectSerializer used to write the body of ObjectMessages sent
+     * on this connection when they are not sent as AMQP types.  Serializers are located
+     * using the service files found under META-INF/services/org/apache/qpid/jms/serialization/
+     * and the default is standard Java serialization.
+     *
+     * @param objectMessageSerializer
+     *        the name of the serializer to use for ObjectMessage bodies.
+     *
+     * @throws IllegalArgumentException if no serializer with the given name can be found.
+     */
+    public void setObjectMessageSerializer(String objectMessageSerializer) {
+        if (ObjectSerializerFinder.findSerializer(objectMessageSerializer) == null) {
+            throw new IllegalArgumentException("No ObjectMessage serializer found named: " + objectMessageSerializer);
+        }
+
+        this.objectMessageSerializer = objectMessageSerializer;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets whether large BytesMessage and TextMessage bodies are compressed when sent, and
+     * whether compressed bodies are inflated when received.  When disabled a compressed
+     * message is received as a BytesMessage holding the compressed bytes, with the encoding
+     * available from the JMS_AMQP_CONTENT_ENCODING property.
+     *
+     * @param compression true to compress and inflate message bodies.
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Sets the size in bytes at or above which a message body is compressed when compression
+     * is enabled.
+     *
+     * @param compressionThreshold the minimum body size in bytes that is compressed.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public int getMaxInflatedSize() {
+        return maxInflatedSize;
+    }
+
+    /**
+     * Sets the largest size in bytes that the compressed body of a received message may
+     * inflate to when compression is enabled.  Accessing the body of a message that would
+     * inflate to more than this fails with a JMSException.
+     *
+     * @param maxInflatedSize the largest inflated body size in bytes.
+     */
+    public void setMaxInflatedSize(int maxInflatedSize) {
+        if (maxInflatedSize < 0) {
+            throw new IllegalArgumentException("Max inflated size cannot be negative: " + maxInflatedSize);
+        }
+
+        this.maxInflatedSize = maxInflatedSize;
+    }
+
     public long getCloseTimeout() {
         return this.closeTimeout;
     }
@@ -1194,39 +1377,63 @@ public class AmqpProvider implements Provider, TransportListener , AmqpResourceP
         }
     }
 
+    /*
+     * Runs on the shared idle timeout timer when this connection's idle deadline expires
+     * and hands the actual tick over to the serializer, connections that stay busy or
+     * have no idle timeout configured never wake the timer.
+     */
     private final class IdleTimeoutCheck implements Runnable {
+
+        private final Runnable check = new Runnable() {
+
+            @Override
+            public void run() {
+                doIdleTimeoutCheck(IdleTimeoutCheck.this);
+            }
+        };
+
         @Override
         public void run() {
-            boolean checkScheduled = false;
-
-            if (connection.getLocalState() == EndpointState.ACTIVE) {
-                // Using nano time since it is not related to the wall clock, which may change
-                long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
-                long deadline = protonTransport.tick(now);
+            try {
+                serializer.execute(check);
+            } catch (RejectedExecutionException ree) {
+                LOG.trace("IdleTimeoutCheck skipped, provider has been closed.");
+            }
+        }
+    }
 
-                boolean pumpSucceeded = pumpToProtonTransport();
+    private void doIdleTimeoutCheck(IdleTimeoutCheck idleTimeoutCheck) {
+        boolean checkScheduled = false;
 
-                if (protonTransport.isClosed()) {
-                    LOG.info("IdleTimeoutCheck closed the transport due to the peer exceeding our requested idle-timeout.");
-                    if (pumpSucceeded) {
-                        fireProviderException(new IOException("Transport closed due to the peer exceeding our requested idle-timeout"));
-                    }
-                } else {
-                    if (deadline > 0) {
-                        long delay = deadline - now;
-                        checkScheduled = true;
-                        LOG.trace("IdleTimeoutCheck rescheduling with delay: {}", delay);
-                        nextIdleTimeoutCheck = serializer.schedule(this, delay, TimeUnit.MILLISECONDS);
-                    }
+        if (closed.get()) {
+            LOG.trace("IdleTimeoutCheck skipping check, provider is closed.");
+        } else if (connection.getLocalState() == EndpointState.ACTIVE) {
+            // Using nano time since it is not related to the wall clock, which may change
+            long now = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+            long deadline = protonTransport.tick(now);
+
+            boolean pumpSucceeded = pumpToProtonTransport();
+
+            if (protonTransport.isClosed()) {
+                LOG.info("IdleTimeoutCheck closed the transport due to the peer exceeding our requested idle-timeout.");
+                if (pumpSucceeded) {
+                    fireProviderException(new IOException("Transport closed due to the peer exceeding our requested idle-timeout"));
                 }
             } else {
-                LOG.trace("IdleTimeoutCheck skipping check, connection is not active.");
+                if (deadline > 0) {
+                    long delay = deadline - now;
+                    checkScheduled = true;
+                    LOG.trace("IdleTimeoutCheck rescheduling with delay: {}", delay);
+                    nextIdleTimeoutCheck = IDLE_TIMEOUT_TIMER.schedule(idleTimeoutCheck, delay);
+                }
             }
+        } else {
+            LOG.trace("IdleTimeoutCheck skipping check, connection is not active.");
+        }
 
-            if (!checkScheduled) {
-                nextIdleTimeoutCheck = null;
-                LOG.trace("IdleTimeoutCheck exiting");
-            }
+        if (!checkScheduled) {
+            nextIdleTimeoutCheck = null;
+            LOG.trace("IdleTimeoutCheck exiting");
         }
     }
 }
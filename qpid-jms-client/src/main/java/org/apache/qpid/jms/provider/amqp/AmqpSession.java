@@ -16,6 +16,7 @@
  */
 package org.apache.qpid.jms.provider.amqp;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
@@ -32,6 +33,7 @@ import org.apache.qpid.jms.meta.JmsSessionInfo;
 import org.apache.qpid.jms.meta.JmsTransactionId;
 import org.apache.qpid.jms.meta.JmsTransactionInfo;
 import org.apache.qpid.jms.provider.AsyncResult;
+import org.apache.qpid.jms.provider.NoOpAsyncResult;
 import org.apache.qpid.jms.provider.ProviderConstants.ACK_TYPE;
 import org.apache.qpid.jms.provider.amqp.builders.AmqpConsumerBuilder;
 import org.apache.qpid.jms.provider.amqp.builders.AmqpProducerBuilder;
@@ -114,8 +116,13 @@ public class AmqpSession extends AmqpAbstractResource<JmsSessionInfo, Session> i
     }
 
     public void createConsumer(JmsConsumerInfo consumerInfo, AsyncResult request) {
-        AmqpConsumerBuilder builder = new AmqpConsumerBuilder(this, consumerInfo);
-        builder.buildResource(request);
+        if (connection.isTopicFanout() && isFanoutCandidate(consumerInfo)) {
+            LOG.debug("Creating AmqpFanoutSubscriber for: {}", consumerInfo.getDestination());
+            connection.getConnectionSession().createFanoutSubscriber(this, consumerInfo, request);
+        } else {
+            AmqpConsumerBuilder builder = new AmqpConsumerBuilder(this, consumerInfo);
+            builder.buildResource(request);
+        }
     }
 
     public AmqpConsumer getConsumer(JmsConsumerInfo consumerInfo) {
@@ -129,6 +136,12 @@ public class AmqpSession extends AmqpAbstractResource<JmsSessionInfo, Session> i
         return consumers.get(consumerId);
     }
 
+    private boolean isFanoutCandidate(JmsConsumerInfo consumerInfo) {
+        return consumerInfo.getDestination().isTopic() && !consumerInfo.isDurable() &&
+               !consumerInfo.isBrowser() && !consumerInfo.isNoLocal() &&
+               consumerInfo.getPrefetchSize() > 0 && !isTransacted();
+    }
+
     public AmqpTransactionContext getTransactionContext() {
         return txContext;
     }
@@ -207,6 +220,30 @@ public class AmqpSession extends AmqpAbstractResource<JmsSessionInfo, Session> i
         return getProvider().getScheduler().schedule(task, delay, TimeUnit.MILLISECONDS);
     }
 
+    @Override
+    public void close(AsyncResult request) {
+        closeFanoutSubscribers();
+        super.close(request);
+    }
+
+    @Override
+    public void remotelyClosed(AmqpProvider provider) {
+        closeFanoutSubscribers();
+        super.remotelyClosed(provider);
+    }
+
+    /*
+     * Consumers sharing a link owned by the connection are not closed along with this
+     * session's endpoint and so must be removed from the link explicitly.
+     */
+    private void closeFanoutSubscribers() {
+        for (AmqpConsumer consumer : new ArrayList<AmqpConsumer>(consumers.values())) {
+            if (consumer instanceof AmqpFanoutSubscriber) {
+                consumer.close(NoOpAsyncResult.INSTANCE);
+            }
+        }
+    }
+
     @Override
     public void addChildResource(AmqpResource resource) {
         // delegate to the connection if the type is not managed here.
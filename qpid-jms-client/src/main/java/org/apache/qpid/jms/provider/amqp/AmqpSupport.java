@@ -71,6 +71,7 @@ public class AmqpSupport {
     public static final Rejected REJECTED = new Rejected();
     public static final Modified MODIFIED_FAILED = new Modified();
     public static final Modified MODIFIED_FAILED_UNDELIVERABLE = new Modified();
+    public static final Modified MODIFIED_UNDELIVERABLE_HERE = new Modified();
 
     // Temporary Destination constants
     public static final Symbol DYNAMIC_NODE_LIFETIME_POLICY = Symbol.valueOf("lifetime-policy");
@@ -84,6 +85,8 @@ public class AmqpSupport {
 
         MODIFIED_FAILED_UNDELIVERABLE.setDeliveryFailed(true);
         MODIFIED_FAILED_UNDELIVERABLE.setUndeliverableHere(true);
+
+        MODIFIED_UNDELIVERABLE_HERE.setUndeliverableHere(true);
     }
 
     //----- Utility Methods --------------------------------------------------//
@@ -143,7 +143,9 @@ public class AmqpConsumerBuilder extends AmqpResourceBuilder<AmqpConsumer, AmqpS
             filters.put(JMS_NO_LOCAL_SYMBOL, AmqpJmsNoLocalType.NO_LOCAL);
         }
 
-        if (resourceInfo.getSelector() != null && !resourceInfo.getSelector().trim().equals("")) {
+        // Selectors evaluated on the client are not sent to the remote peer.
+        if (resourceInfo.getSelector() != null && !resourceInfo.getSelector().trim().equals("") &&
+            !getParent().getConnection().isClientSideSelectors()) {
             filters.put(JMS_SELECTOR_SYMBOL, new AmqpJmsSelectorType(resourceInfo.getSelector()));
         }
 
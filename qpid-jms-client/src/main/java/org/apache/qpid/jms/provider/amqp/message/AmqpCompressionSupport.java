@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.TEXT_PLAIN_UTF8_CONTENT_TYPE;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.message.Message;
+
+/**
+ * Support class used to compress the body of outgoing messages and to restore the body
+ * of incoming messages that were compressed.
+ *
+ * A compressed body is carried in a Data section holding the zlib format output of the
+ * deflate algorithm, the message content-encoding is set to "deflate" so that receivers
+ * can tell the body must be inflated before use.  Compression is applied using the fastest
+ * setting as the aim is to reduce the bytes sent for large textual payloads without adding
+ * noticeable latency to the send.
+ */
+public final class AmqpCompressionSupport {
+
+    /**
+     * Content encoding used to mark a Data section as containing a compressed body.
+     */
+    public static final String DEFLATE_CONTENT_ENCODING = "deflate";
+
+    /**
+     * Default size in bytes at or above which a message body will be compressed.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 64 * 1024;
+
+    /**
+     * Default limit in bytes on the size a received compressed body may inflate to.
+     */
+    public static final int DEFAULT_MAX_INFLATED_SIZE = 100 * 1024 * 1024;
+
+    private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(Deflater.BEST_SPEED);
+        }
+    };
+
+    private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    private AmqpCompressionSupport() {}
+
+    /**
+     * Checks whether the given message carries a compressed body.
+     *
+     * @param message
+     *        the message to inspect.
+     *
+     * @return true if the message content-encoding marks the body as compressed.
+     */
+    public static boolean isCompressed(Message message) {
+        return DEFLATE_CONTENT_ENCODING.equalsIgnoreCase(message.getContentEncoding()) &&
+               message.getBody() instanceof Data;
+    }
+
+    /**
+     * Replaces the body of the given message with a compressed Data section if the body is
+     * at least the given size and compressing it reduces its size.  A Data body is compressed
+     * as is, while an AmqpValue String body is first encoded as UTF-8 and is then given a
+     * text/plain content type.  Any other body, or a message that already has a content
+     * encoding, is left unchanged.
+     *
+     * @param message
+     *        the message whose body is to be compressed.
+     * @param threshold
+     *        the size in bytes at or above which the body is compressed.
+     *
+     * @return true if the message body was replaced with a compressed body.
+     */
+    public static boolean compressBody(Message message, int threshold) {
+        if (message.getContentEncoding() != null) {
+            return false;
+        }
+
+        Section body = message.getBody();
+        Binary payload = null;
+        boolean text = false;
+
+        if (body instanceof Data) {
+            payload = ((Data) body).getValue();
+        } else if (body instanceof AmqpValue && ((AmqpValue) body).getValue() instanceof String) {
+            String value = (String) ((AmqpValue) body).getValue();
+            // No String can encode to fewer bytes than it has chars, skip those that are too small.
+            if (value.length() >= threshold) {
+                payload = new Binary(value.getBytes(StandardCharsets.UTF_8));
+                text = true;
+            }
+        }
+
+        if (payload == null || payload.getLength() < threshold) {
+            return false;
+        }
+
+        Binary compressed = deflate(payload);
+        if (compressed.getLength() >= payload.getLength()) {
+            return false;
+        }
+
+        message.setBody(new Data(compressed));
+        message.setContentEncoding(DEFLATE_CONTENT_ENCODING);
+        if (text) {
+            message.setContentType(TEXT_PLAIN_UTF8_CONTENT_TYPE);
+        }
+
+        return true;
+    }
+
+    /**
+     * Compresses the given bytes.
+     *
+     * @param payload
+     *        the bytes to compress.
+     *
+     * @return a Binary holding the compressed bytes.
+     */
+    public static Binary deflate(Binary payload) {
+        Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setInput(payload.getArray(), payload.getArrayOffset(), payload.getLength());
+            deflater.finish();
+
+            byte[] output = new byte[Math.max(64, payload.getLength() / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                length += deflater.deflate(output, length, output.length - length);
+            }
+
+            return new Binary(output, 0, length);
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    /**
+     * Restores bytes that were compressed by {@link #deflate(Binary)}, limiting the size of
+     * the result to {@link #DEFAULT_MAX_INFLATED_SIZE}.
+     *
+     * @param payload
+     *        the compressed bytes.
+     *
+     * @return a Binary holding the original bytes.
+     *
+     * @throws IOException if the bytes are not valid compressed data or inflate to more than the limit.
+     */
+    public static Binary inflate(Binary payload) throws IOException {
+        return inflate(payload, DEFAULT_MAX_INFLATED_SIZE);
+    }
+
+    /**
+     * Restores bytes that were compressed by {@link #deflate(Binary)}.  Inflating stops as
+     * soon as the output exceeds the given limit, so a small payload crafted to expand to
+     * a huge body cannot exhaust the heap.
+     *
+     * @param payload
+     *        the compressed bytes.
+     * @param maxInflatedSize
+     *        the largest size in bytes the inflated body may have.
+     *
+     * @return a Binary holding the original bytes.
+     *
+     * @throws IOException if the bytes are not valid compressed data or inflate to more than the limit.
+     */
+    public static Binary inflate(Binary payload, int maxInflatedSize) throws IOException {
+        Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(payload.getArray(), payload.getArrayOffset(), payload.getLength());
+
+            // The buffer may grow to one byte past the limit so that exceeding it can be seen.
+            int capacityLimit = maxInflatedSize == Integer.MAX_VALUE ? maxInflatedSize : maxInflatedSize + 1;
+            byte[] output = new byte[(int) Math.min(capacityLimit, Math.max(64L, payload.getLength() * 4L))];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == output.length) {
+                    if (length >= capacityLimit) {
+                        break;
+                    }
+                    output = Arrays.copyOf(output, (int) Math.min(capacityLimit, output.length * 2L));
+                }
+
+                int inflated = inflater.inflate(output, length, output.length - length);
+                if (inflated == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Compressed message body is truncated or invalid");
+                }
+                length += inflated;
+            }
+
+            if (length > maxInflatedSize || !inflater.finished()) {
+                throw new IOException("Compressed message body inflates to more than the maximum of " + maxInflatedSize + " bytes");
+            }
+
+            return new Binary(output, 0, length);
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed message body is invalid: " + e.getMessage(), e);
+        } finally {
+            inflater.reset();
+        }
+    }
+}
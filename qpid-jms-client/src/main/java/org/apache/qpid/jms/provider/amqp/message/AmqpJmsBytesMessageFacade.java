@@ -79,7 +79,7 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
     }
 
     @Override
-    public AmqpJmsBytesMessageFacade copy() {
+    public AmqpJmsBytesMessageFacade copy() throws JMSException {
         reset();
         AmqpJmsBytesMessageFacade copy = new AmqpJmsBytesMessageFacade(connection);
         copyInto(copy);
@@ -173,7 +173,7 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
     }
 
     @Override
-    public int getBodyLength() {
+    public int getBodyLength() throws JMSException {
         return getBinaryFromBody().getLength();
     }
 
@@ -182,9 +182,11 @@ public class AmqpJmsBytesMessageFacade extends AmqpJmsMessageFacade implements J
      * {@link EMPTY_BINARY} if there is none. Never returns null.
      *
      * @return the body binary, or empty substitute if there is none
+     *
+     * @throws JMSException if the compressed body cannot be inflated.
      */
-    private Binary getBinaryFromBody() {
-        Section body = getAmqpMessage().getBody();
+    private Binary getBinaryFromBody() throws JMSException {
+        Section body = getBody();
         Binary result = EMPTY_BINARY;
 
         if (body == null) {
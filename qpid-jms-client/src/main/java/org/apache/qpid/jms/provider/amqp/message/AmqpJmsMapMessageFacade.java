@@ -25,6 +25,8 @@ import java.util.Enumeration;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import javax.jms.JMSException;
+
 import org.apache.qpid.jms.message.facade.JmsMapMessageFacade;
 import org.apache.qpid.jms.provider.amqp.AmqpConnection;
 import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
@@ -92,7 +94,7 @@ public class AmqpJmsMapMessageFacade extends AmqpJmsMessageFacade implements Jms
     }
 
     @Override
-    public AmqpJmsMapMessageFacade copy() {
+    public AmqpJmsMapMessageFacade copy() throws JMSException {
         AmqpJmsMapMessageFacade copy = new AmqpJmsMapMessageFacade(connection);
         copyInto(copy);
         copy.messageBodyMap.putAll(messageBodyMap);
@@ -24,7 +24,6 @@ import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_O
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_STREAM_MESSAGE;
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_TEXT_MESSAGE;
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.OCTET_STREAM_CONTENT_TYPE;
-import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.SERIALIZED_JAVA_OBJECT_CONTENT_TYPE;
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.isContentType;
 
 import java.io.IOException;
@@ -38,6 +37,7 @@ import org.apache.qpid.jms.message.JmsObjectMessage;
 import org.apache.qpid.jms.message.JmsStreamMessage;
 import org.apache.qpid.jms.message.JmsTextMessage;
 import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
+import org.apache.qpid.jms.serialization.ObjectSerializerFinder;
 import org.apache.qpid.jms.util.ContentTypeSupport;
 import org.apache.qpid.jms.util.InvalidContentTypeException;
 import org.apache.qpid.proton.amqp.Binary;
@@ -68,6 +68,10 @@ public class AmqpJmsMessageBuilder {
      */
     public static JmsMessage createJmsMessage(AmqpConsumer consumer, Message message) throws IOException {
 
+        if (AmqpCompressionSupport.isCompressed(message)) {
+            return createFromCompressedBody(consumer, message);
+        }
+
         // First we try the easy way, if the annotation is there we don't have to work hard.
         JmsMessage result = createFromMsgAnnotation(consumer, message);
         if (result != null) {
@@ -84,6 +88,27 @@ public class AmqpJmsMessageBuilder {
         throw new IOException("Could not create a JMS message from incoming message");
     }
 
+    private static JmsMessage createFromCompressedBody(AmqpConsumer consumer, Message message) throws IOException {
+        // Only bytes and text bodies are compressed by the client, any other message, or any
+        // message received when compression is not enabled, is given to the application as
+        // a BytesMessage holding the compressed bytes.
+        if (consumer.getConnection().isCompression()) {
+            JmsMessage result = createFromMsgAnnotation(consumer, message);
+            if (result == null) {
+                result = createWithoutAnnotation(consumer, message);
+            }
+
+            if (result.getFacade() instanceof AmqpJmsBytesMessageFacade ||
+                result.getFacade() instanceof AmqpJmsTextMessageFacade) {
+
+                ((AmqpJmsMessageFacade) result.getFacade()).setBodyCompressed();
+                return result;
+            }
+        }
+
+        return createBytesMessage(consumer, message);
+    }
+
     private static JmsMessage createFromMsgAnnotation(AmqpConsumer consumer, Message message) throws IOException {
         Object annotation = AmqpMessageSupport.getMessageAnnotation(JMS_MSG_TYPE, message);
         if (annotation != null) {
@@ -113,7 +138,7 @@ public class AmqpJmsMessageBuilder {
         Section body = message.getBody();
 
         if (body == null) {
-            if (isContentType(SERIALIZED_JAVA_OBJECT_CONTENT_TYPE, message)) {
+            if (isSerializedObjectContentType(message)) {
                 return createObjectMessage(consumer, message);
             } else if (isContentType(OCTET_STREAM_CONTENT_TYPE, message) || isContentType(null, message)) {
                 return createBytesMessage(consumer, message);
@@ -128,7 +153,7 @@ public class AmqpJmsMessageBuilder {
         } else if (body instanceof Data) {
             if (isContentType(OCTET_STREAM_CONTENT_TYPE, message) || isContentType(null, message)) {
                 return createBytesMessage(consumer, message);
-            } else if (isContentType(SERIALIZED_JAVA_OBJECT_CONTENT_TYPE, message)) {
+            } else if (isSerializedObjectContentType(message)) {
                 return createObjectMessage(consumer, message);
             } else {
                 Charset charset = getCharsetForTextualContent(message.getContentType());
@@ -179,6 +204,10 @@ public class AmqpJmsMessageBuilder {
         return new JmsMessage(new AmqpJmsMessageFacade(consumer, message));
     }
 
+    private static boolean isSerializedObjectContentType(Message message) {
+        return ObjectSerializerFinder.findSerializerForContentType(message.getContentType()) != null;
+    }
+
     /**
      * @param contentType the contentType of the received message
      * @return the character set to use, or null if not to treat the message as text
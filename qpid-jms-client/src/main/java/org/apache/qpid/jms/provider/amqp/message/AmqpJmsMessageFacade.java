@@ -20,6 +20,7 @@ import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_A
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_MESSAGE;
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_MSG_TYPE;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
@@ -33,6 +34,7 @@ import javax.jms.MessageFormatException;
 
 import org.apache.qpid.jms.JmsDestination;
 import org.apache.qpid.jms.exceptions.IdConversionException;
+import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.message.facade.JmsMessageFacade;
 import org.apache.qpid.jms.provider.amqp.AmqpConnection;
 import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
@@ -42,10 +44,12 @@ import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.UnsignedByte;
 import org.apache.qpid.proton.amqp.UnsignedInteger;
 import org.apache.qpid.proton.amqp.messaging.ApplicationProperties;
+import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.Footer;
 import org.apache.qpid.proton.amqp.messaging.Header;
 import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
 import org.apache.qpid.proton.amqp.messaging.Properties;
+import org.apache.qpid.proton.amqp.messaging.Section;
 import org.apache.qpid.proton.message.Message;
 
 public class AmqpJmsMessageFacade implements JmsMessageFacade {
@@ -53,6 +57,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     private static final int DEFAULT_PRIORITY = javax.jms.Message.DEFAULT_PRIORITY;
     private static final Charset UTF8 = Charset.forName("UTF-8");
     private static final long UINT_MAX = 0xFFFFFFFFL;
+    private static final int ESTIMATED_HEADER_SIZE = 128;
 
     protected final Message message;
     protected final AmqpConnection connection;
@@ -72,6 +77,9 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
      */
     private Long userSpecifiedTTL = null;
 
+    // The compressed body section of a received message that has yet to be inflated.
+    private Section compressedBody;
+
     /**
      * Create a new AMQP Message Facade with an empty message instance.
      *
@@ -138,6 +146,14 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         message.setContentType(value);
     }
 
+    public String getContentEncoding() {
+        return message.getContentEncoding();
+    }
+
+    public void setContentEncoding(String value) {
+        message.setContentEncoding(value);
+    }
+
     @Override
     public boolean propertyExists(String key) throws JMSException {
         return AmqpJmsMessagePropertyIntercepter.propertyExists(this, key);
@@ -200,6 +216,7 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
 
     @Override
     public void onSend(long producerTtl) throws JMSException {
+        inflateCompressedBody();
 
         // Set the ttl field of the Header field if needed, complementing the expiration
         // field of Properties for any peers that only inspect the mutable ttl field.
@@ -244,7 +261,9 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
     }
 
     @SuppressWarnings("unchecked")
-    protected void copyInto(AmqpJmsMessageFacade target) {
+    protected void copyInto(AmqpJmsMessageFacade target) throws JMSException {
+        inflateCompressedBody();
+
         if (consumerDestination != null) {
             target.consumerDestination = consumerDestination;
         }
@@ -345,6 +364,22 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
             message.setMessageId(messageId);
     }
 
+    @Override
+    public int getEstimatedSize() {
+        int size = ESTIMATED_HEADER_SIZE;
+
+        if (messageAnnotationsMap != null) {
+            size += AmqpMessageSupport.estimateEncodedSize(messageAnnotationsMap);
+        }
+
+        if (applicationPropertiesMap != null) {
+            size += AmqpMessageSupport.estimateEncodedSize(applicationPropertiesMap);
+        }
+
+        // Read the body directly to avoid inflating one that is held compressed.
+        return size + AmqpMessageSupport.estimateEncodedSize(message.getBody());
+    }
+
     @Override
     public void setMessageId(String messageId) {
         if (messageId == null) {
@@ -835,6 +870,47 @@ public class AmqpJmsMessageFacade implements JmsMessageFacade {
         this.message.setReplyTo(address);
     }
 
+    /**
+     * Marks the body of this received message as compressed, the body is then inflated
+     * the first time it is accessed.
+     */
+    void setBodyCompressed() {
+        compressedBody = message.getBody();
+    }
+
+    /**
+     * Returns the body section of the message, inflating it first if the message arrived
+     * with a compressed body.  Subclasses should use this in place of reading the body
+     * directly from the AMQP message.
+     *
+     * @return the body section of the message.
+     *
+     * @throws JMSException if the compressed body cannot be inflated.
+     */
+    protected Section getBody() throws JMSException {
+        inflateCompressedBody();
+        return message.getBody();
+    }
+
+    private void inflateCompressedBody() throws JMSException {
+        if (compressedBody != null) {
+            // The body may have been replaced since it was received, leaving nothing to inflate.
+            if (message.getBody() == compressedBody) {
+                Binary payload = ((Data) compressedBody).getValue();
+                int maxInflatedSize = connection != null ?
+                    connection.getMaxInflatedSize() : AmqpCompressionSupport.DEFAULT_MAX_INFLATED_SIZE;
+                try {
+                    message.setBody(new Data(AmqpCompressionSupport.inflate(payload, maxInflatedSize)));
+                } catch (IOException e) {
+                    throw JmsExceptionSupport.create("Failed to inflate compressed message body", e);
+                }
+            }
+
+            message.setContentEncoding(null);
+            compressedBody = null;
+        }
+    }
+
     private Long getAbsoluteExpiryTime() {
         Long result = null;
         if (message.getProperties() != null) {
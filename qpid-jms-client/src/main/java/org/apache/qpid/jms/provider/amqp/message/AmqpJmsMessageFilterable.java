@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import javax.jms.JMSException;
+
+import org.apache.qpid.jms.selector.filter.FilterException;
+import org.apache.qpid.jms.selector.filter.Filterable;
+
+/**
+ * Exposes an incoming AMQP message to the selector expression tree so that a JMS
+ * selector can be evaluated on the client.  The JMS header fields that a selector
+ * may reference are read from the facade, all other names are looked up in the
+ * message application properties.
+ *
+ * An instance is reused for each message being evaluated and so is not thread safe.
+ */
+public class AmqpJmsMessageFilterable implements Filterable {
+
+    private AmqpJmsMessageFacade message;
+
+    /**
+     * Sets the message that subsequent property lookups are performed against.
+     *
+     * @param message
+     *        the message facade that is about to be evaluated.
+     *
+     * @return this filterable instance.
+     */
+    public AmqpJmsMessageFilterable reset(AmqpJmsMessageFacade message) {
+        this.message = message;
+        return this;
+    }
+
+    @Override
+    public <T> T getBodyAs(Class<T> type) throws FilterException {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        switch (name) {
+            case "JMSDeliveryMode":
+                return message.isPersistent() ? "PERSISTENT" : "NON_PERSISTENT";
+            case "JMSPriority":
+                return message.getPriority();
+            case "JMSMessageID":
+                return message.getMessageId();
+            case "JMSTimestamp":
+                return message.getTimestamp();
+            case "JMSCorrelationID":
+                return message.getCorrelationId();
+            case "JMSType":
+                return message.getType();
+            default:
+                try {
+                    return AmqpJmsMessagePropertyIntercepter.getProperty(message, name);
+                } catch (JMSException e) {
+                    return null;
+                }
+        }
+    }
+
+    @Override
+    public Object getLocalConnectionId() {
+        return null;
+    }
+}
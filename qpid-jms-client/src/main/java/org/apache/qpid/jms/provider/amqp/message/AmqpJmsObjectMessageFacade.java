@@ -28,6 +28,8 @@ import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
 import org.apache.qpid.jms.message.facade.JmsObjectMessageFacade;
 import org.apache.qpid.jms.provider.amqp.AmqpConnection;
 import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
+import org.apache.qpid.jms.serialization.ObjectSerializer;
+import org.apache.qpid.jms.serialization.ObjectSerializerFinder;
 import org.apache.qpid.proton.message.Message;
 
 /**
@@ -65,8 +67,14 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
     public AmqpJmsObjectMessageFacade(AmqpConsumer consumer, Message message) {
         super(consumer, message);
 
-        boolean javaSerialized = AmqpMessageSupport.SERIALIZED_JAVA_OBJECT_CONTENT_TYPE.equals(message.getContentType());
-        initDelegate(!javaSerialized);
+        // The content type identifies the serializer that wrote the body, a body with no
+        // known serializer content type is assumed to be an AMQP typed object.
+        ObjectSerializer serializer = ObjectSerializerFinder.findSerializerForContentType(message.getContentType());
+        if (serializer != null) {
+            delegate = new AmqpSerializedObjectDelegate(message, serializer);
+        } else {
+            delegate = new AmqpTypedObjectDelegate(message);
+        }
     }
 
     /**
@@ -128,7 +136,7 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
                 if (useAmqpTypedEncoding) {
                     newDelegate = new AmqpTypedObjectDelegate(message);
                 } else {
-                    newDelegate = new AmqpSerializedObjectDelegate(message);
+                    newDelegate = new AmqpSerializedObjectDelegate(message, getConfiguredSerializer());
                 }
 
                 newDelegate.setObject(existingObject);
@@ -142,12 +150,21 @@ public class AmqpJmsObjectMessageFacade extends AmqpJmsMessageFacade implements
 
     private void initDelegate(boolean useAmqpTypes) {
         if (!useAmqpTypes) {
-            delegate = new AmqpSerializedObjectDelegate(getAmqpMessage());
+            delegate = new AmqpSerializedObjectDelegate(getAmqpMessage(), getConfiguredSerializer());
         } else {
             delegate = new AmqpTypedObjectDelegate(getAmqpMessage());
         }
     }
 
+    private ObjectSerializer getConfiguredSerializer() {
+        ObjectSerializer serializer = null;
+        if (connection != null) {
+            serializer = connection.getObjectMessageSerializer();
+        }
+
+        return serializer != null ? serializer : ObjectSerializerFinder.getJavaSerializer();
+    }
+
     AmqpObjectTypeDelegate getDelegate() {
         return delegate;
     }
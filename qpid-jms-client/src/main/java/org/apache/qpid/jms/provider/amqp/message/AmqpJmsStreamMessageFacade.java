@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.jms.JMSException;
 import javax.jms.MessageEOFException;
 
 import org.apache.qpid.jms.message.facade.JmsStreamMessageFacade;
@@ -95,7 +96,7 @@ public class AmqpJmsStreamMessageFacade extends AmqpJmsMessageFacade implements
     }
 
     @Override
-    public AmqpJmsStreamMessageFacade copy() {
+    public AmqpJmsStreamMessageFacade copy() throws JMSException {
         AmqpJmsStreamMessageFacade copy = new AmqpJmsStreamMessageFacade(connection);
         copyInto(copy);
         copy.list.addAll(list);
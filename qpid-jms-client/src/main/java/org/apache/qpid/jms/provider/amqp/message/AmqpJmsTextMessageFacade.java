@@ -18,11 +18,14 @@ package org.apache.qpid.jms.provider.amqp.message;
 
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_MSG_TYPE;
 import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.JMS_TEXT_MESSAGE;
+import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.TEXT_PLAIN_UTF8_CONTENT_TYPE;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 
 import javax.jms.JMSException;
@@ -43,8 +46,22 @@ import org.apache.qpid.proton.message.Message;
  */
 public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements JmsTextMessageFacade {
 
+    private static final ThreadLocal<CharsetEncoder> UTF8_ENCODER = new ThreadLocal<CharsetEncoder>() {
+
+        @Override
+        protected CharsetEncoder initialValue() {
+            return StandardCharsets.UTF_8.newEncoder()
+                                         .onMalformedInput(CodingErrorAction.REPLACE)
+                                         .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    };
+
     private final Charset charset;
 
+    // The text most recently decoded from, or encoded into, a Data section body.
+    private Section cachedBody;
+    private String cachedText;
+
     /**
      * Create a new AMQP Message facade ready for sending.
      *
@@ -92,25 +109,17 @@ public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements Jm
 
     @Override
     public String getText() throws JMSException {
-        Section body = getAmqpMessage().getBody();
+        Section body = getBody();
 
         if (body == null) {
             return null;
         } else if (body instanceof Data) {
-            Data data = (Data) body;
-            if (data.getValue() == null || data.getValue().getLength() == 0) {
-                return "";
-            } else {
-                Binary b = data.getValue();
-                ByteBuffer buf = ByteBuffer.wrap(b.getArray(), b.getArrayOffset(), b.getLength());
-
-                try {
-                    CharBuffer chars = charset.newDecoder().decode(buf);
-                    return String.valueOf(chars);
-                } catch (CharacterCodingException e) {
-                    throw JmsExceptionSupport.create("Cannot decode String in " + charset.displayName(), e);
-                }
+            if (body != cachedBody) {
+                cachedText = decodeText((Data) body);
+                cachedBody = body;
             }
+
+            return cachedText;
         } else if (body instanceof AmqpValue) {
             Object value = ((AmqpValue) body).getValue();
 
@@ -126,8 +135,22 @@ public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements Jm
 
     @Override
     public void setText(String value) {
-        AmqpValue body = new AmqpValue(value);
+        Section body;
+
+        if (value != null && connection != null && connection.isTextAsData()) {
+            body = new Data(encodeText(value));
+            setContentType(TEXT_PLAIN_UTF8_CONTENT_TYPE);
+        } else {
+            if (getAmqpMessage().getBody() instanceof Data) {
+                setContentType(null);
+            }
+            body = new AmqpValue(value);
+        }
+
         getAmqpMessage().setBody(body);
+
+        cachedBody = body;
+        cachedText = value;
     }
 
     @Override
@@ -138,4 +161,30 @@ public class AmqpJmsTextMessageFacade extends AmqpJmsMessageFacade implements Jm
     Charset getCharset() {
         return charset;
     }
+
+    private String decodeText(Data data) throws JMSException {
+        Binary b = data.getValue();
+        if (b == null || b.getLength() == 0) {
+            return "";
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(b.getArray(), b.getArrayOffset(), b.getLength());
+
+        try {
+            CharBuffer chars = charset.newDecoder().decode(buf);
+            return String.valueOf(chars);
+        } catch (CharacterCodingException e) {
+            throw JmsExceptionSupport.create("Cannot decode String in " + charset.displayName(), e);
+        }
+    }
+
+    private static Binary encodeText(String value) {
+        try {
+            ByteBuffer buf = UTF8_ENCODER.get().encode(CharBuffer.wrap(value));
+            return new Binary(buf.array(), buf.arrayOffset(), buf.remaining());
+        } catch (CharacterCodingException e) {
+            // Cannot happen as the encoder replaces malformed and unmappable input.
+            throw new IllegalStateException("Cannot encode String in UTF-8", e);
+        }
+    }
 }
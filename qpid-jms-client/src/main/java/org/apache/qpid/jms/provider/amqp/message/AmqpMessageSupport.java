@@ -16,9 +16,14 @@
  */
 package org.apache.qpid.jms.provider.amqp.message;
 
+import java.util.List;
 import java.util.Map;
 
+import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.AmqpSequence;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.message.Message;
 
 /**
@@ -78,6 +83,7 @@ public final class AmqpMessageSupport {
     public static final String JMS_AMQP_TTL = "JMS_AMQP_TTL";
     public static final String JMS_AMQP_REPLY_TO_GROUP_ID = "JMS_AMQP_REPLY_TO_GROUP_ID";
     public static final String JMS_AMQP_TYPED_ENCODING = "JMS_AMQP_TYPED_ENCODING";
+    public static final String JMS_AMQP_CONTENT_ENCODING = "JMS_AMQP_CONTENT_ENCODING";
 
     /**
      * Content type used to mark Data sections as containing a serialized java object.
@@ -89,6 +95,11 @@ public final class AmqpMessageSupport {
      */
     public static final String OCTET_STREAM_CONTENT_TYPE = "application/octet-stream";
 
+    /**
+     * Content type used to mark Data sections as containing UTF-8 encoded text.
+     */
+    public static final String TEXT_PLAIN_UTF8_CONTENT_TYPE = "text/plain;charset=utf-8";
+
     // For support of old string destination type annotations
     public static final String LEGACY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME = "x-opt-to-type";
     public static final String LEGACY_REPLY_TO_TYPE_MSG_ANNOTATION_SYMBOL_NAME = "x-opt-reply-type";
@@ -96,6 +107,12 @@ public final class AmqpMessageSupport {
     public static final String LEGACY_TOPIC_ATTRIBUTE = "topic";
     public static final String LEGACY_TEMPORARY_ATTRIBUTE = "temporary";
 
+    // Encoding overheads used when estimating the encoded size of a message.
+    private static final int SECTION_OVERHEAD = 3;
+    private static final int VARIABLE_WIDTH_OVERHEAD = 5;
+    private static final int COMPOUND_OVERHEAD = 9;
+    private static final int FIXED_WIDTH_MAXIMUM = 17;
+
     /**
      * Lookup and return the correct Proton Symbol instance based on the given key.
      *
@@ -148,4 +165,49 @@ public final class AmqpMessageSupport {
             return contentType.equals(message.getContentType());
         }
     }
+
+    /**
+     * Estimates the number of bytes the given value occupies once AMQP encoded.  Strings
+     * are assumed to encode as one byte per character and fixed width values are given
+     * their largest encoding, the result is intended for memory accounting only.
+     *
+     * @param value
+     *        the message section or AMQP typed value whose encoded size is estimated.
+     *
+     * @return the estimated encoded size of the value in bytes.
+     */
+    public static int estimateEncodedSize(Object value) {
+        if (value == null) {
+            return 1;
+        } else if (value instanceof Data) {
+            return estimateEncodedSize(((Data) value).getValue()) + SECTION_OVERHEAD;
+        } else if (value instanceof AmqpValue) {
+            return estimateEncodedSize(((AmqpValue) value).getValue()) + SECTION_OVERHEAD;
+        } else if (value instanceof AmqpSequence) {
+            return estimateEncodedSize(((AmqpSequence) value).getValue()) + SECTION_OVERHEAD;
+        } else if (value instanceof Binary) {
+            return ((Binary) value).getLength() + VARIABLE_WIDTH_OVERHEAD;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length + VARIABLE_WIDTH_OVERHEAD;
+        } else if (value instanceof String) {
+            return ((String) value).length() + VARIABLE_WIDTH_OVERHEAD;
+        } else if (value instanceof Symbol) {
+            return ((Symbol) value).length() + VARIABLE_WIDTH_OVERHEAD;
+        } else if (value instanceof Map) {
+            int size = COMPOUND_OVERHEAD;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += estimateEncodedSize(entry.getKey());
+                size += estimateEncodedSize(entry.getValue());
+            }
+            return size;
+        } else if (value instanceof List) {
+            int size = COMPOUND_OVERHEAD;
+            for (Object element : (List<?>) value) {
+                size += estimateEncodedSize(element);
+            }
+            return size;
+        }
+
+        return FIXED_WIDTH_MAXIMUM;
+    }
 }
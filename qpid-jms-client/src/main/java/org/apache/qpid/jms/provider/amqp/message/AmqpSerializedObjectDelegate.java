@@ -16,15 +16,11 @@
  */
 package org.apache.qpid.jms.provider.amqp.message;
 
-import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.SERIALIZED_JAVA_OBJECT_CONTENT_TYPE;
-
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
-import org.apache.qpid.jms.util.ClassLoadingAwareObjectInputStream;
+import org.apache.qpid.jms.serialization.ObjectSerializer;
+import org.apache.qpid.jms.serialization.ObjectSerializerFinder;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.Section;
@@ -41,7 +37,7 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
     {
         byte[] bytes;
         try {
-            bytes = getSerializedBytes(null);
+            bytes = ObjectSerializerFinder.getJavaSerializer().serialize(null);
         } catch (IOException e) {
             throw new RuntimeException("Failed to initialise null object body", e);
         }
@@ -50,6 +46,10 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
     }
 
     private final Message message;
+    private final ObjectSerializer serializer;
+
+    private Section cachedBody;
+    private Serializable cachedObject;
 
     /**
      * Create a new delegate that uses Java serialization to store the message content.
@@ -58,19 +58,21 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
      *        the AMQP message instance where the object is to be stored / read.
      */
     public AmqpSerializedObjectDelegate(Message message) {
-        this.message = message;
-        this.message.setContentType(SERIALIZED_JAVA_OBJECT_CONTENT_TYPE);
+        this(message, ObjectSerializerFinder.getJavaSerializer());
     }
 
-    private static byte[] getSerializedBytes(Serializable value) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-            oos.writeObject(value);
-            oos.flush();
-            oos.close();
-
-            return baos.toByteArray();
-        }
+    /**
+     * Create a new delegate that uses the given serializer to store the message content.
+     *
+     * @param message
+     *        the AMQP message instance where the object is to be stored / read.
+     * @param serializer
+     *        the serializer used to convert the object to and from bytes.
+     */
+    public AmqpSerializedObjectDelegate(Message message, ObjectSerializer serializer) {
+        this.message = message;
+        this.serializer = serializer;
+        this.message.setContentType(serializer.getContentType());
     }
 
     @Override
@@ -80,6 +82,8 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
         Section body = message.getBody();
         if (body == null || body == NULL_OBJECT_BODY) {
             return null;
+        } else if (body == cachedBody) {
+            return cachedObject;
         } else if (body instanceof Data) {
             bin = ((Data) body).getValue();
         } else {
@@ -89,12 +93,11 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
         if (bin == null) {
             return null;
         } else {
-            Serializable serialized = null;
+            Serializable serialized = serializer.deserialize(bin.getArray(), bin.getArrayOffset(), bin.getLength());
 
-            try (ByteArrayInputStream bais = new ByteArrayInputStream(bin.getArray(), bin.getArrayOffset(), bin.getLength());
-                 ClassLoadingAwareObjectInputStream objIn = new ClassLoadingAwareObjectInputStream(bais)) {
-
-                serialized = (Serializable) objIn.readObject();
+            if (serializer.isCacheable()) {
+                cachedBody = body;
+                cachedObject = serialized;
             }
 
             return serialized;
@@ -103,19 +106,26 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
 
     @Override
     public void setObject(Serializable value) throws IOException {
-        if(value == null) {
-            message.setBody(NULL_OBJECT_BODY);
+        cachedBody = null;
+        cachedObject = null;
+
+        if (value == null) {
+            message.setBody(getNullObjectBody());
         } else {
-            byte[] bytes = getSerializedBytes(value);
+            byte[] bytes = serializer.serialize(value);
             message.setBody(new Data(new Binary(bytes)));
         }
     }
 
     @Override
     public void onSend() {
-        this.message.setContentType(SERIALIZED_JAVA_OBJECT_CONTENT_TYPE);
-        if(message.getBody() == null) {
-            message.setBody(NULL_OBJECT_BODY);
+        this.message.setContentType(serializer.getContentType());
+        if (message.getBody() == null) {
+            try {
+                message.setBody(getNullObjectBody());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to serialize null object body", e);
+            }
         }
     }
 
@@ -123,4 +133,19 @@ public class AmqpSerializedObjectDelegate implements AmqpObjectTypeDelegate {
     public boolean isAmqpTypeEncoded() {
         return false;
     }
+
+    /**
+     * @return the serializer used to convert the object to and from bytes.
+     */
+    public ObjectSerializer getSerializer() {
+        return serializer;
+    }
+
+    private Data getNullObjectBody() throws IOException {
+        if (serializer == ObjectSerializerFinder.getJavaSerializer()) {
+            return NULL_OBJECT_BODY;
+        } else {
+            return new Data(new Binary(serializer.serialize(null)));
+        }
+    }
 }
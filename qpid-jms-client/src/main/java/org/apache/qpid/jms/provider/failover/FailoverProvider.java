@@ -24,17 +24,22 @@ import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.jms.JMSException;
 import javax.jms.JMSSecurityException;
+import javax.jms.ResourceAllocationException;
 
 import org.apache.qpid.jms.JmsOperationTimedOutException;
 import org.apache.qpid.jms.JmsSendTimedOutException;
@@ -54,6 +59,7 @@ import org.apache.qpid.jms.provider.ProviderFactory;
 import org.apache.qpid.jms.provider.ProviderFuture;
 import org.apache.qpid.jms.provider.ProviderListener;
 import org.apache.qpid.jms.provider.ProviderRedirectedException;
+import org.apache.qpid.jms.provider.ProviderWrapper;
 import org.apache.qpid.jms.provider.WrappedAsyncResult;
 import org.apache.qpid.jms.util.IOExceptionSupport;
 import org.apache.qpid.jms.util.ThreadPoolUtils;
@@ -75,6 +81,7 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     private static final int UNDEFINED = -1;
     private static final int DISABLED = 0;
     private static final int MINIMUM_TIMEOUT = 1000;
+    private static final long CONNECT_RACE_CHECK_INTERVAL = 100;
 
     public static final int DEFAULT_MAX_RECONNECT_ATTEMPTS = UNLIMITED;
     public static final int DEFAULT_STARTUP_MAX_RECONNECT_ATTEMPTS = UNDEFINED;
@@ -84,6 +91,8 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     public static final boolean DEFAULT_USE_RECONNECT_BACKOFF = true;
     public static final double DEFAULT_RECONNECT_BACKOFF_MULTIPLIER = 2.0d;
     public static final int DEFAULT_WARN_AFTER_RECONNECT_ATTEMPTS = 10;
+    public static final int DEFAULT_PARALLEL_CONNECT_ATTEMPTS = 1;
+    public static final long DEFAULT_PARALLEL_CONNECT_DELAY = 250;
 
     private ProviderListener listener;
     private Provider provider;
@@ -92,11 +101,14 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
 
     private final ScheduledExecutorService serializer;
     private final ScheduledExecutorService connectionHub;
+    private final ExecutorService connectRacers;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final AtomicBoolean failed = new AtomicBoolean();
     private final AtomicBoolean closingConnection = new AtomicBoolean(false);
     private final AtomicLong requestId = new AtomicLong();
     private final Map<Long, FailoverRequest> requests = new LinkedHashMap<Long, FailoverRequest>();
+    private final FailoverReplayBuffer replayBuffer = new FailoverReplayBuffer();
+    private final Map<URI, Boolean> pendingUriUpdates = new LinkedHashMap<URI, Boolean>();
     private final DefaultProviderListener closedListener = new DefaultProviderListener();
     private final AtomicReference<JmsMessageFactory> messageFactory = new AtomicReference<JmsMessageFactory>();
 
@@ -107,6 +119,7 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     private long nextReconnectDelay = -1;
     private IOException failureCause;
     private URI connectedURI;
+    private long openStartTime;
 
     // Timeout values configured via JmsConnectionInfo
     private long closeTimeout = JmsConnectionInfo.DEFAULT_CLOSE_TIMEOUT;
@@ -122,6 +135,8 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     private int maxReconnectAttempts = DEFAULT_MAX_RECONNECT_ATTEMPTS;
     private int startupMaxReconnectAttempts = DEFAULT_STARTUP_MAX_RECONNECT_ATTEMPTS;
     private int warnAfterReconnectAttempts = DEFAULT_WARN_AFTER_RECONNECT_ATTEMPTS;
+    private int parallelConnectAttempts = DEFAULT_PARALLEL_CONNECT_ATTEMPTS;
+    private long parallelConnectDelay = DEFAULT_PARALLEL_CONNECT_DELAY;
 
     public FailoverProvider(Map<String, String> nestedOptions) {
         this(null, nestedOptions);
@@ -158,6 +173,19 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
                 return serial;
             }
         });
+
+        // When parallel connects are enabled the connect thread hands each candidate URI
+        // to one of these threads and waits for the first of them to connect.
+        this.connectRacers = Executors.newCachedThreadPool(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runner) {
+                Thread racer = new Thread(runner);
+                racer.setDaemon(true);
+                racer.setName("FailoverProvider: parallel connect thread");
+                return racer;
+            }
+        });
     }
 
     @Override
@@ -185,6 +213,8 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
                 @Override
                 public void run() {
                     try {
+                        replayBuffer.close();
+
                         IOException error = failureCause != null ? failureCause : new IOException("Connection closed");
                         List<FailoverRequest> pending = new ArrayList<FailoverRequest>(requests.values());
                         for (FailoverRequest request : pending) {
@@ -202,6 +232,7 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
                         LOG.debug("Caught exception while closing connection");
                     } finally {
                         ThreadPoolUtils.shutdownGraceful(connectionHub);
+                        connectRacers.shutdownNow();
                         if (serializer != null) {
                             serializer.shutdown();
                         }
@@ -341,9 +372,18 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     @Override
     public void send(final JmsOutboundMessageDispatch envelope, AsyncResult request) throws IOException, JMSException {
         checkClosed();
-        final FailoverRequest pending = new FailoverRequest(request, sendTimeout) {
+        final FailoverRequest pending = new FailoverRequest(replayBuffer.wrap(envelope, request), sendTimeout) {
+            @Override
+            public void run() {
+                // A send dropped from the replay buffer before it was dispatched is already failed.
+                if (!isComplete()) {
+                    super.run();
+                }
+            }
+
             @Override
             public void doTask() throws Exception {
+                replayBuffer.dispatched(envelope);
                 provider.send(envelope, this);
             }
 
@@ -358,7 +398,23 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
             }
         };
 
+        if (!replayBuffer.add(envelope, pending, sendTimeout)) {
+            throw new JmsSendTimedOutException("Timed out waiting for space in the replay buffer", envelope.getMessage());
+        }
+
         serializer.execute(pending);
+
+        if (replayBuffer.getPolicy() == FailoverReplayBuffer.Policy.DROP_OLDEST) {
+            serializer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (AsyncResult dropped : replayBuffer.evict()) {
+                        dropped.onFailure(new ResourceAllocationException(
+                            "Send dropped from the failover replay buffer to make room for newer messages"));
+                    }
+                }
+            });
+        }
     }
 
     @Override
@@ -543,6 +599,11 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
             LOG.trace("Caught exception while closing failed provider: {}", error.getMessage());
         }
         provider = null;
+        replayBuffer.setOffline(true);
+
+        if (!(cause instanceof ProviderRedirectedException)) {
+            uris.recordFailure(failedURI);
+        }
 
         if (reconnectAllowed(cause)) {
 
@@ -595,12 +656,14 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
                 try {
                     FailoverProvider.this.provider = provider;
                     provider.setProviderListener(FailoverProvider.this);
+                    replayBuffer.setOffline(false);
+                    openStartTime = System.nanoTime();
 
                     if (!firstConnection) {
                         LOG.debug("Signalling connection recovery: {}", provider);
 
                         // Stage 1: Allow listener to recover its resources
-                        listener.onConnectionRecovery(provider);
+                        listener.onConnectionRecovery(new OpenTimingProvider(provider, openStartTime));
 
                         // Stage 2: Connection state recovered, get newly configured message factory.
                         FailoverProvider.this.messageFactory.set(provider.getMessageFactory());
@@ -683,21 +746,19 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
 
                 reconnectAttempts++;
                 Throwable failure = null;
-                URI target = uris.getNext();
-                if (target != null) {
-                    Provider provider = null;
+                List<URI> targets = nextConnectTargets();
+                if (!targets.isEmpty()) {
                     try {
-                        LOG.debug("Connection attempt:[{}] to: {} in-progress", reconnectAttempts, target);
-                        provider = ProviderFactory.create(target);
-                        provider.connect();
+                        Provider provider = null;
+                        if (targets.size() == 1) {
+                            provider = connectTo(targets.get(0));
+                        } else {
+                            provider = raceConnect(targets);
+                        }
                         initializeNewConnection(provider);
                         return;
                     } catch (Throwable e) {
-                        LOG.info("Connection attempt:[{}] to: {} failed", reconnectAttempts, target);
                         failure = e;
-                        try {
-                            provider.close();
-                        } catch (Throwable ex) {}
                     }
                 } else {
                     LOG.debug("No target URI available to connect to");
@@ -711,6 +772,7 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
                     } else {
                         failureCause = IOExceptionSupport.create(failure);
                     }
+                    replayBuffer.close();
                     if (listener != null) {
                         listener.onConnectionFailure(failureCause);
                     };
@@ -730,6 +792,137 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
         });
     }
 
+    private List<URI> nextConnectTargets() {
+        return uris.getNext(Math.max(1, parallelConnectAttempts));
+    }
+
+    private Provider connectTo(URI target) throws Throwable {
+        Provider provider = null;
+        try {
+            LOG.debug("Connection attempt:[{}] to: {} in-progress", reconnectAttempts, target);
+            long startTime = System.nanoTime();
+            provider = ProviderFactory.create(target);
+            provider.connect();
+            uris.recordConnectTime(target, System.nanoTime() - startTime);
+            return provider;
+        } catch (Throwable e) {
+            LOG.info("Connection attempt:[{}] to: {} failed", reconnectAttempts, target);
+            uris.recordFailure(target);
+            try {
+                provider.close();
+            } catch (Throwable ex) {}
+            throw e;
+        }
+    }
+
+    /**
+     * Attempts to connect to each of the given targets in parallel, starting each attempt
+     * a configured delay after the one before it unless a connection has already been made.
+     * When an attempt fails the next attempt still waiting is started straight away rather
+     * than waiting out its delay.  The first Provider to connect is returned and any that
+     * connect afterwards are closed.  If every attempt fails the error from the last failed
+     * attempt is thrown.
+     */
+    private Provider raceConnect(List<URI> targets) throws Throwable {
+        final CountDownLatch done = new CountDownLatch(1);
+        final CountDownLatch[] starts = new CountDownLatch[targets.size()];
+        for (int i = 0; i < starts.length; ++i) {
+            starts[i] = new CountDownLatch(1);
+        }
+
+        final AtomicReference<Provider> winner = new AtomicReference<Provider>();
+        final AtomicReference<Throwable> lastFailure = new AtomicReference<Throwable>();
+        final AtomicInteger remaining = new AtomicInteger(targets.size());
+        final AtomicBoolean abandoned = new AtomicBoolean();
+
+        for (int i = 0; i < targets.size(); ++i) {
+            final URI target = targets.get(i);
+            final int slot = i;
+            final long startDelay = i * parallelConnectDelay;
+
+            try {
+                connectRacers.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            if (startDelay > 0) {
+                                starts[slot].await(startDelay, TimeUnit.MILLISECONDS);
+                            }
+                            starts[slot].countDown();
+
+                            if (done.getCount() == 0 || winner.get() != null || closed.get()) {
+                                return;
+                            }
+
+                            Provider provider = connectTo(target);
+                            if (!winner.compareAndSet(null, provider) || abandoned.get()) {
+                                LOG.debug("Closing parallel connection to: {} it is no longer needed", target);
+                                try {
+                                    provider.close();
+                                } catch (Throwable ex) {}
+                            }
+                        } catch (Throwable e) {
+                            lastFailure.set(e);
+                            startNextWaiting(starts, slot);
+                        } finally {
+                            if (winner.get() != null || remaining.decrementAndGet() == 0) {
+                                done.countDown();
+                                for (CountDownLatch start : starts) {
+                                    start.countDown();
+                                }
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                // The provider is closing, attempts that never started count as failed.
+                lastFailure.set(ree);
+                if (remaining.addAndGet(-(targets.size() - i)) == 0) {
+                    done.countDown();
+                }
+                break;
+            }
+        }
+
+        // Racers queued but never started are discarded when the provider closes, so
+        // wait in bounded steps and give up once closed rather than waiting forever.
+        while (!done.await(CONNECT_RACE_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+            if (closed.get()) {
+                abandoned.set(true);
+                Provider provider = winner.get();
+                if (provider != null) {
+                    try {
+                        provider.close();
+                    } catch (Throwable ex) {}
+                }
+
+                throw new IOException("Failover provider closed while connecting to: " + targets);
+            }
+        }
+
+        Provider provider = winner.get();
+        if (provider == null) {
+            Throwable failure = lastFailure.get();
+            throw failure != null ? failure : new IOException("Failed to connect to any of: " + targets);
+        }
+
+        return provider;
+    }
+
+    /*
+     * Releases the first attempt after the failed one that is still waiting out its start
+     * delay, an attempt counts down its own latch once it starts.
+     */
+    private static void startNextWaiting(CountDownLatch[] starts, int failed) {
+        for (int i = failed + 1; i < starts.length; ++i) {
+            if (starts[i].getCount() > 0) {
+                starts[i].countDown();
+                return;
+            }
+        }
+    }
+
     private boolean reconnectAllowed(IOException cause) {
         // If a connection attempts fail due to Security errors than
         // we abort reconnection as there is a configuration issue and
@@ -821,21 +1014,52 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
     //--------------- URI update and rebalance methods -----------------------//
 
     public void add(final URI uri) {
-        serializer.execute(new Runnable() {
-            @Override
-            public void run() {
-                uris.add(uri);
-            }
-        });
+        queueUriUpdate(uri, true);
     }
 
     public void remove(final URI uri) {
-        serializer.execute(new Runnable() {
-            @Override
-            public void run() {
-                uris.remove(uri);
-            }
-        });
+        queueUriUpdate(uri, false);
+    }
+
+    /*
+     * Updates are coalesced so that a burst of added and removed URIs, such as those
+     * arriving from a discovery agent, is applied to the pool in a single serializer
+     * task with only the most recent change for each URI taking effect.  The host of
+     * the URI is resolved on the calling thread first so that the serializer never waits
+     * on a lookup when the update is applied.
+     */
+    private void queueUriUpdate(URI uri, boolean add) {
+        if (uri != null) {
+            uris.resolveAddress(uri);
+        }
+
+        boolean scheduleUpdate;
+        synchronized (pendingUriUpdates) {
+            scheduleUpdate = pendingUriUpdates.isEmpty();
+            pendingUriUpdates.remove(uri);
+            pendingUriUpdates.put(uri, add);
+        }
+
+        if (scheduleUpdate) {
+            serializer.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Map<URI, Boolean> updates;
+                    synchronized (pendingUriUpdates) {
+                        updates = new LinkedHashMap<URI, Boolean>(pendingUriUpdates);
+                        pendingUriUpdates.clear();
+                    }
+
+                    for (Map.Entry<URI, Boolean> update : updates.entrySet()) {
+                        if (update.getValue()) {
+                            uris.add(update.getKey());
+                        } else {
+                            uris.remove(update.getKey());
+                        }
+                    }
+                }
+            });
+        }
     }
 
     //--------------- Property Getters and Setters ---------------------------//
@@ -867,6 +1091,36 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
         this.uris.setRandomize(value);
     }
 
+    public boolean isLatencyAware() {
+        return uris.isLatencyAware();
+    }
+
+    /**
+     * Sets whether reconnect attempts prefer the failover URIs that have connected the
+     * fastest and failed the least recently, rather than following the URI order.
+     *
+     * @param latencyAware
+     *        true to select failover URIs based on observed connect times.
+     */
+    public void setLatencyAware(boolean latencyAware) {
+        this.uris.setLatencyAware(latencyAware);
+    }
+
+    public long getAddressCacheTimeout() {
+        return uris.getAddressCacheTimeout();
+    }
+
+    /**
+     * Sets the time in milliseconds that the resolved address of a failover URI host is
+     * cached before it is refreshed in the background.
+     *
+     * @param addressCacheTimeout
+     *        the time in milliseconds a resolved host address remains current.
+     */
+    public void setAddressCacheTimeout(long addressCacheTimeout) {
+        this.uris.setAddressCacheTimeout(addressCacheTimeout);
+    }
+
     public long getInitialReconnectDelay() {
         return initialReconnectDelay;
     }
@@ -932,6 +1186,37 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
         this.warnAfterReconnectAttempts = warnAfterReconnectAttempts;
     }
 
+    public int getParallelConnectAttempts() {
+        return parallelConnectAttempts;
+    }
+
+    /**
+     * Sets the number of failover URIs that are connected to in parallel on each
+     * reconnect attempt.  The first connection to succeed is used and the others are
+     * closed.  The default of one disables parallel connects.
+     *
+     * @param parallelConnectAttempts
+     *        The number of URIs to attempt to connect to at the same time.
+     */
+    public void setParallelConnectAttempts(int parallelConnectAttempts) {
+        this.parallelConnectAttempts = parallelConnectAttempts;
+    }
+
+    public long getParallelConnectDelay() {
+        return parallelConnectDelay;
+    }
+
+    /**
+     * Sets the time in milliseconds between starting each of the parallel connect
+     * attempts.  An attempt is not started if an earlier one has already connected.
+     *
+     * @param parallelConnectDelay
+     *        The delay in milliseconds before starting the next parallel connect attempt.
+     */
+    public void setParallelConnectDelay(long parallelConnectDelay) {
+        this.parallelConnectDelay = parallelConnectDelay;
+    }
+
     public double getReconnectBackOffMultiplier() {
         return reconnectBackOffMultiplier;
     }
@@ -948,6 +1233,78 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
         this.useReconnectBackOff = useReconnectBackOff;
     }
 
+    public long getMaxReplayBufferSize() {
+        return replayBuffer.getMaxBytes();
+    }
+
+    /**
+     * Sets the maximum estimated size in bytes of the messages held awaiting a send to
+     * complete, these are retained so that they can be replayed after a reconnect.
+     *
+     * @param maxReplayBufferSize
+     *        the maximum size of the replay buffer in bytes, or -1 for no limit.
+     */
+    public void setMaxReplayBufferSize(long maxReplayBufferSize) {
+        replayBuffer.setMaxBytes(maxReplayBufferSize);
+    }
+
+    public int getMaxReplayBufferMessages() {
+        return replayBuffer.getMaxMessages();
+    }
+
+    /**
+     * Sets the maximum number of messages held awaiting a send to complete.
+     *
+     * @param maxReplayBufferMessages
+     *        the maximum number of messages in the replay buffer, or -1 for no limit.
+     */
+    public void setMaxReplayBufferMessages(int maxReplayBufferMessages) {
+        replayBuffer.setMaxMessages(maxReplayBufferMessages);
+    }
+
+    public String getReplayBufferPolicy() {
+        return replayBuffer.getPolicy().name();
+    }
+
+    /**
+     * Sets the action taken when a send would exceed the replay buffer limits, one of
+     * BLOCK, FAIL or DROP_OLDEST.
+     *
+     * @param replayBufferPolicy
+     *        the name of the policy to apply when the replay buffer is full.
+     */
+    public void setReplayBufferPolicy(String replayBufferPolicy) {
+        replayBuffer.setPolicy(FailoverReplayBuffer.Policy.parse(replayBufferPolicy));
+    }
+
+    /**
+     * @return the estimated size in bytes of the messages currently held for replay.
+     */
+    public long getReplayBufferBytes() {
+        return replayBuffer.getBufferedBytes();
+    }
+
+    /**
+     * @return the number of messages currently held for replay.
+     */
+    public int getReplayBufferMessages() {
+        return replayBuffer.getBufferedMessages();
+    }
+
+    /**
+     * @return the largest estimated size in bytes of the messages held for replay at any one time.
+     */
+    public long getPeakReplayBufferBytes() {
+        return replayBuffer.getPeakBufferedBytes();
+    }
+
+    /**
+     * @return the number of asynchronous sends dropped to make room in the replay buffer.
+     */
+    public long getReplayBufferDroppedMessages() {
+        return replayBuffer.getDroppedMessages();
+    }
+
     public long getCloseTimeout() {
         return this.closeTimeout;
     }
@@ -1121,6 +1478,39 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
         }
     }
 
+    /*
+     * Handed to the listener during recovery so that the open time recorded for the new
+     * connection covers only the connection open and not the recovery of its resources.
+     */
+    private final class OpenTimingProvider extends ProviderWrapper<Provider> {
+
+        private final long startTime;
+
+        public OpenTimingProvider(Provider next, long startTime) {
+            super(next);
+            this.startTime = startTime;
+
+            // Only the open is timed here, provider events still go straight to this provider.
+            next.setProviderListener(FailoverProvider.this);
+        }
+
+        @Override
+        public void create(JmsResource resource, AsyncResult request) throws IOException, JMSException, UnsupportedOperationException {
+            if (resource instanceof JmsConnectionInfo) {
+                request = new WrappedAsyncResult(request) {
+
+                    @Override
+                    public void onSuccess() {
+                        uris.recordOpenTime(next.getRemoteURI(), System.nanoTime() - startTime);
+                        super.onSuccess();
+                    }
+                };
+            }
+
+            super.create(resource, request);
+        }
+    }
+
     /**
      * Captures the initial request to create a JmsConnectionInfo based resources and ensures
      * that if the connection is successfully established that the connection established event
@@ -1143,6 +1533,7 @@ public class FailoverProvider extends DefaultProviderListener implements Provide
                 public void run() {
                     if (firstConnection) {
                         LOG.trace("First connection requst has completed:");
+                        uris.recordOpenTime(provider.getRemoteURI(), System.nanoTime() - openStartTime);
                         FailoverProvider.this.messageFactory.set(provider.getMessageFactory());
                         listener.onConnectionEstablished(provider.getRemoteURI());
                         firstConnection = false;
@@ -0,0 +1,450 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.failover;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.ResourceAllocationException;
+
+import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
+import org.apache.qpid.jms.meta.JmsConnectionInfo;
+import org.apache.qpid.jms.provider.AsyncResult;
+import org.apache.qpid.jms.provider.WrappedAsyncResult;
+import org.apache.qpid.jms.util.IOExceptionSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the messages held by the FailoverProvider until their send completes, these
+ * are replayed when a new connection is established so they remain in memory for as
+ * long as the remote peer is unavailable.  The buffer can be bounded by message count
+ * and by an estimate of the encoded size of the held messages, with a policy that
+ * decides what happens to a send that would exceed those bounds.
+ *
+ * Only sends held while the provider is offline count against the bounds, a send that
+ * is handed to a connected provider is in flight and no longer counts until the
+ * connection fails and it must be held for replay.  Sends are only ever dropped if
+ * they have not yet been handed to a provider, and dropping happens in {@link #evict()}
+ * which must be called from the thread that dispatches the sends.
+ */
+public class FailoverReplayBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FailoverReplayBuffer.class);
+
+    public static final int UNLIMITED = -1;
+
+    /**
+     * Actions that can be taken when a send would exceed the configured bounds.
+     */
+    public enum Policy {
+        /**
+         * Block the sending thread until space is released or the send times out.
+         */
+        BLOCK,
+        /**
+         * Fail the new send immediately.
+         */
+        FAIL,
+        /**
+         * Fail the oldest held asynchronous sends that have not yet been dispatched to make
+         * room, failing the new send if there are not enough such sends to free the space
+         * required.
+         */
+        DROP_OLDEST;
+
+        public static Policy parse(String value) {
+            return valueOf(value.toUpperCase(Locale.ENGLISH));
+        }
+    }
+
+    private final Map<JmsOutboundMessageDispatch, BufferedSend> buffered =
+        new LinkedHashMap<JmsOutboundMessageDispatch, BufferedSend>();
+
+    private long maxBytes = UNLIMITED;
+    private int maxMessages = UNLIMITED;
+    private Policy policy = Policy.BLOCK;
+
+    private int heldMessages;
+    private long bufferedBytes;
+    private long peakBufferedBytes;
+    private long droppedMessages;
+    private boolean offline = true;
+    private boolean closed;
+
+    /**
+     * Adds the given send to the buffer.  While offline the configured policy is applied
+     * if holding the send would exceed the buffer limits, a send is always accepted into
+     * an empty buffer regardless of its size so that a single large message cannot become
+     * impossible to send.  Under the DROP_OLDEST policy the send is accepted if enough
+     * older sends can be dropped, those are only dropped on the next call to evict.
+     *
+     * @param envelope
+     *        the envelope of the message being sent.
+     * @param request
+     *        the request that is failed should this send later be dropped from the buffer.
+     * @param timeout
+     *        the time in milliseconds to wait for space when blocking.
+     *
+     * @return true if the send was added, false if the time spent waiting for space elapsed.
+     *
+     * @throws IOException if the buffer is closed or the wait is interrupted.
+     * @throws ResourceAllocationException if the send was refused by the configured policy.
+     */
+    public boolean add(JmsOutboundMessageDispatch envelope, AsyncResult request, long timeout) throws IOException, ResourceAllocationException {
+        BufferedSend send = new BufferedSend(envelope, request, envelope.getMessage().getFacade().getEstimatedSize());
+
+        synchronized (buffered) {
+            if (offline && !hasSpaceFor(send.size)) {
+                switch (policy) {
+                    case FAIL:
+                        throw createFullException();
+                    case DROP_OLDEST:
+                        if (!canEvictFor(send.size)) {
+                            throw createFullException();
+                        }
+                        break;
+                    default:
+                        if (!awaitSpaceFor(send.size, timeout)) {
+                            return false;
+                        }
+                }
+            }
+
+            buffered.put(envelope, send);
+            if (offline) {
+                hold(send);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Records that the given send has been handed to a connected provider, it no longer
+     * counts against the buffer limits and can no longer be dropped.
+     *
+     * @param envelope
+     *        the envelope of the message being dispatched.
+     */
+    public void dispatched(JmsOutboundMessageDispatch envelope) {
+        synchronized (buffered) {
+            BufferedSend send = buffered.get(envelope);
+            if (send != null) {
+                send.dispatched = true;
+                release(send);
+            }
+        }
+    }
+
+    /**
+     * Removes the given send from the buffer, releasing its space to any waiting sends.
+     *
+     * @param envelope
+     *        the envelope of the message whose send has completed.
+     */
+    public void remove(JmsOutboundMessageDispatch envelope) {
+        synchronized (buffered) {
+            BufferedSend send = buffered.remove(envelope);
+            if (send != null) {
+                release(send);
+            }
+        }
+    }
+
+    /**
+     * Sets whether the provider is offline.  Going offline counts every send in the buffer
+     * against the limits as they must all be held for replay, coming back online allows
+     * new sends to proceed without counting while the held sends are replayed.
+     *
+     * @param offline
+     *        true if there is no connected provider to dispatch sends to.
+     */
+    public void setOffline(boolean offline) {
+        synchronized (buffered) {
+            this.offline = offline;
+            if (offline) {
+                for (BufferedSend send : buffered.values()) {
+                    hold(send);
+                }
+            }
+            buffered.notifyAll();
+        }
+    }
+
+    /**
+     * Drops the oldest held asynchronous sends that were never dispatched until the buffer
+     * is back within its limits.  The requests of the dropped sends are returned so that
+     * the caller can fail them, which must be done from the thread that dispatches sends.
+     *
+     * @return the requests of the sends that were dropped, empty if none were.
+     */
+    public List<AsyncResult> evict() {
+        List<AsyncResult> dropped = new ArrayList<AsyncResult>();
+
+        synchronized (buffered) {
+            Iterator<BufferedSend> iterator = buffered.values().iterator();
+            while (!isWithinLimits() && iterator.hasNext()) {
+                BufferedSend candidate = iterator.next();
+                if (isEvictable(candidate)) {
+                    LOG.debug("Dropping buffered send to make room in the replay buffer: {}", candidate.envelope);
+                    iterator.remove();
+                    release(candidate);
+                    dropped.add(candidate.request);
+                    droppedMessages++;
+                }
+            }
+        }
+
+        return dropped;
+    }
+
+    /**
+     * Wraps the request for a send so that its space is released when the send completes.
+     *
+     * @param envelope
+     *        the envelope of the message being sent.
+     * @param request
+     *        the request to wrap.
+     *
+     * @return an AsyncResult that removes the send from this buffer on completion.
+     */
+    public AsyncResult wrap(final JmsOutboundMessageDispatch envelope, AsyncResult request) {
+        return new WrappedAsyncResult(request) {
+
+            @Override
+            public void onFailure(Throwable result) {
+                remove(envelope);
+                super.onFailure(result);
+            }
+
+            @Override
+            public void onSuccess() {
+                remove(envelope);
+                super.onSuccess();
+            }
+        };
+    }
+
+    /**
+     * Closes the buffer, any send that is waiting for space is woken and fails.
+     */
+    public void close() {
+        synchronized (buffered) {
+            closed = true;
+            buffered.notifyAll();
+        }
+    }
+
+    /**
+     * @return the estimated size in bytes of the messages currently held.
+     */
+    public long getBufferedBytes() {
+        synchronized (buffered) {
+            return bufferedBytes;
+        }
+    }
+
+    /**
+     * @return the number of messages currently held.
+     */
+    public int getBufferedMessages() {
+        synchronized (buffered) {
+            return heldMessages;
+        }
+    }
+
+    /**
+     * @return the largest estimated size in bytes of the messages held at any one time.
+     */
+    public long getPeakBufferedBytes() {
+        synchronized (buffered) {
+            return peakBufferedBytes;
+        }
+    }
+
+    /**
+     * @return the number of sends that have been dropped to make room for newer sends.
+     */
+    public long getDroppedMessages() {
+        synchronized (buffered) {
+            return droppedMessages;
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        synchronized (buffered) {
+            this.maxBytes = maxBytes;
+            buffered.notifyAll();
+        }
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+        synchronized (buffered) {
+            this.maxMessages = maxMessages;
+            buffered.notifyAll();
+        }
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private void hold(BufferedSend send) {
+        if (!send.held) {
+            send.held = true;
+            heldMessages++;
+            bufferedBytes += send.size;
+            peakBufferedBytes = Math.max(peakBufferedBytes, bufferedBytes);
+        }
+    }
+
+    private void release(BufferedSend send) {
+        if (send.held) {
+            send.held = false;
+            heldMessages--;
+            bufferedBytes -= send.size;
+            buffered.notifyAll();
+        }
+    }
+
+    private boolean isEvictable(BufferedSend send) {
+        return send.held && !send.dispatched && send.envelope.isSendAsync();
+    }
+
+    private boolean hasSpaceFor(long size) {
+        return hasSpaceFor(heldMessages, bufferedBytes, size);
+    }
+
+    private boolean hasSpaceFor(int messages, long bytes, long size) {
+        if (messages == 0) {
+            return true;
+        }
+
+        if (maxMessages > UNLIMITED && messages >= maxMessages) {
+            return false;
+        }
+
+        return maxBytes <= UNLIMITED || bytes + size <= maxBytes;
+    }
+
+    private boolean isWithinLimits() {
+        if (heldMessages <= 1) {
+            return true;
+        }
+
+        if (maxMessages > UNLIMITED && heldMessages > maxMessages) {
+            return false;
+        }
+
+        return maxBytes <= UNLIMITED || bufferedBytes <= maxBytes;
+    }
+
+    private boolean awaitSpaceFor(long size, long timeout) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        LOG.debug("Replay buffer is full, waiting for space for a send of {} bytes", size);
+
+        try {
+            while (offline && !hasSpaceFor(size)) {
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+
+                if (timeout == JmsConnectionInfo.INFINITE) {
+                    buffered.wait();
+                } else {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        return false;
+                    }
+
+                    buffered.wait(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw IOExceptionSupport.create(e);
+        }
+
+        return true;
+    }
+
+    /*
+     * Checks whether dropping held sends that were never dispatched, oldest first, would
+     * make room for a new send, sends dispatched before the connection failed may have
+     * reached the remote peer and are never dropped.
+     */
+    private boolean canEvictFor(long size) {
+        int messages = heldMessages;
+        long bytes = bufferedBytes;
+
+        for (BufferedSend candidate : buffered.values()) {
+            if (hasSpaceFor(messages, bytes, size)) {
+                break;
+            }
+
+            if (isEvictable(candidate)) {
+                messages--;
+                bytes -= candidate.size;
+            }
+        }
+
+        return hasSpaceFor(messages, bytes, size);
+    }
+
+    private ResourceAllocationException createFullException() {
+        return new ResourceAllocationException(
+            "Failover replay buffer is full, holding " + heldMessages + " messages of " + bufferedBytes + " bytes");
+    }
+
+    private static final class BufferedSend {
+
+        private final JmsOutboundMessageDispatch envelope;
+        private final AsyncResult request;
+        private final long size;
+
+        private boolean held;
+        private boolean dispatched;
+
+        public BufferedSend(JmsOutboundMessageDispatch envelope, AsyncResult request, long size) {
+            this.envelope = envelope;
+            this.request = request;
+            this.size = size;
+        }
+    }
+}
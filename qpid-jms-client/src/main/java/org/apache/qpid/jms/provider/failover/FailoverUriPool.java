@@ -16,16 +16,23 @@
  */
 package org.apache.qpid.jms.provider.failover;
 
-import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.qpid.jms.util.InetAddressCache;
 import org.apache.qpid.jms.util.URISupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,16 +40,46 @@ import org.slf4j.LoggerFactory;
 /**
  * Manages the list of available failover URIs that are used to connect
  * and recover a connection.
+ *
+ * URIs are considered duplicates when they share a port and their hosts resolve to
+ * the same address.  Pooled URIs are indexed both by their literal host and port and
+ * by their resolved address and port so that membership checks are hash lookups.
+ * A host that has not been seen before is resolved on the calling thread before an
+ * add or remove takes effect, after that its cached address is used and refreshed in
+ * the background once it expires.  A refresh that finds a new address updates the
+ * address index, and a URI whose host could not be resolved when it was added is
+ * removed if it later resolves to the address of a URI already pooled.
+ *
+ * When latency aware selection is enabled the pool tracks the connect and open times
+ * and recent failures reported for each URI and returns the URI with the lowest
+ * expected connect time, choosing at random between URIs whose times are close.
  */
 public class FailoverUriPool {
 
     private static final Logger LOG = LoggerFactory.getLogger(FailoverUriPool.class);
 
     public static final boolean DEFAULT_RANDOMIZE_ENABLED = false;
+    public static final long DEFAULT_ADDRESS_CACHE_TIMEOUT = InetAddressCache.DEFAULT_TIME_TO_LIVE;
+    public static final boolean DEFAULT_LATENCY_AWARE_ENABLED = false;
+
+    // Weight given to each new latency sample, older samples decay by the remainder.
+    private static final double LATENCY_SAMPLE_WEIGHT = 0.3d;
+    // URIs scoring within this fraction (plus the fixed slack) of the best are treated as equal.
+    private static final double LATENCY_TOLERANCE = 0.25d;
+    private static final long LATENCY_SLACK = TimeUnit.MILLISECONDS.toNanos(1);
+    // Each recent failure counts as this much added latency, halving every half life.
+    private static final long FAILURE_PENALTY = TimeUnit.SECONDS.toNanos(10);
+    private static final long FAILURE_HALF_LIFE = TimeUnit.SECONDS.toNanos(30);
 
     private final LinkedList<URI> uris;
+    private final Map<String, URI> index = new HashMap<String, URI>();
+    private final Map<String, URI> addressIndex = new HashMap<String, URI>();
+    private final Map<URI, String> addressKeys = new HashMap<URI, String>();
+    private final Map<URI, UriStatistics> statistics = new HashMap<URI, UriStatistics>();
+    private final InetAddressCache addressCache = new InetAddressCache(new AddressListener());
     private final Map<String, String> nestedOptions;
     private final AtomicBoolean randomize = new AtomicBoolean(DEFAULT_RANDOMIZE_ENABLED);
+    private final AtomicBoolean latencyAware = new AtomicBoolean(DEFAULT_LATENCY_AWARE_ENABLED);
 
     public FailoverUriPool() {
         this.uris = new LinkedList<URI>();
@@ -85,20 +122,40 @@ public class FailoverUriPool {
     /**
      * Returns the next URI in the pool of URIs.  The URI will be shifted to the
      * end of the list and not be attempted again until the full list has been
-     * returned once.
+     * returned once.  When latency aware selection is enabled the URI with the
+     * lowest expected connect time is returned instead.
      *
      * @return the next URI that should be used for a connection attempt.
      */
     public URI getNext() {
-        URI next = null;
         synchronized (uris) {
-            if (!uris.isEmpty()) {
-                next = uris.removeFirst();
-                uris.addLast(next);
-            }
+            return selectNext(Collections.<URI>emptySet());
         }
+    }
 
-        return next;
+    /**
+     * Returns up to the given number of distinct URIs from the pool in the order that
+     * they should be attempted, as if {@link #getNext()} had been called that many times
+     * with any duplicates removed.
+     *
+     * @param count
+     *        the maximum number of URIs to return.
+     *
+     * @return a list of the next URIs that should be used for connection attempts.
+     */
+    public List<URI> getNext(int count) {
+        synchronized (uris) {
+            List<URI> next = new ArrayList<URI>(Math.min(count, uris.size()));
+            while (next.size() < count) {
+                URI candidate = selectNext(next);
+                if (candidate == null) {
+                    break;
+                }
+                next.add(candidate);
+            }
+
+            return next;
+        }
     }
 
     /**
@@ -138,6 +195,91 @@ public class FailoverUriPool {
         }
     }
 
+    /**
+     * @return true if this pool selects URIs based on their observed connect times.
+     */
+    public boolean isLatencyAware() {
+        return latencyAware.get();
+    }
+
+    /**
+     * Sets whether the URIs returned by this pool are chosen based on the connect and
+     * open times and failures reported for them.  URIs that have not yet been tried are
+     * preferred so that each gets measured.  When enabled this takes precedence over
+     * the randomize setting.
+     *
+     * @param latencyAware
+     *        true to have the pool prefer the URIs that connect the fastest.
+     */
+    public void setLatencyAware(boolean latencyAware) {
+        if (this.latencyAware.compareAndSet(!latencyAware, latencyAware) && !latencyAware) {
+            synchronized (uris) {
+                statistics.clear();
+            }
+        }
+    }
+
+    /**
+     * Records the time taken to establish the transport connection to the given URI.
+     *
+     * @param uri
+     *        the URI that was connected to.
+     * @param elapsed
+     *        the time taken to connect in nanoseconds.
+     */
+    public void recordConnectTime(URI uri, long elapsed) {
+        if (isLatencyAware() && uri != null) {
+            synchronized (uris) {
+                InetAddress address = addressCache.getCachedAddress(uri.getHost());
+                UriStatistics stats = getStatistics(uri, address);
+                if (stats != null) {
+                    stats.connectTime = UriStatistics.update(stats.connectTime, elapsed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the time taken for the connection to the given URI to be opened once the
+     * transport connection was established.
+     *
+     * @param uri
+     *        the URI whose connection was opened.
+     * @param elapsed
+     *        the time taken to open the connection in nanoseconds.
+     */
+    public void recordOpenTime(URI uri, long elapsed) {
+        if (isLatencyAware() && uri != null) {
+            synchronized (uris) {
+                InetAddress address = addressCache.getCachedAddress(uri.getHost());
+                UriStatistics stats = getStatistics(uri, address);
+                if (stats != null) {
+                    stats.openTime = UriStatistics.update(stats.openTime, elapsed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a failure to connect to, or loss of the connection to, the given URI.
+     *
+     * @param uri
+     *        the URI that failed.
+     */
+    public void recordFailure(URI uri) {
+        if (isLatencyAware() && uri != null) {
+            synchronized (uris) {
+                InetAddress address = addressCache.getCachedAddress(uri.getHost());
+                UriStatistics stats = getStatistics(uri, address);
+                if (stats != null) {
+                    long now = System.nanoTime();
+                    stats.failures = stats.getFailures(now) + 1;
+                    stats.lastFailure = now;
+                }
+            }
+        }
+    }
+
     /**
      * Adds a new URI to the pool if not already contained within.  The URI will have
      * any nest options that have been configured added to its existing set of options.
@@ -150,8 +292,9 @@ public class FailoverUriPool {
             return;
         }
 
+        InetAddress address = resolveAddress(uri);
         synchronized (uris) {
-            if (!contains(uri)) {
+            if (findPooled(uri, address) == null) {
                 if (!nestedOptions.isEmpty()) {
                     try {
                         uri = URISupport.applyParameters(uri, nestedOptions);
@@ -160,6 +303,7 @@ public class FailoverUriPool {
                     }
                 }
 
+                addToIndex(uri, address);
                 uris.add(uri);
             }
         }
@@ -180,8 +324,9 @@ public class FailoverUriPool {
             return;
         }
 
+        InetAddress address = resolveAddress(uri);
         synchronized (uris) {
-            if (!contains(uri)) {
+            if (findPooled(uri, address) == null) {
                 if (!nestedOptions.isEmpty()) {
                     try {
                         uri = URISupport.applyParameters(uri, nestedOptions);
@@ -190,6 +335,7 @@ public class FailoverUriPool {
                     }
                 }
 
+                addToIndex(uri, address);
                 uris.addFirst(uri);
             }
         }
@@ -208,17 +354,36 @@ public class FailoverUriPool {
             return false;
         }
 
+        InetAddress address = resolveAddress(uri);
         synchronized (uris) {
-            for (URI candidate : uris) {
-                if (compareURIs(uri, candidate)) {
-                    return uris.remove(candidate);
-                }
+            URI pooled = findPooled(uri, address);
+            if (pooled != null) {
+                removeFromIndex(pooled);
+                return uris.remove(pooled);
             }
         }
 
         return false;
     }
 
+    /**
+     * @return the time in milliseconds that a resolved host address is cached before being refreshed.
+     */
+    public long getAddressCacheTimeout() {
+        return addressCache.getTimeToLive();
+    }
+
+    /**
+     * Sets the time in milliseconds that a resolved host address is cached.  Once the time
+     * elapses the cached address is still used while a refresh is performed in the background.
+     *
+     * @param timeout
+     *        the time in milliseconds before a cached address is refreshed.
+     */
+    public void setAddressCacheTimeout(long timeout) {
+        addressCache.setTimeToLive(timeout);
+    }
+
     /**
      * Returns the currently set value for nested options which will be added to each
      * URI that is returned from the pool.
@@ -229,49 +394,230 @@ public class FailoverUriPool {
         return nestedOptions;
     }
 
-    //----- Internal methods that require the locks be held ------------------//
+    /**
+     * Resolves the host of the given URI into the pool's address cache, blocking only when
+     * the host has not been seen before.  Callers that must not block on a lookup, such as
+     * the failover serializer, can call this ahead of an add or remove from another thread.
+     *
+     * @param uri
+     *        the URI whose host should be resolved.
+     *
+     * @return the address of the host or null if it could not be resolved.
+     */
+    InetAddress resolveAddress(URI uri) {
+        return addressCache.resolve(uri.getHost());
+    }
+
+    //----- Internal methods ------------------------------------------------//
 
-    private boolean contains(URI newURI) {
-        boolean result = false;
-        for (URI uri : uris) {
-            if (compareURIs(newURI, uri)) {
-                result = true;
-                break;
+    /*
+     * Must be called while holding the uris lock.  Selects the next URI that is not in
+     * the excluded set and moves it to the end of the list.
+     */
+    private URI selectNext(Collection<URI> exclude) {
+        URI next = null;
+        if (isLatencyAware()) {
+            next = selectLowestLatency(exclude);
+        } else {
+            for (URI candidate : uris) {
+                if (!exclude.contains(candidate)) {
+                    next = candidate;
+                    break;
+                }
             }
         }
 
-        return result;
+        if (next != null) {
+            uris.remove(next);
+            uris.addLast(next);
+        }
+
+        return next;
     }
 
-    private boolean compareURIs(final URI first, final URI second) {
-        boolean result = false;
-        if (first == null || second == null) {
-            return result;
+    /*
+     * Must be called while holding the uris lock.  Picks at random between the URIs
+     * whose score is within the tolerance of the best score.
+     */
+    private URI selectLowestLatency(Collection<URI> exclude) {
+        long now = System.nanoTime();
+        List<URI> candidates = new ArrayList<URI>(uris.size());
+        double[] scores = new double[uris.size()];
+        double best = Double.MAX_VALUE;
+
+        for (URI candidate : uris) {
+            if (!exclude.contains(candidate)) {
+                UriStatistics stats = statistics.get(candidate);
+                double score = stats != null ? stats.getScore(now) : 0;
+                scores[candidates.size()] = score;
+                candidates.add(candidate);
+                best = Math.min(best, score);
+            }
         }
 
-        if (first.getPort() == second.getPort()) {
-            InetAddress firstAddr = null;
-            InetAddress secondAddr = null;
-            try {
-                firstAddr = InetAddress.getByName(first.getHost());
-                secondAddr = InetAddress.getByName(second.getHost());
+        if (candidates.isEmpty()) {
+            return null;
+        }
 
-                if (firstAddr.equals(secondAddr)) {
-                    result = true;
-                }
-            } catch(IOException e) {
-                if (firstAddr == null) {
-                    LOG.error("Failed to Lookup INetAddress for URI[ " + first + " ] : " + e);
-                } else {
-                    LOG.error("Failed to Lookup INetAddress for URI[ " + second + " ] : " + e);
-                }
+        double threshold = best * (1 + LATENCY_TOLERANCE) + LATENCY_SLACK;
+        List<URI> equivalent = new ArrayList<URI>(candidates.size());
+        for (int i = 0; i < candidates.size(); ++i) {
+            if (scores[i] <= threshold) {
+                equivalent.add(candidates.get(i));
+            }
+        }
+
+        return equivalent.get(ThreadLocalRandom.current().nextInt(equivalent.size()));
+    }
+
+    /*
+     * Must be called while holding the uris lock.
+     */
+    private UriStatistics getStatistics(URI uri, InetAddress address) {
+        URI pooled = findPooled(uri, address);
+        if (pooled == null) {
+            return null;
+        }
+
+        UriStatistics stats = statistics.get(pooled);
+        if (stats == null) {
+            stats = new UriStatistics();
+            statistics.put(pooled, stats);
+        }
+
+        return stats;
+    }
 
-                if (first.getHost().equalsIgnoreCase(second.getHost())) {
-                    result = true;
+    /*
+     * Must be called while holding the uris lock.  Returns the pooled URI that matches
+     * the given one, first by literal host and port and then by the cached address of
+     * the given host if it has been resolved.
+     */
+    private URI findPooled(URI uri, InetAddress address) {
+        URI pooled = index.get(createKey(uri));
+        if (pooled == null && address != null) {
+            pooled = addressIndex.get(createKey(address, uri.getPort()));
+        }
+
+        return pooled;
+    }
+
+    /*
+     * Must be called while holding the uris lock.
+     */
+    private void addToIndex(URI pooled, InetAddress address) {
+        index.put(createKey(pooled), pooled);
+        if (address != null) {
+            String key = createKey(address, pooled.getPort());
+            addressKeys.put(pooled, key);
+            if (!addressIndex.containsKey(key)) {
+                addressIndex.put(key, pooled);
+            }
+        }
+    }
+
+    /*
+     * Must be called while holding the uris lock.
+     */
+    private void removeFromIndex(URI pooled) {
+        index.remove(createKey(pooled));
+        String key = addressKeys.remove(pooled);
+        if (key != null && addressIndex.get(key) == pooled) {
+            addressIndex.remove(key);
+        }
+        statistics.remove(pooled);
+    }
+
+    /*
+     * Creates the key used to index a URI in the pool from its literal host and port.
+     */
+    private static String createKey(URI uri) {
+        String host = uri.getHost();
+        return (host != null ? host.toLowerCase(Locale.ENGLISH) : null) + ":" + uri.getPort();
+    }
+
+    /*
+     * Creates the key used to index a URI in the pool from its resolved address and port.
+     */
+    private static String createKey(InetAddress address, int port) {
+        return address.getHostAddress() + ":" + port;
+    }
+
+    /*
+     * Updates the address index as hosts are resolved in the background.  A URI resolved
+     * for the first time to the address of another pooled URI is a duplicate that was added
+     * while its host could not be resolved and is removed, later address changes only move
+     * the index entry so that a refresh never drops a URI from the pool.
+     */
+    private final class AddressListener implements InetAddressCache.Listener {
+
+        @Override
+        public void onAddressResolved(String host, InetAddress address) {
+            synchronized (uris) {
+                Iterator<URI> iterator = uris.iterator();
+                while (iterator.hasNext()) {
+                    URI pooled = iterator.next();
+                    if (!host.equalsIgnoreCase(pooled.getHost())) {
+                        continue;
+                    }
+
+                    boolean resolvedBefore = addressKeys.containsKey(pooled);
+                    String previous = addressKeys.remove(pooled);
+                    if (previous != null && addressIndex.get(previous) == pooled) {
+                        addressIndex.remove(previous);
+                    }
+
+                    if (address == null) {
+                        addressKeys.put(pooled, null);
+                        continue;
+                    }
+
+                    String key = createKey(address, pooled.getPort());
+                    URI existing = addressIndex.get(key);
+                    if (existing != null && !resolvedBefore) {
+                        LOG.debug("Removing URI[ {} ] from the pool as a duplicate of URI[ {} ]", pooled, existing);
+                        iterator.remove();
+                        removeFromIndex(pooled);
+                    } else {
+                        addressKeys.put(pooled, key);
+                        if (existing == null) {
+                            addressIndex.put(key, pooled);
+                        }
+                    }
                 }
             }
         }
+    }
 
-        return result;
+    /*
+     * Observed connect behavior of a single pooled URI, times are in nanoseconds and
+     * are moving averages where a negative value means no sample has been taken yet.
+     */
+    private static final class UriStatistics {
+
+        private double connectTime = -1;
+        private double openTime = -1;
+        private double failures;
+        private long lastFailure;
+
+        public static double update(double average, long sample) {
+            if (average < 0) {
+                return sample;
+            }
+
+            return average + LATENCY_SAMPLE_WEIGHT * (sample - average);
+        }
+
+        public double getFailures(long now) {
+            if (failures == 0) {
+                return 0;
+            }
+
+            return failures * Math.pow(0.5, (double) (now - lastFailure) / FAILURE_HALF_LIFE);
+        }
+
+        public double getScore(long now) {
+            return Math.max(0, connectTime) + Math.max(0, openTime) + getFailures(now) * FAILURE_PENALTY;
+        }
     }
 }
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.selector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe cache of parsed selectors that is bounded both by the number of entries
+ * and by their total weight, the weight of an entry being the length of the selector text
+ * which is proportional to the size of the expression tree it produces.
+ *
+ * Lookups do not lock and do not modify the structure of the cache, each entry records
+ * the time it was last used and once either bound is exceeded the least recently used
+ * entries are evicted until the cache is back under a fraction of its bounds so that the
+ * cost of an eviction pass is shared across a number of insertions.
+ *
+ * @param <V> The type of the cached value.
+ */
+public class SelectorCache<V> {
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+    public static final long DEFAULT_MAX_WEIGHT = 1024 * 1024;
+
+    private static final double EVICTION_TARGET = 0.9;
+
+    private final ConcurrentMap<String, CacheEntry<V>> entries = new ConcurrentHashMap<String, CacheEntry<V>>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile int maxSize;
+    private volatile long maxWeight;
+
+    public SelectorCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_WEIGHT);
+    }
+
+    public SelectorCache(int maxSize, long maxWeight) {
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @param selector
+     *        the selector text to look up.
+     *
+     * @return the cached value for the selector or null if not cached.
+     */
+    public V get(String selector) {
+        CacheEntry<V> entry = entries.get(selector);
+        if (entry != null) {
+            entry.lastUsed = clock.incrementAndGet();
+            hits.incrementAndGet();
+            return entry.value;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds the value for the given selector, evicting the least recently used entries
+     * if the cache has grown beyond its bounds.  Nothing is cached when the maximum size
+     * is zero or less.
+     *
+     * @param selector
+     *        the selector text the value was created from.
+     * @param value
+     *        the value to cache.
+     */
+    public void put(String selector, V value) {
+        if (maxSize <= 0) {
+            return;
+        }
+
+        CacheEntry<V> entry = new CacheEntry<V>(value, selector.length(), clock.incrementAndGet());
+        CacheEntry<V> previous = entries.put(selector, entry);
+        weight.addAndGet(entry.weight - (previous != null ? previous.weight : 0));
+
+        if (entries.size() > maxSize || weight.get() > maxWeight) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes all cached entries, the statistics are not reset.
+     */
+    public void clear() {
+        for (String selector : entries.keySet()) {
+            remove(selector);
+        }
+    }
+
+    /**
+     * @return the number of selectors currently cached.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total weight of the selectors currently cached.
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    /**
+     * @return the number of lookups that found a cached value.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that did not find a cached value.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of entries evicted because the cache exceeded its bounds.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the maximum number of selectors held in the cache.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of selectors held in the cache, a value of zero or less
+     * disables caching.
+     *
+     * @param maxSize
+     *        the maximum number of cached selectors.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * @return the maximum total weight of the selectors held in the cache.
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Sets the maximum total weight of the selectors held in the cache, where the weight
+     * of a selector is the number of characters in its text.
+     *
+     * @param maxWeight
+     *        the maximum total weight of the cached selectors.
+     */
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private synchronized void evict() {
+        int size = entries.size();
+        if (size <= maxSize && weight.get() <= maxWeight) {
+            return;
+        }
+
+        int targetSize = (int) (Math.max(maxSize, 0) * EVICTION_TARGET);
+        long targetWeight = (long) (Math.max(maxWeight, 0) * EVICTION_TARGET);
+
+        // Snapshot the last use times so that the ordering is stable while sorting.
+        List<EvictionCandidate<V>> candidates = new ArrayList<EvictionCandidate<V>>(size);
+        for (Map.Entry<String, CacheEntry<V>> entry : entries.entrySet()) {
+            candidates.add(new EvictionCandidate<V>(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(candidates);
+
+        for (EvictionCandidate<V> candidate : candidates) {
+            if (size <= targetSize && weight.get() <= targetWeight) {
+                break;
+            }
+
+            if (entries.remove(candidate.selector, candidate.entry)) {
+                weight.addAndGet(-candidate.entry.weight);
+                evictions.incrementAndGet();
+                size--;
+            }
+        }
+    }
+
+    private void remove(String selector) {
+        CacheEntry<V> entry = entries.remove(selector);
+        if (entry != null) {
+            weight.addAndGet(-entry.weight);
+        }
+    }
+
+    private static final class EvictionCandidate<V> implements Comparable<EvictionCandidate<V>> {
+
+        private final String selector;
+        private final CacheEntry<V> entry;
+        private final long lastUsed;
+
+        public EvictionCandidate(String selector, CacheEntry<V> entry) {
+            this.selector = selector;
+            this.entry = entry;
+            this.lastUsed = entry.lastUsed;
+        }
+
+        @Override
+        public int compareTo(EvictionCandidate<V> other) {
+            return lastUsed < other.lastUsed ? -1 : (lastUsed == other.lastUsed ? 0 : 1);
+        }
+    }
+
+    private static final class CacheEntry<V> {
+
+        private final V value;
+        private final int weight;
+        private volatile long lastUsed;
+
+        public CacheEntry(V value, int weight, long lastUsed) {
+            this.value = value;
+            this.weight = weight;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
@@ -20,12 +20,35 @@ import java.io.StringReader;
 
 import org.apache.qpid.jms.selector.filter.BooleanExpression;
 import org.apache.qpid.jms.selector.filter.FilterException;
+import org.apache.qpid.jms.selector.filter.SelectorCompiler;
 import org.apache.qpid.jms.selector.parser.SelectorParserImpl;
-import org.apache.qpid.jms.util.LRUCache;
 
+/**
+ * Parses and compiles JMS selectors, the results are held in a cache shared by all
+ * connections in the JVM.  The bounds of that cache can be set using the system properties
+ * {@value #PROPERTY_SELECTOR_CACHE_SIZE} and {@value #PROPERTY_SELECTOR_CACHE_WEIGHT} or
+ * at runtime via {@link #getCache()}.
+ */
 public class SelectorParser {
 
-    private static final LRUCache<Object, Object> cache = new LRUCache<Object, Object>(100);
+    public static final String PROPERTY_SELECTOR_CACHE_SIZE = "qpidjms.selector.cacheSize";
+    public static final String PROPERTY_SELECTOR_CACHE_WEIGHT = "qpidjms.selector.cacheWeight";
+
+    private static final SelectorCache<Object> cache;
+
+    static {
+        int maxSize = SelectorCache.DEFAULT_MAX_SIZE;
+        long maxWeight = SelectorCache.DEFAULT_MAX_WEIGHT;
+
+        try {
+            maxSize = Integer.getInteger(PROPERTY_SELECTOR_CACHE_SIZE, maxSize);
+            maxWeight = Long.getLong(PROPERTY_SELECTOR_CACHE_WEIGHT, maxWeight);
+        } catch (SecurityException se) {
+            // Fall back to the default bounds when system properties cannot be read.
+        }
+
+        cache = new SelectorCache<Object>(maxSize, maxWeight);
+    }
 
     public static BooleanExpression parse(String sql) throws FilterException {
         Object result = cache.get(sql);
@@ -37,7 +60,7 @@ public class SelectorParser {
             try {
                 BooleanExpression e = null;
                 SelectorParserImpl parser = new SelectorParserImpl(new StringReader(sql));
-                e = parser.JmsSelector();
+                e = SelectorCompiler.compile(parser.JmsSelector());
                 cache.put(sql, e);
                 return e;
             } catch (Throwable e) {
@@ -51,4 +74,11 @@ public class SelectorParser {
     public static void clearCache() {
         cache.clear();
     }
+
+    /**
+     * @return the cache of parsed selectors, which provides its usage statistics and bounds.
+     */
+    public static SelectorCache<Object> getCache() {
+        return cache;
+    }
 }
@@ -66,11 +66,16 @@ public abstract class ComparisonExpression extends BinaryExpression implements B
 
     static class LikeExpression extends UnaryExpression implements BooleanExpression {
 
-        Pattern likePattern;
+        final String like;
+        final int escape;
+        final Pattern likePattern;
 
         public LikeExpression(Expression right, String like, int escape) {
             super(right);
 
+            this.like = like;
+            this.escape = escape;
+
             StringBuffer regexp = new StringBuffer(like.length() * 2);
             regexp.append("\\A"); // The beginning of the input
             for (int i = 0; i < like.length(); i++) {
@@ -0,0 +1,453 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.selector.filter;
+
+/**
+ * Compiles a parsed selector expression tree into a tree that is cheaper to evaluate.
+ *
+ * Expressions whose operands are all constants are folded into a single constant, AND and
+ * OR are short circuited when their left operand is a constant, LIKE patterns that only use
+ * leading or trailing wildcards are reduced to plain String operations and comparisons
+ * against a numeric or String literal are replaced by expressions specialized for the type
+ * of that literal which avoid the generic numeric promotion done on every evaluation.
+ *
+ * The compiled tree always evaluates to the same result as the tree it was created from.
+ */
+public final class SelectorCompiler {
+
+    private static final int INCOMPARABLE = Integer.MIN_VALUE;
+
+    private SelectorCompiler() {
+    }
+
+    /**
+     * Compiles the given selector expression, the nodes of the given tree may be modified
+     * in the process and the tree should not be used after this call returns.
+     *
+     * @param expression
+     *        the parsed selector expression to compile.
+     *
+     * @return the compiled form of the selector expression.
+     */
+    public static BooleanExpression compile(BooleanExpression expression) {
+        Expression compiled = compileExpression(expression);
+        if (compiled instanceof BooleanExpression) {
+            return (BooleanExpression) compiled;
+        }
+
+        return expression;
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private static Expression compileExpression(Expression expression) {
+        if (expression instanceof LogicExpression) {
+            return compileLogic((LogicExpression) expression);
+        } else if (expression instanceof ComparisonExpression) {
+            return compileComparison((ComparisonExpression) expression);
+        } else if (expression instanceof ComparisonExpression.LikeExpression) {
+            return compileLike((ComparisonExpression.LikeExpression) expression);
+        } else if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            binary.setLeft(compileExpression(binary.getLeft()));
+            binary.setRight(compileExpression(binary.getRight()));
+            return fold(binary);
+        } else if (expression instanceof UnaryExpression) {
+            UnaryExpression unary = (UnaryExpression) expression;
+            unary.setRight(compileExpression(unary.getRight()));
+            return fold(unary);
+        }
+
+        return expression;
+    }
+
+    private static Expression compileLogic(LogicExpression logic) {
+        logic.setLeft(compileExpression(logic.getLeft()));
+        logic.setRight(compileExpression(logic.getRight()));
+
+        if (!(logic.getLeft() instanceof ConstantExpression)) {
+            return logic;
+        } else if (logic.getRight() instanceof ConstantExpression) {
+            return fold(logic);
+        } else if (!(logic.getRight() instanceof BooleanExpression)) {
+            return logic;
+        }
+
+        Object left = ((ConstantExpression) logic.getLeft()).getValue();
+        if ("AND".equals(logic.getExpressionSymbol())) {
+            if (left == null) {
+                return ConstantExpression.NULL;
+            } else if (Boolean.FALSE.equals(left)) {
+                return ConstantExpression.FALSE;
+            } else if (Boolean.TRUE.equals(left)) {
+                return logic.getRight();
+            }
+        } else if ("OR".equals(logic.getExpressionSymbol())) {
+            if (Boolean.TRUE.equals(left)) {
+                return ConstantExpression.TRUE;
+            } else if (left == null || Boolean.FALSE.equals(left)) {
+                return logic.getRight();
+            }
+        }
+
+        return logic;
+    }
+
+    private static Expression compileComparison(ComparisonExpression comparison) {
+        comparison.setLeft(compileExpression(comparison.getLeft()));
+        comparison.setRight(compileExpression(comparison.getRight()));
+
+        Expression left = comparison.getLeft();
+        Expression right = comparison.getRight();
+
+        boolean constantOnLeft;
+        Expression operand;
+        Object literal;
+
+        if (left instanceof ConstantExpression && right instanceof ConstantExpression) {
+            return fold(comparison);
+        } else if (right instanceof ConstantExpression) {
+            constantOnLeft = false;
+            operand = left;
+            literal = ((ConstantExpression) right).getValue();
+        } else if (left instanceof ConstantExpression) {
+            constantOnLeft = true;
+            operand = right;
+            literal = ((ConstantExpression) left).getValue();
+        } else {
+            return comparison;
+        }
+
+        boolean equality = "=".equals(comparison.getExpressionSymbol());
+
+        if (equality && literal == null) {
+            return new IsNullExpression(comparison, operand);
+        } else if (equality && literal instanceof String) {
+            return new StringEqualityExpression(comparison, operand, (String) literal);
+        } else if (literal instanceof Integer) {
+            return new IntComparisonExpression(comparison, operand, constantOnLeft, equality, (Integer) literal);
+        } else if (literal instanceof Long) {
+            return new LongComparisonExpression(comparison, operand, constantOnLeft, equality, (Long) literal);
+        } else if (literal instanceof Double) {
+            return new DoubleComparisonExpression(comparison, operand, constantOnLeft, equality, (Double) literal);
+        }
+
+        return comparison;
+    }
+
+    private static Expression compileLike(ComparisonExpression.LikeExpression like) {
+        like.setRight(compileExpression(like.getRight()));
+
+        if (like.getRight() instanceof ConstantExpression) {
+            return fold(like);
+        }
+
+        String pattern = like.like;
+        if (pattern.indexOf('_') >= 0 || (like.escape != -1 && pattern.indexOf((char) like.escape) >= 0)) {
+            return like;
+        }
+
+        int start = 0;
+        int end = pattern.length();
+        while (start < end && pattern.charAt(start) == '%') {
+            start++;
+        }
+        while (end > start && pattern.charAt(end - 1) == '%') {
+            end--;
+        }
+
+        String literal = pattern.substring(start, end);
+        if (literal.indexOf('%') >= 0) {
+            return like;
+        }
+
+        return new StringLikeExpression(like.getRight(), literal, start > 0, end < pattern.length());
+    }
+
+    private static Expression fold(Expression expression) {
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) expression;
+            if (!(binary.getLeft() instanceof ConstantExpression) || !(binary.getRight() instanceof ConstantExpression)) {
+                return expression;
+            }
+        } else if (expression instanceof UnaryExpression) {
+            if (!(((UnaryExpression) expression).getRight() instanceof ConstantExpression)) {
+                return expression;
+            }
+        } else {
+            return expression;
+        }
+
+        Object value;
+        try {
+            value = expression.evaluate(null);
+        } catch (Exception e) {
+            // Leave it to fail in the same way when the selector is evaluated.
+            return expression;
+        }
+
+        if (expression instanceof BooleanExpression) {
+            if (value == null) {
+                return ConstantExpression.NULL;
+            } else if (Boolean.TRUE.equals(value)) {
+                return ConstantExpression.TRUE;
+            } else if (Boolean.FALSE.equals(value)) {
+                return ConstantExpression.FALSE;
+            }
+
+            return expression;
+        }
+
+        return new ConstantExpression(value);
+    }
+
+    //----- Compiled expression types ----------------------------------------//
+
+    private static final class IsNullExpression extends ComparisonExpression {
+
+        private final ComparisonExpression source;
+        private final Expression operand;
+
+        public IsNullExpression(ComparisonExpression source, Expression operand) {
+            super(source.getLeft(), source.getRight());
+
+            this.source = source;
+            this.operand = operand;
+        }
+
+        @Override
+        public Object evaluate(Filterable message) throws FilterException {
+            return operand.evaluate(message) == null ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        @Override
+        protected boolean asBoolean(int answer) {
+            return source.asBoolean(answer);
+        }
+
+        @Override
+        public String getExpressionSymbol() {
+            return source.getExpressionSymbol();
+        }
+    }
+
+    private static final class StringEqualityExpression extends ComparisonExpression {
+
+        private final ComparisonExpression source;
+        private final Expression operand;
+        private final String literal;
+
+        public StringEqualityExpression(ComparisonExpression source, Expression operand, String literal) {
+            super(source.getLeft(), source.getRight());
+
+            this.source = source;
+            this.operand = operand;
+            this.literal = literal;
+        }
+
+        @Override
+        public Object evaluate(Filterable message) throws FilterException {
+            return literal.equals(operand.evaluate(message)) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        @Override
+        protected boolean asBoolean(int answer) {
+            return source.asBoolean(answer);
+        }
+
+        @Override
+        public String getExpressionSymbol() {
+            return source.getExpressionSymbol();
+        }
+    }
+
+    /**
+     * Base for comparisons of an expression against a numeric literal.  The numeric
+     * promotion rules follow those of {@link ComparisonExpression#compare(Comparable, Comparable)}
+     * which are not symmetric for Byte and Short values, hence the side the literal
+     * appears on is retained.
+     */
+    private abstract static class NumericComparisonExpression extends ComparisonExpression {
+
+        private final ComparisonExpression source;
+        private final Expression operand;
+        protected final boolean constantOnLeft;
+        private final boolean equality;
+
+        public NumericComparisonExpression(ComparisonExpression source, Expression operand, boolean constantOnLeft, boolean equality) {
+            super(source.getLeft(), source.getRight());
+
+            this.source = source;
+            this.operand = operand;
+            this.constantOnLeft = constantOnLeft;
+            this.equality = equality;
+        }
+
+        @Override
+        public Object evaluate(Filterable message) throws FilterException {
+            Object value = operand.evaluate(message);
+            if (value == null) {
+                return equality ? Boolean.FALSE : null;
+            }
+
+            int result = compareTo(value);
+            if (result == INCOMPARABLE) {
+                return Boolean.FALSE;
+            }
+
+            return source.asBoolean(constantOnLeft ? -result : result) ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        /**
+         * @param value
+         *        the non-null value of the operand.
+         *
+         * @return the result of comparing the value to the literal or INCOMPARABLE.
+         */
+        protected abstract int compareTo(Object value);
+
+        @Override
+        protected boolean asBoolean(int answer) {
+            return source.asBoolean(answer);
+        }
+
+        @Override
+        public String getExpressionSymbol() {
+            return source.getExpressionSymbol();
+        }
+    }
+
+    private static final class IntComparisonExpression extends NumericComparisonExpression {
+
+        private final int literal;
+
+        public IntComparisonExpression(ComparisonExpression source, Expression operand, boolean constantOnLeft, boolean equality, int literal) {
+            super(source, operand, constantOnLeft, equality);
+            this.literal = literal;
+        }
+
+        @Override
+        protected int compareTo(Object value) {
+            Class<?> type = value.getClass();
+            if (type == Integer.class) {
+                return Integer.compare((Integer) value, literal);
+            } else if (type == Long.class) {
+                return Long.compare((Long) value, literal);
+            } else if (type == Double.class) {
+                return Double.compare((Double) value, literal);
+            } else if (type == Float.class) {
+                return Float.compare((Float) value, literal);
+            } else if ((type == Short.class || type == Byte.class) && !constantOnLeft) {
+                return Integer.compare(((Number) value).intValue(), literal);
+            }
+
+            return INCOMPARABLE;
+        }
+    }
+
+    private static final class LongComparisonExpression extends NumericComparisonExpression {
+
+        private final long literal;
+
+        public LongComparisonExpression(ComparisonExpression source, Expression operand, boolean constantOnLeft, boolean equality, long literal) {
+            super(source, operand, constantOnLeft, equality);
+            this.literal = literal;
+        }
+
+        @Override
+        protected int compareTo(Object value) {
+            Class<?> type = value.getClass();
+            if (type == Long.class || type == Integer.class) {
+                return Long.compare(((Number) value).longValue(), literal);
+            } else if (type == Double.class) {
+                return Double.compare((Double) value, literal);
+            } else if (type == Float.class) {
+                return Float.compare((Float) value, literal);
+            } else if ((type == Short.class || type == Byte.class) && !constantOnLeft) {
+                return Long.compare(((Number) value).longValue(), literal);
+            }
+
+            return INCOMPARABLE;
+        }
+    }
+
+    private static final class DoubleComparisonExpression extends NumericComparisonExpression {
+
+        private final double literal;
+
+        public DoubleComparisonExpression(ComparisonExpression source, Expression operand, boolean constantOnLeft, boolean equality, double literal) {
+            super(source, operand, constantOnLeft, equality);
+            this.literal = literal;
+        }
+
+        @Override
+        protected int compareTo(Object value) {
+            Class<?> type = value.getClass();
+            if (type == Double.class || type == Float.class || type == Integer.class || type == Long.class) {
+                return Double.compare(((Number) value).doubleValue(), literal);
+            } else if ((type == Short.class || type == Byte.class) && !constantOnLeft) {
+                return Double.compare(((Number) value).doubleValue(), literal);
+            }
+
+            return INCOMPARABLE;
+        }
+    }
+
+    private static final class StringLikeExpression extends UnaryExpression.BooleanUnaryExpression {
+
+        private final String literal;
+        private final boolean anyPrefix;
+        private final boolean anySuffix;
+
+        public StringLikeExpression(Expression right, String literal, boolean anyPrefix, boolean anySuffix) {
+            super(right);
+
+            this.literal = literal;
+            this.anyPrefix = anyPrefix;
+            this.anySuffix = anySuffix;
+        }
+
+        @Override
+        public Object evaluate(Filterable message) throws FilterException {
+            Object value = right.evaluate(message);
+            if (value == null) {
+                return null;
+            } else if (!(value instanceof String)) {
+                return Boolean.FALSE;
+            }
+
+            String text = (String) value;
+            boolean matched;
+            if (anyPrefix && anySuffix) {
+                matched = text.contains(literal);
+            } else if (anyPrefix) {
+                matched = text.endsWith(literal);
+            } else if (anySuffix) {
+                matched = text.startsWith(literal);
+            } else {
+                matched = text.equals(literal);
+            }
+
+            return matched ? Boolean.TRUE : Boolean.FALSE;
+        }
+
+        @Override
+        public String getExpressionSymbol() {
+            return "LIKE";
+        }
+    }
+}
@@ -55,19 +55,10 @@ public abstract class UnaryExpression implements Expression {
         };
     }
 
-    public static BooleanExpression createInExpression(PropertyExpression right, List<Object> elements, final boolean not) {
-
-        // Use a HashSet if there are many elements.
-        Collection<Object> t;
-        if (elements.size() == 0) {
-            t = null;
-        } else if (elements.size() < 5) {
-            t = elements;
-        } else {
-            t = new HashSet<Object>(elements);
-        }
+    public static BooleanExpression createInExpression(PropertyExpression right, final List<Object> elements, final boolean not) {
 
-        final Collection<Object> inList = t;
+        // Use a HashSet for the lookup, the original elements are kept for toString.
+        final Collection<Object> inList = elements.isEmpty() ? null : new HashSet<Object>(elements);
 
         return new BooleanUnaryExpression(right) {
             @Override
@@ -97,7 +88,7 @@ public abstract class UnaryExpression implements Expression {
                 answer.append(" ( ");
 
                 int count = 0;
-                for (Iterator<Object> i = inList.iterator(); i.hasNext();) {
+                for (Iterator<Object> i = elements.iterator(); i.hasNext();) {
                     Object o = i.next();
                     if (count != 0) {
                         answer.append(", ");
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.serialization;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Interface for the strategies used to convert the body of an ObjectMessage to and
+ * from bytes.
+ *
+ * Implementations are located by name using the service files found under
+ * META-INF/services/org/apache/qpid/jms/serialization/ and a single instance is shared
+ * by all connections that use it, so implementations must be thread safe.
+ */
+public interface ObjectSerializer {
+
+    /**
+     * Returns the content type that is applied to messages whose body was written by this
+     * serializer.  A receiver uses the content type to select the serializer that decodes
+     * the body so each implementation must use a distinct value.
+     *
+     * @return the content type that identifies bodies written by this serializer.
+     */
+    String getContentType();
+
+    /**
+     * Converts the given object into bytes, a null value must be encoded such that it is
+     * read back as null.
+     *
+     * @param value
+     *        the object to be serialized, may be null.
+     *
+     * @return the encoded form of the object.
+     *
+     * @throws IOException if the object cannot be serialized.
+     */
+    byte[] serialize(Serializable value) throws IOException;
+
+    /**
+     * Reads back an object from bytes that were written by {@link #serialize(Serializable)}.
+     *
+     * @param data
+     *        the array holding the encoded object.
+     * @param offset
+     *        the offset into the array where the encoded object begins.
+     * @param length
+     *        the number of bytes of encoded object data.
+     *
+     * @return the decoded object, may be null.
+     *
+     * @throws IOException if the data cannot be read.
+     * @throws ClassNotFoundException if no class can be found for the stored type.
+     */
+    Serializable deserialize(byte[] data, int offset, int length) throws IOException, ClassNotFoundException;
+
+    /**
+     * Indicates whether a decoded object may be handed to the application more than once.
+     *
+     * When true the object read from a message body is kept and returned by later calls
+     * to ObjectMessage.getObject() instead of being decoded again.  This should only be
+     * enabled for objects that are immutable or are not modified by the application, as
+     * otherwise changes made to the returned object are seen by later calls.
+     *
+     * @return true if decoded objects can be cached and returned again.
+     */
+    boolean isCacheable();
+
+}
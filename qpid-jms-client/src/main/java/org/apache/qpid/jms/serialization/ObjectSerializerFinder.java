@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.serialization;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.qpid.jms.util.FactoryFinder;
+import org.apache.qpid.jms.util.ResourceNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Used to locate the ObjectSerializer implementations that are available to the client.
+ *
+ * Serializers are found by name from the service files on the classpath and, once loaded,
+ * are cached so that the serializer for an incoming message can be found using the content
+ * type of the message.  The Java serializer is always available.
+ */
+public class ObjectSerializerFinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectSerializerFinder.class);
+
+    private static final FactoryFinder<ObjectSerializer> SERIALIZER_FINDER =
+        new FactoryFinder<ObjectSerializer>(ObjectSerializer.class,
+            "META-INF/services/" + ObjectSerializerFinder.class.getPackage().getName().replace(".", "/") + "/");
+
+    private static final ConcurrentMap<String, ObjectSerializer> SERIALIZERS_BY_NAME =
+        new ConcurrentHashMap<String, ObjectSerializer>();
+    private static final ConcurrentMap<String, ObjectSerializer> SERIALIZERS_BY_CONTENT_TYPE =
+        new ConcurrentHashMap<String, ObjectSerializer>();
+
+    private static final ObjectSerializer JAVA_SERIALIZER = new JavaObjectSerializer();
+
+    static {
+        register(JavaObjectSerializer.NAME, JAVA_SERIALIZER);
+    }
+
+    /**
+     * @return the serializer that uses standard Java serialization.
+     */
+    public static ObjectSerializer getJavaSerializer() {
+        return JAVA_SERIALIZER;
+    }
+
+    /**
+     * Searches for an ObjectSerializer with the given name, first checking those that
+     * have already been loaded before moving on to search the classpath.
+     *
+     * @param name
+     *        the name of the serializer to search for.
+     *
+     * @return the serializer with the given name, or null if none could be found.
+     */
+    public static ObjectSerializer findSerializer(String name) {
+        if (name == null || name.isEmpty()) {
+            LOG.warn("No ObjectMessage serializer name was specified");
+            return null;
+        }
+
+        ObjectSerializer serializer = SERIALIZERS_BY_NAME.get(name);
+        if (serializer == null) {
+            try {
+                serializer = register(name, SERIALIZER_FINDER.newInstance(name));
+            } catch (ResourceNotFoundException rnfe) {
+                LOG.debug("Unknown ObjectMessage serializer: [" + name + "]");
+            } catch (Exception e) {
+                LOG.warn("Caught exception while finding ObjectMessage serializer {}: {}", name, e.getMessage());
+            }
+        }
+
+        return serializer;
+    }
+
+    /**
+     * Returns the serializer that writes bodies of the given content type, only those
+     * serializers that have previously been loaded by name are considered.
+     *
+     * @param contentType
+     *        the content type of a message body.
+     *
+     * @return the serializer that handles the content type, or null if none is known.
+     */
+    public static ObjectSerializer findSerializerForContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        return SERIALIZERS_BY_CONTENT_TYPE.get(contentType);
+    }
+
+    /**
+     * Makes a serializer instance available under the given name, allowing serializers
+     * to be supplied without a service file.  An existing serializer of the same name
+     * is retained.
+     *
+     * @param name
+     *        the name used to select the serializer.
+     * @param serializer
+     *        the serializer instance to register.
+     *
+     * @return the serializer now registered under the given name.
+     */
+    public static ObjectSerializer register(String name, ObjectSerializer serializer) {
+        ObjectSerializer existing = SERIALIZERS_BY_NAME.putIfAbsent(name, serializer);
+        if (existing != null) {
+            return existing;
+        }
+
+        ObjectSerializer conflict = SERIALIZERS_BY_CONTENT_TYPE.putIfAbsent(serializer.getContentType(), serializer);
+        if (conflict != null && conflict != serializer) {
+            LOG.warn("ObjectMessage serializer {} uses the same content type as {}: {}",
+                     new Object[] { name, conflict, serializer.getContentType() });
+        }
+
+        return serializer;
+    }
+}
@@ -34,6 +34,8 @@ public class TransportSslOptions extends TransportOptions {
     public static final boolean DEFAULT_VERIFY_HOST = true;
     public static final List<String> DEFAULT_DISABLED_PROTOCOLS = Collections.unmodifiableList(Arrays.asList(new String[]{"SSLv2Hello", "SSLv3"}));
     public static final int DEFAULT_SSL_PORT = 5671;
+    public static final boolean DEFAULT_CACHE_SSL_CONTEXT = false;
+    public static final int DEFAULT_CLOSE_NOTIFY_TIMEOUT = 100;
 
     public static final TransportSslOptions INSTANCE = new TransportSslOptions();
 
@@ -52,6 +54,8 @@ public class TransportSslOptions extends TransportOptions {
     private boolean verifyHost = DEFAULT_VERIFY_HOST;
     private String keyAlias;
     private int defaultSslPort = DEFAULT_SSL_PORT;
+    private boolean cacheSslContext = DEFAULT_CACHE_SSL_CONTEXT;
+    private int closeNotifyTimeout = DEFAULT_CLOSE_NOTIFY_TIMEOUT;
 
     static {
         INSTANCE.setKeyStoreLocation(System.getProperty("javax.net.ssl.keyStore"));
@@ -262,6 +266,52 @@ public class TransportSslOptions extends TransportOptions {
         this.defaultSslPort = defaultSslPort;
     }
 
+    /**
+     * @return true if SSLContext instances created from these options are cached and shared.
+     */
+    public boolean isCacheSslContext() {
+        return cacheSslContext;
+    }
+
+    /**
+     * Sets whether the SSLContext created from these options is cached and shared with
+     * any other transport configured with the same key and trust store settings.  Sharing
+     * the context avoids reloading the stores on every connect and allows TLS sessions to
+     * be resumed when reconnecting to the same host and port.
+     *
+     * Caching is off by default as it changes when key and trust material take effect.  A
+     * cached context is only rebuilt once a store file's modification time changes, so stores
+     * updated in place or taken from the JVM defaults keep their old contents, and a resumed
+     * session skips the certificate exchange so the peer is not validated again until its
+     * session expires.
+     *
+     * @param cacheSslContext
+     *        true if the SSLContext should be cached and shared.
+     */
+    public void setCacheSslContext(boolean cacheSslContext) {
+        this.cacheSslContext = cacheSslContext;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for the peer's close_notify when closing.
+     */
+    public int getCloseNotifyTimeout() {
+        return closeNotifyTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds that a closing connection waits in the background for
+     * the peer to answer its close_notify, so that the TLS session remains valid for
+     * resumption.  Only used when the SSLContext is cached, since sessions cannot otherwise
+     * be resumed.  A value of zero or less closes the socket without the exchange.
+     *
+     * @param closeNotifyTimeout
+     *        the time in milliseconds to wait for the peer's close_notify.
+     */
+    public void setCloseNotifyTimeout(int closeNotifyTimeout) {
+        this.closeNotifyTimeout = closeNotifyTimeout;
+    }
+
     @Override
     public TransportSslOptions clone() {
         return copyOptions(new TransportSslOptions());
@@ -283,6 +333,8 @@ public class TransportSslOptions extends TransportOptions {
         copy.setVerifyHost(isVerifyHost());
         copy.setKeyAlias(getKeyAlias());
         copy.setContextProtocol(getContextProtocol());
+        copy.setCacheSslContext(isCacheSslContext());
+        copy.setCloseNotifyTimeout(getCloseNotifyTimeout());
         return copy;
     }
 }
@@ -22,14 +22,20 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Collections;
+import java.util.Map;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
@@ -41,6 +47,7 @@ import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509ExtendedKeyManager;
 import javax.net.ssl.X509TrustManager;
 
+import org.apache.qpid.jms.util.LRUCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +58,13 @@ public class TransportSupport {
 
     private static final Logger LOG = LoggerFactory.getLogger(TransportSupport.class);
 
+    private static final int SSL_CONTEXT_CACHE_SIZE = 16;
+
+    // Bounded so that applications using many distinct SSL configurations do not grow it
+    // without limit, store passwords only appear in the keys as part of a digest.
+    private static final Map<SslContextKey, CachedSslContext> SSL_CONTEXT_CACHE =
+        Collections.synchronizedMap(new LRUCache<SslContextKey, CachedSslContext>(SSL_CONTEXT_CACHE_SIZE));
+
     /**
      * Creates a Netty SslHandler instance for use in Transports that require
      * an SSL encoder / decoder.
@@ -65,7 +79,53 @@ public class TransportSupport {
      * @throws Exception if an error occurs while creating the SslHandler instance.
      */
     public static SslHandler createSslHandler(URI remote, TransportSslOptions options) throws Exception {
-        return new SslHandler(createSslEngine(remote, createSslContext(options), options));
+        SSLContext context = null;
+        if (options.isCacheSslContext()) {
+            context = getCachedSslContext(options);
+        } else {
+            context = createSslContext(options);
+        }
+
+        return new SslHandler(createSslEngine(remote, context, options));
+    }
+
+    /**
+     * Returns an SSLContext for the given options, creating and caching a new one only if
+     * no context has been created for the same key and trust store settings or if one of
+     * the stores has been modified since.  Because the JDK caches client sessions in the
+     * SSLContext, sharing it allows TLS sessions to be resumed on later connections to
+     * the same host and port.
+     *
+     * @param options
+     *        the configured options used to create the SSLContext.
+     *
+     * @return a cached or newly created SSLContext instance.
+     *
+     * @throws Exception if an error occurs while creating the context.
+     */
+    public static SSLContext getCachedSslContext(TransportSslOptions options) throws Exception {
+        SslContextKey key = new SslContextKey(options);
+        long keyStoreModified = lastModified(options.getKeyStoreLocation());
+        long trustStoreModified = lastModified(options.getTrustStoreLocation());
+
+        CachedSslContext cached = SSL_CONTEXT_CACHE.get(key);
+        if (cached == null || cached.keyStoreModified != keyStoreModified || cached.trustStoreModified != trustStoreModified) {
+            LOG.trace("Creating SSLContext to cache for key store: {} and trust store: {}",
+                      options.getKeyStoreLocation(), options.getTrustStoreLocation());
+            CachedSslContext created = new CachedSslContext(createSslContext(options), keyStoreModified, trustStoreModified);
+            SSL_CONTEXT_CACHE.put(key, created);
+            cached = created;
+        }
+
+        return cached.context;
+    }
+
+    /**
+     * Removes all SSLContext instances from the cache, new connections will create and
+     * cache a new context and any cached TLS sessions are discarded with the old ones.
+     */
+    public static void clearSslContextCache() {
+        SSL_CONTEXT_CACHE.clear();
     }
 
     /**
@@ -133,7 +193,9 @@ public class TransportSupport {
         if(remote == null) {
             engine = context.createSSLEngine();
         } else {
-            engine = context.createSSLEngine(remote.getHost(), remote.getPort());
+            // The host and port key the client session cache used for TLS session resumption.
+            int port = remote.getPort() != -1 ? remote.getPort() : options.getDefaultSslPort();
+            engine = context.createSSLEngine(remote.getHost(), port);
         }
 
         engine.setEnabledProtocols(buildEnabledProtocols(engine, options));
@@ -296,4 +358,77 @@ public class TransportSupport {
             }
         };
     }
+
+    private static long lastModified(String location) {
+        return location != null ? new File(location).lastModified() : 0;
+    }
+
+    /*
+     * The options that affect how an SSLContext is created, options that only affect the
+     * SSLEngine such as protocols and cipher suites are not part of the key.  The options
+     * are reduced to a SHA-256 digest so the cache never holds the store passwords.
+     */
+    private static final class SslContextKey {
+
+        private final byte[] digest;
+        private final int hashCode;
+
+        public SslContextKey(TransportSslOptions options) throws NoSuchAlgorithmException {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            update(sha256, options.getContextProtocol());
+            update(sha256, options.getKeyStoreLocation());
+            update(sha256, options.getKeyStorePassword());
+            update(sha256, options.getTrustStoreLocation());
+            update(sha256, options.getTrustStorePassword());
+            update(sha256, options.getStoreType());
+            update(sha256, options.getKeyAlias());
+            update(sha256, String.valueOf(options.isTrustAll()));
+
+            this.digest = sha256.digest();
+            this.hashCode = Arrays.hashCode(digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+
+            if (!(other instanceof SslContextKey)) {
+                return false;
+            }
+
+            return MessageDigest.isEqual(digest, ((SslContextKey) other).digest);
+        }
+
+        private static void update(MessageDigest digest, String value) {
+            // Length prefixed so that adjacent values can't run together into a collision.
+            if (value == null) {
+                digest.update((byte) 0);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                digest.update((byte) 1);
+                digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+        }
+    }
+
+    private static final class CachedSslContext {
+
+        private final SSLContext context;
+        private final long keyStoreModified;
+        private final long trustStoreModified;
+
+        public CachedSslContext(SSLContext context, long keyStoreModified, long trustStoreModified) {
+            this.context = context;
+            this.keyStoreModified = keyStoreModified;
+            this.trustStoreModified = trustStoreModified;
+        }
+    }
 }
@@ -17,12 +17,17 @@
 package org.apache.qpid.jms.transports.netty;
 
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
 
 import java.net.URI;
 import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLSession;
 
 import org.apache.qpid.jms.transports.SSLTransport;
 import org.apache.qpid.jms.transports.TransportListener;
@@ -40,6 +45,9 @@ public class NettySslTransport extends NettyTcpTransport implements SSLTransport
 
     private static final Logger LOG = LoggerFactory.getLogger(NettySslTransport.class);
 
+    private volatile long handshakeTime = -1;
+    private volatile boolean sessionResumed;
+
     /**
      * Create a new transport instance
      *
@@ -68,12 +76,18 @@ public class NettySslTransport extends NettyTcpTransport implements SSLTransport
 
     @Override
     protected void configureChannel(final Channel channel) throws Exception {
-        SslHandler sslHandler = TransportSupport.createSslHandler(getRemoteLocation(), getSslOptions());
+        final long startTime = System.nanoTime();
+        final long startTimeMillis = System.currentTimeMillis();
+        final SslHandler sslHandler = TransportSupport.createSslHandler(getRemoteLocation(), getSslOptions());
         sslHandler.handshakeFuture().addListener(new GenericFutureListener<Future<Channel>>() {
             @Override
             public void operationComplete(Future<Channel> future) throws Exception {
                 if (future.isSuccess()) {
-                    LOG.trace("SSL Handshake has completed: {}", channel);
+                    // A resumed session keeps the creation time of the handshake that created it.
+                    SSLSession session = sslHandler.engine().getSession();
+                    handshakeTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                    sessionResumed = session.getCreationTime() < startTimeMillis;
+                    LOG.debug("SSL Handshake has completed in {} ms, session resumed: {}, {}", handshakeTime, sessionResumed, channel);
                     connectionEstablished(channel);
                 } else {
                     LOG.trace("SSL Handshake has failed: {}", channel);
@@ -87,6 +101,42 @@ public class NettySslTransport extends NettyTcpTransport implements SSLTransport
         super.configureChannel(channel);
     }
 
+    @Override
+    protected ChannelFuture closeChannel(final Channel channel) {
+        TransportSslOptions sslOptions = getSslOptions();
+        SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+        if (!sslOptions.isCacheSslContext() || sslOptions.getCloseNotifyTimeout() <= 0 ||
+            sslHandler == null || !channel.isActive() || !sslHandler.handshakeFuture().isSuccess()) {
+            return super.closeChannel(channel);
+        }
+
+        // Exchanging close_notify with the peer keeps the session valid so that it can be
+        // resumed, the channel is closed once the peer answers or the timeout elapses.  The
+        // exchange completes in the background so the caller is never held up by the peer.
+        final Runnable closeTask = new Runnable() {
+
+            @Override
+            public void run() {
+                channel.close();
+            }
+        };
+
+        final ScheduledFuture<?> timeout = channel.eventLoop().schedule(
+            closeTask, sslOptions.getCloseNotifyTimeout(), TimeUnit.MILLISECONDS);
+        sslHandler.sslCloseFuture().addListener(new GenericFutureListener<Future<Channel>>() {
+
+            @Override
+            public void operationComplete(Future<Channel> future) throws Exception {
+                timeout.cancel(false);
+                closeTask.run();
+            }
+        });
+
+        sslHandler.close();
+
+        return channel.newSucceededFuture();
+    }
+
     @Override
     protected void handleConnected(final Channel channel) throws Exception {
         // In this transport, the next step is taken by the handshake future
@@ -111,6 +161,20 @@ public class NettySslTransport extends NettyTcpTransport implements SSLTransport
         return (TransportSslOptions) getTransportOptions();
     }
 
+    /**
+     * @return the time in milliseconds the SSL handshake took to complete, or -1 if it has not completed.
+     */
+    public long getHandshakeTime() {
+        return handshakeTime;
+    }
+
+    /**
+     * @return true if the SSL handshake resumed a session from an earlier connection.
+     */
+    public boolean isSessionResumed() {
+        return sessionResumed;
+    }
+
     @Override
     public Principal getLocalPrincipal() {
         SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
@@ -175,14 +175,43 @@ public class NettyTcpTransport implements Transport {
         if (closed.compareAndSet(false, true)) {
             connected.set(false);
             if (channel != null) {
-                channel.close().syncUninterruptibly();
+                ChannelFuture closeFuture = closeChannel(channel);
+                // Never block the event loop when close is called from one of its threads.
+                if (!channel.eventLoop().inEventLoop()) {
+                    closeFuture.syncUninterruptibly();
+                }
             }
             if (group != null) {
-                group.shutdownGracefully(QUIET_PERIOD, SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+                final EventLoopGroup closing = group;
+                if (channel != null) {
+                    // The event loop must outlive any close still completing on the channel.
+                    channel.closeFuture().addListener(new ChannelFutureListener() {
+
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            closing.shutdownGracefully(QUIET_PERIOD, SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+                        }
+                    });
+                } else {
+                    closing.shutdownGracefully(QUIET_PERIOD, SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+                }
             }
         }
     }
 
+    /**
+     * Starts closing the given channel, subclasses can override this to perform any
+     * protocol level shutdown before the channel itself is closed.
+     *
+     * @param channel
+     *        the channel to close.
+     *
+     * @return a future that the caller of close waits on unless called from the event loop.
+     */
+    protected ChannelFuture closeChannel(Channel channel) {
+        return channel.close();
+    }
+
     @Override
     public ByteBuf allocateSendBuffer(int size) throws IOException {
         checkConnected();
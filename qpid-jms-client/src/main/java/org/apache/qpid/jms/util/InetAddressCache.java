@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the results of host name resolution for a configurable time to live.
+ *
+ * A host that has never been seen is resolved on the calling thread by {@link #resolve(String)}
+ * or in the background by {@link #getCachedAddress(String)}, after that the cached result is
+ * returned.  Once an entry has outlived its time to live the stale value continues to be
+ * returned while a refresh is performed in the background, this keeps callers from blocking
+ * on DNS once a host is known.  Failed lookups are cached as well so that an unresolvable host
+ * does not cause a lookup on every call.
+ *
+ * A {@link Listener} can be given to be told when a background lookup completes for a host
+ * that was not yet resolved or whose address has changed.
+ */
+public class InetAddressCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InetAddressCache.class);
+
+    public static final long DEFAULT_TIME_TO_LIVE = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Pattern IPV4_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    // Lookups run on a small pool so that one slow or unresolvable host does not hold up
+    // the resolution of every other host in the process.
+    private static final int RESOLVER_THREADS = 4;
+    private static final ExecutorService RESOLVER;
+
+    static {
+        ThreadPoolExecutor resolver = new ThreadPoolExecutor(RESOLVER_THREADS, RESOLVER_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runner) {
+                Thread resolver = new Thread(runner);
+                resolver.setDaemon(true);
+                resolver.setName("InetAddressCache: resolver thread " + count.incrementAndGet());
+                return resolver;
+            }
+        });
+        resolver.allowCoreThreadTimeOut(true);
+
+        RESOLVER = resolver;
+    }
+
+    /**
+     * Notified from a resolver thread when a background lookup completes.
+     */
+    public interface Listener {
+
+        /**
+         * Called when the first lookup of a host completes or a refresh finds a new address.
+         *
+         * @param host
+         *        the host name as originally given to the cache.
+         * @param address
+         *        the resolved address or null if the host could not be resolved.
+         */
+        void onAddressResolved(String host, InetAddress address);
+
+    }
+
+    private final ConcurrentMap<String, CachedAddress> cache = new ConcurrentHashMap<String, CachedAddress>();
+    private final Listener listener;
+    private volatile long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    public InetAddressCache() {
+        this(null);
+    }
+
+    public InetAddressCache(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the address of the given host using a cached value when one is present.
+     *
+     * @param host
+     *        the host name or literal address to resolve.
+     *
+     * @return the resolved address or null if the host could not be resolved.
+     */
+    public InetAddress resolve(String host) {
+        if (host == null) {
+            return null;
+        }
+
+        String key = host.toLowerCase(Locale.ENGLISH);
+        CachedAddress cached = cache.get(key);
+        if (cached == null) {
+            cached = lookup(host);
+            cache.put(key, cached);
+        } else if (cached.isPending()) {
+            CachedAddress pending = cached;
+            cached = lookup(host);
+            update(key, host, pending, cached);
+        } else if (cached.isExpired(timeToLive)) {
+            refresh(key, host, cached);
+        }
+
+        return cached.address;
+    }
+
+    /**
+     * Returns the cached address of the given host without ever blocking on a lookup.  When
+     * a host name has not been seen before it is resolved in the background and null is
+     * returned, the listener is notified once the lookup completes.  Literal addresses are
+     * parsed on the calling thread as they need no lookup.
+     *
+     * @param host
+     *        the host name or literal address to resolve.
+     *
+     * @return the cached address or null if the host is not yet resolved or could not be resolved.
+     */
+    public InetAddress getCachedAddress(String host) {
+        if (host == null) {
+            return null;
+        }
+
+        if (isLiteralAddress(host)) {
+            // Parsing a literal address never requires a lookup.
+            return resolve(host);
+        }
+
+        String key = host.toLowerCase(Locale.ENGLISH);
+        CachedAddress cached = cache.get(key);
+        if (cached == null) {
+            CachedAddress pending = new CachedAddress();
+            cached = cache.putIfAbsent(key, pending);
+            if (cached == null) {
+                refresh(key, host, pending);
+                return null;
+            }
+        }
+
+        if (!cached.isPending() && cached.isExpired(timeToLive)) {
+            refresh(key, host, cached);
+        }
+
+        return cached.address;
+    }
+
+    /**
+     * Removes all cached entries.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return the number of hosts currently held in the cache.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return the time in milliseconds that a resolved address is considered current.
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the time in milliseconds that a resolved address is considered current, once
+     * elapsed the address is refreshed in the background on its next use.  A value of zero
+     * or less means every use triggers a background refresh.
+     *
+     * @param timeToLive
+     *        the time in milliseconds before a cached address is refreshed.
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private void refresh(final String key, final String host, final CachedAddress stale) {
+        if (stale.refreshing.compareAndSet(false, true)) {
+            RESOLVER.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    update(key, host, stale, lookup(host));
+                }
+            });
+        }
+    }
+
+    private void update(String key, String host, CachedAddress stale, CachedAddress current) {
+        if (cache.replace(key, stale, current) && listener != null &&
+            (stale.isPending() || !equals(stale.address, current.address))) {
+
+            try {
+                listener.onAddressResolved(host, current.address);
+            } catch (Throwable error) {
+                LOG.debug("Listener failed handling address of host[ {} ] : {}", host, error.getMessage());
+            }
+        }
+    }
+
+    private static boolean isLiteralAddress(String host) {
+        // IPv6 literals always contain a colon, IPv4 literals are dotted decimal.
+        return host.indexOf(':') >= 0 || IPV4_LITERAL.matcher(host).matches();
+    }
+
+    private static boolean equals(InetAddress address, InetAddress other) {
+        return address == null ? other == null : address.equals(other);
+    }
+
+    private static CachedAddress lookup(String host) {
+        try {
+            return new CachedAddress(InetAddress.getByName(host));
+        } catch (UnknownHostException e) {
+            LOG.debug("Failed to lookup InetAddress for host[ {} ] : {}", host, e.getMessage());
+            return new CachedAddress(null);
+        }
+    }
+
+    private static final class CachedAddress {
+
+        private final InetAddress address;
+        private final boolean pending;
+        private final long resolvedAt = System.nanoTime();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /*
+         * Creates the placeholder held while the first lookup of a host is in progress.
+         */
+        public CachedAddress() {
+            this.address = null;
+            this.pending = true;
+        }
+
+        public CachedAddress(InetAddress address) {
+            this.address = address;
+            this.pending = false;
+        }
+
+        public boolean isPending() {
+            return pending;
+        }
+
+        public boolean isExpired(long timeToLive) {
+            return (System.nanoTime() - resolvedAt) >= TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        }
+    }
+}
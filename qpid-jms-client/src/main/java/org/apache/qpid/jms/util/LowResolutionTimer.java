@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A timer that runs many coarse grained timeouts from a single daemon thread.
+ *
+ * Deadlines are rounded up to the configured resolution so that timeouts falling
+ * due close together are run in one batch by a single wake up of the timer thread.
+ * The timer thread is started when the first timeout is scheduled and exits again
+ * once it has been idle for a while.  Tasks are run on the timer thread and must
+ * hand off any real work to another executor rather than blocking it.
+ */
+public class LowResolutionTimer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LowResolutionTimer.class);
+
+    private static final long IDLE_THREAD_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private final String name;
+    private final long resolution;
+    private final PriorityQueue<Timeout> timeouts = new PriorityQueue<Timeout>();
+
+    private Thread timerThread;
+    private long sequence;
+
+    /**
+     * Creates a new timer.
+     *
+     * @param name
+     *        the name given to the timer thread.
+     * @param resolution
+     *        the granularity in milliseconds that deadlines are rounded up to.
+     */
+    public LowResolutionTimer(String name, long resolution) {
+        if (resolution <= 0) {
+            throw new IllegalArgumentException("Timer resolution must be greater than zero");
+        }
+
+        this.name = name;
+        this.resolution = resolution;
+    }
+
+    /**
+     * Schedules the given task to run once the delay has elapsed, the actual time the task
+     * runs may be up to one resolution period later than requested.
+     *
+     * @param task
+     *        the task to run when the timeout expires.
+     * @param delay
+     *        the time in milliseconds to wait before running the task.
+     *
+     * @return a Timeout that can be used to cancel the scheduled task.
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        long now = now();
+        long deadline = now + Math.max(0, delay);
+        long remainder = deadline % resolution;
+        if (remainder < 0) {
+            remainder += resolution;
+        }
+        if (remainder != 0) {
+            deadline += resolution - remainder;
+        }
+
+        synchronized (timeouts) {
+            Timeout timeout = new Timeout(task, deadline, sequence++);
+            timeouts.add(timeout);
+
+            if (timerThread == null) {
+                timerThread = new Thread(new TimerLoop(), name);
+                timerThread.setDaemon(true);
+                timerThread.start();
+            } else if (timeouts.peek() == timeout) {
+                timeouts.notify();
+            }
+
+            return timeout;
+        }
+    }
+
+    /**
+     * @return the number of timeouts currently waiting to expire.
+     */
+    public int size() {
+        synchronized (timeouts) {
+            return timeouts.size();
+        }
+    }
+
+    /**
+     * @return the granularity in milliseconds that deadlines are rounded up to.
+     */
+    public long getResolution() {
+        return resolution;
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private static long now() {
+        // Using nano time since it is not related to the wall clock, which may change
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void cancel(Timeout timeout) {
+        synchronized (timeouts) {
+            timeouts.remove(timeout);
+        }
+    }
+
+    private final class TimerLoop implements Runnable {
+
+        @Override
+        public void run() {
+            List<Timeout> expired = new ArrayList<Timeout>();
+
+            while (true) {
+                synchronized (timeouts) {
+                    try {
+                        if (timeouts.isEmpty()) {
+                            timeouts.wait(IDLE_THREAD_TIMEOUT);
+                            if (timeouts.isEmpty()) {
+                                timerThread = null;
+                                return;
+                            }
+                            continue;
+                        }
+
+                        long now = now();
+                        long wait = timeouts.peek().deadline - now;
+                        if (wait > 0) {
+                            timeouts.wait(wait);
+                            continue;
+                        }
+
+                        while (!timeouts.isEmpty() && timeouts.peek().deadline <= now) {
+                            expired.add(timeouts.poll());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.interrupted();
+                        continue;
+                    }
+                }
+
+                for (Timeout timeout : expired) {
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable error) {
+                        LOG.warn("Timer task threw an exception: {}", error.getMessage());
+                        LOG.trace("Timer task error:", error);
+                    }
+                }
+
+                expired.clear();
+            }
+        }
+    }
+
+    /**
+     * A handle for a task scheduled on the timer.
+     */
+    public final class Timeout implements Comparable<Timeout> {
+
+        private final Runnable task;
+        private final long deadline;
+        private final long order;
+
+        private Timeout(Runnable task, long deadline, long order) {
+            this.task = task;
+            this.deadline = deadline;
+            this.order = order;
+        }
+
+        /**
+         * Prevents the task from running if it has not already expired.
+         */
+        public void cancel() {
+            LowResolutionTimer.this.cancel(this);
+        }
+
+        @Override
+        public int compareTo(Timeout other) {
+            if (deadline != other.deadline) {
+                return deadline < other.deadline ? -1 : 1;
+            }
+
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+}
@@ -16,8 +16,8 @@
  */
 package org.apache.qpid.jms.util;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import javax.jms.JMSException;
@@ -26,29 +26,36 @@ import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
 
 /**
  * Simple Message Priority ordered Queue.  Message envelopes are stored in the
- * Queue based on their priority value, except where {@link #enqueueFirst} is
- * used.
+ * Queue based on their priority value, envelopes added using {@link #enqueueFirst}
+ * are placed ahead of all others of the same priority.
+ *
+ * Each priority level is held in its own array backed ring and a bit mask records
+ * which levels are non-empty, so locating the highest priority message does not
+ * require scanning the levels.
  */
 public final class PriorityMessageQueue extends AbstractMessageQueue {
 
     // There are 10 priorities, values 0-9
-    private static final Integer MAX_PRIORITY = 9;
+    private static final int MAX_PRIORITY = 9;
 
-    private final LinkedList<JmsInboundMessageDispatch>[] lists;
+    private final ArrayDeque<JmsInboundMessageDispatch>[] lists;
+    private int nonEmptyLevels;
     private int size = 0;
 
     @SuppressWarnings("unchecked")
     public PriorityMessageQueue() {
-        this.lists = new LinkedList[MAX_PRIORITY + 1];
+        this.lists = new ArrayDeque[MAX_PRIORITY + 1];
         for (int i = 0; i <= MAX_PRIORITY; i++) {
-            lists[i] = new LinkedList<JmsInboundMessageDispatch>();
+            lists[i] = new ArrayDeque<JmsInboundMessageDispatch>();
         }
     }
 
     @Override
     public void enqueue(JmsInboundMessageDispatch envelope) {
         synchronized (getLock()) {
-            getList(envelope).addLast(envelope);
+            int priority = getPriority(envelope);
+            lists[priority].addLast(envelope);
+            nonEmptyLevels |= 1 << priority;
             this.size++;
             getLock().notify();
         }
@@ -57,7 +64,9 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
     @Override
     public void enqueueFirst(JmsInboundMessageDispatch envelope) {
         synchronized (getLock()) {
-            getList(MAX_PRIORITY).addFirst(envelope);
+            int priority = getPriority(envelope);
+            lists[priority].addFirst(envelope);
+            nonEmptyLevels |= 1 << priority;
             this.size++;
             getLock().notify();
         }
@@ -83,6 +92,7 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
             for (int i = 0; i <= MAX_PRIORITY; i++) {
                 lists[i].clear();
             }
+            this.nonEmptyLevels = 0;
             this.size = 0;
         }
     }
@@ -90,13 +100,14 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
     @Override
     public List<JmsInboundMessageDispatch> removeAll() {
         synchronized (getLock()) {
-            ArrayList<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>(size());
+            ArrayList<JmsInboundMessageDispatch> result = new ArrayList<JmsInboundMessageDispatch>(size);
             for (int i = MAX_PRIORITY; i >= 0; i--) {
-                List<JmsInboundMessageDispatch> list = lists[i];
+                ArrayDeque<JmsInboundMessageDispatch> list = lists[i];
                 result.addAll(list);
-                size -= list.size();
                 list.clear();
             }
+            this.nonEmptyLevels = 0;
+            this.size = 0;
             return result;
         }
     }
@@ -104,13 +115,14 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
     @Override
     protected JmsInboundMessageDispatch removeFirst() {
         if (this.size > 0) {
-            for (int i = MAX_PRIORITY; i >= 0; i--) {
-                LinkedList<JmsInboundMessageDispatch> list = lists[i];
-                if (!list.isEmpty()) {
-                    this.size--;
-                    return list.removeFirst();
-                }
+            int priority = highestPriority();
+            ArrayDeque<JmsInboundMessageDispatch> list = lists[priority];
+            JmsInboundMessageDispatch envelope = list.pollFirst();
+            if (list.isEmpty()) {
+                nonEmptyLevels &= ~(1 << priority);
             }
+            this.size--;
+            return envelope;
         }
         return null;
     }
@@ -118,16 +130,15 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
     @Override
     protected JmsInboundMessageDispatch peekFirst() {
         if (this.size > 0) {
-            for (int i = MAX_PRIORITY; i >= 0; i--) {
-                LinkedList<JmsInboundMessageDispatch> list = lists[i];
-                if (!list.isEmpty()) {
-                    return list.peekFirst();
-                }
-            }
+            return lists[highestPriority()].peekFirst();
         }
         return null;
     }
 
+    private int highestPriority() {
+        return (Integer.SIZE - 1) - Integer.numberOfLeadingZeros(nonEmptyLevels);
+    }
+
     private int getPriority(JmsInboundMessageDispatch envelope) {
         int priority = javax.jms.Message.DEFAULT_PRIORITY;
         if (envelope.getMessage() != null) {
@@ -139,12 +150,4 @@ public final class PriorityMessageQueue extends AbstractMessageQueue {
         }
         return priority;
     }
-
-    private LinkedList<JmsInboundMessageDispatch> getList(JmsInboundMessageDispatch envelope) {
-        return getList(getPriority(envelope));
-    }
-
-    private LinkedList<JmsInboundMessageDispatch> getList(int priority) {
-        return lists[priority];
-    }
 }
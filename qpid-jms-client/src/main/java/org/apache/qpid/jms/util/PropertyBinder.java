@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds the setter and getter methods of a class as pre-bound method handles so that
+ * URI options can be applied to instances of the class without repeating the bean
+ * introspection and method lookup each time.
+ *
+ * Binders are built on first use and cached against the class they bind, they are
+ * intended for the small set of configuration classes in the client.
+ */
+public final class PropertyBinder {
+
+    // Values are held by the Class itself so a cached binder never pins its class loader.
+    private static final ClassValue<PropertyBinder> BINDERS = new ClassValue<PropertyBinder>() {
+
+        @Override
+        protected PropertyBinder computeValue(Class<?> clazz) {
+            try {
+                return new PropertyBinder(clazz);
+            } catch (IntrospectionException e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+    };
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Map<String, Setter> setters;
+    private final Map<String, MethodHandle> getters;
+
+    private PropertyBinder(Class<?> clazz) throws IntrospectionException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        Map<String, Setter> setters = new HashMap<String, Setter>();
+        for (Method method : clazz.getMethods()) {
+            String name = method.getName();
+            Class<?>[] params = method.getParameterTypes();
+            if (params.length == 1 && name.startsWith("set") && !setters.containsKey(name)) {
+                setters.put(name, new Setter(params[0], bind(lookup, method, SETTER_TYPE)));
+            }
+        }
+
+        Map<String, MethodHandle> getters = new LinkedHashMap<String, MethodHandle>();
+        BeanInfo beanInfo = Introspector.getBeanInfo(clazz);
+        PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
+        if (propertyDescriptors != null) {
+            for (PropertyDescriptor descriptor : propertyDescriptors) {
+                if (descriptor.getReadMethod() != null) {
+                    MethodHandle getter = bind(lookup, descriptor.getReadMethod(), GETTER_TYPE);
+                    if (getter != null) {
+                        getters.put(descriptor.getName(), getter);
+                    }
+                }
+            }
+        }
+
+        this.setters = setters;
+        this.getters = Collections.unmodifiableMap(getters);
+    }
+
+    /**
+     * Returns the binder for the given class, creating it on first use.
+     *
+     * @param clazz
+     *        the class whose properties are to be bound.
+     *
+     * @return the PropertyBinder for the given class.
+     *
+     * @throws IntrospectionException if the bean information of the class cannot be read.
+     */
+    public static PropertyBinder forClass(Class<?> clazz) throws IntrospectionException {
+        try {
+            return BINDERS.get(clazz);
+        } catch (UndeclaredThrowableException e) {
+            throw (IntrospectionException) e.getUndeclaredThrowable();
+        }
+    }
+
+    /**
+     * @return the readable properties of the bound class in bean introspection order.
+     */
+    public Map<String, MethodHandle> getReadableProperties() {
+        return getters;
+    }
+
+    /**
+     * Reads the named property from the given target.
+     *
+     * @param target
+     *        the object to read from, must be an instance of the bound class.
+     * @param name
+     *        the name of the property to read.
+     *
+     * @return the property value or null if the class has no such readable property.
+     *
+     * @throws Exception if the getter method fails.
+     */
+    public Object getProperty(Object target, String name) throws Exception {
+        MethodHandle getter = getters.get(name);
+        if (getter == null) {
+            return null;
+        }
+
+        return invokeGetter(getter, target);
+    }
+
+    /**
+     * Returns the parameter type of the setter for the named property.
+     *
+     * @param name
+     *        the name of the property.
+     *
+     * @return the type accepted by the setter or null if the class has no such setter.
+     */
+    public Class<?> getPropertyType(String name) {
+        Setter setter = findSetter(name);
+        return setter != null ? setter.type : null;
+    }
+
+    /**
+     * Writes the named property on the given target, the value must already have been
+     * converted to the type returned from {@link #getPropertyType(String)}.
+     *
+     * @param target
+     *        the object to update, must be an instance of the bound class.
+     * @param name
+     *        the name of the property to write.
+     * @param value
+     *        the value to apply.
+     *
+     * @return false if the class has no setter for the named property.
+     *
+     * @throws Throwable if the setter method fails.
+     */
+    public boolean setProperty(Object target, String name, Object value) throws Throwable {
+        Setter setter = findSetter(name);
+        if (setter == null || setter.handle == null) {
+            return false;
+        }
+
+        setter.handle.invokeExact(target, value);
+        return true;
+    }
+
+    /**
+     * Invokes a getter handle taken from {@link #getReadableProperties()}.
+     *
+     * @param getter
+     *        the getter handle to invoke.
+     * @param target
+     *        the object to read from.
+     *
+     * @return the value returned by the getter.
+     *
+     * @throws Exception if the getter method fails.
+     */
+    public static Object invokeGetter(MethodHandle getter, Object target) throws Exception {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private Setter findSetter(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+
+        return setters.get("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1));
+    }
+
+    private static MethodHandle bind(MethodHandles.Lookup lookup, Method method, MethodType type) {
+        try {
+            return lookup.unreflect(method).asType(type);
+        } catch (IllegalAccessException e) {
+            // Methods that are not accessible can't be used for configuration.
+            return null;
+        }
+    }
+
+    private static final class Setter {
+
+        private final Class<?> type;
+        private final MethodHandle handle;
+
+        public Setter(Class<?> type, MethodHandle handle) {
+            this.type = type;
+            this.handle = handle;
+        }
+    }
+}
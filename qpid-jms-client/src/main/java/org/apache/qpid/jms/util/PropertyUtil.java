@@ -16,11 +16,8 @@
  */
 package org.apache.qpid.jms.util;
 
-import java.beans.BeanInfo;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.io.UnsupportedEncodingException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -30,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
@@ -41,6 +39,13 @@ import javax.net.ssl.SSLContext;
  */
 public class PropertyUtil {
 
+    private static final int PARSED_QUERY_CACHE_SIZE = 256;
+
+    // Connection factories re-parse the same URI query on every connection they create,
+    // queries carrying credentials are never cached so they don't outlive their users.
+    private static final Map<String, Map<String, String>> PARSED_QUERIES =
+        Collections.synchronizedMap(new LRUCache<String, Map<String, String>>(PARSED_QUERY_CACHE_SIZE));
+
     /**
      * Creates a URI from the original URI and the given parameters.
      *
@@ -191,19 +196,28 @@ public class PropertyUtil {
      */
     public static Map<String, String> parseQuery(String queryString) throws Exception {
         if (queryString != null && !queryString.isEmpty()) {
-            Map<String, String> rc = new HashMap<String, String>();
-            String[] parameters = queryString.split("&");
-            for (int i = 0; i < parameters.length; i++) {
-                int p = parameters[i].indexOf("=");
-                if (p >= 0) {
-                    String name = URLDecoder.decode(parameters[i].substring(0, p), "UTF-8");
-                    String value = URLDecoder.decode(parameters[i].substring(p + 1), "UTF-8");
-                    rc.put(name, value);
-                } else {
-                    rc.put(parameters[i], null);
+            Map<String, String> rc = PARSED_QUERIES.get(queryString);
+            if (rc == null) {
+                rc = new HashMap<String, String>();
+                String[] parameters = queryString.split("&");
+                for (int i = 0; i < parameters.length; i++) {
+                    int p = parameters[i].indexOf("=");
+                    if (p >= 0) {
+                        String name = URLDecoder.decode(parameters[i].substring(0, p), "UTF-8");
+                        String value = URLDecoder.decode(parameters[i].substring(p + 1), "UTF-8");
+                        rc.put(name, value);
+                    } else {
+                        rc.put(parameters[i], null);
+                    }
+                }
+
+                if (!containsCredentials(rc)) {
+                    PARSED_QUERIES.put(queryString, Collections.unmodifiableMap(rc));
                 }
             }
-            return rc;
+
+            // Callers filter the returned map in place so each gets its own copy.
+            return new HashMap<String, String>(rc);
         }
 
         return Collections.emptyMap();
@@ -391,24 +405,20 @@ public class PropertyUtil {
         }
 
         Map<String, String> properties = new LinkedHashMap<String, String>();
-        BeanInfo beanInfo = Introspector.getBeanInfo(object.getClass());
-        Object[] NULL_ARG = {};
-        PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
-        if (propertyDescriptors != null) {
-            for (int i = 0; i < propertyDescriptors.length; i++) {
-                PropertyDescriptor pd = propertyDescriptors[i];
-                if (pd.getReadMethod() != null && !pd.getName().equals("class") && !pd.getName().equals("properties") && !pd.getName().equals("reference")) {
-                    Object value = pd.getReadMethod().invoke(object, NULL_ARG);
-                    if (value != null) {
-                        if (value instanceof Boolean || value instanceof Number || value instanceof String || value instanceof URI || value instanceof URL) {
-                            properties.put(pd.getName(), ("" + value));
-                        } else if (value instanceof SSLContext) {
-                            // ignore this one..
-                        } else {
-                            Map<String, String> inner = getProperties(value);
-                            for (Map.Entry<String, String> entry : inner.entrySet()) {
-                                properties.put(pd.getName() + "." + entry.getKey(), entry.getValue());
-                            }
+        PropertyBinder binder = PropertyBinder.forClass(object.getClass());
+        for (Map.Entry<String, MethodHandle> property : binder.getReadableProperties().entrySet()) {
+            String name = property.getKey();
+            if (!name.equals("class") && !name.equals("properties") && !name.equals("reference")) {
+                Object value = PropertyBinder.invokeGetter(property.getValue(), object);
+                if (value != null) {
+                    if (value instanceof Boolean || value instanceof Number || value instanceof String || value instanceof URI || value instanceof URL) {
+                        properties.put(name, ("" + value));
+                    } else if (value instanceof SSLContext) {
+                        // ignore this one..
+                    } else {
+                        Map<String, String> inner = getProperties(value);
+                        for (Map.Entry<String, String> entry : inner.entrySet()) {
+                            properties.put(name + "." + entry.getKey(), entry.getValue());
                         }
                     }
                 }
@@ -431,17 +441,7 @@ public class PropertyUtil {
      * @throws Exception if an error occurs while searching the object's bean info.
      */
     public static Object getProperty(Object object, String name) throws Exception {
-        BeanInfo beanInfo = Introspector.getBeanInfo(object.getClass());
-        PropertyDescriptor[] propertyDescriptors = beanInfo.getPropertyDescriptors();
-        if (propertyDescriptors != null) {
-            for (int i = 0; i < propertyDescriptors.length; i++) {
-                PropertyDescriptor pd = propertyDescriptors[i];
-                if (pd.getReadMethod() != null && pd.getName().equals(name)) {
-                    return pd.getReadMethod().invoke(object);
-                }
-            }
-        }
-        return null;
+        return PropertyBinder.forClass(object.getClass()).getProperty(object, name);
     }
 
     /**
@@ -470,19 +470,18 @@ public class PropertyUtil {
                 dotPos = name.indexOf(".");
             }
 
-            Class<? extends Object> clazz = target.getClass();
-            Method setter = findSetterMethod(clazz, name);
-            if (setter == null) {
+            PropertyBinder binder = PropertyBinder.forClass(target.getClass());
+            Class<?> type = binder.getPropertyType(name);
+            if (type == null) {
                 return false;
             }
             // If the type is null or it matches the needed type, just use the
             // value directly
-            if (value == null || value.getClass() == setter.getParameterTypes()[0]) {
-                setter.invoke(target, new Object[] { value });
+            if (value == null || value.getClass() == type) {
+                return binder.setProperty(target, name, value);
             } else {
-                setter.invoke(target, new Object[] { convert(value, setter.getParameterTypes()[0]) });
+                return binder.setProperty(target, name, convert(value, type));
             }
-            return true;
         } catch (Throwable ignore) {
             return false;
         }
@@ -549,20 +548,6 @@ public class PropertyUtil {
         return result;
     }
 
-    private static Method findSetterMethod(Class<? extends Object> clazz, String name) {
-        // Build the method name.
-        name = "set" + name.substring(0, 1).toUpperCase() + name.substring(1);
-        Method[] methods = clazz.getMethods();
-        for (int i = 0; i < methods.length; i++) {
-            Method method = methods[i];
-            Class<? extends Object> params[] = method.getParameterTypes();
-            if (method.getName().equals(name) && params.length == 1) {
-                return method;
-            }
-        }
-        return null;
-    }
-
     private static Object convert(Object value, Class<?> type) throws Exception {
         if (value == null) {
             if (boolean.class.isAssignableFrom(type)) {
@@ -586,4 +571,15 @@ public class PropertyUtil {
 
         return TypeConversionSupport.convert(value, type);
     }
+
+    private static boolean containsCredentials(Map<String, String> options) {
+        for (String key : options.keySet()) {
+            String lowerCaseKey = key.toLowerCase(Locale.ENGLISH);
+            if (lowerCaseKey.contains("password") || lowerCaseKey.contains("secret")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
@@ -83,6 +83,11 @@ public class JmsConnectionFactoryTest extends QpidJmsTestCase {
         factory.setForceAsyncAcks(!factory.isForceAsyncAcks());
         factory.setConnectTimeout(TimeUnit.SECONDS.toMillis(30));
         factory.setCloseTimeout(TimeUnit.SECONDS.toMillis(45));
+        factory.setReceiveNoWaitDrainInterval(250);
+        factory.setQueueBrowserStreamTimeout(150);
+        factory.setCreateResourcesAsync(true);
+        factory.setSyncSpinTime(20000);
+        factory.setSyncYieldTime(30000);
 
         factory.getPrefetchPolicy().setAll(1);
 
@@ -102,6 +107,11 @@ public class JmsConnectionFactoryTest extends QpidJmsTestCase {
 
         assertEquals(TimeUnit.SECONDS.toMillis(30), connection.getConnectTimeout());
         assertEquals(TimeUnit.SECONDS.toMillis(45), connection.getCloseTimeout());
+        assertEquals(250, connection.getReceiveNoWaitDrainInterval());
+        assertEquals(150, connection.getQueueBrowserStreamTimeout());
+        assertTrue(connection.isCreateResourcesAsync());
+        assertEquals(20000, connection.getSyncSpinTime());
+        assertEquals(30000, connection.getSyncYieldTime());
 
         assertEquals(1, connection.getPrefetchPolicy().getTopicPrefetch());
         assertEquals(1, connection.getPrefetchPolicy().getQueuePrefetch());
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test for the defaults and delay calculations of the JmsRedeliveryPolicy
+ */
+public class JmsRedeliveryPolicyTest {
+
+    @Test
+    public void testDefaults() {
+        JmsRedeliveryPolicy policy = new JmsRedeliveryPolicy();
+
+        assertEquals(JmsRedeliveryPolicy.DEFAULT_MAX_REDELIVERIES, policy.getMaxRedeliveries());
+        assertEquals(JmsRedeliveryPolicy.DEFAULT_INITIAL_REDELIVERY_DELAY, policy.getInitialRedeliveryDelay());
+        assertEquals(JmsRedeliveryPolicy.DEFAULT_BACK_OFF_MULTIPLIER, policy.getBackOffMultiplier(), 0.0);
+        assertEquals(JmsRedeliveryPolicy.DEFAULT_MAX_REDELIVERY_DELAY, policy.getMaxRedeliveryDelay());
+        assertEquals(JmsRedeliveryPolicy.DEFAULT_REDELIVERY_DELAY_JITTER, policy.getRedeliveryDelayJitter(), 0.0);
+    }
+
+    @Test
+    public void testCopy() {
+        JmsRedeliveryPolicy policy = new JmsRedeliveryPolicy();
+        policy.setMaxRedeliveries(5);
+        policy.setInitialRedeliveryDelay(100);
+        policy.setBackOffMultiplier(2.5);
+        policy.setMaxRedeliveryDelay(1000);
+        policy.setRedeliveryDelayJitter(0.1);
+
+        JmsRedeliveryPolicy copy = policy.copy();
+
+        assertEquals(5, copy.getMaxRedeliveries());
+        assertEquals(100, copy.getInitialRedeliveryDelay());
+        assertEquals(2.5, copy.getBackOffMultiplier(), 0.0);
+        assertEquals(1000, copy.getMaxRedeliveryDelay());
+        assertEquals(0.1, copy.getRedeliveryDelayJitter(), 0.0);
+    }
+
+    @Test
+    public void testNoDelayByDefault() {
+        JmsRedeliveryPolicy policy = new JmsRedeliveryPolicy();
+
+        assertEquals(0, policy.getRedeliveryDelay(0));
+        assertEquals(0, policy.getRedeliveryDelay(1));
+        assertEquals(0, policy.getRedeliveryDelay(10));
+    }
+
+    @Test
+    public void testConstantDelay() {
+        JmsRedeliveryPolicy policy = new JmsRedeliveryPolicy();
+        policy.setInitialRedeliveryDelay(100);
+
+        assertEquals(0, policy.getRedeliveryDelay(0));
+        assertEquals(100, policy.getRedeliveryDelay(1));
+        assertEquals(100, policy.getRedeliveryDelay(5));
+    }
+
+    @Test
+    public void testExponentialBackOffIsCapped() {
+        JmsRedeliveryPolicy policy = new JmsRedeliveryPolicy();
+        policy.setInitialRedeliveryDelay(100);
+        policy.setBackOffMultiplier(2);
+        policy.setMaxRedeliveryDelay(500);
+
+        assertEquals(100, policy.getRedeliveryDelay(1));
+        assertEquals(200, policy.getRedeliveryDelay(2));
+        assertEquals(400, policy.getRedeliveryDelay(3));
+        assertEquals(500, policy.getRedeliveryDelay(4));
+        assertEquals(500, policy.getRedeliveryDelay(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testJitterStaysWithinBounds() {
+        JmsRedeliveryPolicy policy = new JmsRedeliveryPolicy();
+        policy.setInitialRedeliveryDelay(1000);
+        policy.setRedeliveryDelayJitter(0.2);
+
+        for (int i = 0; i < 100; ++i) {
+            long delay = policy.getRedeliveryDelay(1);
+            assertTrue("Delay out of range: " + delay, delay >= 800 && delay <= 1200);
+        }
+    }
+}
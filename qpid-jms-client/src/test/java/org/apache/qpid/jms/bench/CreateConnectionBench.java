@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the cost of configuring and creating connections from a factory whose
+ * URI carries a typical set of options, using the mock provider so that only the
+ * client side setup is timed.
+ */
+@Ignore
+public class CreateConnectionBench {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CreateConnectionBench.class);
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int MEASURED_ITERATIONS = 100000;
+
+    private static final String URI = "mock://localhost?jms.clientIDPrefix=bench&jms.prefetchPolicy.all=100" +
+                                      "&jms.redeliveryPolicy.maxRedeliveries=5&jms.sendTimeout=30000" +
+                                      "&jms.forceAsyncSend=true&jms.localMessagePriority=true";
+
+    @Test
+    public void testCreateConnection() throws Exception {
+        JmsConnectionFactory factory = new JmsConnectionFactory(URI);
+
+        createConnections(factory, WARMUP_ITERATIONS);
+
+        long start = System.nanoTime();
+        createConnections(factory, MEASURED_ITERATIONS);
+        long elapsed = System.nanoTime() - start;
+
+        LOG.info("Created {} connections in {} ms, {} us per connection",
+                 MEASURED_ITERATIONS, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                 TimeUnit.NANOSECONDS.toMicros(elapsed) / (double) MEASURED_ITERATIONS);
+    }
+
+    @Test
+    public void testCreateConnectionFactoryAndConnection() throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            createConnections(new JmsConnectionFactory(URI), 1);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; ++i) {
+            createConnections(new JmsConnectionFactory(URI), 1);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        LOG.info("Created {} factories and connections in {} ms, {} us per connection",
+                 MEASURED_ITERATIONS, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                 TimeUnit.NANOSECONDS.toMicros(elapsed) / (double) MEASURED_ITERATIONS);
+    }
+
+    private void createConnections(JmsConnectionFactory factory, int count) throws Exception {
+        for (int i = 0; i < count; ++i) {
+            Connection connection = factory.createConnection();
+            connection.close();
+        }
+    }
+}
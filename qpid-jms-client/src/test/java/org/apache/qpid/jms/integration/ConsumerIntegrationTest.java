@@ -19,9 +19,13 @@
 package org.apache.qpid.jms.integration;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -52,9 +56,11 @@ import org.apache.qpid.jms.test.testpeer.AmqpPeerRunnable;
 import org.apache.qpid.jms.test.testpeer.TestAmqpPeer;
 import org.apache.qpid.jms.test.testpeer.basictypes.AmqpError;
 import org.apache.qpid.jms.test.testpeer.describedtypes.sections.AmqpValueDescribedType;
+import org.apache.qpid.jms.test.testpeer.describedtypes.sections.ApplicationPropertiesDescribedType;
 import org.apache.qpid.jms.test.testpeer.matchers.AcceptedMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.ModifiedMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.ReleasedMatcher;
+import org.apache.qpid.jms.test.testpeer.matchers.SourceMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.sections.MessageAnnotationsSectionMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.sections.MessageHeaderSectionMatcher;
 import org.apache.qpid.jms.test.testpeer.matchers.sections.TransferPayloadCompositeMatcher;
@@ -277,6 +283,61 @@ public class ConsumerIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout = 20000)
+    public void testRuntimeExceptionInOnMessageRedeliversAfterConfiguredDelay() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.redeliveryPolicy.initialRedeliveryDelay=200");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            DescribedType amqpValueNullContent = new AmqpValueDescribedType(null);
+
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, amqpValueNullContent);
+            testPeer.expectDispositionThatIsAcceptedAndSettled();
+
+            final CountDownLatch redelivered = new CountDownLatch(1);
+            final long[] deliveryTimes = new long[2];
+            final int[] redeliveryCount = new int[1];
+
+            MessageConsumer messageConsumer = session.createConsumer(queue);
+            messageConsumer.setMessageListener(new MessageListener() {
+
+                private int deliveries;
+
+                @Override
+                public void onMessage(Message message) {
+                    deliveryTimes[deliveries] = System.nanoTime();
+                    if (deliveries++ == 0) {
+                        throw new RuntimeException();
+                    }
+
+                    try {
+                        redeliveryCount[0] = message.getIntProperty("JMSXDeliveryCount") - 1;
+                    } catch (JMSException e) {
+                    }
+
+                    redelivered.countDown();
+                }
+            });
+
+            assertTrue("Message was not redelivered", redelivered.await(5, TimeUnit.SECONDS));
+            assertThat(TimeUnit.NANOSECONDS.toMillis(deliveryTimes[1] - deliveryTimes[0]), greaterThanOrEqualTo(190L));
+            assertEquals(1, redeliveryCount[0]);
+
+            testPeer.waitForAllHandlersToComplete(2000);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(2000);
+        }
+    }
+
     @Test(timeout=20000)
     public void testCloseDurableSubscriberWithUnackedAnUnconsumedPrefetchedMessages() throws Exception {
         try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
@@ -707,6 +768,44 @@ public class ConsumerIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout=30000)
+    public void testReceiveNoWaitDoesntDrainAgainWithinDrainInterval() throws IOException, Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.receiveNoWaitDrainInterval=60000");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // Expect receiver link attach and send credit, then a single drain
+            // and replenish for the first receiveNoWait that finds nothing.
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(JmsPrefetchPolicy.DEFAULT_QUEUE_PREFETCH)));
+            testPeer.expectLinkFlow(true, true, equalTo(UnsignedInteger.valueOf(JmsPrefetchPolicy.DEFAULT_QUEUE_PREFETCH)));
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(JmsPrefetchPolicy.DEFAULT_QUEUE_PREFETCH)));
+
+            MessageConsumer consumer = session.createConsumer(queue);
+
+            assertNull(consumer.receiveNoWait());
+
+            // Within the interval only the local buffer should be checked
+            assertNull(consumer.receiveNoWait());
+            assertNull(consumer.receiveNoWait());
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            testPeer.expectDetach(true, true, true);
+            consumer.close();
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
     /* Check the clients view of the remaining credit stays in sync with the transports
      * even in the face of the remote peer advancing the delivery count unexpectedly,
      * ensuring the client doesn't later think there is credit when there is none.
@@ -762,4 +861,246 @@ public class ConsumerIntegrationTest extends QpidJmsTestCase {
             testPeer.waitForAllHandlersToComplete(3000);
         }
     }
+
+    @Test(timeout=20000)
+    public void testClientSideSelectorReturnsNonMatchingMessages() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?amqp.clientSideSelectors=true");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // The selector should not be sent to the peer, instead the first two messages
+            // are returned as undeliverable here and only the last is consumed.
+            SourceMatcher sourceMatcher = new SourceMatcher();
+            sourceMatcher.withFilter(nullValue());
+
+            testPeer.expectReceiverAttach(notNullValue(), sourceMatcher);
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"),
+                3, false, false, greaterThanOrEqualTo(UnsignedInteger.valueOf(3)), 1, true);
+
+            ModifiedMatcher modified = new ModifiedMatcher();
+            modified.withUndeliverableHere(equalTo(true));
+            testPeer.expectDisposition(true, modified);
+            testPeer.expectDisposition(true, modified);
+            testPeer.expectDisposition(true, new AcceptedMatcher());
+
+            MessageConsumer consumer = session.createConsumer(queue, TestAmqpPeer.MESSAGE_NUMBER + " = 2 AND JMSDeliveryMode = 'NON_PERSISTENT'");
+
+            Message message = consumer.receive(3000);
+            assertNotNull(message);
+            assertEquals(2, message.getIntProperty(TestAmqpPeer.MESSAGE_NUMBER));
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout=20000)
+    public void testClientSideSelectorZeroPrefetchReceiveAfterNonMatchingMessage() throws Exception {
+        doClientSideSelectorZeroPrefetchTestImpl(-1);
+    }
+
+    @Test(timeout=20000)
+    public void testClientSideSelectorZeroPrefetchTimedReceiveAfterNonMatchingMessage() throws Exception {
+        doClientSideSelectorZeroPrefetchTestImpl(5000);
+    }
+
+    @Test(timeout=20000)
+    public void testClientSideSelectorZeroPrefetchReceiveNoWaitAfterNonMatchingMessage() throws Exception {
+        doClientSideSelectorZeroPrefetchTestImpl(0);
+    }
+
+    private void doClientSideSelectorZeroPrefetchTestImpl(long timeout) throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?amqp.clientSideSelectors=true&jms.prefetchPolicy.all=0");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            SourceMatcher sourceMatcher = new SourceMatcher();
+            sourceMatcher.withFilter(nullValue());
+
+            testPeer.expectReceiverAttach(notNullValue(), sourceMatcher);
+
+            MessageConsumer consumer = session.createConsumer(queue, TestAmqpPeer.MESSAGE_NUMBER + " = 1");
+
+            // The pull credit is used by a message that does not match, it is returned as
+            // undeliverable here and the credit is granted again for the matching message.
+            boolean drain = timeout == 0;
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"),
+                1, drain, false, equalTo(UnsignedInteger.ONE), 1, true);
+
+            ApplicationPropertiesDescribedType appProperties = new ApplicationPropertiesDescribedType();
+            appProperties.setApplicationProperty(TestAmqpPeer.MESSAGE_NUMBER, 1);
+
+            testPeer.expectLinkFlow(drain, false, equalTo(UnsignedInteger.ONE));
+
+            ModifiedMatcher modified = new ModifiedMatcher();
+            modified.withUndeliverableHere(equalTo(true));
+            testPeer.expectDisposition(true, modified);
+
+            testPeer.sendTransferToLastOpenedLinkOnLastOpenedSession(null, null, null, appProperties, new AmqpValueDescribedType("content"), 2);
+            testPeer.expectDisposition(true, new AcceptedMatcher());
+
+            Message message;
+            if (timeout < 0) {
+                message = consumer.receive();
+            } else if (timeout == 0) {
+                message = consumer.receiveNoWait();
+            } else {
+                message = consumer.receive(timeout);
+            }
+
+            assertNotNull(message);
+            assertEquals(1, message.getIntProperty(TestAmqpPeer.MESSAGE_NUMBER));
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout=20000)
+    public void testTopicFanoutSharesOneLinkBetweenConsumers() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?amqp.topicFanout=true&jms.prefetchPolicy.topicPrefetch=1");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Topic topic = session.createTopic("myTopic");
+
+            // Only a single link is attached for both consumers, selectors are applied
+            // locally and each message is accepted once every consumer it went to has it.
+            SourceMatcher sourceMatcher = new SourceMatcher();
+            sourceMatcher.withFilter(nullValue());
+
+            testPeer.expectReceiverAttach(notNullValue(), sourceMatcher);
+            testPeer.expectLinkFlow(false, equalTo(UnsignedInteger.valueOf(1)));
+
+            MessageConsumer consumer1 = session.createConsumer(topic, TestAmqpPeer.MESSAGE_NUMBER + " < 2");
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            // The second consumer has a larger prefetch, so the credit on the shared link grows.
+            ((JmsConnection) connection).getPrefetchPolicy().setTopicPrefetch(10);
+
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"),
+                3, false, false, equalTo(UnsignedInteger.valueOf(10)), 1, true);
+            testPeer.expectDisposition(true, new AcceptedMatcher());
+            testPeer.expectDisposition(true, new AcceptedMatcher());
+            testPeer.expectDisposition(true, new AcceptedMatcher());
+
+            MessageConsumer consumer2 = session.createConsumer(topic, TestAmqpPeer.MESSAGE_NUMBER + " > 0");
+
+            for (int i = 0; i < 2; ++i) {
+                Message message = consumer1.receive(3000);
+                assertNotNull(message);
+                assertEquals(i, message.getIntProperty(TestAmqpPeer.MESSAGE_NUMBER));
+            }
+
+            for (int i = 1; i < 3; ++i) {
+                Message message = consumer2.receive(3000);
+                assertNotNull(message);
+                assertEquals(i, message.getIntProperty(TestAmqpPeer.MESSAGE_NUMBER));
+            }
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            // The shared link is only detached once the last consumer is closed.
+            consumer1.close();
+            testPeer.expectDetach(true, true, true);
+            consumer2.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout=20000)
+    public void testTopicFanoutReceiveNoWaitDrainsSharedLink() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?amqp.topicFanout=true&jms.prefetchPolicy.topicPrefetch=2");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Topic topic = session.createTopic("myTopic");
+
+            // Expect the shared link to be drained on behalf of the consumer, then for
+            // the credit window to be opened again.
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(2)));
+            testPeer.expectLinkFlow(true, true, equalTo(UnsignedInteger.valueOf(2)));
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(2)));
+
+            MessageConsumer consumer = session.createConsumer(topic);
+            assertNull(consumer.receiveNoWait());
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            testPeer.expectDetach(true, true, true);
+            consumer.close();
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout=20000)
+    public void testTopicFanoutAcceptsUnmatchedMessage() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?amqp.topicFanout=true&jms.prefetchPolicy.topicPrefetch=2");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Topic topic = session.createTopic("myTopic");
+
+            // A message that no consumer selects is accepted so the peer does not redeliver it.
+            testPeer.expectReceiverAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, new AmqpValueDescribedType("content"),
+                1, false, false, equalTo(UnsignedInteger.valueOf(2)), 1, true);
+            testPeer.expectDisposition(true, new AcceptedMatcher());
+
+            MessageConsumer consumer = session.createConsumer(topic, TestAmqpPeer.MESSAGE_NUMBER + " > 0");
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            testPeer.expectDetach(true, true, true);
+            consumer.close();
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
 }
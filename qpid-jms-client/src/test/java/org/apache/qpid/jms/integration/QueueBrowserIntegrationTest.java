@@ -25,6 +25,7 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import javax.jms.Connection;
@@ -35,6 +36,7 @@ import javax.jms.Session;
 
 import org.apache.qpid.jms.JmsConnection;
 import org.apache.qpid.jms.JmsPrefetchPolicy;
+import org.apache.qpid.jms.JmsQueueBrowser;
 import org.apache.qpid.jms.test.QpidJmsTestCase;
 import org.apache.qpid.jms.test.testpeer.TestAmqpPeer;
 import org.apache.qpid.jms.test.testpeer.describedtypes.Declare;
@@ -178,6 +180,81 @@ public class QueueBrowserIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout=30000)
+    public void testQueueBrowserDrainsToDetectEndWithReceiveNoWaitLocalOnly() throws IOException, Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.receiveNoWaitLocalOnly=true");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // The browser should still drain the credit to confirm there are no messages
+            // rather than relying only on its local buffer as receiveNoWait would.
+            testPeer.expectQueueBrowserAttach();
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(JmsPrefetchPolicy.DEFAULT_QUEUE_BROWSER_PREFETCH)));
+            testPeer.expectLinkFlow(true, true, equalTo(UnsignedInteger.valueOf(JmsPrefetchPolicy.DEFAULT_QUEUE_BROWSER_PREFETCH)));
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(JmsPrefetchPolicy.DEFAULT_QUEUE_BROWSER_PREFETCH)));
+            testPeer.expectDetach(true, true, true);
+
+            QueueBrowser browser = session.createBrowser(queue);
+            Enumeration<?> queueView = browser.getEnumeration();
+            assertNotNull(queueView);
+            assertFalse(queueView.hasMoreElements());
+
+            browser.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
+    @Test(timeout=30000)
+    public void testQueueBrowserStreamsInFlightMessagesBeforeDraining() throws IOException, Exception {
+        final DescribedType amqpValueNullContent = new AmqpValueDescribedType(null);
+        final int messageCount = 3;
+
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.queueBrowserStreamTimeout=1000");
+            connection.start();
+
+            testPeer.expectBegin();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // Respond to the initial credit with the messages, these should be consumed
+            // from the credit window without any drain being performed.
+            testPeer.expectQueueBrowserAttach();
+            testPeer.expectLinkFlowRespondWithTransfer(null, null, null, null, amqpValueNullContent, messageCount, false, false,
+                equalTo(UnsignedInteger.valueOf(JmsPrefetchPolicy.DEFAULT_QUEUE_BROWSER_PREFETCH)), 1, true, false);
+
+            JmsQueueBrowser browser = (JmsQueueBrowser) session.createBrowser(queue);
+            Iterator<Message> queueView = browser.getIterator();
+            assertNotNull(queueView);
+
+            for (int i = 0; i < messageCount; ++i) {
+                assertTrue(queueView.hasNext());
+                assertNotNull(queueView.next());
+            }
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            // Once nothing more arrives the remaining credit is drained to detect the end.
+            int remainingCredit = JmsPrefetchPolicy.DEFAULT_QUEUE_BROWSER_PREFETCH - messageCount;
+            testPeer.expectLinkFlow(true, true, equalTo(UnsignedInteger.valueOf(remainingCredit)));
+            testPeer.expectLinkFlow(false, false, equalTo(UnsignedInteger.valueOf(JmsPrefetchPolicy.DEFAULT_QUEUE_BROWSER_PREFETCH)));
+            testPeer.expectDetach(true, true, true);
+
+            assertFalse(queueView.hasNext());
+
+            browser.close();
+
+            testPeer.waitForAllHandlersToComplete(3000);
+        }
+    }
+
     //----- Tests that cover QueueBrowser and Session Ack mode interaction ---//
 
     @Test(timeout=30000)
@@ -19,8 +19,11 @@
 package org.apache.qpid.jms.integration;
 
 import static org.apache.qpid.jms.provider.amqp.AmqpSupport.ANONYMOUS_RELAY;
+import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.arrayContaining;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
@@ -37,6 +40,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.jms.Connection;
 import javax.jms.Destination;
+import javax.jms.ExceptionListener;
 import javax.jms.IllegalStateException;
 import javax.jms.InvalidDestinationException;
 import javax.jms.InvalidSelectorException;
@@ -241,6 +245,114 @@ public class SessionIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout = 20000)
+    public void testCreateConsumersAsyncDoesNotWaitForAttachResponse() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.createResourcesAsync=true");
+            connection.start();
+
+            testPeer.expectBegin();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+
+            // The response to the first attach is only written along with the response to the
+            // second, so the second attach can only arrive if the first create did not wait.
+            testPeer.expectReceiverAttach(notNullValue(), notNullValue(), false, false, true);
+            expectPipelinedLinkFlow(testPeer);
+            testPeer.expectReceiverAttach();
+            expectPipelinedLinkFlow(testPeer);
+
+            MessageConsumer first = session.createConsumer(queue);
+            MessageConsumer second = session.createConsumer(queue);
+
+            testPeer.waitForAllHandlersToComplete(3000);
+
+            assertNotNull(first);
+            assertNotNull(second);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testCreateConsumerAsyncFailureThrownOnFirstUse() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.createResourcesAsync=true");
+            connection.start();
+
+            final CountDownLatch exceptionListenerFired = new CountDownLatch(1);
+            connection.setExceptionListener(new ExceptionListener() {
+
+                @Override
+                public void onException(JMSException exception) {
+                    exceptionListenerFired.countDown();
+                }
+            });
+
+            testPeer.expectBegin();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+            String topicName = "myTopic";
+            Topic dest = session.createTopic(topicName);
+
+            testPeer.expectReceiverAttach(notNullValue(), notNullValue(), true, false);
+            expectPipelinedLinkFlow(testPeer);
+            testPeer.expectDetach(true, false, false);
+
+            // Creation returns without waiting, the refusal surfaces when the consumer is used.
+            MessageConsumer consumer = session.createConsumer(dest);
+
+            try {
+                consumer.receive();
+                fail("Receive should have failed when link was refused");
+            } catch (IllegalStateException ise) {
+                assertTrue(ise.getCause() instanceof InvalidDestinationException);
+            }
+
+            assertTrue("ExceptionListener should have been notified", exceptionListenerFired.await(5, TimeUnit.SECONDS));
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testCreateProducerAsyncThenSend() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+            Connection connection = testFixture.establishConnecton(testPeer, "?jms.createResourcesAsync=true");
+
+            testPeer.expectBegin();
+            testPeer.expectSenderAttach();
+
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = session.createQueue("myQueue");
+            MessageProducer producer = session.createProducer(queue);
+
+            MessageHeaderSectionMatcher headersMatcher = new MessageHeaderSectionMatcher(true);
+            TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+            messageMatcher.setHeadersMatcher(headersMatcher);
+            testPeer.expectTransfer(messageMatcher);
+
+            producer.send(session.createMessage());
+
+            testPeer.expectDetach(true, true, true);
+            producer.close();
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    private void expectPipelinedLinkFlow(TestAmqpPeer testPeer) {
+        // Credit is granted without waiting for the session or link to open, so the flow
+        // may be sent before the begin response and then carries no next-incoming-id.
+        testPeer.expectLinkFlow(false, greaterThan(UnsignedInteger.ZERO), anyOf(nullValue(), greaterThanOrEqualTo(UnsignedInteger.ONE)));
+    }
+
     @Test(timeout = 20000)
     public void testCreateConsumerFailsWhenLinkRefusalResponseNotSent() throws Exception {
         try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
@@ -859,6 +971,108 @@ public class SessionIntegrationTest extends QpidJmsTestCase {
         }
     }
 
+    @Test(timeout = 20000)
+    public void testAnonymousProducerCachedSenderReusedAndClosedWhenIdle() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+
+            //DO NOT add capability to indicate server support for ANONYMOUS-RELAY
+
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?amqp.anonymousProducerCache=true&amqp.anonymousProducerCacheTimeout=200");
+            connection.start();
+
+            testPeer.expectBegin();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+            String queueName = "myQueue";
+            Queue dest = session.createQueue(queueName);
+
+            MessageProducer producer = session.createProducer(null);
+            assertNotNull("Producer object was null", producer);
+
+            // Expect a single sender link to be created and used for both sends, then
+            // closed once it has remained unused for longer than the cache timeout.
+            TargetMatcher targetMatcher = new TargetMatcher();
+            targetMatcher.withAddress(equalTo(queueName));
+            targetMatcher.withDynamic(equalTo(false));
+            targetMatcher.withDurable(equalTo(TerminusDurability.NONE));
+            targetMatcher.withCapabilities(arrayContaining(AmqpDestinationHelper.QUEUE_CAPABILITY));
+
+            MessageHeaderSectionMatcher headersMatcher = new MessageHeaderSectionMatcher(true);
+            MessageAnnotationsSectionMatcher msgAnnotationsMatcher = new MessageAnnotationsSectionMatcher(true);
+            TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+            messageMatcher.setHeadersMatcher(headersMatcher);
+            messageMatcher.setMessageAnnotationsMatcher(msgAnnotationsMatcher);
+
+            testPeer.expectSenderAttach(targetMatcher, false, false);
+            testPeer.expectTransfer(messageMatcher);
+            testPeer.expectTransfer(messageMatcher);
+
+            producer.send(dest, session.createMessage());
+            producer.send(dest, session.createMessage());
+
+            testPeer.waitForAllHandlersToComplete(1000);
+
+            testPeer.expectDetach(true, true, true);
+            testPeer.waitForAllHandlersToComplete(2000);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testAnonymousProducerCachedSenderNotClosedWhileSendAwaitsCredit() throws Exception {
+        try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
+
+            //DO NOT add capability to indicate server support for ANONYMOUS-RELAY
+
+            Connection connection = testFixture.establishConnecton(testPeer,
+                "?amqp.anonymousProducerCache=true&amqp.anonymousProducerCacheTimeout=200");
+            connection.start();
+
+            testPeer.expectBegin();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+            String queueName = "myQueue";
+            Queue dest = session.createQueue(queueName);
+
+            MessageProducer producer = session.createProducer(null);
+            assertNotNull("Producer object was null", producer);
+
+            // Credit is withheld for longer than the cache timeout, the sender must not be
+            // closed by the idle sweep while the send waits for it and must then be reused.
+            TargetMatcher targetMatcher = new TargetMatcher();
+            targetMatcher.withAddress(equalTo(queueName));
+            targetMatcher.withDynamic(equalTo(false));
+            targetMatcher.withDurable(equalTo(TerminusDurability.NONE));
+            targetMatcher.withCapabilities(arrayContaining(AmqpDestinationHelper.QUEUE_CAPABILITY));
+
+            TransferPayloadCompositeMatcher messageMatcher = new TransferPayloadCompositeMatcher();
+            messageMatcher.setHeadersMatcher(new MessageHeaderSectionMatcher(true));
+            messageMatcher.setMessageAnnotationsMatcher(new MessageAnnotationsSectionMatcher(true));
+
+            testPeer.expectSenderAttach(notNullValue(), targetMatcher, false, false, false, 800, null, null);
+            testPeer.expectTransfer(messageMatcher);
+            testPeer.expectTransfer(messageMatcher);
+
+            producer.send(dest, session.createMessage());
+            producer.send(dest, session.createMessage());
+
+            testPeer.waitForAllHandlersToComplete(1000);
+
+            testPeer.expectDetach(true, true, true);
+            testPeer.waitForAllHandlersToComplete(2000);
+
+            testPeer.expectClose();
+            connection.close();
+
+            testPeer.waitForAllHandlersToComplete(1000);
+        }
+    }
+
     @Test(timeout = 20000)
     public void testCreateDurableTopicSubscriber() throws Exception {
         try (TestAmqpPeer testPeer = new TestAmqpPeer();) {
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.junit.Test;
+
+/**
+ * Test for the behavior of the ProviderWaitStrategy
+ */
+public class ProviderWaitStrategyTest extends QpidJmsTestCase {
+
+    @Test
+    public void testCreateWithoutSpinOrYieldParks() {
+        assertSame(ProviderWaitStrategy.PARK, ProviderWaitStrategy.create(0, 0));
+        assertSame(ProviderWaitStrategy.PARK, ProviderWaitStrategy.create(-1, -1));
+    }
+
+    @Test
+    public void testCreate() {
+        ProviderWaitStrategy strategy = ProviderWaitStrategy.create(100, -1);
+        assertEquals(100, strategy.getSpinTime());
+        assertEquals(0, strategy.getYieldTime());
+    }
+
+    @Test(timeout = 10000)
+    public void testTimedAwaitElapsesWhileSpinning() throws Exception {
+        ProviderWaitStrategy strategy = ProviderWaitStrategy.create(TimeUnit.SECONDS.toNanos(5), 0);
+
+        long start = System.nanoTime();
+        assertFalse(strategy.await(new CountDownLatch(1), 50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test(timeout = 10000)
+    public void testTimedAwaitParksAfterSpinAndYield() throws Exception {
+        ProviderWaitStrategy strategy = ProviderWaitStrategy.create(
+            TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(10));
+
+        long start = System.nanoTime();
+        assertFalse(strategy.await(new CountDownLatch(1), 100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test(timeout = 10000)
+    public void testYieldsRatherThanParksWithLargeYieldTime() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final ProviderWaitStrategy strategy = ProviderWaitStrategy.create(TimeUnit.MILLISECONDS.toNanos(1), Long.MAX_VALUE);
+
+        Thread waiter = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    strategy.await(latch);
+                } catch (InterruptedException e) {
+                }
+            }
+        });
+        waiter.start();
+
+        // The yield phase never ends before the latch is released so the waiter never parks.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+        while (System.nanoTime() < deadline) {
+            assertFalse(waiter.getState() == Thread.State.WAITING);
+        }
+
+        latch.countDown();
+        waiter.join();
+    }
+
+    @Test
+    public void testAwaitReleasedLatchReturnsImmediately() throws Exception {
+        CountDownLatch latch = new CountDownLatch(0);
+        ProviderWaitStrategy strategy = ProviderWaitStrategy.create(TimeUnit.SECONDS.toNanos(5), 0);
+
+        long start = System.nanoTime();
+        strategy.await(latch);
+        assertTrue(strategy.await(latch, 5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test(timeout = 10000)
+    public void testFutureCompletedWhileSpinning() throws Exception {
+        final ProviderFuture future = new ProviderFuture(null, ProviderWaitStrategy.create(TimeUnit.SECONDS.toNanos(5), 0));
+
+        Thread completer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                future.onSuccess();
+            }
+        });
+        completer.start();
+
+        long start = System.nanoTime();
+        future.sync();
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test(timeout = 10000)
+    public void testFutureCompletedAfterParking() throws Exception {
+        final ProviderFuture future = new ProviderFuture(null, ProviderWaitStrategy.create(1000, 1000));
+
+        Thread completer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                }
+                future.onFailure(new IOException("failed"));
+            }
+        });
+        completer.start();
+
+        try {
+            future.sync();
+            fail("Should have thrown the failure");
+        } catch (IOException ex) {
+            assertEquals("failed", ex.getMessage());
+        }
+    }
+}
@@ -73,6 +73,12 @@ public class AmqpProviderFactoryTest extends QpidJmsTestCase {
         AmqpProviderFactory.create(badOptionsURI);
     }
 
+    @Test(timeout = 20000, expected=IllegalArgumentException.class)
+    public void testCreateProviderFailsWithUnknownObjectMessageSerializer() throws IOException, Exception {
+        URI badOptionsURI = new URI(peerURI.toString() + "?amqp.objectMessageSerializer=unknown");
+        AmqpProviderFactory.create(badOptionsURI);
+    }
+
     @Test(timeout = 20000)
     public void testCreateProviderHasDefaultIdleTimeoutValue() throws IOException, Exception {
         Provider provider = AmqpProviderFactory.create(new URI(peerURI.toString()));
@@ -112,7 +118,17 @@ public class AmqpProviderFactoryTest extends QpidJmsTestCase {
             "&amqp.presettleProducers=true" +
             "&amqp.traceFrames=true" +
             "&amqp.traceBytes=true" +
-            "&amqp.channelMax=32");
+            "&amqp.channelMax=32" +
+            "&amqp.anonymousProducerCache=true" +
+            "&amqp.anonymousProducerCacheSize=64" +
+            "&amqp.anonymousProducerCacheTimeout=5000" +
+            "&amqp.clientSideSelectors=true" +
+            "&amqp.topicFanout=true" +
+            "&amqp.textAsData=true" +
+            "&amqp.objectMessageSerializer=java" +
+            "&amqp.compression=true" +
+            "&amqp.compressionThreshold=1024" +
+            "&amqp.maxInflatedSize=4096");
         Provider provider = AmqpProviderFactory.create(configuredURI);
         assertNotNull(provider);
         assertTrue(provider instanceof AmqpProvider);
@@ -124,6 +140,16 @@ public class AmqpProviderFactoryTest extends QpidJmsTestCase {
         assertEquals(true, amqpProvider.isTraceBytes());
         assertEquals(true, amqpProvider.isTraceFrames());
         assertEquals(32, amqpProvider.getChannelMax());
+        assertEquals(true, amqpProvider.isAnonymousProducerCache());
+        assertEquals(64, amqpProvider.getAnonymousProducerCacheSize());
+        assertEquals(5000, amqpProvider.getAnonymousProducerCacheTimeout());
+        assertEquals(true, amqpProvider.isClientSideSelectors());
+        assertEquals(true, amqpProvider.isTopicFanout());
+        assertEquals(true, amqpProvider.isTextAsData());
+        assertEquals("java", amqpProvider.getObjectMessageSerializer());
+        assertEquals(true, amqpProvider.isCompression());
+        assertEquals(1024, amqpProvider.getCompressionThreshold());
+        assertEquals(4096, amqpProvider.getMaxInflatedSize());
     }
 
     @Test(timeout = 20000)
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Data;
+import org.apache.qpid.proton.amqp.messaging.Section;
+import org.apache.qpid.proton.message.Message;
+import org.junit.Test;
+
+public class AmqpCompressionSupportTest {
+
+    private static final String TEXT;
+    static {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 100 * 1024) {
+            builder.append("<entry id=\"").append(builder.length()).append("\">value</entry>");
+        }
+        TEXT = builder.toString();
+    }
+
+    @Test
+    public void testDeflateInflateRoundTrip() throws Exception {
+        Binary original = new Binary(TEXT.getBytes(StandardCharsets.UTF_8));
+
+        Binary compressed = AmqpCompressionSupport.deflate(original);
+        assertTrue(compressed.getLength() < original.getLength());
+        assertEquals(original, AmqpCompressionSupport.inflate(compressed));
+    }
+
+    @Test
+    public void testDeflateInflateEmpty() throws Exception {
+        Binary original = new Binary(new byte[0]);
+        assertEquals(original, AmqpCompressionSupport.inflate(AmqpCompressionSupport.deflate(original)));
+    }
+
+    @Test
+    public void testInflateInvalidDataThrows() throws Exception {
+        Binary compressed = AmqpCompressionSupport.deflate(new Binary(TEXT.getBytes(StandardCharsets.UTF_8)));
+
+        try {
+            AmqpCompressionSupport.inflate(compressed.subBinary(0, compressed.getLength() / 2));
+            fail("Should have failed to inflate truncated data");
+        } catch (IOException e) {
+            // expected
+        }
+
+        try {
+            AmqpCompressionSupport.inflate(new Binary(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+            fail("Should have failed to inflate invalid data");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInflateLimitsInflatedSize() throws Exception {
+        Binary original = new Binary(TEXT.getBytes(StandardCharsets.UTF_8));
+        Binary compressed = AmqpCompressionSupport.deflate(original);
+
+        assertEquals(original, AmqpCompressionSupport.inflate(compressed, original.getLength()));
+
+        try {
+            AmqpCompressionSupport.inflate(compressed, original.getLength() - 1);
+            fail("Should have failed to inflate data larger than the limit");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCompressBodyOfDataSection() throws Exception {
+        Binary original = new Binary(TEXT.getBytes(StandardCharsets.UTF_8));
+        Message message = Proton.message();
+        message.setContentType(AmqpMessageSupport.OCTET_STREAM_CONTENT_TYPE);
+        message.setBody(new Data(original));
+
+        assertTrue(AmqpCompressionSupport.compressBody(message, 1024));
+        assertTrue(AmqpCompressionSupport.isCompressed(message));
+        assertEquals(AmqpCompressionSupport.DEFLATE_CONTENT_ENCODING, message.getContentEncoding());
+        assertEquals(AmqpMessageSupport.OCTET_STREAM_CONTENT_TYPE, message.getContentType());
+        assertEquals(original, AmqpCompressionSupport.inflate(((Data) message.getBody()).getValue()));
+    }
+
+    @Test
+    public void testCompressBodyOfStringValue() throws Exception {
+        Message message = Proton.message();
+        message.setBody(new AmqpValue(TEXT));
+
+        assertTrue(AmqpCompressionSupport.compressBody(message, 1024));
+        assertTrue(message.getBody() instanceof Data);
+        assertEquals(AmqpMessageSupport.TEXT_PLAIN_UTF8_CONTENT_TYPE, message.getContentType());
+
+        Binary inflated = AmqpCompressionSupport.inflate(((Data) message.getBody()).getValue());
+        assertEquals(TEXT, new String(inflated.getArray(), inflated.getArrayOffset(), inflated.getLength(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCompressBodyBelowThresholdIsUnchanged() throws Exception {
+        Message message = Proton.message();
+        Section body = new AmqpValue(TEXT);
+        message.setBody(body);
+
+        assertFalse(AmqpCompressionSupport.compressBody(message, TEXT.length() + 1));
+        assertSame(body, message.getBody());
+        assertNull(message.getContentEncoding());
+    }
+
+    @Test
+    public void testCompressBodyThatDoesNotShrinkIsUnchanged() throws Exception {
+        byte[] random = new byte[4096];
+        new Random(1).nextBytes(random);
+
+        Message message = Proton.message();
+        Section body = new Data(new Binary(random));
+        message.setBody(body);
+
+        assertFalse(AmqpCompressionSupport.compressBody(message, 1024));
+        assertSame(body, message.getBody());
+        assertNull(message.getContentEncoding());
+    }
+
+    @Test
+    public void testCompressBodyWithExistingContentEncodingIsUnchanged() throws Exception {
+        Message message = Proton.message();
+        Section body = new AmqpValue(TEXT);
+        message.setBody(body);
+        message.setContentEncoding("gzip");
+
+        assertFalse(AmqpCompressionSupport.compressBody(message, 1024));
+        assertSame(body, message.getBody());
+        assertFalse(AmqpCompressionSupport.isCompressed(message));
+    }
+}
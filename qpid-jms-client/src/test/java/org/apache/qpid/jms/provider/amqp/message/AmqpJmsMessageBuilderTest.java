@@ -23,7 +23,9 @@ package org.apache.qpid.jms.provider.amqp.message;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -33,12 +35,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.jms.JMSException;
+
 import org.apache.qpid.jms.message.JmsBytesMessage;
 import org.apache.qpid.jms.message.JmsMessage;
 import org.apache.qpid.jms.message.JmsObjectMessage;
 import org.apache.qpid.jms.message.JmsStreamMessage;
 import org.apache.qpid.jms.message.JmsTextMessage;
 import org.apache.qpid.jms.message.facade.JmsMessageFacade;
+import org.apache.qpid.jms.provider.amqp.AmqpConnection;
 import org.apache.qpid.jms.provider.amqp.AmqpConsumer;
 import org.apache.qpid.jms.test.QpidJmsTestCase;
 import org.apache.qpid.proton.Proton;
@@ -726,4 +731,114 @@ public class AmqpJmsMessageBuilderTest extends QpidJmsTestCase {
         AmqpObjectTypeDelegate delegate = ((AmqpJmsObjectMessageFacade) facade).getDelegate();
         assertTrue("Unexpected delegate type: " + delegate, delegate instanceof AmqpTypedObjectDelegate);
     }
+
+    // =============== With A Compressed Body =========
+    // ================================================
+
+    @Test
+    public void testCreateTextMessageFromCompressedBodyWhenCompressionEnabled() throws Exception {
+        String text = createCompressibleText(4096);
+        Message message = Proton.message();
+        message.setBody(new AmqpValue(text));
+        assertTrue(AmqpCompressionSupport.compressBody(message, 1024));
+
+        Map<Symbol, Object> map = new HashMap<Symbol, Object>();
+        map.put(Symbol.valueOf(AmqpMessageSupport.JMS_MSG_TYPE), AmqpMessageSupport.JMS_TEXT_MESSAGE);
+        message.setMessageAnnotations(new MessageAnnotations(map));
+
+        Data compressed = (Data) message.getBody();
+
+        JmsMessage jmsMessage = AmqpJmsMessageBuilder.createJmsMessage(createCompressionConsumer(true), message);
+        assertEquals("Unexpected message class type", JmsTextMessage.class, jmsMessage.getClass());
+
+        // The body is only inflated once it is accessed.
+        assertSame(compressed, message.getBody());
+        assertEquals(text, ((JmsTextMessage) jmsMessage).getText());
+        assertNull(message.getContentEncoding());
+    }
+
+    @Test
+    public void testCreateBytesMessageFromCompressedBodyWhenCompressionEnabled() throws Exception {
+        byte[] bytes = createCompressibleText(4096).getBytes(StandardCharsets.UTF_8);
+        Message message = Proton.message();
+        message.setContentType(AmqpMessageSupport.OCTET_STREAM_CONTENT_TYPE);
+        message.setBody(new Data(new Binary(bytes)));
+        assertTrue(AmqpCompressionSupport.compressBody(message, 1024));
+
+        JmsMessage jmsMessage = AmqpJmsMessageBuilder.createJmsMessage(createCompressionConsumer(true), message);
+        assertEquals("Unexpected message class type", JmsBytesMessage.class, jmsMessage.getClass());
+
+        JmsBytesMessage bytesMessage = (JmsBytesMessage) jmsMessage;
+        bytesMessage.onDispatch();
+        assertEquals(bytes.length, bytesMessage.getBodyLength());
+        byte[] received = new byte[bytes.length];
+        bytesMessage.readBytes(received);
+        assertEquals(new Binary(bytes), new Binary(received));
+    }
+
+    @Test
+    public void testCreateRawBytesMessageFromCompressedBodyWhenCompressionDisabled() throws Exception {
+        String text = createCompressibleText(4096);
+        Message message = Proton.message();
+        message.setBody(new AmqpValue(text));
+        assertTrue(AmqpCompressionSupport.compressBody(message, 1024));
+
+        Map<Symbol, Object> map = new HashMap<Symbol, Object>();
+        map.put(Symbol.valueOf(AmqpMessageSupport.JMS_MSG_TYPE), AmqpMessageSupport.JMS_TEXT_MESSAGE);
+        message.setMessageAnnotations(new MessageAnnotations(map));
+
+        Binary compressed = ((Data) message.getBody()).getValue();
+
+        JmsMessage jmsMessage = AmqpJmsMessageBuilder.createJmsMessage(createCompressionConsumer(false), message);
+        assertEquals("Unexpected message class type", JmsBytesMessage.class, jmsMessage.getClass());
+        assertEquals(AmqpCompressionSupport.DEFLATE_CONTENT_ENCODING,
+                     jmsMessage.getStringProperty(AmqpMessageSupport.JMS_AMQP_CONTENT_ENCODING));
+
+        JmsBytesMessage bytesMessage = (JmsBytesMessage) jmsMessage;
+        bytesMessage.onDispatch();
+        assertEquals(compressed.getLength(), bytesMessage.getBodyLength());
+    }
+
+    @Test
+    public void testCompressedBodyLargerThanMaxInflatedSizeFailsWithJMSException() throws Exception {
+        String text = createCompressibleText(4096);
+        Message message = Proton.message();
+        message.setBody(new AmqpValue(text));
+        assertTrue(AmqpCompressionSupport.compressBody(message, 1024));
+
+        Map<Symbol, Object> map = new HashMap<Symbol, Object>();
+        map.put(Symbol.valueOf(AmqpMessageSupport.JMS_MSG_TYPE), AmqpMessageSupport.JMS_TEXT_MESSAGE);
+        message.setMessageAnnotations(new MessageAnnotations(map));
+
+        JmsMessage jmsMessage = AmqpJmsMessageBuilder.createJmsMessage(createCompressionConsumer(true, 1024), message);
+        assertEquals("Unexpected message class type", JmsTextMessage.class, jmsMessage.getClass());
+
+        try {
+            ((JmsTextMessage) jmsMessage).getText();
+            fail("Should have failed to inflate a body larger than the limit");
+        } catch (JMSException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    private AmqpConsumer createCompressionConsumer(boolean compression) {
+        return createCompressionConsumer(compression, AmqpCompressionSupport.DEFAULT_MAX_INFLATED_SIZE);
+    }
+
+    private AmqpConsumer createCompressionConsumer(boolean compression, int maxInflatedSize) {
+        AmqpConnection connection = Mockito.mock(AmqpConnection.class);
+        Mockito.when(connection.isCompression()).thenReturn(compression);
+        Mockito.when(connection.getMaxInflatedSize()).thenReturn(maxInflatedSize);
+        AmqpConsumer consumer = Mockito.mock(AmqpConsumer.class);
+        Mockito.when(consumer.getConnection()).thenReturn(connection);
+        return consumer;
+    }
+
+    private static String createCompressibleText(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append("{\"key\":\"value\",\"number\":").append(builder.length()).append("}");
+        }
+        return builder.toString();
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.amqp.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.jms.JMSException;
+
+import org.apache.qpid.jms.selector.SelectorParser;
+import org.apache.qpid.jms.selector.filter.FilterException;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class AmqpJmsMessageFilterableTest {
+
+    @Test
+    public void testGetDeliveryMode() throws JMSException {
+        AmqpJmsMessageFacade message = Mockito.mock(AmqpJmsMessageFacade.class);
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable().reset(message);
+
+        Mockito.when(message.isPersistent()).thenReturn(true);
+        assertEquals("PERSISTENT", filterable.getProperty("JMSDeliveryMode"));
+        Mockito.when(message.isPersistent()).thenReturn(false);
+        assertEquals("NON_PERSISTENT", filterable.getProperty("JMSDeliveryMode"));
+    }
+
+    @Test
+    public void testGetHeaderValues() throws JMSException {
+        AmqpJmsMessageFacade message = Mockito.mock(AmqpJmsMessageFacade.class);
+        Mockito.when(message.getPriority()).thenReturn(7);
+        Mockito.when(message.getMessageId()).thenReturn("ID:1");
+        Mockito.when(message.getTimestamp()).thenReturn(42L);
+        Mockito.when(message.getCorrelationId()).thenReturn("ID:2");
+        Mockito.when(message.getType()).thenReturn("type");
+
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable().reset(message);
+
+        assertEquals(7, filterable.getProperty("JMSPriority"));
+        assertEquals("ID:1", filterable.getProperty("JMSMessageID"));
+        assertEquals(42L, filterable.getProperty("JMSTimestamp"));
+        assertEquals("ID:2", filterable.getProperty("JMSCorrelationID"));
+        assertEquals("type", filterable.getProperty("JMSType"));
+    }
+
+    @Test
+    public void testGetApplicationProperty() throws JMSException {
+        AmqpJmsMessageFacade message = Mockito.mock(AmqpJmsMessageFacade.class);
+        Mockito.when(message.getApplicationProperty("color")).thenReturn("red");
+
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable().reset(message);
+
+        assertEquals("red", filterable.getProperty("color"));
+        assertNull(filterable.getProperty("size"));
+    }
+
+    @Test
+    public void testGetPropertyReturnsNullOnError() throws JMSException {
+        AmqpJmsMessageFacade message = Mockito.mock(AmqpJmsMessageFacade.class);
+        Mockito.when(message.getApplicationProperty("color")).thenThrow(new JMSException("Expected"));
+
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable().reset(message);
+
+        assertNull(filterable.getProperty("color"));
+    }
+
+    @Test
+    public void testSelectorMatchesAgainstFilterable() throws Exception {
+        AmqpJmsMessageFacade message = Mockito.mock(AmqpJmsMessageFacade.class);
+        Mockito.when(message.getPriority()).thenReturn(9);
+        Mockito.when(message.getApplicationProperty("color")).thenReturn("red");
+
+        AmqpJmsMessageFilterable filterable = new AmqpJmsMessageFilterable().reset(message);
+
+        assertTrue(matches(filterable, "color = 'red' AND JMSPriority > 4"));
+        assertFalse(matches(filterable, "color = 'blue'"));
+        assertFalse(matches(filterable, "JMSPriority < 4"));
+    }
+
+    private boolean matches(AmqpJmsMessageFilterable filterable, String selector) throws FilterException {
+        return SelectorParser.parse(selector).matches(filterable);
+    }
+}
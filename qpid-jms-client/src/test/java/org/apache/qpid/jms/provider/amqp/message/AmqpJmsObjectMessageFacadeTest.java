@@ -36,6 +36,10 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.qpid.jms.provider.amqp.AmqpConnection;
+import org.apache.qpid.jms.serialization.ObjectSerializer;
+import org.apache.qpid.jms.serialization.ObjectSerializerFinder;
+import org.apache.qpid.jms.serialization.TestObjectSerializer;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.Symbol;
 import org.apache.qpid.proton.amqp.messaging.AmqpValue;
@@ -44,6 +48,7 @@ import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
 import org.apache.qpid.proton.amqp.messaging.Section;
 import org.apache.qpid.proton.message.Message;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 /**
  * Tests for class AmqpJmsObjectMessageFacade
@@ -285,4 +290,50 @@ public class AmqpJmsObjectMessageFacadeTest extends AmqpJmsMessageTypesTestCase
             // expected
         }
     }
+
+    // ---------- test use of configured serializers -------------------------//
+
+    @Test
+    public void testSetObjectUsesConnectionSerializerAndContentType() throws Exception {
+        ObjectSerializer serializer = ObjectSerializerFinder.findSerializer(TestObjectSerializer.NAME);
+        AmqpConnection connection = createMockAmqpConnection();
+        Mockito.when(connection.getObjectMessageSerializer()).thenReturn(serializer);
+
+        HashMap<String, String> origMap = new HashMap<String, String>();
+        origMap.put("key1", "value1");
+
+        AmqpJmsObjectMessageFacade amqpObjectMessageFacade = new AmqpJmsObjectMessageFacade(connection, false);
+        amqpObjectMessageFacade.setObject(origMap);
+        amqpObjectMessageFacade.onSend(0);
+
+        Message protonMessage = amqpObjectMessageFacade.getAmqpMessage();
+        assertEquals(TestObjectSerializer.CONTENT_TYPE, protonMessage.getContentType());
+        assertTrue(protonMessage.getBody() instanceof Data);
+        assertEquals(origMap, amqpObjectMessageFacade.getObject());
+    }
+
+    @Test
+    public void testGetObjectUsingReceivedMessageSelectsSerializerByContentTypeAndCaches() throws Exception {
+        ObjectSerializer serializer = ObjectSerializerFinder.findSerializer(TestObjectSerializer.NAME);
+
+        HashMap<String, String> origMap = new HashMap<String, String>();
+        origMap.put("key1", "value1");
+
+        Message message = Message.Factory.create();
+        message.setContentType(TestObjectSerializer.CONTENT_TYPE);
+        message.setBody(new Data(new Binary(serializer.serialize(origMap))));
+
+        AmqpJmsObjectMessageFacade amqpObjectMessageFacade = createReceivedObjectMessageFacade(createMockAmqpConsumer(), message);
+        assertTrue(amqpObjectMessageFacade.getDelegate() instanceof AmqpSerializedObjectDelegate);
+        assertSame(serializer, ((AmqpSerializedObjectDelegate) amqpObjectMessageFacade.getDelegate()).getSerializer());
+
+        // The test serializer allows decoded objects to be cached so the same instance is returned.
+        Serializable returned = amqpObjectMessageFacade.getObject();
+        assertEquals(origMap, returned);
+        assertSame(returned, amqpObjectMessageFacade.getObject());
+
+        // Setting a new value must discard the cached object.
+        amqpObjectMessageFacade.setObject("replacement");
+        assertEquals("replacement", amqpObjectMessageFacade.getObject());
+    }
 }
@@ -22,6 +22,7 @@ import static org.apache.qpid.jms.provider.amqp.message.AmqpMessageSupport.getSy
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -31,6 +32,7 @@ import java.util.Map;
 
 import javax.jms.JMSException;
 
+import org.apache.qpid.jms.provider.amqp.AmqpConnection;
 import org.apache.qpid.jms.test.testpeer.describedtypes.sections.DataDescribedType;
 import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.Symbol;
@@ -40,6 +42,7 @@ import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
 import org.apache.qpid.proton.message.Message;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 /**
  * Tests for class AmqpJmsTextMessageFacade
@@ -246,4 +249,47 @@ public class AmqpJmsTextMessageFacadeTest extends AmqpJmsMessageTypesTestCase {
             // expected
         }
     }
+
+    @Test
+    public void testGetTextUsingReceivedMessageWithDataSectionDecodesOnce() throws Exception {
+        Message message = Message.Factory.create();
+        message.setBody(new Data(new Binary("myEncodedString".getBytes(Charset.forName("UTF-8")))));
+        AmqpJmsTextMessageFacade amqpTextMessageFacade = createReceivedTextMessageFacade(createMockAmqpConsumer(), message);
+
+        String text = amqpTextMessageFacade.getText();
+        assertEquals("myEncodedString", text);
+        assertSame(text, amqpTextMessageFacade.getText());
+
+        // Replacing the body directly must not return the previously decoded text.
+        message.setBody(new Data(new Binary("myOtherString".getBytes(Charset.forName("UTF-8")))));
+        assertEquals("myOtherString", amqpTextMessageFacade.getText());
+    }
+
+    @Test
+    public void testSetTextWithTextAsDataEnabledUsesDataSection() throws Exception {
+        AmqpConnection connection = createMockAmqpConnection();
+        Mockito.when(connection.isTextAsData()).thenReturn(true);
+        AmqpJmsTextMessageFacade amqpTextMessageFacade = new AmqpJmsTextMessageFacade(connection);
+
+        String text = "myTextWithMultiByteCharacters\u00e9\u4e2d";
+        amqpTextMessageFacade.setText(text);
+
+        Message message = amqpTextMessageFacade.getAmqpMessage();
+        assertTrue(message.getBody() instanceof Data);
+        assertEquals(AmqpMessageSupport.TEXT_PLAIN_UTF8_CONTENT_TYPE, message.getContentType());
+
+        Binary data = ((Data) message.getBody()).getValue();
+        assertEquals(text, new String(data.getArray(), data.getArrayOffset(), data.getLength(), Charset.forName("UTF-8")));
+        assertSame(text, amqpTextMessageFacade.getText());
+
+        // A received copy of the message must decode to the same text.
+        AmqpJmsTextMessageFacade received = createReceivedTextMessageFacade(createMockAmqpConsumer(), message);
+        assertEquals(text, received.getText());
+
+        // Clearing the body reverts to an empty AmqpValue and removes the content type.
+        amqpTextMessageFacade.clearBody();
+        assertTrue(message.getBody() instanceof AmqpValue);
+        assertNull(message.getContentType());
+        assertNull(amqpTextMessageFacade.getText());
+    }
 }
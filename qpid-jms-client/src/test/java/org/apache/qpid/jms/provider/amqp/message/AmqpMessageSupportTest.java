@@ -16,16 +16,23 @@
  */
 package org.apache.qpid.jms.provider.amqp.message;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.qpid.proton.Proton;
+import org.apache.qpid.proton.amqp.Binary;
 import org.apache.qpid.proton.amqp.Symbol;
+import org.apache.qpid.proton.amqp.messaging.AmqpSequence;
+import org.apache.qpid.proton.amqp.messaging.AmqpValue;
+import org.apache.qpid.proton.amqp.messaging.Data;
 import org.apache.qpid.proton.amqp.messaging.MessageAnnotations;
 import org.apache.qpid.proton.message.Message;
 import org.junit.Test;
@@ -110,4 +117,56 @@ public class AmqpMessageSupportTest {
         message.setContentType("test");
         assertFalse(AmqpMessageSupport.isContentType(null, message));
     }
+
+    //---------- estimateEncodedSize -----------------------------------------//
+
+    @Test
+    public void testEstimateEncodedSizeOfNull() {
+        assertEquals(1, AmqpMessageSupport.estimateEncodedSize(null));
+    }
+
+    @Test
+    public void testEstimateEncodedSizeCoversDataBody() {
+        Message message = Proton.message();
+        message.setBody(new Data(new Binary(new byte[1024])));
+
+        assertEstimateCoversEncoding(message);
+    }
+
+    @Test
+    public void testEstimateEncodedSizeCoversMapBody() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i < 32; ++i) {
+            map.put("key-" + i, "value-" + i);
+            map.put("long-" + i, Long.valueOf(i));
+        }
+
+        Message message = Proton.message();
+        message.setBody(new AmqpValue(map));
+
+        assertEstimateCoversEncoding(message);
+    }
+
+    @Test
+    public void testEstimateEncodedSizeCoversSequenceBody() {
+        List<Object> list = new ArrayList<Object>();
+        for (int i = 0; i < 32; ++i) {
+            list.add("element-" + i);
+            list.add(new Binary(new byte[i]));
+        }
+
+        Message message = Proton.message();
+        message.setBody(new AmqpSequence(list));
+
+        assertEstimateCoversEncoding(message);
+    }
+
+    private void assertEstimateCoversEncoding(Message message) {
+        byte[] buffer = new byte[64 * 1024];
+        int encoded = message.encode(buffer, 0, buffer.length);
+        int estimated = AmqpMessageSupport.estimateEncodedSize(message.getBody());
+
+        assertTrue("Estimate " + estimated + " smaller than encoding " + encoded, estimated >= encoded);
+        assertTrue("Estimate " + estimated + " far larger than encoding " + encoded, estimated <= encoded * 2);
+    }
 }
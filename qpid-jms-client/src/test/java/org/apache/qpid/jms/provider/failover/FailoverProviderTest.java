@@ -38,9 +38,12 @@ import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.MessageProducer;
 import javax.jms.Queue;
+import javax.jms.ResourceAllocationException;
 import javax.jms.Session;
 
 import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
+import org.apache.qpid.jms.message.facade.test.JmsTestMessageFactory;
 import org.apache.qpid.jms.meta.JmsConnectionInfo;
 import org.apache.qpid.jms.meta.JmsConsumerInfo;
 import org.apache.qpid.jms.meta.JmsProducerInfo;
@@ -140,6 +143,31 @@ public class FailoverProviderTest extends FailoverProviderTestSupport {
         }, TimeUnit.SECONDS.toMillis(20), 10));
     }
 
+    @Test(timeout = 30000)
+    public void testAddAndRemoveUrisAreAppliedInOrder() throws Exception {
+        provider = new FailoverProvider(Collections.<String, String>emptyMap());
+
+        for (URI uri : uris) {
+            provider.add(uri);
+        }
+
+        // Removing and re-adding within the same burst leaves only the last URI present.
+        for (URI uri : uris) {
+            provider.remove(uri);
+        }
+        final URI expected = uris.get(uris.size() - 1);
+        provider.add(expected);
+
+        provider.connect();
+        assertTrue("Should have connected to the remaining URI", Wait.waitFor(new Wait.Condition() {
+
+            @Override
+            public boolean isSatisified() throws Exception {
+                return expected.equals(provider.getRemoteURI());
+            }
+        }, TimeUnit.SECONDS.toMillis(20), 10));
+    }
+
     @Test(timeout = 30000)
     public void testToString() throws Exception {
         provider = new FailoverProvider(uris, Collections.<String, String>emptyMap());
@@ -247,6 +275,78 @@ public class FailoverProviderTest extends FailoverProviderTestSupport {
         assertEquals(5, mockPeer.getContextStats().getCloseAttempts());
     }
 
+    @Test(timeout = 30000)
+    public void testParallelConnectUsesAttemptThatConnects() throws Exception {
+        List<URI> parallel = new ArrayList<URI>();
+        parallel.add(new URI("mock://localhost:5672?mock.failOnConnect=true"));
+        parallel.add(new URI("mock://localhost:5673"));
+
+        provider = new FailoverProvider(parallel, Collections.<String, String>emptyMap());
+        provider.setParallelConnectAttempts(2);
+        provider.setParallelConnectDelay(0);
+        provider.setProviderListener(new DefaultProviderListener());
+        provider.connect();
+
+        ProviderFuture request = new ProviderFuture();
+        provider.create(createConnectionInfo(), request);
+
+        request.sync(10, TimeUnit.SECONDS);
+
+        assertTrue(request.isComplete());
+        assertEquals(5673, provider.getRemoteURI().getPort());
+
+        provider.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testParallelConnectStartsNextAttemptWhenEarlierOneFails() throws Exception {
+        List<URI> parallel = new ArrayList<URI>();
+        parallel.add(new URI("mock://localhost:5672?mock.failOnConnect=true"));
+        parallel.add(new URI("mock://localhost:5673?mock.failOnConnect=true"));
+        parallel.add(new URI("mock://localhost:5674"));
+
+        // The delay is far longer than the test may run, only failures can start the later attempts.
+        provider = new FailoverProvider(parallel, Collections.<String, String>emptyMap());
+        provider.setParallelConnectAttempts(3);
+        provider.setParallelConnectDelay(TimeUnit.MINUTES.toMillis(5));
+        provider.setProviderListener(new DefaultProviderListener());
+        provider.connect();
+
+        ProviderFuture request = new ProviderFuture();
+        provider.create(createConnectionInfo(), request);
+
+        request.sync(10, TimeUnit.SECONDS);
+
+        assertTrue(request.isComplete());
+        assertEquals(5674, provider.getRemoteURI().getPort());
+
+        provider.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testParallelConnectCountsAsSingleReconnectAttempt() throws Exception {
+        JmsConnectionFactory factory = new JmsConnectionFactory(
+            "failover:(mock://localhost:5672?mock.failOnConnect=true,mock://localhost:5673?mock.failOnConnect=true)" +
+            "?failover.startupMaxReconnectAttempts=3" +
+            "&failover.parallelConnectAttempts=2" +
+            "&failover.parallelConnectDelay=0" +
+            "&failover.useReconnectBackOff=false");
+
+        Connection connection = factory.createConnection();
+
+        try {
+            connection.start();
+            fail("Should have stopped after three parallel attempts.");
+        } catch (JMSException ex) {
+        } finally {
+            connection.close();
+        }
+
+        assertEquals(6, mockPeer.getContextStats().getProvidersCreated());
+        assertEquals(6, mockPeer.getContextStats().getConnectionAttempts());
+        assertEquals(6, mockPeer.getContextStats().getCloseAttempts());
+    }
+
     @Test(timeout = 30000)
     public void testMaxReconnectAttemptsWithBackOff() throws Exception {
         JmsConnectionFactory factory = new JmsConnectionFactory(
@@ -410,4 +510,35 @@ public class FailoverProviderTest extends FailoverProviderTestSupport {
         assertEquals(SEND_TIMEOUT, provider.getSendTimeout());
         assertEquals(REQUEST_TIMEOUT, provider.getRequestTimeout());
     }
+
+    @Test(timeout=10000)
+    public void testSendFailsWhenReplayBufferIsFull() throws Exception {
+        provider = new FailoverProvider(uris, Collections.<String, String>emptyMap());
+        provider.setMaxReplayBufferMessages(1);
+        provider.setReplayBufferPolicy("fail");
+
+        JmsTestMessageFactory factory = new JmsTestMessageFactory();
+
+        JmsOutboundMessageDispatch buffered = new JmsOutboundMessageDispatch();
+        buffered.setMessage(factory.createMessage());
+        ProviderFuture bufferedRequest = new ProviderFuture();
+
+        // Not connected so the send is held until a connection is made.
+        provider.send(buffered, bufferedRequest);
+        assertEquals(1, provider.getReplayBufferMessages());
+        assertFalse(bufferedRequest.isComplete());
+
+        JmsOutboundMessageDispatch rejected = new JmsOutboundMessageDispatch();
+        rejected.setMessage(factory.createMessage());
+
+        try {
+            provider.send(rejected, new ProviderFuture());
+            fail("Should not buffer more messages than configured.");
+        } catch (ResourceAllocationException ex) {}
+
+        provider.close();
+
+        assertTrue(bufferedRequest.isComplete());
+        assertEquals(0, provider.getReplayBufferMessages());
+    }
 }
@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.failover;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.ResourceAllocationException;
+
+import org.apache.qpid.jms.message.JmsMessage;
+import org.apache.qpid.jms.message.JmsOutboundMessageDispatch;
+import org.apache.qpid.jms.message.facade.JmsMessageFacade;
+import org.apache.qpid.jms.meta.JmsConnectionInfo;
+import org.apache.qpid.jms.provider.AsyncResult;
+import org.apache.qpid.jms.provider.ProviderFuture;
+import org.apache.qpid.jms.test.QpidJmsTestCase;
+import org.junit.Test;
+
+/**
+ * Test for the behavior of the FailoverReplayBuffer
+ */
+public class FailoverReplayBufferTest extends QpidJmsTestCase {
+
+    private final FailoverReplayBuffer buffer = new FailoverReplayBuffer();
+
+    @Test
+    public void testDefaultsToUnlimited() throws Exception {
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(buffer.add(createEnvelope(1024, false), new ProviderFuture(), 0));
+        }
+
+        assertEquals(100, buffer.getBufferedMessages());
+        assertEquals(100 * 1024, buffer.getBufferedBytes());
+    }
+
+    @Test
+    public void testRemoveReleasesSpace() throws Exception {
+        JmsOutboundMessageDispatch first = createEnvelope(100, false);
+        JmsOutboundMessageDispatch second = createEnvelope(50, false);
+
+        buffer.add(first, new ProviderFuture(), 0);
+        buffer.add(second, new ProviderFuture(), 0);
+        assertEquals(150, buffer.getBufferedBytes());
+
+        buffer.remove(first);
+        assertEquals(1, buffer.getBufferedMessages());
+        assertEquals(50, buffer.getBufferedBytes());
+        assertEquals(150, buffer.getPeakBufferedBytes());
+
+        buffer.remove(first);
+        assertEquals(50, buffer.getBufferedBytes());
+    }
+
+    @Test
+    public void testWrappedRequestRemovesOnCompletion() throws Exception {
+        JmsOutboundMessageDispatch envelope = createEnvelope(100, false);
+        ProviderFuture request = new ProviderFuture();
+
+        buffer.add(envelope, request, 0);
+        buffer.wrap(envelope, request).onSuccess();
+
+        assertTrue(request.isComplete());
+        assertEquals(0, buffer.getBufferedMessages());
+        assertEquals(0, buffer.getBufferedBytes());
+    }
+
+    @Test
+    public void testFailPolicyRejectsWhenBytesExceeded() throws Exception {
+        buffer.setMaxBytes(150);
+        buffer.setPolicy(FailoverReplayBuffer.Policy.FAIL);
+
+        buffer.add(createEnvelope(100, false), new ProviderFuture(), 0);
+
+        try {
+            buffer.add(createEnvelope(100, false), new ProviderFuture(), 0);
+            fail("Should not exceed the configured size");
+        } catch (ResourceAllocationException ex) {}
+
+        assertTrue(buffer.add(createEnvelope(50, false), new ProviderFuture(), 0));
+        assertEquals(150, buffer.getBufferedBytes());
+    }
+
+    @Test
+    public void testOversizedMessageAcceptedWhenEmpty() throws Exception {
+        buffer.setMaxBytes(10);
+        buffer.setPolicy(FailoverReplayBuffer.Policy.FAIL);
+
+        assertTrue(buffer.add(createEnvelope(100, false), new ProviderFuture(), 0));
+        assertEquals(100, buffer.getBufferedBytes());
+    }
+
+    @Test
+    public void testDropOldestFailsOldestAsyncSends() throws Exception {
+        buffer.setMaxMessages(3);
+        buffer.setPolicy(FailoverReplayBuffer.Policy.DROP_OLDEST);
+
+        ProviderFuture sync = new ProviderFuture();
+        ProviderFuture oldestAsync = new ProviderFuture();
+        ProviderFuture newestAsync = new ProviderFuture();
+
+        buffer.add(createEnvelope(10, false), sync, 0);
+        buffer.add(createEnvelope(10, true), oldestAsync, 0);
+        buffer.add(createEnvelope(10, true), newestAsync, 0);
+
+        assertTrue(buffer.add(createEnvelope(10, true), new ProviderFuture(), 0));
+        assertFalse(oldestAsync.isComplete());
+        evict();
+
+        assertFalse(sync.isComplete());
+        assertTrue(oldestAsync.isComplete());
+        assertFalse(newestAsync.isComplete());
+        assertEquals(3, buffer.getBufferedMessages());
+        assertEquals(1, buffer.getDroppedMessages());
+
+        try {
+            oldestAsync.sync();
+            fail("Dropped send should have failed");
+        } catch (Exception ex) {
+            assertTrue(ex.getCause() instanceof ResourceAllocationException);
+        }
+    }
+
+    @Test
+    public void testDropOldestRejectsWhenNoAsyncSendsToDrop() throws Exception {
+        buffer.setMaxMessages(2);
+        buffer.setPolicy(FailoverReplayBuffer.Policy.DROP_OLDEST);
+
+        ProviderFuture async = new ProviderFuture();
+
+        buffer.add(createEnvelope(10, true), async, 0);
+        buffer.setMaxMessages(1);
+
+        buffer.add(createEnvelope(10, false), new ProviderFuture(), 0);
+        evict();
+        assertTrue(async.isComplete());
+
+        try {
+            buffer.add(createEnvelope(10, true), new ProviderFuture(), 0);
+            fail("Should not drop synchronous sends");
+        } catch (ResourceAllocationException ex) {}
+
+        assertEquals(1, buffer.getBufferedMessages());
+        assertEquals(1, buffer.getDroppedMessages());
+    }
+
+    @Test
+    public void testDropOldestNeverDropsDispatchedSends() throws Exception {
+        buffer.setOffline(false);
+        buffer.setMaxMessages(2);
+        buffer.setPolicy(FailoverReplayBuffer.Policy.DROP_OLDEST);
+
+        JmsOutboundMessageDispatch inFlight = createEnvelope(10, true);
+        ProviderFuture inFlightRequest = new ProviderFuture();
+        ProviderFuture heldRequest = new ProviderFuture();
+
+        buffer.add(inFlight, inFlightRequest, 0);
+        buffer.dispatched(inFlight);
+        buffer.setOffline(true);
+
+        buffer.add(createEnvelope(10, true), heldRequest, 0);
+        assertTrue(buffer.add(createEnvelope(10, true), new ProviderFuture(), 0));
+        evict();
+
+        assertFalse(inFlightRequest.isComplete());
+        assertTrue(heldRequest.isComplete());
+        assertEquals(2, buffer.getBufferedMessages());
+        assertEquals(1, buffer.getDroppedMessages());
+    }
+
+    @Test
+    public void testSendsNotCountedWhileOnline() throws Exception {
+        buffer.setOffline(false);
+        buffer.setMaxMessages(1);
+        buffer.setPolicy(FailoverReplayBuffer.Policy.FAIL);
+
+        JmsOutboundMessageDispatch first = createEnvelope(10, false);
+        JmsOutboundMessageDispatch second = createEnvelope(10, false);
+
+        assertTrue(buffer.add(first, new ProviderFuture(), 0));
+        assertTrue(buffer.add(second, new ProviderFuture(), 0));
+        assertEquals(0, buffer.getBufferedMessages());
+        assertEquals(0, buffer.getBufferedBytes());
+
+        buffer.setOffline(true);
+        assertEquals(2, buffer.getBufferedMessages());
+        assertEquals(20, buffer.getBufferedBytes());
+
+        buffer.dispatched(first);
+        assertEquals(1, buffer.getBufferedMessages());
+        buffer.remove(second);
+        assertEquals(0, buffer.getBufferedMessages());
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockedSendProceedsWhenOnline() throws Exception {
+        buffer.setMaxMessages(1);
+        buffer.add(createEnvelope(10, false), new ProviderFuture(), 0);
+
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread blocked = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    if (buffer.add(createEnvelope(10, false), new ProviderFuture(), JmsConnectionInfo.INFINITE)) {
+                        added.countDown();
+                    }
+                } catch (Exception e) {
+                }
+            }
+        });
+        blocked.start();
+
+        assertFalse(added.await(50, TimeUnit.MILLISECONDS));
+        buffer.setOffline(false);
+        assertTrue(added.await(5, TimeUnit.SECONDS));
+        assertEquals(1, buffer.getBufferedMessages());
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockPolicyTimesOut() throws Exception {
+        buffer.setMaxMessages(1);
+
+        buffer.add(createEnvelope(10, false), new ProviderFuture(), 0);
+        assertFalse(buffer.add(createEnvelope(10, false), new ProviderFuture(), 50));
+        assertEquals(1, buffer.getBufferedMessages());
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockPolicyWaitsForSpace() throws Exception {
+        buffer.setMaxMessages(1);
+
+        final JmsOutboundMessageDispatch first = createEnvelope(10, false);
+        buffer.add(first, new ProviderFuture(), 0);
+
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread blocked = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    if (buffer.add(createEnvelope(10, false), new ProviderFuture(), JmsConnectionInfo.INFINITE)) {
+                        added.countDown();
+                    }
+                } catch (Exception e) {
+                }
+            }
+        });
+        blocked.start();
+
+        assertFalse(added.await(50, TimeUnit.MILLISECONDS));
+        buffer.remove(first);
+        assertTrue(added.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseWakesBlockedSends() throws Exception {
+        buffer.setMaxMessages(1);
+        buffer.add(createEnvelope(10, false), new ProviderFuture(), 0);
+
+        final CountDownLatch failed = new CountDownLatch(1);
+        Thread blocked = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    buffer.add(createEnvelope(10, false), new ProviderFuture(), JmsConnectionInfo.INFINITE);
+                } catch (Exception e) {
+                    failed.countDown();
+                }
+            }
+        });
+        blocked.start();
+
+        assertFalse(failed.await(50, TimeUnit.MILLISECONDS));
+        buffer.close();
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testParsePolicy() {
+        assertEquals(FailoverReplayBuffer.Policy.DROP_OLDEST, FailoverReplayBuffer.Policy.parse("drop_oldest"));
+        assertEquals(FailoverReplayBuffer.Policy.BLOCK, FailoverReplayBuffer.Policy.parse("BLOCK"));
+    }
+
+    private void evict() {
+        for (AsyncResult dropped : buffer.evict()) {
+            dropped.onFailure(new ResourceAllocationException("dropped"));
+        }
+    }
+
+    private JmsOutboundMessageDispatch createEnvelope(int size, boolean async) {
+        JmsMessageFacade facade = mock(JmsMessageFacade.class);
+        when(facade.getEstimatedSize()).thenReturn(size);
+        JmsMessage message = mock(JmsMessage.class);
+        when(message.getFacade()).thenReturn(facade);
+
+        JmsOutboundMessageDispatch envelope = new JmsOutboundMessageDispatch();
+        envelope.setMessage(message);
+        envelope.setSendAsync(async);
+        return envelope;
+    }
+}
@@ -30,8 +30,11 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.qpid.jms.test.QpidJmsTestCase;
 import org.apache.qpid.jms.util.URISupport;
@@ -69,6 +72,14 @@ public class FailoverUriPoolTest extends QpidJmsTestCase {
         assertTrue(pool.getNestedOptions().isEmpty());
     }
 
+    @Test
+    public void testAddressCacheTimeout() {
+        FailoverUriPool pool = new FailoverUriPool();
+        assertEquals(FailoverUriPool.DEFAULT_ADDRESS_CACHE_TIMEOUT, pool.getAddressCacheTimeout());
+        pool.setAddressCacheTimeout(5000);
+        assertEquals(5000, pool.getAddressCacheTimeout());
+    }
+
     @Test
     public void testCreateEmptyPoolFromNullUris() {
         FailoverUriPool pool = new FailoverUriPool(null, null);
@@ -204,6 +215,21 @@ public class FailoverUriPoolTest extends QpidJmsTestCase {
         assertEquals(2, pool.size());
     }
 
+    @Test
+    public void testHostNameMatchedByAddressWhenFirstSeen() throws URISyntaxException {
+        FailoverUriPool pool = new FailoverUriPool();
+
+        pool.add(new URI("tcp://localhost:5672"));
+        assertEquals(1, pool.size());
+        pool.add(new URI("tcp://LOCALHOST:5672"));
+        assertEquals(1, pool.size());
+        pool.add(new URI("tcp://127.0.0.1:5672"));
+        assertEquals(1, pool.size());
+
+        assertTrue(pool.remove(new URI("tcp://127.0.0.1:5672")));
+        assertTrue(pool.isEmpty());
+    }
+
     @Test
     public void testAddUriToPoolRandomized() throws URISyntaxException {
         URI newUri = new URI("tcp://192.168.2." + (uris.size() + 1) + ":5672");
@@ -322,6 +348,23 @@ public class FailoverUriPoolTest extends QpidJmsTestCase {
         assertFalse(pool.isEmpty());
     }
 
+    @Test
+    public void testRemoveWithHostResolutionAfterAddressCacheExpires() throws Exception {
+        FailoverUriPool pool = new FailoverUriPool();
+        pool.setAddressCacheTimeout(0);
+
+        pool.add(new URI("tcp://localhost:5672"));
+        pool.add(new URI("tcp://127.0.0.1:5672"));
+        assertEquals(1, pool.size());
+
+        assertTrue(pool.remove(new URI("tcp://127.0.0.1:5672")));
+        assertTrue(pool.isEmpty());
+
+        pool.add(new URI("tcp://127.0.0.1:5672"));
+        assertTrue(pool.remove(new URI("tcp://127.0.0.1:5672")));
+        assertTrue(pool.isEmpty());
+    }
+
     @Test
     public void testRemoveWhenUnresolvable() throws URISyntaxException {
         assumeFalse("Host resolution works when not expected", checkIfResolutionWorks());
@@ -401,6 +444,103 @@ public class FailoverUriPoolTest extends QpidJmsTestCase {
         }
     }
 
+    @Test
+    public void testGetNextWithCount() {
+        FailoverUriPool pool = new FailoverUriPool(uris, null);
+
+        List<URI> next = pool.getNext(2);
+        assertEquals(2, next.size());
+        assertEquals(uris.get(0), next.get(0));
+        assertEquals(uris.get(1), next.get(1));
+        assertEquals(uris.get(2), pool.getNext());
+
+        next = pool.getNext(uris.size() + 1);
+        assertEquals(uris.size(), next.size());
+        assertEquals(uris.size(), new HashSet<URI>(next).size());
+    }
+
+    @Test
+    public void testLatencyAwarePrefersFastestURI() {
+        FailoverUriPool pool = new FailoverUriPool(uris, null);
+        assertEquals(FailoverUriPool.DEFAULT_LATENCY_AWARE_ENABLED, pool.isLatencyAware());
+        pool.setLatencyAware(true);
+
+        for (int i = 0; i < uris.size(); ++i) {
+            pool.recordConnectTime(uris.get(i), TimeUnit.MILLISECONDS.toNanos(100 * (uris.size() - i)));
+        }
+
+        URI fastest = uris.get(uris.size() - 1);
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(fastest, pool.getNext());
+        }
+
+        pool.recordOpenTime(fastest, TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(uris.get(uris.size() - 2), pool.getNext());
+    }
+
+    @Test
+    public void testLatencyAwarePrefersURIsNotYetTried() {
+        FailoverUriPool pool = new FailoverUriPool(uris, null);
+        pool.setLatencyAware(true);
+
+        pool.recordConnectTime(uris.get(0), TimeUnit.MILLISECONDS.toNanos(100));
+        pool.recordConnectTime(uris.get(1), TimeUnit.MILLISECONDS.toNanos(100));
+
+        for (int i = 0; i < 10; ++i) {
+            URI next = pool.getNext();
+            assertNotEquals(uris.get(0), next);
+            assertNotEquals(uris.get(1), next);
+        }
+    }
+
+    @Test
+    public void testLatencyAwareAvoidsRecentlyFailedURI() {
+        FailoverUriPool pool = new FailoverUriPool(uris, null);
+        pool.setLatencyAware(true);
+
+        for (URI uri : uris) {
+            pool.recordConnectTime(uri, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        pool.recordConnectTime(uris.get(0), TimeUnit.MILLISECONDS.toNanos(1));
+        pool.recordFailure(uris.get(0));
+
+        for (int i = 0; i < 10; ++i) {
+            assertNotEquals(uris.get(0), pool.getNext());
+        }
+    }
+
+    @Test
+    public void testLatencyAwareSpreadsAcrossEqualURIs() {
+        FailoverUriPool pool = new FailoverUriPool(uris, null);
+        pool.setLatencyAware(true);
+
+        for (URI uri : uris) {
+            pool.recordConnectTime(uri, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        Set<URI> selected = new HashSet<URI>();
+        for (int i = 0; i < 200; ++i) {
+            selected.add(pool.getNext());
+        }
+
+        assertEquals(uris.size(), selected.size());
+    }
+
+    @Test
+    public void testLatencyAwareGetNextWithCountReturnsFastestFirst() {
+        FailoverUriPool pool = new FailoverUriPool(uris, null);
+        pool.setLatencyAware(true);
+
+        for (int i = 0; i < uris.size(); ++i) {
+            pool.recordConnectTime(uris.get(i), TimeUnit.MILLISECONDS.toNanos(100 * (uris.size() - i)));
+        }
+
+        List<URI> next = pool.getNext(2);
+        assertEquals(2, next.size());
+        assertEquals(uris.get(uris.size() - 1), next.get(0));
+        assertEquals(uris.get(uris.size() - 2), next.get(1));
+    }
+
     @Test
     public void testAddOrRemoveNullHasNoAffect() throws URISyntaxException {
         FailoverUriPool pool = new FailoverUriPool(uris, null);
@@ -80,6 +80,13 @@ public class FiloverProviderFactoryTest extends QpidJmsTestCase {
         assertEquals(FailoverProvider.DEFAULT_RECONNECT_BACKOFF_MULTIPLIER, failover.getReconnectBackOffMultiplier(), 0.0);
         assertEquals(FailoverProvider.DEFAULT_WARN_AFTER_RECONNECT_ATTEMPTS, failover.getWarnAfterReconnectAttempts());
         assertEquals(FailoverUriPool.DEFAULT_RANDOMIZE_ENABLED, failover.isRandomize());
+        assertEquals(FailoverUriPool.DEFAULT_ADDRESS_CACHE_TIMEOUT, failover.getAddressCacheTimeout());
+        assertEquals(FailoverUriPool.DEFAULT_LATENCY_AWARE_ENABLED, failover.isLatencyAware());
+        assertEquals(FailoverProvider.DEFAULT_PARALLEL_CONNECT_ATTEMPTS, failover.getParallelConnectAttempts());
+        assertEquals(FailoverProvider.DEFAULT_PARALLEL_CONNECT_DELAY, failover.getParallelConnectDelay());
+        assertEquals(FailoverReplayBuffer.UNLIMITED, failover.getMaxReplayBufferSize());
+        assertEquals(FailoverReplayBuffer.UNLIMITED, failover.getMaxReplayBufferMessages());
+        assertEquals("BLOCK", failover.getReplayBufferPolicy());
     }
 
     @Test(timeout = 60000, expected = IllegalArgumentException.class)
@@ -99,7 +106,14 @@ public class FiloverProviderFactoryTest extends QpidJmsTestCase {
             "&failover.warnAfterReconnectAttempts=" + (FailoverProvider.DEFAULT_WARN_AFTER_RECONNECT_ATTEMPTS + 6) +
             "&failover.useReconnectBackOff=" + (!FailoverProvider.DEFAULT_USE_RECONNECT_BACKOFF) +
             "&failover.reconnectBackOffMultiplier=" + (FailoverProvider.DEFAULT_RECONNECT_BACKOFF_MULTIPLIER + 1.0d) +
-            "&failover.randomize=" + (!FailoverUriPool.DEFAULT_RANDOMIZE_ENABLED));
+            "&failover.randomize=" + (!FailoverUriPool.DEFAULT_RANDOMIZE_ENABLED) +
+            "&failover.addressCacheTimeout=" + (FailoverUriPool.DEFAULT_ADDRESS_CACHE_TIMEOUT + 7) +
+            "&failover.parallelConnectAttempts=" + (FailoverProvider.DEFAULT_PARALLEL_CONNECT_ATTEMPTS + 8) +
+            "&failover.parallelConnectDelay=" + (FailoverProvider.DEFAULT_PARALLEL_CONNECT_DELAY + 9) +
+            "&failover.maxReplayBufferSize=1048576" +
+            "&failover.maxReplayBufferMessages=100" +
+            "&failover.replayBufferPolicy=drop_oldest" +
+            "&failover.latencyAware=" + (!FailoverUriPool.DEFAULT_LATENCY_AWARE_ENABLED));
 
         Provider provider = factory.createProvider(configured);
         assertNotNull(provider);
@@ -116,6 +130,13 @@ public class FiloverProviderFactoryTest extends QpidJmsTestCase {
         assertEquals(!FailoverProvider.DEFAULT_USE_RECONNECT_BACKOFF, failover.isUseReconnectBackOff());
         assertEquals(FailoverProvider.DEFAULT_RECONNECT_BACKOFF_MULTIPLIER + 1.0d, failover.getReconnectBackOffMultiplier(), 0.0);
         assertEquals(!FailoverUriPool.DEFAULT_RANDOMIZE_ENABLED, failover.isRandomize());
+        assertEquals(FailoverUriPool.DEFAULT_ADDRESS_CACHE_TIMEOUT + 7, failover.getAddressCacheTimeout());
+        assertEquals(FailoverProvider.DEFAULT_PARALLEL_CONNECT_ATTEMPTS + 8, failover.getParallelConnectAttempts());
+        assertEquals(FailoverProvider.DEFAULT_PARALLEL_CONNECT_DELAY + 9, failover.getParallelConnectDelay());
+        assertEquals(!FailoverUriPool.DEFAULT_LATENCY_AWARE_ENABLED, failover.isLatencyAware());
+        assertEquals(1048576, failover.getMaxReplayBufferSize());
+        assertEquals(100, failover.getMaxReplayBufferMessages());
+        assertEquals("DROP_OLDEST", failover.getReplayBufferPolicy());
     }
 
     @Test(timeout = 60000)
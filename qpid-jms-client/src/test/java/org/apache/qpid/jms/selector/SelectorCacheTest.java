@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.selector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.junit.Test;
+
+public class SelectorCacheTest {
+
+    @Test
+    public void testHitAndMissStatistics() {
+        SelectorCache<String> cache = new SelectorCache<String>();
+
+        assertNull(cache.get("a = 1"));
+        cache.put("a = 1", "value");
+        assertEquals("value", cache.get("a = 1"));
+        assertEquals("value", cache.get("a = 1"));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.size());
+        assertEquals("a = 1".length(), cache.getWeight());
+    }
+
+    @Test
+    public void testSizeBoundEvictsLeastRecentlyUsed() {
+        SelectorCache<String> cache = new SelectorCache<String>(10, Long.MAX_VALUE);
+
+        for (int i = 0; i < 10; ++i) {
+            cache.put("a = " + i, "value" + i);
+        }
+
+        // Touch the first entry so that it is not the least recently used.
+        assertNotNull(cache.get("a = 0"));
+
+        cache.put("a = 10", "value10");
+
+        assertTrue(cache.size() <= 10);
+        assertTrue(cache.getEvictions() > 0);
+        assertNotNull(cache.get("a = 0"));
+        assertNotNull(cache.get("a = 10"));
+        assertNull(cache.get("a = 1"));
+    }
+
+    @Test
+    public void testWeightBoundEvicts() {
+        SelectorCache<String> cache = new SelectorCache<String>(100, 50);
+
+        cache.put("a = 'short'", "value1");
+        cache.put("b = 'a selector with a much longer text than the other'", "value2");
+
+        assertTrue(cache.getWeight() <= 50);
+        assertNull(cache.get("a = 'short'"));
+    }
+
+    @Test
+    public void testZeroSizeDisablesCaching() {
+        SelectorCache<String> cache = new SelectorCache<String>(0, Long.MAX_VALUE);
+        cache.put("a = 1", "value");
+
+        assertNull(cache.get("a = 1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testReducingMaxSizeEvicts() {
+        SelectorCache<String> cache = new SelectorCache<String>();
+        for (int i = 0; i < 20; ++i) {
+            cache.put("a = " + i, "value" + i);
+        }
+
+        cache.setMaxSize(5);
+        assertTrue(cache.size() <= 5);
+    }
+
+    @Test
+    public void testClear() {
+        SelectorCache<String> cache = new SelectorCache<String>();
+        cache.put("a = 1", "value");
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentUseStaysWithinBounds() throws Exception {
+        final SelectorCache<String> cache = new SelectorCache<String>(50, Long.MAX_VALUE);
+        final int threads = 8;
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; ++t) {
+            final int offset = t;
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10000; ++i) {
+                            String selector = "a = " + ((i * (offset + 1)) % 200);
+                            String value = cache.get(selector);
+                            if (value == null) {
+                                cache.put(selector, selector);
+                            } else {
+                                assertEquals(selector, value);
+                            }
+                        }
+                    } catch (Throwable error) {
+                        failure.compareAndSet(null, error);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        assertTrue(done.await(20, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertNull(failure.get());
+        assertTrue(cache.size() <= 50);
+        assertEquals(threads * 10000, cache.getHits() + cache.getMisses());
+
+        long weight = 0;
+        for (int i = 0; i < 200; ++i) {
+            if (cache.get("a = " + i) != null) {
+                weight += ("a = " + i).length();
+            }
+        }
+        assertEquals(weight, cache.getWeight());
+    }
+
+    @Test
+    public void testSelectorParserUsesCache() throws Exception {
+        SelectorParser.clearCache();
+
+        long hits = SelectorParser.getCache().getHits();
+        BooleanExpression first = SelectorParser.parse("cacheTest = 1");
+        BooleanExpression second = SelectorParser.parse("cacheTest = 1");
+
+        assertSame(first, second);
+        assertEquals(hits + 1, SelectorParser.getCache().getHits());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.selector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.jms.selector.filter.BooleanExpression;
+import org.apache.qpid.jms.selector.filter.ComparisonExpression;
+import org.apache.qpid.jms.selector.filter.ConstantExpression;
+import org.apache.qpid.jms.selector.filter.FilterException;
+import org.apache.qpid.jms.selector.filter.Filterable;
+import org.apache.qpid.jms.selector.filter.SelectorCompiler;
+import org.apache.qpid.jms.selector.parser.SelectorParserImpl;
+import org.junit.Test;
+
+public class SelectorCompilerTest {
+
+    private static final Object[] VALUES = new Object[] {
+        null, Byte.valueOf((byte) 5), Short.valueOf((short) 5), Integer.valueOf(5), Long.valueOf(5),
+        Float.valueOf(5), Double.valueOf(5), Integer.valueOf(-7), Long.valueOf(Long.MAX_VALUE),
+        Double.valueOf(5.5), Float.valueOf(-0.0f), Double.valueOf(Double.NaN), "5", "abc", "xabcx", "",
+        Boolean.TRUE, Boolean.FALSE
+    };
+
+    private static final String[] SELECTORS = new String[] {
+        "v = 5", "5 = v", "v <> 5", "v > 5", "5 > v", "v >= 5", "v < 5", "v <= 5", "5 <= v",
+        "v = 5.0", "5.0 = v", "v > 4.5", "4.5 < v", "v = 5L", "5L = v", "v > 4L", "4L < v",
+        "v = -7", "v < -6", "v = 9223372036854775807", "v > 2 + 2", "v BETWEEN 4 AND 6",
+        "v NOT BETWEEN 4 AND 6", "v = 'abc'", "'abc' = v", "v <> 'abc'", "v IS NULL", "v IS NOT NULL",
+        "v LIKE 'abc'", "v LIKE 'ab%'", "v LIKE '%bc'", "v LIKE '%bc%'", "v LIKE '%'", "v LIKE '%%'",
+        "v NOT LIKE '%b%'", "v LIKE 'a_c'", "v LIKE 'a!%%' ESCAPE '!'", "v IN ('abc', '5', 'x')",
+        "v NOT IN ('abc', '5')", "v = TRUE", "v", "NOT v", "TRUE AND v = 5", "FALSE AND v = 5",
+        "v = 5 AND FALSE", "TRUE OR v = 5", "FALSE OR v = 5", "v = 5 OR TRUE", "v + 1 = 6", "v * 2 > 9",
+        "-v < 0", "1 + 2 = 3 AND v = 5", "'a' - 1 = 1 OR v = 5", "'a' + 'b' = 'ab' AND v = 'abc'"
+    };
+
+    @Test
+    public void testCompiledSelectorsEvaluateAsParsed() throws Exception {
+        for (String selector : SELECTORS) {
+            BooleanExpression compiled = SelectorParser.parse(selector);
+
+            for (Object value : VALUES) {
+                Filterable message = createMessage(value);
+
+                Object expected = evaluate(parseUncompiled(selector), message);
+                Object actual = evaluate(compiled, message);
+
+                assertEquals("Selector [" + selector + "] with value [" + value + "]", expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testConstantExpressionsAreFolded() throws Exception {
+        assertSame(ConstantExpression.TRUE, compile("1 + 2 = 3"));
+        assertSame(ConstantExpression.FALSE, compile("'a' = 'b'"));
+        assertSame(ConstantExpression.TRUE, compile("TRUE OR v = 1"));
+        assertSame(ConstantExpression.FALSE, compile("FALSE AND v = 1"));
+        assertSame(ConstantExpression.TRUE, compile("2 * 3 BETWEEN 5 AND 7"));
+    }
+
+    @Test
+    public void testConstantOperandsOfComparisonsAreFolded() throws Exception {
+        BooleanExpression compiled = compile("v > 2 * 3");
+        assertTrue(compiled instanceof ComparisonExpression);
+
+        ComparisonExpression comparison = (ComparisonExpression) compiled;
+        assertTrue(comparison.getRight() instanceof ConstantExpression);
+        assertEquals(Integer.valueOf(6), ((ConstantExpression) comparison.getRight()).getValue());
+    }
+
+    @Test
+    public void testFailingConstantExpressionIsNotFolded() throws Exception {
+        BooleanExpression compiled = compile("'a' - 1 = 1");
+        assertTrue(compiled instanceof ComparisonExpression);
+    }
+
+    private static BooleanExpression compile(String selector) throws Exception {
+        return SelectorCompiler.compile(parseUncompiled(selector));
+    }
+
+    private static BooleanExpression parseUncompiled(String selector) throws Exception {
+        return new SelectorParserImpl(new StringReader(selector)).JmsSelector();
+    }
+
+    private static Object evaluate(BooleanExpression expression, Filterable message) {
+        try {
+            return expression.evaluate(message);
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    private static Filterable createMessage(Object value) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("v", value);
+
+        return new Filterable() {
+
+            @Override
+            public <T> T getBodyAs(Class<T> type) throws FilterException {
+                return null;
+            }
+
+            @Override
+            public Object getProperty(String name) {
+                return properties.get(name);
+            }
+
+            @Override
+            public Object getLocalConnectionId() {
+                return null;
+            }
+        };
+    }
+}
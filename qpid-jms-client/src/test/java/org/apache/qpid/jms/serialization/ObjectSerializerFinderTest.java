@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ObjectSerializerFinderTest {
+
+    @Test
+    public void testFindJavaSerializer() {
+        ObjectSerializer serializer = ObjectSerializerFinder.findSerializer(JavaObjectSerializer.NAME);
+
+        assertSame(ObjectSerializerFinder.getJavaSerializer(), serializer);
+        assertFalse(serializer.isCacheable());
+        assertSame(serializer, ObjectSerializerFinder.findSerializerForContentType(JavaObjectSerializer.CONTENT_TYPE));
+    }
+
+    @Test
+    public void testFindUnknownSerializerReturnsNull() {
+        assertNull(ObjectSerializerFinder.findSerializer("unknown"));
+        assertNull(ObjectSerializerFinder.findSerializer(null));
+        assertNull(ObjectSerializerFinder.findSerializer(""));
+        assertNull(ObjectSerializerFinder.findSerializerForContentType(null));
+        assertNull(ObjectSerializerFinder.findSerializerForContentType("application/x-unknown"));
+    }
+
+    @Test
+    public void testFindSerializerFromServiceFile() {
+        ObjectSerializer serializer = ObjectSerializerFinder.findSerializer(TestObjectSerializer.NAME);
+
+        assertNotNull(serializer);
+        assertTrue(serializer instanceof TestObjectSerializer);
+        assertSame(serializer, ObjectSerializerFinder.findSerializer(TestObjectSerializer.NAME));
+        assertSame(serializer, ObjectSerializerFinder.findSerializerForContentType(TestObjectSerializer.CONTENT_TYPE));
+    }
+
+    @Test
+    public void testRegisterRetainsExistingSerializer() {
+        ObjectSerializer serializer = ObjectSerializerFinder.register(JavaObjectSerializer.NAME, new JavaObjectSerializer());
+        assertSame(ObjectSerializerFinder.getJavaSerializer(), serializer);
+    }
+
+    @Test
+    public void testJavaSerializerRoundTrip() throws Exception {
+        ObjectSerializer serializer = ObjectSerializerFinder.getJavaSerializer();
+
+        Map<String, Integer> value = new HashMap<String, Integer>();
+        value.put("key", 1);
+
+        byte[] bytes = serializer.serialize((HashMap<String, Integer>) value);
+        assertEquals(value, serializer.deserialize(bytes, 0, bytes.length));
+
+        byte[] nullBytes = serializer.serialize(null);
+        assertNull(serializer.deserialize(nullBytes, 0, nullBytes.length));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.serialization;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * ObjectSerializer used in tests that writes Java serialized bodies under its own
+ * content type and allows decoded objects to be cached.
+ */
+public class TestObjectSerializer implements ObjectSerializer {
+
+    public static final String NAME = "test";
+    public static final String CONTENT_TYPE = "application/x-qpid-jms-test-object";
+
+    private final JavaObjectSerializer delegate = new JavaObjectSerializer();
+
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+
+    @Override
+    public byte[] serialize(Serializable value) throws IOException {
+        return delegate.serialize(value);
+    }
+
+    @Override
+    public Serializable deserialize(byte[] data, int offset, int length) throws IOException, ClassNotFoundException {
+        return delegate.deserialize(data, offset, length);
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+}
@@ -1204,6 +1204,26 @@ public class TestAmqpPeer implements AutoCloseable
         expectLinkFlowRespondWithTransfer(null, null, null, null, null, 0, drain, sendDrainFlowResponse, creditMatcher, null, false, false);
     }
 
+    public void expectLinkFlow(boolean drain, Matcher<UnsignedInteger> creditMatcher, Matcher<?> nextIncomingIdMatcher)
+    {
+        Matcher<Boolean> drainMatcher = null;
+        if(drain)
+        {
+            drainMatcher = equalTo(true);
+        }
+        else
+        {
+            drainMatcher = Matchers.anyOf(equalTo(false), nullValue());
+        }
+
+        final FlowMatcher flowMatcher = new FlowMatcher()
+                        .withLinkCredit(creditMatcher)
+                        .withDrain(drainMatcher)
+                        .withNextIncomingId(nextIncomingIdMatcher);
+
+        addHandler(flowMatcher);
+    }
+
     public void expectLinkFlowRespondWithTransfer(final HeaderDescribedType headerDescribedType,
                                                   final MessageAnnotationsDescribedType messageAnnotationsDescribedType,
                                                   final PropertiesDescribedType propertiesDescribedType,
@@ -36,6 +36,8 @@ public class TransportSslOptionsTest extends QpidJmsTestCase {
     public static final String CONTEXT_PROTOCOL = "TLSv1.1";
     public static final boolean TRUST_ALL = true;
     public static final boolean VERIFY_HOST = true;
+    public static final boolean CACHE_SSL_CONTEXT = true;
+    public static final int CLOSE_NOTIFY_TIMEOUT = 250;
 
     public static final int TEST_SEND_BUFFER_SIZE = 128 * 1024;
     public static final int TEST_RECEIVE_BUFFER_SIZE = TEST_SEND_BUFFER_SIZE;
@@ -57,6 +59,8 @@ public class TransportSslOptionsTest extends QpidJmsTestCase {
 
         assertEquals(TransportSslOptions.DEFAULT_TRUST_ALL, options.isTrustAll());
         assertEquals(TransportSslOptions.DEFAULT_STORE_TYPE, options.getStoreType());
+        assertEquals(TransportSslOptions.DEFAULT_CACHE_SSL_CONTEXT, options.isCacheSslContext());
+        assertEquals(TransportSslOptions.DEFAULT_CLOSE_NOTIFY_TIMEOUT, options.getCloseNotifyTimeout());
 
         assertEquals(TransportSslOptions.DEFAULT_CONTEXT_PROTOCOL, options.getContextProtocol());
         assertNull(options.getEnabledProtocols());
@@ -96,6 +100,8 @@ public class TransportSslOptionsTest extends QpidJmsTestCase {
         assertArrayEquals(DISABLED_PROTOCOLS,options.getDisabledProtocols());
         assertArrayEquals(ENABLED_CIPHERS,options.getEnabledCipherSuites());
         assertArrayEquals(DISABLED_CIPHERS,options.getDisabledCipherSuites());
+        assertEquals(CACHE_SSL_CONTEXT, options.isCacheSslContext());
+        assertEquals(CLOSE_NOTIFY_TIMEOUT, options.getCloseNotifyTimeout());
     }
 
     @Test
@@ -122,6 +128,8 @@ public class TransportSslOptionsTest extends QpidJmsTestCase {
         assertArrayEquals(DISABLED_PROTOCOLS,options.getDisabledProtocols());
         assertArrayEquals(ENABLED_CIPHERS,options.getEnabledCipherSuites());
         assertArrayEquals(DISABLED_CIPHERS,options.getDisabledCipherSuites());
+        assertEquals(CACHE_SSL_CONTEXT, options.isCacheSslContext());
+        assertEquals(CLOSE_NOTIFY_TIMEOUT, options.getCloseNotifyTimeout());
     }
 
     private TransportSslOptions createSslOptions() {
@@ -140,6 +148,8 @@ public class TransportSslOptionsTest extends QpidJmsTestCase {
         options.setDisabledProtocols(DISABLED_PROTOCOLS);
         options.setEnabledCipherSuites(ENABLED_CIPHERS);
         options.setDisabledCipherSuites(DISABLED_CIPHERS);
+        options.setCacheSslContext(CACHE_SSL_CONTEXT);
+        options.setCloseNotifyTimeout(CLOSE_NOTIFY_TIMEOUT);
 
         options.setSendBufferSize(TEST_SEND_BUFFER_SIZE);
         options.setReceiveBufferSize(TEST_RECEIVE_BUFFER_SIZE);
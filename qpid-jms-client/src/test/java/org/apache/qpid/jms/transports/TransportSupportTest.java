@@ -20,7 +20,9 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -91,6 +93,44 @@ public class TransportSupportTest extends QpidJmsTestCase {
         assertEquals("TLS", context.getProtocol());
     }
 
+    @Test
+    public void testGetCachedSslContextReturnsSameContextForSameStores() throws Exception {
+        TransportSupport.clearSslContextCache();
+
+        TransportSslOptions options = createJksSslOptions();
+        SSLContext context = TransportSupport.getCachedSslContext(options);
+        assertNotNull(context);
+
+        TransportSslOptions other = createJksSslOptions(ENABLED_PROTOCOLS);
+        assertSame(context, TransportSupport.getCachedSslContext(other));
+
+        other.setTrustAll(true);
+        assertNotSame(context, TransportSupport.getCachedSslContext(other));
+
+        TransportSupport.clearSslContextCache();
+        assertNotSame(context, TransportSupport.getCachedSslContext(options));
+    }
+
+    @Test
+    public void testGetCachedSslContextCacheIsBounded() throws Exception {
+        TransportSupport.clearSslContextCache();
+
+        TransportSslOptions options = createJksSslOptions();
+        SSLContext context = TransportSupport.getCachedSslContext(options);
+
+        // Fill the cache with other configurations until the first entry is evicted.
+        for (int i = 0; i < 32; ++i) {
+            TransportSslOptions other = createJksSslOptions();
+            other.setTrustAll(true);
+            other.setTrustStorePassword("password-" + i);
+            TransportSupport.getCachedSslContext(other);
+        }
+
+        assertNotSame(context, TransportSupport.getCachedSslContext(options));
+
+        TransportSupport.clearSslContextCache();
+    }
+
     @Test
     public void testCreateSslContextJksStoreWithConfiguredContextProtocol() throws Exception {
         TransportSslOptions options = createJksSslOptions();
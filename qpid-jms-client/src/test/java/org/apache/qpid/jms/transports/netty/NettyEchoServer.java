@@ -61,6 +61,7 @@ public class NettyEchoServer implements AutoCloseable {
     private int serverPort;
     private final boolean needClientAuth;
     private volatile SslHandler sslHandler;
+    private SSLContext sslContext;
 
     private final AtomicBoolean started = new AtomicBoolean();
 
@@ -92,8 +93,7 @@ public class NettyEchoServer implements AutoCloseable {
                 public void initChannel(Channel ch) throws Exception {
                     if (options instanceof TransportSslOptions) {
                         TransportSslOptions sslOptions = (TransportSslOptions) options;
-                        SSLContext context = TransportSupport.createSslContext(sslOptions);
-                        SSLEngine engine = TransportSupport.createSslEngine(context, sslOptions);
+                        SSLEngine engine = TransportSupport.createSslEngine(getSslContext(sslOptions), sslOptions);
                         engine.setUseClientMode(false);
                         engine.setNeedClientAuth(needClientAuth);
                         sslHandler = new SslHandler(engine);
@@ -194,6 +194,15 @@ public class NettyEchoServer implements AutoCloseable {
         }
     }
 
+    private synchronized SSLContext getSslContext(TransportSslOptions sslOptions) throws Exception {
+        // Shared across connections so that the server can resume client sessions.
+        if (sslContext == null) {
+            sslContext = TransportSupport.createSslContext(sslOptions);
+        }
+
+        return sslContext;
+    }
+
     SslHandler getSslHandler() {
         return sslHandler;
     }
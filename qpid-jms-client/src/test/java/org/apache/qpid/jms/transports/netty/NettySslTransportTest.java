@@ -19,14 +19,32 @@ package org.apache.qpid.jms.transports.netty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.qpid.jms.transports.Transport;
 import org.apache.qpid.jms.transports.TransportListener;
@@ -36,6 +54,7 @@ import org.apache.qpid.jms.util.QpidJMSTestRunner;
 import org.apache.qpid.jms.util.Repeat;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -183,6 +202,59 @@ public class NettySslTransportTest extends NettyTcpTransportTest {
         assertTrue(exceptions.isEmpty());
     }
 
+    @Test(timeout = 60 * 1000)
+    public void testReconnectResumesSessionWithCachedContext() throws Exception {
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            TransportSslOptions clientOptions = createClientOptions();
+            clientOptions.setCacheSslContext(true);
+
+            NettySslTransport transport = createTransport(serverLocation, testListener, clientOptions);
+            transport.connect();
+            assertTrue(transport.isConnected());
+            assertFalse(transport.isSessionResumed());
+            assertTrue(transport.getHandshakeTime() >= 0);
+            transport.close();
+
+            transport = createTransport(serverLocation, testListener, clientOptions);
+            transport.connect();
+            assertTrue(transport.isConnected());
+            assertTrue(transport.isSessionResumed());
+            transport.close();
+        }
+
+        logTransportErrors();
+        assertTrue(exceptions.isEmpty());
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testReconnectDoesNotResumeSessionWithoutCachedContext() throws Exception {
+        try (NettyEchoServer server = new NettyEchoServer(createServerOptions())) {
+            server.start();
+
+            int port = server.getServerPort();
+            URI serverLocation = new URI("tcp://localhost:" + port);
+
+            TransportSslOptions clientOptions = createClientOptions();
+            clientOptions.setCacheSslContext(false);
+
+            for (int i = 0; i < 2; ++i) {
+                NettySslTransport transport = createTransport(serverLocation, testListener, clientOptions);
+                transport.connect();
+                assertTrue(transport.isConnected());
+                assertFalse(transport.isSessionResumed());
+                transport.close();
+            }
+        }
+
+        logTransportErrors();
+        assertTrue(exceptions.isEmpty());
+    }
+
     @Test(timeout = 60 * 1000)
     public void testConnectWithSpecificClientAuthKeyAlias() throws Exception {
         doClientAuthAliasTestImpl(CLIENT_KEY_ALIAS, CLIENT_DN);
@@ -280,6 +352,73 @@ public class NettySslTransportTest extends NettyTcpTransportTest {
         }
     }
 
+    @Test(timeout = 60 * 1000)
+    public void testCloseWithoutCachedContextDoesNotExchangeCloseNotify() throws Exception {
+        Channel channel = createConnectedChannel();
+        SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+        ChannelFuture closed = mock(ChannelFuture.class);
+        when(channel.close()).thenReturn(closed);
+
+        NettySslTransport transport = createTransport(new URI("tcp://localhost:5671"), testListener, new TransportSslOptions());
+
+        assertSame(closed, transport.closeChannel(channel));
+        verify(sslHandler, never()).close();
+    }
+
+    @Test(timeout = 60 * 1000)
+    @SuppressWarnings("unchecked")
+    public void testCloseWithCachedContextExchangesCloseNotifyInBackground() throws Exception {
+        Channel channel = createConnectedChannel();
+        SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+        ChannelFuture succeeded = mock(ChannelFuture.class);
+        when(channel.newSucceededFuture()).thenReturn(succeeded);
+
+        EventLoop eventLoop = mock(EventLoop.class);
+        ScheduledFuture<?> timeout = mock(ScheduledFuture.class);
+        when(channel.eventLoop()).thenReturn(eventLoop);
+        doReturn(timeout).when(eventLoop).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+        Future<Channel> sslCloseFuture = mock(Future.class);
+        when(sslHandler.sslCloseFuture()).thenReturn(sslCloseFuture);
+
+        TransportSslOptions options = new TransportSslOptions();
+        options.setCacheSslContext(true);
+        options.setCloseNotifyTimeout(250);
+
+        NettySslTransport transport = createTransport(new URI("tcp://localhost:5671"), testListener, options);
+
+        // The caller is handed a completed future while the exchange goes on in the background.
+        assertSame(succeeded, transport.closeChannel(channel));
+        verify(sslHandler).close();
+        verify(eventLoop).schedule(any(Runnable.class), eq(250L), eq(TimeUnit.MILLISECONDS));
+        verify(channel, never()).close();
+
+        ArgumentCaptor<GenericFutureListener> listener = ArgumentCaptor.forClass(GenericFutureListener.class);
+        verify(sslCloseFuture).addListener(listener.capture());
+        listener.getValue().operationComplete(sslCloseFuture);
+
+        verify(timeout).cancel(false);
+        verify(channel).close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Channel createConnectedChannel() {
+        Future<Channel> handshakeFuture = mock(Future.class);
+        when(handshakeFuture.isSuccess()).thenReturn(true);
+
+        SslHandler sslHandler = mock(SslHandler.class);
+        when(sslHandler.handshakeFuture()).thenReturn(handshakeFuture);
+
+        ChannelPipeline pipeline = mock(ChannelPipeline.class);
+        when(pipeline.get(SslHandler.class)).thenReturn(sslHandler);
+
+        Channel channel = mock(Channel.class);
+        when(channel.pipeline()).thenReturn(pipeline);
+        when(channel.isActive()).thenReturn(true);
+
+        return channel;
+    }
+
     @Override
     protected NettySslTransport createTransport(URI serverLocation, TransportListener listener, TransportOptions options) {
         return new NettySslTransport(listener, serverLocation, options);
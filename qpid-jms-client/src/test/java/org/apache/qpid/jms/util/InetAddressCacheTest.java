@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class InetAddressCacheTest {
+
+    @Test
+    public void testDefaultTimeToLive() {
+        InetAddressCache cache = new InetAddressCache();
+        assertEquals(InetAddressCache.DEFAULT_TIME_TO_LIVE, cache.getTimeToLive());
+        cache.setTimeToLive(1000);
+        assertEquals(1000, cache.getTimeToLive());
+    }
+
+    @Test
+    public void testResolveNullHost() {
+        InetAddressCache cache = new InetAddressCache();
+        assertNull(cache.resolve(null));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testResolveLiteralAddress() throws Exception {
+        InetAddressCache cache = new InetAddressCache();
+        InetAddress address = cache.resolve("127.0.0.1");
+        assertNotNull(address);
+        assertEquals(InetAddress.getByName("127.0.0.1"), address);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testCachedValueReturnedWhileCurrent() {
+        InetAddressCache cache = new InetAddressCache();
+        InetAddress first = cache.resolve("localhost");
+        InetAddress second = cache.resolve("LOCALHOST");
+        assertEquals(first, second);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testExpiredValueStillReturned() throws Exception {
+        InetAddressCache cache = new InetAddressCache();
+        cache.setTimeToLive(0);
+
+        InetAddress address = cache.resolve("127.0.0.1");
+        assertNotNull(address);
+
+        // Stale value is returned while a refresh happens in the background
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(address, cache.resolve("127.0.0.1"));
+        }
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testGetCachedAddressResolvesInBackground() throws Exception {
+        final CountDownLatch resolved = new CountDownLatch(1);
+        final AtomicReference<InetAddress> result = new AtomicReference<InetAddress>();
+
+        InetAddressCache cache = new InetAddressCache(new InetAddressCache.Listener() {
+
+            @Override
+            public void onAddressResolved(String host, InetAddress address) {
+                result.set(address);
+                resolved.countDown();
+            }
+        });
+
+        assertNull(cache.getCachedAddress("localhost"));
+        assertTrue(resolved.await(5, TimeUnit.SECONDS));
+        assertNotNull(result.get());
+        assertEquals(result.get(), cache.getCachedAddress("localhost"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testGetCachedAddressParsesLiteralAddress() throws Exception {
+        InetAddressCache cache = new InetAddressCache();
+        assertEquals(InetAddress.getByName("127.0.0.1"), cache.getCachedAddress("127.0.0.1"));
+        assertNull(cache.getCachedAddress(null));
+    }
+
+    @Test
+    public void testClear() {
+        InetAddressCache cache = new InetAddressCache();
+        cache.resolve("127.0.0.1");
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
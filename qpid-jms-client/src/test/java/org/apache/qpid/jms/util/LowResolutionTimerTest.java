@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for the shared LowResolutionTimer
+ */
+public class LowResolutionTimerTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testResolutionMustBePositive() {
+        new LowResolutionTimer("test", 0);
+    }
+
+    @Test(timeout = 10000)
+    public void testTimeoutRunsAfterDelay() throws Exception {
+        LowResolutionTimer timer = new LowResolutionTimer("test", 10);
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        timer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        }, 50);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 49);
+        assertEquals(0, timer.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testTimeoutsRunInDeadlineOrder() throws Exception {
+        LowResolutionTimer timer = new LowResolutionTimer("test", 10);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch ran = new CountDownLatch(3);
+
+        int[] delays = new int[] { 150, 50, 100 };
+        for (final int delay : delays) {
+            timer.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    order.add(delay);
+                    ran.countDown();
+                }
+            }, delay);
+        }
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(50, order.get(0).intValue());
+        assertEquals(100, order.get(1).intValue());
+        assertEquals(150, order.get(2).intValue());
+    }
+
+    @Test(timeout = 10000)
+    public void testCancelledTimeoutDoesNotRun() throws Exception {
+        LowResolutionTimer timer = new LowResolutionTimer("test", 10);
+        final AtomicInteger cancelledRuns = new AtomicInteger();
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        LowResolutionTimer.Timeout timeout = timer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                cancelledRuns.incrementAndGet();
+            }
+        }, 50);
+
+        timer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        }, 100);
+
+        assertEquals(2, timer.size());
+        timeout.cancel();
+        assertEquals(1, timer.size());
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    @Test(timeout = 10000)
+    public void testEarlierTimeoutWakesWaitingTimer() throws Exception {
+        LowResolutionTimer timer = new LowResolutionTimer("test", 10);
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        timer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+            }
+        }, TimeUnit.MINUTES.toMillis(5));
+
+        timer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        }, 20);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(1, timer.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailingTaskDoesNotStopTimer() throws Exception {
+        LowResolutionTimer timer = new LowResolutionTimer("test", 10);
+        final CountDownLatch ran = new CountDownLatch(1);
+
+        timer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                throw new RuntimeException("Expected");
+            }
+        }, 10);
+
+        timer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        }, 50);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertFalse(timer.size() > 0);
+    }
+}
@@ -148,27 +148,74 @@ public class PriorityMessageQueueTest {
     }
 
     @Test
-    public void testEnqueueFirstOverridesPriority() {
-        // Add a higher priority message
+    public void testEnqueueFirstPlacesAheadOfSamePriority() {
         JmsInboundMessageDispatch message1 = createEnvelope(7);
+        JmsInboundMessageDispatch message2 = createEnvelope(4);
+        JmsInboundMessageDispatch message3 = createEnvelope(4);
 
         queue.enqueue(message1);
+        queue.enqueue(message2);
 
-        // Add other lower priority messages 'first'.
-        JmsInboundMessageDispatch message2 = createEnvelope(4);
-        JmsInboundMessageDispatch message3 = createEnvelope(3);
-        JmsInboundMessageDispatch message4 = createEnvelope(2);
+        // Add messages 'first', each goes ahead of those of the same priority only.
+        JmsInboundMessageDispatch message4 = createEnvelope(4);
+        JmsInboundMessageDispatch message5 = createEnvelope(2);
 
-        queue.enqueueFirst(message2);
-        queue.enqueueFirst(message3);
         queue.enqueueFirst(message4);
+        queue.enqueueFirst(message5);
+        queue.enqueue(message3);
 
-        // Verify they dequeue in the reverse of the order
-        // they were added, and not priority order.
+        assertSame(message1, queue.dequeueNoWait());
         assertSame(message4, queue.dequeueNoWait());
-        assertSame(message3, queue.dequeueNoWait());
         assertSame(message2, queue.dequeueNoWait());
-        assertSame(message1, queue.dequeueNoWait());
+        assertSame(message3, queue.dequeueNoWait());
+        assertSame(message5, queue.dequeueNoWait());
+        assertNull(queue.dequeueNoWait());
+    }
+
+    @Test
+    public void testEnqueueFirstInReverseRestoresOrderWithinPriority() {
+        List<JmsInboundMessageDispatch> redelivered = new ArrayList<JmsInboundMessageDispatch>();
+        for (int i = 0; i < 6; ++i) {
+            redelivered.add(createEnvelope(i % 2 == 0 ? 5 : 3));
+        }
+
+        JmsInboundMessageDispatch pending5 = createEnvelope(5);
+        JmsInboundMessageDispatch pending3 = createEnvelope(3);
+        queue.enqueue(pending5);
+        queue.enqueue(pending3);
+
+        // Recovery enqueues previously delivered messages first, newest to oldest.
+        for (int i = redelivered.size() - 1; i >= 0; --i) {
+            queue.enqueueFirst(redelivered.get(i));
+        }
+
+        assertSame(redelivered.get(0), queue.dequeueNoWait());
+        assertSame(redelivered.get(2), queue.dequeueNoWait());
+        assertSame(redelivered.get(4), queue.dequeueNoWait());
+        assertSame(pending5, queue.dequeueNoWait());
+        assertSame(redelivered.get(1), queue.dequeueNoWait());
+        assertSame(redelivered.get(3), queue.dequeueNoWait());
+        assertSame(redelivered.get(5), queue.dequeueNoWait());
+        assertSame(pending3, queue.dequeueNoWait());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testPriorityLevelsReusedAfterDraining() {
+        for (int round = 0; round < 3; ++round) {
+            JmsInboundMessageDispatch low = createEnvelope(0);
+            JmsInboundMessageDispatch high = createEnvelope(9);
+
+            queue.enqueue(low);
+            queue.enqueue(high);
+
+            assertSame(high, queue.peek());
+            assertSame(high, queue.dequeueNoWait());
+            assertSame(low, queue.peek());
+            assertSame(low, queue.dequeueNoWait());
+            assertNull(queue.peek());
+            assertEquals(0, queue.size());
+        }
     }
 
     @Test
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the cached PropertyBinder
+ */
+public class PropertyBinderTest {
+
+    @SuppressWarnings("unused")
+    private static final class Options {
+        private String name;
+        private int count;
+        private boolean enabled;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public void setWriteOnly(String value) {
+        }
+    }
+
+    @Test
+    public void testBinderIsCachedPerClass() throws Exception {
+        assertSame(PropertyBinder.forClass(Options.class), PropertyBinder.forClass(Options.class));
+    }
+
+    @Test
+    public void testPropertyTypes() throws Exception {
+        PropertyBinder binder = PropertyBinder.forClass(Options.class);
+
+        assertEquals(String.class, binder.getPropertyType("name"));
+        assertEquals(int.class, binder.getPropertyType("count"));
+        assertEquals(boolean.class, binder.getPropertyType("enabled"));
+        assertEquals(String.class, binder.getPropertyType("writeOnly"));
+        assertNull(binder.getPropertyType("unknown"));
+        assertNull(binder.getPropertyType(""));
+    }
+
+    @Test
+    public void testSetAndGetProperty() throws Throwable {
+        PropertyBinder binder = PropertyBinder.forClass(Options.class);
+        Options options = new Options();
+
+        assertTrue(binder.setProperty(options, "name", "test"));
+        assertTrue(binder.setProperty(options, "count", 42));
+        assertTrue(binder.setProperty(options, "enabled", Boolean.TRUE));
+        assertFalse(binder.setProperty(options, "unknown", "value"));
+
+        assertEquals("test", options.getName());
+        assertEquals(42, options.getCount());
+        assertTrue(options.isEnabled());
+
+        assertEquals("test", binder.getProperty(options, "name"));
+        assertEquals(42, binder.getProperty(options, "count"));
+        assertEquals(Boolean.TRUE, binder.getProperty(options, "enabled"));
+        assertNull(binder.getProperty(options, "writeOnly"));
+    }
+
+    @Test
+    public void testReadablePropertiesExcludeWriteOnly() throws Exception {
+        PropertyBinder binder = PropertyBinder.forClass(Options.class);
+
+        assertTrue(binder.getReadableProperties().containsKey("name"));
+        assertTrue(binder.getReadableProperties().containsKey("count"));
+        assertTrue(binder.getReadableProperties().containsKey("enabled"));
+        assertFalse(binder.getReadableProperties().containsKey("writeOnly"));
+    }
+}
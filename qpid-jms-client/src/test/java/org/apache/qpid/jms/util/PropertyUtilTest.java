@@ -283,6 +283,20 @@ public class PropertyUtilTest {
         assertEquals(null, result.get("notAssigned"));
     }
 
+    @Test
+    public void testParseQueryReturnsIndependentCopies() throws Exception {
+        Map<String, String> first = PropertyUtil.parseQuery("option=true&another=false");
+        first.remove("option");
+        first.put("added", "value");
+
+        Map<String, String> second = PropertyUtil.parseQuery("option=true&another=false");
+
+        assertEquals(2, second.size());
+        assertEquals("true", second.get("option"));
+        assertEquals("false", second.get("another"));
+        assertFalse(second.containsKey("added"));
+    }
+
     @Test
     public void testParseQueryEmptryString() throws Exception {
         Map<String, String> result = PropertyUtil.parseQuery("");
@@ -24,13 +24,23 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -44,12 +54,18 @@ import org.slf4j.LoggerFactory;
 /**
  * Discovery agent that watches a file and periodically reads in remote URIs
  * from that file.
+ *
+ * When watchForChanges is enabled and the watched resource is a local file the agent
+ * instead registers with the file system's WatchService and only re-reads the file
+ * when it is created or modified, waiting for the configured debounce interval to
+ * pass without further changes so that a file written in several steps is read once.
  */
 public class FileWatcherDiscoveryAgent implements DiscoveryAgent {
 
     private static final Logger LOG = LoggerFactory.getLogger(FileWatcherDiscoveryAgent.class);
 
     private static final int DEFAULT_UPDATE_INTERVAL = 30000;
+    private static final int DEFAULT_DEBOUNCE_INTERVAL = 50;
 
     private ScheduledExecutorService scheduler;
     private final Set<URI> discovered = new LinkedHashSet<URI>();
@@ -60,6 +76,11 @@ public class FileWatcherDiscoveryAgent implements DiscoveryAgent {
     private DiscoveryListener listener;
     private int updateInterval = DEFAULT_UPDATE_INTERVAL;
     private boolean warnOnWatchedReadError;
+    private boolean watchForChanges;
+    private int debounceInterval = DEFAULT_DEBOUNCE_INTERVAL;
+
+    private WatchService watchService;
+    private ScheduledFuture<?> pendingUpdate;
 
     public FileWatcherDiscoveryAgent(URI discoveryURI) throws URISyntaxException {
         this.discoveryURI = URISupport.removeQuery(discoveryURI);
@@ -95,20 +116,25 @@ public class FileWatcherDiscoveryAgent implements DiscoveryAgent {
         }
 
         if (started.compareAndSet(false, true)) {
-            scheduler.scheduleAtFixedRate(new Runnable() {
-
-                @Override
-                public void run() {
-                    LOG.debug("Performing watched resources scheduled update: {}", getDiscvoeryURI());
-                    updateWatchedResources();
-                }
-            }, 0, getUpdateInterval(), TimeUnit.MILLISECONDS);
+            if (isWatchForChanges() && startWatching()) {
+                scheduleUpdate(0);
+            } else {
+                startPolling(0);
+            }
         }
     }
 
     @Override
     public void close() {
         if (started.compareAndSet(true, false)) {
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    LOG.trace("Error closing watch service: ", e);
+                }
+            }
+
             ThreadPoolUtils.shutdownGraceful(scheduler);
         }
     }
@@ -152,8 +178,179 @@ public class FileWatcherDiscoveryAgent implements DiscoveryAgent {
         this.updateInterval = updateInterval;
     }
 
+    /**
+     * @return true if the watched file is monitored using the file system WatchService.
+     */
+    public boolean isWatchForChanges() {
+        return watchForChanges;
+    }
+
+    /**
+     * Controls whether a local watched file is monitored for changes using the file system
+     * WatchService rather than being read every update interval.  If the resource is not a
+     * local file or cannot be watched the agent falls back to reading it periodically.
+     *
+     * @param watchForChanges
+     *        true if the file should be re-read only when changes are reported.
+     */
+    public void setWatchForChanges(boolean watchForChanges) {
+        this.watchForChanges = watchForChanges;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for changes to settle before reading the file.
+     */
+    public int getDebounceInterval() {
+        return debounceInterval;
+    }
+
+    /**
+     * Sets the time in milliseconds that must pass without a further change being reported
+     * before a watched file is read, only used when watching for changes.
+     *
+     * @param debounceInterval
+     *        the time in milliseconds to wait for changes to settle.
+     */
+    public void setDebounceInterval(int debounceInterval) {
+        this.debounceInterval = debounceInterval;
+    }
+
     //----- Internal implementation ------------------------------------------//
 
+    private boolean startWatching() {
+        final Path watched = getWatchedPath();
+        if (watched == null) {
+            LOG.info("Cannot watch non-file resource {} for changes, reading it every {} ms", getDiscvoeryURI(), getUpdateInterval());
+            return false;
+        }
+
+        final Path directory = watched.toAbsolutePath().getParent();
+        if (directory == null) {
+            LOG.info("Cannot watch {} as it has no parent directory, reading it every {} ms", getDiscvoeryURI(), getUpdateInterval());
+            return false;
+        }
+
+        try {
+            final WatchService service = directory.getFileSystem().newWatchService();
+            try {
+                directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                                            StandardWatchEventKinds.ENTRY_MODIFY,
+                                            StandardWatchEventKinds.ENTRY_DELETE);
+            } catch (IOException e) {
+                service.close();
+                throw e;
+            }
+
+            Thread watcher = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    watchForUpdates(service, watched.getFileName());
+                }
+            });
+            watcher.setName(toString() + ":" + watcher.getName());
+            watcher.setDaemon(true);
+
+            watchService = service;
+            watcher.start();
+        } catch (IOException e) {
+            LOG.warn("Unable to watch {} for changes, reading it every {} ms: {}", watched, getUpdateInterval(), e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    private void watchForUpdates(WatchService service, Path fileName) {
+        while (started.get()) {
+            WatchKey key = null;
+            try {
+                key = service.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                    changed = true;
+                }
+            }
+
+            if (changed) {
+                LOG.trace("Change reported for watched resource: {}", getDiscvoeryURI());
+                scheduleUpdate(getDebounceInterval());
+            }
+
+            if (!key.reset()) {
+                LOG.warn("Directory of watched resource {} is no longer accessible, reading it every {} ms",
+                         getDiscvoeryURI(), getUpdateInterval());
+                try {
+                    service.close();
+                } catch (IOException e) {
+                    LOG.trace("Error closing watch service: ", e);
+                }
+
+                if (started.get()) {
+                    try {
+                        startPolling(getUpdateInterval());
+                    } catch (RejectedExecutionException e) {
+                        LOG.trace("Watched resource polling not scheduled, agent is closed");
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+    private void startPolling(long initialDelay) {
+        scheduler.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                LOG.debug("Performing watched resources scheduled update: {}", getDiscvoeryURI());
+                updateWatchedResources();
+            }
+        }, initialDelay, getUpdateInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void scheduleUpdate(long delay) {
+        if (pendingUpdate != null) {
+            pendingUpdate.cancel(false);
+        }
+
+        try {
+            pendingUpdate = scheduler.schedule(new Runnable() {
+
+                @Override
+                public void run() {
+                    LOG.debug("Performing watched resources update after change: {}", getDiscvoeryURI());
+                    updateWatchedResources();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            LOG.trace("Watched resource update not scheduled, agent is closed");
+        }
+    }
+
+    private Path getWatchedPath() {
+        URI uri = getDiscvoeryURI();
+        try {
+            if (uri.getScheme() == null) {
+                return Paths.get(uri.getPath()).toAbsolutePath();
+            } else if ("file".equalsIgnoreCase(uri.getScheme())) {
+                return Paths.get(uri).toAbsolutePath();
+            }
+        } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+            LOG.trace("Watched resource is not a local file: {}", uri);
+        }
+
+        return null;
+    }
+
     private void updateWatchedResources() {
         String fileURL = getDiscvoeryURI().toString();
         if (fileURL != null) {
@@ -17,20 +17,24 @@
 package org.apache.qpid.jms.provider.discovery.multicast;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
+import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.InterfaceAddress;
 import java.net.MulticastSocket;
 import java.net.NetworkInterface;
-import java.net.SocketAddress;
 import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -45,8 +49,15 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Discovery agent that listens on a multicast address for new Broker advisories.
+ *
+ * The agent reads from a non-blocking DatagramChannel that is serviced by a selector
+ * thread shared with all other multicast agents in the JVM.  Advertisements that are
+ * byte for byte identical to one already seen from a known peer only refresh that
+ * peer's heartbeat and are not parsed again, and peer add and remove events are
+ * coalesced and passed to the DiscoveryListener in batches so that a storm of
+ * advertisements does not churn the failover layer.
  */
-public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
+public class MulticastDiscoveryAgent implements DiscoveryAgent {
 
     public static final String DEFAULT_DISCOVERY_URI_STRING = "multicast://239.255.2.3:6155";
     public static final String DEFAULT_HOST_STR = "default";
@@ -57,6 +68,9 @@ public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
     private static final int BUFF_SIZE = 8192;
     private static final int DEFAULT_IDLE_TIME = 500;
     private static final int HEARTBEAT_MISS_BEFORE_DEATH = 10;
+    private static final int MAX_CACHED_ADVERTISEMENTS = 1024;
+
+    public static final long DEFAULT_EVENT_BATCH_INTERVAL = 100;
 
     private static final List<String> DEFAULT_EXCLUSIONS = new ArrayList<String>();
 
@@ -72,10 +86,9 @@ public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
     private final Map<URI, RemoteBrokerData> brokersByService = new ConcurrentHashMap<URI, RemoteBrokerData>();
     private String group = "default";
     private InetAddress inetAddress;
-    private SocketAddress sockAddress;
-    private MulticastSocket mcast;
-    private Thread runner;
+    private DatagramChannel channel;
     private long keepAliveInterval = DEFAULT_IDLE_TIME;
+    private volatile long eventBatchInterval = DEFAULT_EVENT_BATCH_INTERVAL;
     private String mcInterface;
     private String mcNetworkInterface;
     private String mcJoinNetworkInterface;
@@ -83,6 +96,13 @@ public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
     private final AtomicBoolean started = new AtomicBoolean(false);
     private PacketParser parser;
 
+    // Only accessed from the shared selector thread once the agent is started.
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFF_SIZE);
+    private final Map<ByteBuffer, RemoteBrokerData> brokersByAdvertisement = new HashMap<ByteBuffer, RemoteBrokerData>();
+    private final Map<URI, EventType> pendingEvents = new LinkedHashMap<URI, EventType>();
+    private long lastExpiryCheck;
+    private long lastEventBatch;
+
     public MulticastDiscoveryAgent(URI discoveryURI) {
         this.discoveryURI = discoveryURI;
     }
@@ -151,44 +171,46 @@ public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
             LOG.trace("mcast - join network interface = {}", mcJoinNetworkInterface);
 
             this.inetAddress = InetAddress.getByName(myHost);
-            this.sockAddress = new InetSocketAddress(this.inetAddress, myPort);
-            mcast = new MulticastSocket(myPort);
-            mcast.setLoopbackMode(loopBackMode);
-            mcast.setTimeToLive(getTimeToLive());
-            if (mcJoinNetworkInterface != null) {
-                mcast.joinGroup(sockAddress, NetworkInterface.getByName(mcJoinNetworkInterface));
-            } else {
-                if (mcNetworkInterface != null) {
-                    mcast.setNetworkInterface(NetworkInterface.getByName(mcNetworkInterface));
-                } else {
-                    trySetNetworkInterface(mcast);
-                }
-                mcast.joinGroup(inetAddress);
-            }
-            mcast.setSoTimeout((int) keepAliveInterval);
-            if (mcInterface != null) {
-                mcast.setInterface(InetAddress.getByName(mcInterface));
-            }
 
-            if (mcNetworkInterface != null) {
-                mcast.setNetworkInterface(NetworkInterface.getByName(mcNetworkInterface));
-            }
+            NetworkInterface networkInterface = findJoinNetworkInterface();
+            LOG.debug("Joining multicast group {} using network interface {}", inetAddress, networkInterface);
+
+            brokersByService.clear();
+            brokersByAdvertisement.clear();
+            pendingEvents.clear();
+            lastEventBatch = System.currentTimeMillis();
 
-            runner = new Thread(this);
-            runner.setName(this.toString() + ":" + runner.getName());
-            runner.setDaemon(true);
-            runner.start();
+            StandardProtocolFamily family = inetAddress instanceof Inet6Address ? StandardProtocolFamily.INET6 : StandardProtocolFamily.INET;
+            DatagramChannel channel = DatagramChannel.open(family);
+            try {
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+                channel.bind(new InetSocketAddress(myPort));
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, getTimeToLive());
+                // Loop back mode follows the MulticastSocket convention where true disables it.
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, !loopBackMode);
+                channel.join(inetAddress, networkInterface);
+
+                this.channel = channel;
+                MulticastSelector.getInstance().register(channel, new ChannelHandler());
+            } catch (IOException e) {
+                started.set(false);
+                channel.close();
+                throw e;
+            }
         }
     }
 
     @Override
     public void close() {
         if (started.compareAndSet(true, false)) {
-            if (mcast != null) {
-                mcast.close();
-            }
-            if (runner != null) {
-                runner.interrupt();
+            if (channel != null) {
+                MulticastSelector.getInstance().unregister(channel);
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOG.trace("Error closing multicast channel: ", e);
+                }
             }
         }
     }
@@ -204,57 +226,80 @@ public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
     }
 
     @Override
-    public void run() {
-        byte[] buf = new byte[BUFF_SIZE];
-        DatagramPacket packet = new DatagramPacket(buf, 0, buf.length);
+    public String toString() {
+        return "MulticastDiscoveryAgent: listener:" + getDiscvoeryURI();
+    }
+
+    //---------- Internal Implementation -------------------------------------//
+
+    private void readAdvertisements() {
         while (started.get()) {
-            expireOldServices();
             try {
-                mcast.receive(packet);
-                if (packet.getLength() > 0) {
-                    DiscoveryEvent event = parser.processPacket(packet.getData(), packet.getOffset(), packet.getLength());
-                    if (event != null) {
-                        if (event.getType() == EventType.ALIVE) {
-                            processAlive(event);
-                        } else {
-                            processShutdown(event);
-                        }
-                    }
+                buffer.clear();
+                if (channel.receive(buffer) == null) {
+                    break;
                 }
-            } catch (SocketTimeoutException se) {
-                // ignore
             } catch (IOException e) {
                 if (started.get()) {
                     LOG.error("failed to process packet: {}", e.getMessage());
                     LOG.trace(" packet processing failed by: {}", e);
                 }
+                break;
+            }
+
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                processAdvertisement(buffer);
             }
         }
     }
 
-    @Override
-    public String toString() {
-        return "MulticastDiscoveryAgent: listener:" + getDiscvoeryURI();
-    }
+    private void processAdvertisement(ByteBuffer advertisement) {
+        // Known peers repeat the same advertisement as their heartbeat, avoid parsing it again.
+        RemoteBrokerData known = brokersByAdvertisement.get(advertisement);
+        if (known != null) {
+            known.updateHeartBeat();
+            return;
+        }
 
-    //---------- Internal Implementation -------------------------------------//
+        DiscoveryEvent event = parser.processPacket(
+            advertisement.array(), advertisement.arrayOffset() + advertisement.position(), advertisement.remaining());
+        if (event != null) {
+            if (event.getType() == EventType.ALIVE) {
+                RemoteBrokerData data = processAlive(event);
+                if (data.advertisement == null && brokersByAdvertisement.size() < MAX_CACHED_ADVERTISEMENTS) {
+                    ByteBuffer copy = ByteBuffer.allocate(advertisement.remaining());
+                    copy.put(advertisement.duplicate()).flip();
+                    data.advertisement = copy;
+                    brokersByAdvertisement.put(copy, data);
+                }
+            } else {
+                processShutdown(event);
+            }
+        }
+    }
 
-    private void processAlive(DiscoveryEvent event) {
+    private RemoteBrokerData processAlive(DiscoveryEvent event) {
         RemoteBrokerData data = brokersByService.get(event.getPeerUri());
         if (data == null) {
             URI peerUri = event.getPeerUri();
             data = new RemoteBrokerData(event.getPeerUri());
             brokersByService.put(peerUri, data);
-            fireServiceAddEvent(data);
+            queueEvent(peerUri, EventType.ALIVE);
         } else {
             data.updateHeartBeat();
         }
+
+        return data;
     }
 
     private void processShutdown(DiscoveryEvent event) {
         RemoteBrokerData data = brokersByService.remove(event.getPeerUri());
         if (data != null) {
-            fireServiceRemovedEvent(data);
+            if (data.advertisement != null) {
+                brokersByAdvertisement.remove(data.advertisement);
+            }
+            queueEvent(data.getPeerUri(), EventType.SHUTDOWN);
         }
     }
 
@@ -268,15 +313,98 @@ public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
         }
     }
 
-    private void fireServiceRemovedEvent(final RemoteBrokerData data) {
+    private void queueEvent(URI peerUri, EventType type) {
+        // A peer that comes and goes before the listener heard of the first change
+        // cancels out, the listener's view of that peer is already correct.
+        EventType pending = pendingEvents.remove(peerUri);
+        if (pending == null) {
+            pendingEvents.put(peerUri, type);
+        }
+    }
+
+    private void fireQueuedEvents(long now) {
+        if (pendingEvents.isEmpty() || now - lastEventBatch < eventBatchInterval) {
+            return;
+        }
+
+        lastEventBatch = now;
+
+        for (Map.Entry<URI, EventType> event : pendingEvents.entrySet()) {
+            if (event.getValue() == EventType.ALIVE) {
+                fireServiceAddEvent(event.getKey());
+            } else {
+                fireServiceRemovedEvent(event.getKey());
+            }
+        }
+
+        pendingEvents.clear();
+    }
+
+    private void fireServiceRemovedEvent(URI peerUri) {
         if (listener != null && started.get()) {
-            listener.onServiceRemove(data.getPeerUri());
+            listener.onServiceRemove(peerUri);
         }
     }
 
-    private void fireServiceAddEvent(final RemoteBrokerData data) {
+    private void fireServiceAddEvent(URI peerUri) {
         if (listener != null && started.get()) {
-            listener.onServiceAdd(data.getPeerUri());
+            listener.onServiceAdd(peerUri);
+        }
+    }
+
+    private NetworkInterface findJoinNetworkInterface() throws IOException {
+        if (mcJoinNetworkInterface != null) {
+            return getNetworkInterface(mcJoinNetworkInterface);
+        } else if (mcNetworkInterface != null) {
+            return getNetworkInterface(mcNetworkInterface);
+        } else if (mcInterface != null) {
+            NetworkInterface result = NetworkInterface.getByInetAddress(InetAddress.getByName(mcInterface));
+            if (result == null) {
+                throw new SocketException("No NetworkInterface found with address: " + mcInterface);
+            }
+
+            return result;
+        }
+
+        List<NetworkInterface> interfaces = findNetworkInterfaces();
+        if (interfaces.isEmpty()) {
+            throw new SocketException("No NetworkInterface available for this socket.");
+        }
+
+        return interfaces.get(0);
+    }
+
+    private static NetworkInterface getNetworkInterface(String name) throws SocketException {
+        NetworkInterface result = NetworkInterface.getByName(name);
+        if (result == null) {
+            throw new SocketException("No NetworkInterface found with name: " + name);
+        }
+
+        return result;
+    }
+
+    private final class ChannelHandler implements MulticastSelector.Handler {
+
+        @Override
+        public void onReadable() {
+            readAdvertisements();
+            fireQueuedEvents(System.currentTimeMillis());
+        }
+
+        @Override
+        public void onTick(long now) {
+            if (now - lastExpiryCheck >= keepAliveInterval) {
+                lastExpiryCheck = now;
+                expireOldServices();
+            }
+
+            fireQueuedEvents(now);
+        }
+
+        @Override
+        public void onFailure(IOException cause) {
+            LOG.error("Multicast discovery on {} stopped after selector failure: {}", getDiscvoeryURI(), cause.getMessage());
+            close();
         }
     }
 
@@ -327,6 +455,26 @@ public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
         this.keepAliveInterval = keepAliveInterval;
     }
 
+    /**
+     * @return the minimum time in milliseconds between batches of events sent to the listener.
+     */
+    public long getEventBatchInterval() {
+        return eventBatchInterval;
+    }
+
+    /**
+     * Sets the minimum time in milliseconds between batches of peer add and remove events
+     * passed to the DiscoveryListener.  Changes that occur within the interval are coalesced,
+     * a peer that appears and disappears again before the batch is sent is never reported.
+     * A value of zero passes events on as soon as the datagrams carrying them are processed.
+     *
+     * @param eventBatchInterval
+     *        the minimum time in milliseconds between batches of listener events.
+     */
+    public void setEventBatchInterval(long eventBatchInterval) {
+        this.eventBatchInterval = eventBatchInterval;
+    }
+
     public void setInterface(String mcInterface) {
         this.mcInterface = mcInterface;
     }
@@ -451,6 +599,7 @@ public class MulticastDiscoveryAgent implements DiscoveryAgent, Runnable {
     private static class RemoteBrokerData extends DiscoveryEvent {
 
         long lastHeartBeat;
+        ByteBuffer advertisement;
 
         public RemoteBrokerData(URI peerUri) {
             super(peerUri, EventType.ALIVE);
@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.discovery.multicast;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Selector shared by all the multicast discovery agents in the JVM.
+ *
+ * Each agent registers its DatagramChannel along with a handler that is called on the
+ * single selector thread whenever the channel is readable, and again on every tick so
+ * that the agent can perform periodic work such as expiring peers that have stopped
+ * sending heartbeats.  The selector thread is started when the first channel is
+ * registered and exits once the last one has been unregistered.  Should the selector
+ * fail, a new one is opened and the registered channels are moved to it, if that is not
+ * possible each handler is told of the failure so that its agent can shut down.
+ */
+final class MulticastSelector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MulticastSelector.class);
+
+    static final long TICK_INTERVAL = 100;
+
+    private static final MulticastSelector INSTANCE = new MulticastSelector();
+
+    /**
+     * Callback used by the selector thread to hand work to an agent.
+     */
+    interface Handler {
+
+        /**
+         * Called when the registered channel has datagrams available to be read.
+         */
+        void onReadable();
+
+        /**
+         * Called each time the selector wakes up, at least once every tick interval.
+         *
+         * @param now
+         *        the current time in milliseconds.
+         */
+        void onTick(long now);
+
+        /**
+         * Called when the selector failed and could not be replaced, the channel has been
+         * unregistered and no further events will be delivered for it.
+         *
+         * @param cause
+         *        the error that caused the selector to fail.
+         */
+        void onFailure(IOException cause);
+
+    }
+
+    private final Map<DatagramChannel, Handler> channels = new HashMap<DatagramChannel, Handler>();
+    private SelectorThread thread;
+
+    private MulticastSelector() {
+    }
+
+    static MulticastSelector getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the given channel for reads, the channel is placed into non-blocking mode.
+     *
+     * @param channel
+     *        the channel to read datagrams from.
+     * @param handler
+     *        the handler that processes events for the channel.
+     *
+     * @throws IOException if the channel cannot be configured or the selector opened.
+     */
+    synchronized void register(final DatagramChannel channel, final Handler handler) throws IOException {
+        channel.configureBlocking(false);
+
+        if (thread == null) {
+            thread = new SelectorThread(Selector.open());
+            thread.start();
+        }
+
+        channels.put(channel, handler);
+        registerWith(thread, channel, handler);
+    }
+
+    /**
+     * Stops delivering events for the given channel, the caller remains responsible
+     * for closing the channel.
+     *
+     * @param channel
+     *        the channel to remove from the selector.
+     */
+    synchronized void unregister(DatagramChannel channel) {
+        if (channels.remove(channel) != null && thread != null) {
+            SelectionKey key = channel.keyFor(thread.selector);
+            if (key != null) {
+                key.cancel();
+            }
+
+            thread.selector.wakeup();
+        }
+    }
+
+    private synchronized boolean shouldExit(SelectorThread current) {
+        if (channels.isEmpty()) {
+            if (thread == current) {
+                thread = null;
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    /*
+     * Replaces a selector thread that failed, moving all registered channels to a new
+     * selector.  A thread that failed before completing a single select is not replaced
+     * to avoid spinning on a persistent error, the handlers are failed instead.
+     */
+    private void recover(SelectorThread failed, IOException cause) {
+        List<Handler> abandoned;
+
+        synchronized (this) {
+            if (thread != failed) {
+                return;
+            }
+
+            thread = null;
+            if (channels.isEmpty()) {
+                return;
+            }
+
+            if (failed.selectCompleted) {
+                try {
+                    thread = new SelectorThread(Selector.open());
+                    for (Map.Entry<DatagramChannel, Handler> entry : channels.entrySet()) {
+                        registerWith(thread, entry.getKey(), entry.getValue());
+                    }
+                    thread.start();
+
+                    LOG.info("Multicast discovery selector replaced after failure, {} channels re-registered", channels.size());
+                    return;
+                } catch (IOException e) {
+                    LOG.trace("Failed to open replacement discovery selector: ", e);
+                    thread = null;
+                    cause = e;
+                }
+            }
+
+            abandoned = new ArrayList<Handler>(channels.values());
+            channels.clear();
+        }
+
+        LOG.error("Multicast discovery selector could not be recovered: {}", cause.getMessage());
+        for (Handler handler : abandoned) {
+            try {
+                handler.onFailure(cause);
+            } catch (RuntimeException e) {
+                LOG.trace("Discovery agent failure handling failed by: ", e);
+            }
+        }
+    }
+
+    private static void registerWith(SelectorThread thread, final DatagramChannel channel, final Handler handler) {
+        final Selector selector = thread.selector;
+        thread.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    channel.register(selector, SelectionKey.OP_READ, handler);
+                } catch (ClosedChannelException e) {
+                    LOG.trace("Channel closed before it could be registered: {}", channel);
+                }
+            }
+        });
+    }
+
+    //----- Selector thread --------------------------------------------------//
+
+    private final class SelectorThread extends Thread {
+
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+        // Set once a select has completed, a thread that fails before then is not replaced.
+        private volatile boolean selectCompleted;
+
+        public SelectorThread(Selector selector) {
+            this.selector = selector;
+
+            setName("MulticastDiscoveryAgent: shared selector thread");
+            setDaemon(true);
+        }
+
+        public void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+
+                    selector.select(TICK_INTERVAL);
+                    selectCompleted = true;
+
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+
+                        if (key.isValid() && key.isReadable()) {
+                            try {
+                                ((Handler) key.attachment()).onReadable();
+                            } catch (RuntimeException e) {
+                                LOG.warn("Error processing discovery datagrams: {}", e.getMessage());
+                                LOG.trace("Datagram processing failed by: ", e);
+                            }
+                        }
+                    }
+
+                    long now = System.currentTimeMillis();
+                    for (SelectionKey key : selector.keys()) {
+                        if (key.isValid()) {
+                            try {
+                                ((Handler) key.attachment()).onTick(now);
+                            } catch (RuntimeException e) {
+                                LOG.warn("Error during discovery agent periodic processing: {}", e.getMessage());
+                                LOG.trace("Periodic processing failed by: ", e);
+                            }
+                        }
+                    }
+
+                    if (shouldExit(this)) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Multicast discovery selector failed: {}", e.getMessage());
+                LOG.trace("Selector failed by: ", e);
+                closeSelector();
+                recover(this, e);
+                return;
+            }
+
+            closeSelector();
+        }
+
+        private void closeSelector() {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                LOG.trace("Error closing discovery selector: ", e);
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 
 import org.apache.qpid.jms.provider.Provider;
+import org.apache.qpid.jms.provider.discovery.multicast.MulticastDiscoveryAgent;
 import org.apache.qpid.jms.provider.failover.FailoverProvider;
 import org.apache.qpid.jms.provider.failover.FailoverProviderFactory;
 import org.junit.Test;
@@ -45,6 +46,22 @@ public class DiscoveryProviderFactoryTest {
         assertTrue("Expected no nested options", failoverProvider.getNestedOptions().isEmpty());
     }
 
+    @Test
+    public void testCreateDiscoveryProviderWithMulticastAgentOptions() throws Exception {
+        URI discoveryUri = new URI("discovery:(multicast://default?group=mygroup&eventBatchInterval=250)");
+        Provider provider = DiscoveryProviderFactory.create(discoveryUri);
+
+        assertNotNull("Provider was not created", provider);
+        assertEquals("Provider was not of expected type", DiscoveryProvider.class, provider.getClass());
+
+        DiscoveryProvider discovery = (DiscoveryProvider) provider;
+        assertEquals("Expected one discovery agent", 1, discovery.getDiscoveryAgents().size());
+
+        MulticastDiscoveryAgent agent = (MulticastDiscoveryAgent) discovery.getDiscoveryAgents().get(0);
+        assertEquals("mygroup", agent.getGroup());
+        assertEquals(250, agent.getEventBatchInterval());
+    }
+
     @Test
     public void testCreateDiscoveryProviderWithFailoverSyntaxMainOption() throws Exception {
         String optionPrefix = FailoverProviderFactory.FAILOVER_OPTION_PREFIX;
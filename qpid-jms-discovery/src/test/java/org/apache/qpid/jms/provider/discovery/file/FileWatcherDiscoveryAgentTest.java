@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.discovery.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.provider.discovery.DiscoveryListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileWatcherDiscoveryAgentTest {
+
+    private static final URI PEER_1 = URI.create("tcp://192.168.2.1:5672");
+    private static final URI PEER_2 = URI.create("tcp://192.168.2.2:5672");
+    private static final URI PEER_3 = URI.create("tcp://192.168.2.3:5672");
+
+    private final BlockingQueue<URI> added = new LinkedBlockingQueue<URI>();
+    private final BlockingQueue<URI> removed = new LinkedBlockingQueue<URI>();
+
+    private File watched;
+    private FileWatcherDiscoveryAgent agent;
+
+    @Before
+    public void setUp() throws Exception {
+        watched = File.createTempFile("discovery", ".txt");
+        writeUris(PEER_1 + "," + PEER_2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (agent != null) {
+            agent.close();
+        }
+        watched.delete();
+    }
+
+    @Test(timeout = 30000)
+    public void testWatchForChangesReportsOnlyDeltas() throws Exception {
+        agent = createAgent(true);
+        agent.start();
+
+        assertTrue(awaitAll(added, PEER_1, PEER_2));
+
+        writeUris(PEER_2 + "," + PEER_3);
+
+        assertEquals(PEER_1, removed.poll(10, TimeUnit.SECONDS));
+        assertEquals(PEER_3, added.poll(10, TimeUnit.SECONDS));
+
+        // The unchanged peer should not have been reported again.
+        assertTrue(added.isEmpty());
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testPollingReportsChanges() throws Exception {
+        agent = createAgent(false);
+        agent.setUpdateInterval(50);
+        agent.start();
+
+        assertTrue(awaitAll(added, PEER_1, PEER_2));
+
+        writeUris(PEER_1.toString());
+
+        assertEquals(PEER_2, removed.poll(10, TimeUnit.SECONDS));
+        assertTrue(added.isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testFallsBackToPollingWhenWatchedDirectoryIsRemoved() throws Exception {
+        File directory = Files.createTempDirectory("discovery").toFile();
+        watched.delete();
+        watched = new File(directory, "peers.txt");
+        writeUris(PEER_1.toString());
+
+        try {
+            agent = createAgent(true);
+            agent.setUpdateInterval(50);
+            agent.start();
+
+            assertEquals(PEER_1, added.poll(10, TimeUnit.SECONDS));
+
+            // Removing the directory invalidates the watch, changes are then found by polling.
+            watched.delete();
+            directory.delete();
+            assertTrue(directory.mkdir());
+            writeUris(PEER_3.toString());
+
+            URI event;
+            do {
+                event = added.poll(10, TimeUnit.SECONDS);
+            } while (event != null && !PEER_3.equals(event));
+
+            assertEquals(PEER_3, event);
+        } finally {
+            watched.delete();
+            directory.delete();
+        }
+    }
+
+    private FileWatcherDiscoveryAgent createAgent(boolean watchForChanges) throws Exception {
+        FileWatcherDiscoveryAgent agent = new FileWatcherDiscoveryAgent(watched.toURI());
+        agent.setWatchForChanges(watchForChanges);
+        agent.setScheduler(Executors.newSingleThreadScheduledExecutor());
+        agent.setDiscoveryListener(new DiscoveryListener() {
+
+            @Override
+            public void onServiceAdd(URI remoteURI) {
+                added.add(remoteURI);
+            }
+
+            @Override
+            public void onServiceRemove(URI remoteURI) {
+                removed.add(remoteURI);
+            }
+        });
+
+        return agent;
+    }
+
+    private boolean awaitAll(BlockingQueue<URI> events, URI... expected) throws InterruptedException {
+        Set<URI> received = new HashSet<URI>();
+        for (int i = 0; i < expected.length; ++i) {
+            URI event = events.poll(10, TimeUnit.SECONDS);
+            if (event == null) {
+                return false;
+            }
+            received.add(event);
+        }
+
+        return received.equals(new HashSet<URI>(Arrays.asList(expected)));
+    }
+
+    private void writeUris(String uris) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(watched)) {
+            out.write(uris.getBytes("UTF-8"));
+        }
+    }
+}
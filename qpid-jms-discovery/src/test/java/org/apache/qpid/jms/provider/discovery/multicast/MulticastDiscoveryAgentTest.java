@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.provider.discovery.multicast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.MulticastSocket;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.jms.provider.discovery.DiscoveryListener;
+import org.apache.qpid.jms.provider.discovery.multicast.parsers.ActiveMQPacketParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MulticastDiscoveryAgentTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MulticastDiscoveryAgentTest.class);
+
+    private static final String GROUP = "test";
+    private static final String HOST = "239.255.2.3";
+    private static final int PORT = 6157;
+    private static final String BROKER_URI = "tcp://192.168.2.1:5672";
+
+    private final List<URI> added = new CopyOnWriteArrayList<URI>();
+    private final List<URI> removed = new CopyOnWriteArrayList<URI>();
+    private final CountDownLatch addedLatch = new CountDownLatch(1);
+    private final CountDownLatch removedLatch = new CountDownLatch(1);
+
+    private MulticastDiscoveryAgent agent;
+    private MulticastSocket sender;
+
+    @Before
+    public void setUp() throws Exception {
+        agent = new MulticastDiscoveryAgent(new URI("multicast://" + HOST + ":" + PORT));
+        agent.setGroup(GROUP);
+
+        ActiveMQPacketParser parser = new ActiveMQPacketParser();
+        parser.setGroup(GROUP);
+        agent.setParser(parser);
+        agent.setDiscoveryListener(new DiscoveryListener() {
+
+            @Override
+            public void onServiceAdd(URI remoteURI) {
+                added.add(remoteURI);
+                addedLatch.countDown();
+            }
+
+            @Override
+            public void onServiceRemove(URI remoteURI) {
+                removed.add(remoteURI);
+                removedLatch.countDown();
+            }
+        });
+
+        try {
+            agent.start();
+
+            sender = new MulticastSocket();
+            MulticastDiscoveryAgent.trySetNetworkInterface(sender);
+        } catch (IOException e) {
+            LOG.info("Multicast not available, skipping test: {}", e.getMessage());
+            assumeTrue(false);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (agent != null) {
+            agent.close();
+        }
+        if (sender != null) {
+            sender.close();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testRepeatedAdvertisementsAreReportedOnce() throws Exception {
+        for (int i = 0; i < 20; ++i) {
+            advertise("alive");
+        }
+
+        assumeTrue("No advertisement was received", addedLatch.await(5, TimeUnit.SECONDS));
+
+        advertise("dead");
+        assertTrue("Peer removal was not reported", removedLatch.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, added.size());
+        assertEquals(new URI(BROKER_URI), added.get(0));
+        assertEquals(1, removed.size());
+        assertEquals(new URI(BROKER_URI), removed.get(0));
+    }
+
+    @Test(timeout = 30000)
+    public void testPeerAddedAndRemovedWithinBatchIsNotReported() throws Exception {
+        agent.setEventBatchInterval(TimeUnit.SECONDS.toMillis(2));
+
+        advertise("alive");
+        advertise("dead");
+
+        assertTrue("Should not have reported a peer", !addedLatch.await(3, TimeUnit.SECONDS));
+        assertTrue(removed.isEmpty());
+    }
+
+    private void advertise(String type) throws IOException {
+        byte[] payload = (GROUP + ".ActiveMQ-4." + type + ".%broker%" + BROKER_URI).getBytes("UTF-8");
+        sender.send(new DatagramPacket(payload, payload.length, InetAddress.getByName(HOST), PORT));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.pool.JmsPoolConnectionFactory;
+import org.apache.qpid.jms.support.AmqpTestSupport;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compare the latency of a send that opens its own connection, session and producer,
+ * as a JmsTemplate style caller does, with and without the pooled ConnectionFactory.
+ */
+@Ignore
+public class PooledSendLatencyTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 2000;
+    private final int NUM_RUNS = 5;
+
+    @Test
+    public void testSendLatencyWithoutPool() throws Exception {
+        ConnectionFactory factory = createAmqpConnectionFactory();
+        Queue queue = createQueue();
+
+        // Warm Up the broker.
+        sendMessages(factory, queue, MSG_COUNT / 10);
+
+        for (int i = 0; i < NUM_RUNS; ++i) {
+            long result = sendMessages(factory, queue, MSG_COUNT);
+            LOG.info("Average send latency without pool: {} us", TimeUnit.NANOSECONDS.toMicros(result / MSG_COUNT));
+        }
+    }
+
+    @Test
+    public void testSendLatencyWithPool() throws Exception {
+        JmsPoolConnectionFactory factory = new JmsPoolConnectionFactory(createAmqpConnectionFactory());
+        Queue queue = createQueue();
+
+        try {
+            // Warm Up the broker.
+            sendMessages(factory, queue, MSG_COUNT / 10);
+
+            for (int i = 0; i < NUM_RUNS; ++i) {
+                long result = sendMessages(factory, queue, MSG_COUNT);
+                LOG.info("Average send latency with pool: {} us", TimeUnit.NANOSECONDS.toMicros(result / MSG_COUNT));
+            }
+        } finally {
+            factory.stop();
+        }
+    }
+
+    private Queue createQueue() throws Exception {
+        connection = createAmqpConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        return session.createQueue(getDestinationName());
+    }
+
+    protected long sendMessages(ConnectionFactory factory, Queue queue, int msgCount) throws Exception {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < msgCount; ++i) {
+            Connection connection = factory.createConnection();
+            try {
+                Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                MessageProducer producer = session.createProducer(queue);
+                producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+                producer.send(session.createTextMessage("hello"));
+            } finally {
+                connection.close();
+            }
+        }
+
+        return System.nanoTime() - startTime;
+    }
+}
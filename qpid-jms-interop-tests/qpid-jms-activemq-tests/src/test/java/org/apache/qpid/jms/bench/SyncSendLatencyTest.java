@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.support.AmqpTestSupport;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compare the latency distribution of synchronous persistent sends when the sending
+ * thread parks immediately with that of spinning and yielding before parking.
+ */
+@Ignore
+public class SyncSendLatencyTest extends AmqpTestSupport {
+
+    private final int MSG_COUNT = 10000;
+    private final int NUM_RUNS = 5;
+
+    @Test
+    public void testSyncSendLatencyWhenParking() throws Exception {
+        doTestSyncSendLatency("park", 0, 0);
+    }
+
+    @Test
+    public void testSyncSendLatencyWhenSpinning() throws Exception {
+        doTestSyncSendLatency("spin", TimeUnit.MICROSECONDS.toNanos(100), 0);
+    }
+
+    @Test
+    public void testSyncSendLatencyWhenSpinningThenYielding() throws Exception {
+        doTestSyncSendLatency("spin then yield", TimeUnit.MICROSECONDS.toNanos(20), TimeUnit.MICROSECONDS.toNanos(200));
+    }
+
+    private void doTestSyncSendLatency(String strategy, long spinTime, long yieldTime) throws Exception {
+        JmsConnectionFactory factory = (JmsConnectionFactory) createAmqpConnectionFactory();
+        factory.setSyncSpinTime(spinTime);
+        factory.setSyncYieldTime(yieldTime);
+
+        connection = factory.createConnection();
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue(getDestinationName());
+        MessageProducer producer = session.createProducer(queue);
+        producer.setDeliveryMode(DeliveryMode.PERSISTENT);
+        Message message = session.createTextMessage("hello");
+
+        // Warm Up the broker.
+        sendMessages(producer, message, new long[MSG_COUNT / 10]);
+
+        long[] latencies = new long[MSG_COUNT];
+        for (int i = 0; i < NUM_RUNS; ++i) {
+            sendMessages(producer, message, latencies);
+            Arrays.sort(latencies);
+            LOG.info("Sync send latency when {}: p50 = {} us, p99 = {} us",
+                new Object[] { strategy, toMicros(latencies, 0.50), toMicros(latencies, 0.99) });
+            getProxyToQueue(getDestinationName()).purge();
+        }
+
+        connection.close();
+        connection = null;
+    }
+
+    private void sendMessages(MessageProducer producer, Message message, long[] latencies) throws Exception {
+        for (int i = 0; i < latencies.length; ++i) {
+            long start = System.nanoTime();
+            producer.send(message);
+            latencies[i] = System.nanoTime() - start;
+        }
+    }
+
+    private static long toMicros(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, index)]);
+    }
+}
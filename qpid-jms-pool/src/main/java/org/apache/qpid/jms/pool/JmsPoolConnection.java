@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.pool;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionConsumer;
+import javax.jms.ConnectionMetaData;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.ServerSessionPool;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.Topic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Connection handed out by the JmsPoolConnectionFactory, closing it returns the
+ * underlying connection and any sessions created from it to the pool.
+ *
+ * Start and stop are tracked for each JmsPoolConnection.  As the underlying connection
+ * is shared, stopping a JmsPoolConnection only stops message delivery once every other
+ * JmsPoolConnection sharing it has also been stopped or closed.
+ *
+ * Temporary destinations created through the sessions of a JmsPoolConnection are deleted
+ * when it is closed, they would otherwise live on for as long as the shared connection.
+ */
+public class JmsPoolConnection implements Connection {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsPoolConnection.class);
+
+    private final PooledConnection pooled;
+    private final List<JmsPoolSession> sessions = new CopyOnWriteArrayList<JmsPoolSession>();
+    private final List<TemporaryQueue> temporaryQueues = new CopyOnWriteArrayList<TemporaryQueue>();
+    private final List<TemporaryTopic> temporaryTopics = new CopyOnWriteArrayList<TemporaryTopic>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile ExceptionListener exceptionListener;
+
+    JmsPoolConnection(PooledConnection pooled) {
+        this.pooled = pooled;
+        this.pooled.addBorrower(this);
+    }
+
+    @Override
+    public Session createSession(boolean transacted, int acknowledgeMode) throws JMSException {
+        checkClosed();
+
+        JmsPoolSession session = new JmsPoolSession(this, pooled.borrowSession(transacted, acknowledgeMode));
+        sessions.add(session);
+        return session;
+    }
+
+    @Override
+    public String getClientID() throws JMSException {
+        checkClosed();
+        return pooled.getConnection().getClientID();
+    }
+
+    @Override
+    public void setClientID(String clientID) throws JMSException {
+        checkClosed();
+
+        // The connection is shared, allow only a setting that would change nothing.
+        if (clientID == null || !clientID.equals(pooled.getConnection().getClientID())) {
+            throw new IllegalStateException("Cannot change the client ID of a pooled connection");
+        }
+    }
+
+    @Override
+    public ConnectionMetaData getMetaData() throws JMSException {
+        checkClosed();
+        return pooled.getConnection().getMetaData();
+    }
+
+    @Override
+    public ExceptionListener getExceptionListener() throws JMSException {
+        checkClosed();
+        return exceptionListener;
+    }
+
+    @Override
+    public void setExceptionListener(ExceptionListener listener) throws JMSException {
+        checkClosed();
+        this.exceptionListener = listener;
+    }
+
+    @Override
+    public void start() throws JMSException {
+        checkClosed();
+        if (started.compareAndSet(false, true)) {
+            try {
+                pooled.start();
+            } catch (JMSException | RuntimeException e) {
+                started.set(false);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void stop() throws JMSException {
+        checkClosed();
+        if (started.compareAndSet(true, false)) {
+            pooled.stop();
+        }
+    }
+
+    @Override
+    public void close() throws JMSException {
+        if (closed.compareAndSet(false, true)) {
+            try {
+                for (JmsPoolSession session : sessions) {
+                    session.close();
+                }
+                sessions.clear();
+
+                deleteTemporaryDestinations();
+
+                if (started.compareAndSet(true, false)) {
+                    pooled.stop();
+                }
+            } finally {
+                pooled.release(this);
+            }
+        }
+    }
+
+    @Override
+    public ConnectionConsumer createConnectionConsumer(Destination destination, String messageSelector, ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        checkClosed();
+        return pooled.getConnection().createConnectionConsumer(destination, messageSelector, sessionPool, maxMessages);
+    }
+
+    @Override
+    public ConnectionConsumer createDurableConnectionConsumer(Topic topic, String subscriptionName, String messageSelector, ServerSessionPool sessionPool, int maxMessages) throws JMSException {
+        checkClosed();
+        return pooled.getConnection().createDurableConnectionConsumer(topic, subscriptionName, messageSelector, sessionPool, maxMessages);
+    }
+
+    /**
+     * @return the Connection that this pooled connection is currently sharing.
+     */
+    public Connection getConnection() {
+        return pooled.getConnection();
+    }
+
+    @Override
+    public String toString() {
+        return "JmsPoolConnection { " + pooled + " }";
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    PooledConnection getPooledConnection() {
+        return pooled;
+    }
+
+    void onSessionClosed(JmsPoolSession session) {
+        sessions.remove(session);
+    }
+
+    void onTemporaryQueueCreated(TemporaryQueue queue) {
+        temporaryQueues.add(queue);
+    }
+
+    void onTemporaryTopicCreated(TemporaryTopic topic) {
+        temporaryTopics.add(topic);
+    }
+
+    /*
+     * Called once the sessions are closed so that no consumer of this connection remains
+     * on the destinations.  A destination the borrower already deleted, or one still in
+     * use by some other borrower, fails to delete and is skipped.
+     */
+    private void deleteTemporaryDestinations() {
+        for (TemporaryQueue queue : temporaryQueues) {
+            try {
+                queue.delete();
+            } catch (JMSException e) {
+                LOG.debug("Could not delete temporary queue {} : {}", queue, e.getMessage());
+            }
+        }
+        temporaryQueues.clear();
+
+        for (TemporaryTopic topic : temporaryTopics) {
+            try {
+                topic.delete();
+            } catch (JMSException e) {
+                LOG.debug("Could not delete temporary topic {} : {}", topic, e.getMessage());
+            }
+        }
+        temporaryTopics.clear();
+    }
+
+    void onException(JMSException exception) {
+        ExceptionListener listener = this.exceptionListener;
+        if (listener != null) {
+            listener.onException(exception);
+        }
+    }
+
+    private void checkClosed() throws IllegalStateException {
+        if (closed.get()) {
+            throw new IllegalStateException("The Connection is closed");
+        }
+    }
+}
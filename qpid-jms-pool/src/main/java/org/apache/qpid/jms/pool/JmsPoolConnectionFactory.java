@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.pool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+
+import org.apache.qpid.jms.JmsConnectionFactory;
+import org.apache.qpid.jms.util.ThreadPoolUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A ConnectionFactory that pools the Connections, Sessions and MessageProducers it
+ * hands out so that they can be reused rather than created for every unit of work.
+ *
+ * Connections are created from the configured target ConnectionFactory and shared
+ * between callers that use the same credentials, up to maxConnections per set of
+ * credentials.  Closing a Connection obtained from this factory returns it to the pool,
+ * the underlying connection stays open until it has been unused for longer than the
+ * idle timeout or is found to have failed.  Sessions closed by the application are
+ * kept open on their connection for reuse, and by default the MessageProducers created
+ * from a pooled Session all share a single anonymous producer so that no link needs to
+ * be attached per producer.
+ *
+ * As the underlying connections are shared the client ID of a pooled connection cannot
+ * be changed, and an underlying connection is only stopped once every pooled connection
+ * sharing it has been stopped or closed.
+ */
+public class JmsPoolConnectionFactory implements ConnectionFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsPoolConnectionFactory.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 1;
+    public static final int DEFAULT_MAX_SESSIONS_PER_CONNECTION = 500;
+    public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+    public static final long DEFAULT_EVICTION_INTERVAL = 5000;
+
+    private final Map<ConnectionKey, List<PooledConnection>> connections = new HashMap<ConnectionKey, List<PooledConnection>>();
+    private final Map<ConnectionKey, Integer> nextConnection = new HashMap<ConnectionKey, Integer>();
+    private final Map<ConnectionKey, Integer> pendingConnections = new HashMap<ConnectionKey, Integer>();
+
+    private ConnectionFactory connectionFactory;
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int maxSessionsPerConnection = DEFAULT_MAX_SESSIONS_PER_CONNECTION;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private long evictionInterval = DEFAULT_EVICTION_INTERVAL;
+    private boolean useAnonymousProducers = true;
+
+    private ScheduledExecutorService evictor;
+
+    public JmsPoolConnectionFactory() {
+    }
+
+    public JmsPoolConnectionFactory(String remoteURI) {
+        this(new JmsConnectionFactory(remoteURI));
+    }
+
+    public JmsPoolConnectionFactory(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public Connection createConnection() throws JMSException {
+        return createConnection(null, null);
+    }
+
+    @Override
+    public Connection createConnection(String username, String password) throws JMSException {
+        PooledConnection connection = borrowConnection(new ConnectionKey(username, password));
+        return new JmsPoolConnection(connection);
+    }
+
+    /**
+     * Closes all pooled connections, whether or not they are currently in use, and
+     * stops the background eviction of idle connections.  The factory can continue
+     * to be used after being stopped, in which case new connections are created.
+     */
+    public void stop() {
+        List<PooledConnection> toClose = new ArrayList<PooledConnection>();
+        synchronized (connections) {
+            for (List<PooledConnection> pooled : connections.values()) {
+                toClose.addAll(pooled);
+            }
+            connections.clear();
+            nextConnection.clear();
+
+            ThreadPoolUtils.shutdownNow(evictor);
+            evictor = null;
+        }
+
+        for (PooledConnection connection : toClose) {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return the number of connections currently held by the pool across all credentials.
+     */
+    public int getNumConnections() {
+        int count = 0;
+        synchronized (connections) {
+            for (List<PooledConnection> pooled : connections.values()) {
+                count += pooled.size();
+            }
+        }
+
+        return count;
+    }
+
+    //----- Property Accessors -----------------------------------------------//
+
+    public ConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    /**
+     * Sets the ConnectionFactory used to create the connections held by this pool.
+     *
+     * @param connectionFactory
+     *        the factory that creates the pooled connections.
+     */
+    public void setConnectionFactory(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Sets the maximum number of connections that are opened for each distinct set of
+     * credentials.  Once reached, callers share the existing connections in turn.
+     *
+     * @param maxConnections
+     *        the maximum number of connections per set of credentials.
+     */
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getMaxSessionsPerConnection() {
+        return maxSessionsPerConnection;
+    }
+
+    /**
+     * Sets the maximum number of sessions that can be in use at once on each pooled
+     * connection, creating a session beyond that fails with an IllegalStateException.
+     * The same number limits the idle sessions kept open on a connection for each
+     * combination of transacted and acknowledgement mode, sessions returned to the pool
+     * once that number of idle sessions is reached are closed.  A value of zero or less
+     * places no limit on the sessions in use.
+     *
+     * @param maxSessionsPerConnection
+     *        the maximum number of sessions in use at once on a connection.
+     */
+    public void setMaxSessionsPerConnection(int maxSessionsPerConnection) {
+        this.maxSessionsPerConnection = maxSessionsPerConnection;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds that a pooled connection can go unused before it is
+     * closed, a value of zero or less keeps unused connections open until the pool is
+     * stopped.
+     *
+     * @param idleTimeout
+     *        the time in milliseconds an unused connection is kept open.
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    /**
+     * Sets the time in milliseconds between checks for pooled connections that have been
+     * idle for longer than the idle timeout or have failed.
+     *
+     * @param evictionInterval
+     *        the time in milliseconds between idle and failed connection checks.
+     */
+    public void setEvictionInterval(long evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+
+    public boolean isUseAnonymousProducers() {
+        return useAnonymousProducers;
+    }
+
+    /**
+     * Controls whether the MessageProducers created from a pooled session share a single
+     * anonymous producer, or each create their own producer on the session.
+     *
+     * @param useAnonymousProducers
+     *        true if pooled session producers should share one anonymous producer.
+     */
+    public void setUseAnonymousProducers(boolean useAnonymousProducers) {
+        this.useAnonymousProducers = useAnonymousProducers;
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private PooledConnection borrowConnection(ConnectionKey key) throws JMSException {
+        if (connectionFactory == null) {
+            throw new IllegalStateException("No ConnectionFactory has been configured for the pool");
+        }
+
+        // A new connection is created outside the lock so that connecting to the remote
+        // peer does not hold up callers borrowing connections that are already open, the
+        // slot it will occupy is reserved so that maxConnections is not exceeded.
+        synchronized (connections) {
+            while (true) {
+                List<PooledConnection> pooled = connections.get(key);
+                if (pooled == null) {
+                    pooled = new ArrayList<PooledConnection>();
+                    connections.put(key, pooled);
+                }
+
+                // Drop any connection that has failed since it was last used, those still
+                // borrowed elsewhere are closed once returned.
+                for (Iterator<PooledConnection> iterator = pooled.iterator(); iterator.hasNext();) {
+                    PooledConnection connection = iterator.next();
+                    if (connection.isFailed()) {
+                        iterator.remove();
+                        connection.expire();
+                    }
+                }
+
+                int reserved = getReservedCount(key);
+                if (pooled.size() + reserved < Math.max(1, maxConnections)) {
+                    pendingConnections.put(key, reserved + 1);
+                    break;
+                } else if (!pooled.isEmpty()) {
+                    Integer next = nextConnection.get(key);
+                    int index = next == null ? 0 : next % pooled.size();
+                    nextConnection.put(key, index + 1);
+
+                    PooledConnection result = pooled.get(index);
+                    result.borrow();
+                    startEvictor();
+
+                    return result;
+                }
+
+                // Every slot is reserved by a connection still being created, wait for one.
+                try {
+                    connections.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JMSException("Interrupted while waiting for a pooled connection to be created");
+                }
+            }
+        }
+
+        PooledConnection result = null;
+        try {
+            result = new PooledConnection(createConnection(key), maxSessionsPerConnection, useAnonymousProducers);
+            LOG.debug("Created new pooled connection: {}", result);
+        } finally {
+            synchronized (connections) {
+                int reserved = getReservedCount(key);
+                if (reserved > 1) {
+                    pendingConnections.put(key, reserved - 1);
+                } else {
+                    pendingConnections.remove(key);
+                }
+
+                if (result != null) {
+                    List<PooledConnection> pooled = connections.get(key);
+                    if (pooled == null) {
+                        pooled = new ArrayList<PooledConnection>();
+                        connections.put(key, pooled);
+                    }
+
+                    pooled.add(result);
+                    result.borrow();
+                    startEvictor();
+                }
+
+                connections.notifyAll();
+            }
+        }
+
+        return result;
+    }
+
+    private int getReservedCount(ConnectionKey key) {
+        Integer reserved = pendingConnections.get(key);
+        return reserved == null ? 0 : reserved;
+    }
+
+    private Connection createConnection(ConnectionKey key) throws JMSException {
+        if (key.getUsername() == null && key.getPassword() == null) {
+            return connectionFactory.createConnection();
+        } else {
+            return connectionFactory.createConnection(key.getUsername(), key.getPassword());
+        }
+    }
+
+    private void startEvictor() {
+        if (evictor == null && evictionInterval > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runner) {
+                    Thread evictor = new Thread(runner);
+                    evictor.setDaemon(true);
+                    evictor.setName("JmsPoolConnectionFactory: idle connection evictor");
+                    return evictor;
+                }
+            });
+
+            evictor.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    evictIdleConnections();
+                }
+            }, evictionInterval, evictionInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> toClose = new ArrayList<PooledConnection>();
+
+        synchronized (connections) {
+            for (List<PooledConnection> pooled : connections.values()) {
+                for (Iterator<PooledConnection> iterator = pooled.iterator(); iterator.hasNext();) {
+                    PooledConnection connection = iterator.next();
+                    if (connection.isFailed() || (idleTimeout > 0 && connection.isIdleSince(now - idleTimeout))) {
+                        iterator.remove();
+                        toClose.add(connection);
+                    }
+                }
+            }
+        }
+
+        for (PooledConnection connection : toClose) {
+            LOG.debug("Evicting pooled connection: {}", connection);
+            connection.expire();
+        }
+    }
+
+    private static final class ConnectionKey {
+
+        private final String username;
+        private final String password;
+
+        public ConnectionKey(String username, String password) {
+            this.username = username;
+            this.password = password;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 31 + (username == null ? 0 : username.hashCode());
+            return 31 * result + (password == null ? 0 : password.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+
+            if (!(other instanceof ConnectionKey)) {
+                return false;
+            }
+
+            ConnectionKey key = (ConnectionKey) other;
+            return (username == null ? key.username == null : username.equals(key.username)) &&
+                   (password == null ? key.password == null : password.equals(key.password));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.pool;
+
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.InvalidDestinationException;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+
+/**
+ * A MessageProducer handed out by a JmsPoolSession that sends using the anonymous
+ * producer shared by the underlying session, each instance keeps its own destination
+ * and send settings so that creating and closing one costs no remote round trip.
+ */
+public class JmsPoolMessageProducer implements MessageProducer {
+
+    private final MessageProducer producer;
+    private final Destination destination;
+
+    private int deliveryMode = DeliveryMode.PERSISTENT;
+    private int priority = Message.DEFAULT_PRIORITY;
+    private long timeToLive = Message.DEFAULT_TIME_TO_LIVE;
+    private boolean disableMessageID;
+    private boolean disableMessageTimestamp;
+    private boolean closed;
+
+    JmsPoolMessageProducer(MessageProducer producer, Destination destination) {
+        this.producer = producer;
+        this.destination = destination;
+    }
+
+    @Override
+    public void close() throws JMSException {
+        closed = true;
+    }
+
+    @Override
+    public void send(Message message) throws JMSException {
+        send(message, deliveryMode, priority, timeToLive);
+    }
+
+    @Override
+    public void send(Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        checkClosed();
+        if (destination == null) {
+            throw new UnsupportedOperationException("A destination must be specified.");
+        }
+
+        doSend(destination, message, deliveryMode, priority, timeToLive);
+    }
+
+    @Override
+    public void send(Destination destination, Message message) throws JMSException {
+        send(destination, message, deliveryMode, priority, timeToLive);
+    }
+
+    @Override
+    public void send(Destination destination, Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        checkClosed();
+        if (this.destination != null) {
+            throw new UnsupportedOperationException("Destination was specified on creation of this producer");
+        }
+        if (destination == null) {
+            throw new InvalidDestinationException("Destination must not be null");
+        }
+
+        doSend(destination, message, deliveryMode, priority, timeToLive);
+    }
+
+    @Override
+    public Destination getDestination() throws JMSException {
+        checkClosed();
+        return destination;
+    }
+
+    @Override
+    public int getDeliveryMode() throws JMSException {
+        checkClosed();
+        return deliveryMode;
+    }
+
+    @Override
+    public void setDeliveryMode(int deliveryMode) throws JMSException {
+        checkClosed();
+        this.deliveryMode = deliveryMode;
+    }
+
+    @Override
+    public int getPriority() throws JMSException {
+        checkClosed();
+        return priority;
+    }
+
+    @Override
+    public void setPriority(int priority) throws JMSException {
+        checkClosed();
+        this.priority = priority;
+    }
+
+    @Override
+    public long getTimeToLive() throws JMSException {
+        checkClosed();
+        return timeToLive;
+    }
+
+    @Override
+    public void setTimeToLive(long timeToLive) throws JMSException {
+        checkClosed();
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public boolean getDisableMessageID() throws JMSException {
+        checkClosed();
+        return disableMessageID;
+    }
+
+    @Override
+    public void setDisableMessageID(boolean disableMessageID) throws JMSException {
+        checkClosed();
+        this.disableMessageID = disableMessageID;
+    }
+
+    @Override
+    public boolean getDisableMessageTimestamp() throws JMSException {
+        checkClosed();
+        return disableMessageTimestamp;
+    }
+
+    @Override
+    public void setDisableMessageTimestamp(boolean disableMessageTimestamp) throws JMSException {
+        checkClosed();
+        this.disableMessageTimestamp = disableMessageTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "JmsPoolMessageProducer { " + producer + " }";
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private void doSend(Destination destination, Message message, int deliveryMode, int priority, long timeToLive) throws JMSException {
+        // The shared producer is used by every wrapper of the session, serialize
+        // so that the flags applied are the ones in effect for this send.
+        synchronized (producer) {
+            producer.setDisableMessageID(disableMessageID);
+            producer.setDisableMessageTimestamp(disableMessageTimestamp);
+            producer.send(destination, message, deliveryMode, priority, timeToLive);
+        }
+    }
+
+    private void checkClosed() throws IllegalStateException {
+        if (closed) {
+            throw new IllegalStateException("The MessageProducer is closed");
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.pool;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.ObjectMessage;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Session handed out by a JmsPoolConnection.  Closing it closes any consumers,
+ * browsers and producers created from it and returns the underlying session to its
+ * connection for reuse, a transacted session is rolled back first.
+ */
+public class JmsPoolSession implements Session {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsPoolSession.class);
+
+    private final JmsPoolConnection connection;
+    private final PooledSession pooled;
+    private final List<MessageConsumer> consumers = new CopyOnWriteArrayList<MessageConsumer>();
+    private final List<QueueBrowser> browsers = new CopyOnWriteArrayList<QueueBrowser>();
+    private final List<MessageProducer> producers = new CopyOnWriteArrayList<MessageProducer>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private boolean listenerSet;
+
+    JmsPoolSession(JmsPoolConnection connection, PooledSession pooled) {
+        this.connection = connection;
+        this.pooled = pooled;
+    }
+
+    @Override
+    public void close() throws JMSException {
+        if (closed.compareAndSet(false, true)) {
+            Session session = pooled.getSession();
+            boolean reusable = !listenerSet;
+
+            // Unacknowledged messages would otherwise be acknowledged by the next user.
+            if (!consumers.isEmpty() && session.getAcknowledgeMode() == Session.CLIENT_ACKNOWLEDGE) {
+                reusable = false;
+            }
+
+            for (MessageConsumer consumer : consumers) {
+                reusable &= closeQuietly(consumer);
+            }
+            for (QueueBrowser browser : browsers) {
+                try {
+                    browser.close();
+                } catch (JMSException e) {
+                    LOG.debug("Error closing browser of pooled session: {}", e.getMessage());
+                    reusable = false;
+                }
+            }
+            for (MessageProducer producer : producers) {
+                try {
+                    producer.close();
+                } catch (JMSException e) {
+                    LOG.debug("Error closing producer of pooled session: {}", e.getMessage());
+                    reusable = false;
+                }
+            }
+
+            consumers.clear();
+            browsers.clear();
+            producers.clear();
+
+            if (reusable && session.getTransacted()) {
+                try {
+                    session.rollback();
+                } catch (JMSException e) {
+                    LOG.debug("Error rolling back pooled session: {}", e.getMessage());
+                    reusable = false;
+                }
+            }
+
+            connection.onSessionClosed(this);
+            connection.getPooledConnection().returnSession(pooled, reusable);
+        }
+    }
+
+    //----- Message factory methods ------------------------------------------//
+
+    @Override
+    public BytesMessage createBytesMessage() throws JMSException {
+        return getSession().createBytesMessage();
+    }
+
+    @Override
+    public MapMessage createMapMessage() throws JMSException {
+        return getSession().createMapMessage();
+    }
+
+    @Override
+    public Message createMessage() throws JMSException {
+        return getSession().createMessage();
+    }
+
+    @Override
+    public ObjectMessage createObjectMessage() throws JMSException {
+        return getSession().createObjectMessage();
+    }
+
+    @Override
+    public ObjectMessage createObjectMessage(Serializable object) throws JMSException {
+        return getSession().createObjectMessage(object);
+    }
+
+    @Override
+    public StreamMessage createStreamMessage() throws JMSException {
+        return getSession().createStreamMessage();
+    }
+
+    @Override
+    public TextMessage createTextMessage() throws JMSException {
+        return getSession().createTextMessage();
+    }
+
+    @Override
+    public TextMessage createTextMessage(String text) throws JMSException {
+        return getSession().createTextMessage(text);
+    }
+
+    //----- Session state methods --------------------------------------------//
+
+    @Override
+    public boolean getTransacted() throws JMSException {
+        return getSession().getTransacted();
+    }
+
+    @Override
+    public int getAcknowledgeMode() throws JMSException {
+        return getSession().getAcknowledgeMode();
+    }
+
+    @Override
+    public void commit() throws JMSException {
+        getSession().commit();
+    }
+
+    @Override
+    public void rollback() throws JMSException {
+        getSession().rollback();
+    }
+
+    @Override
+    public void recover() throws JMSException {
+        getSession().recover();
+    }
+
+    @Override
+    public MessageListener getMessageListener() throws JMSException {
+        return getSession().getMessageListener();
+    }
+
+    @Override
+    public void setMessageListener(MessageListener listener) throws JMSException {
+        getSession().setMessageListener(listener);
+        listenerSet = true;
+    }
+
+    @Override
+    public void run() {
+        if (!closed.get()) {
+            pooled.getSession().run();
+        }
+    }
+
+    //----- Producer and Consumer creation -----------------------------------//
+
+    @Override
+    public MessageProducer createProducer(Destination destination) throws JMSException {
+        if (connection.getPooledConnection().isUseAnonymousProducers()) {
+            return new JmsPoolMessageProducer(pooled.getAnonymousProducer(), destination);
+        }
+
+        MessageProducer producer = getSession().createProducer(destination);
+        producers.add(producer);
+        return producer;
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination) throws JMSException {
+        return addConsumer(getSession().createConsumer(destination));
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination, String messageSelector) throws JMSException {
+        return addConsumer(getSession().createConsumer(destination, messageSelector));
+    }
+
+    @Override
+    public MessageConsumer createConsumer(Destination destination, String messageSelector, boolean noLocal) throws JMSException {
+        return addConsumer(getSession().createConsumer(destination, messageSelector, noLocal));
+    }
+
+    @Override
+    public TopicSubscriber createDurableSubscriber(Topic topic, String name) throws JMSException {
+        return addConsumer(getSession().createDurableSubscriber(topic, name));
+    }
+
+    @Override
+    public TopicSubscriber createDurableSubscriber(Topic topic, String name, String messageSelector, boolean noLocal) throws JMSException {
+        return addConsumer(getSession().createDurableSubscriber(topic, name, messageSelector, noLocal));
+    }
+
+    @Override
+    public QueueBrowser createBrowser(Queue queue) throws JMSException {
+        return addBrowser(getSession().createBrowser(queue));
+    }
+
+    @Override
+    public QueueBrowser createBrowser(Queue queue, String messageSelector) throws JMSException {
+        return addBrowser(getSession().createBrowser(queue, messageSelector));
+    }
+
+    @Override
+    public void unsubscribe(String name) throws JMSException {
+        getSession().unsubscribe(name);
+    }
+
+    //----- Destination creation ---------------------------------------------//
+
+    @Override
+    public Queue createQueue(String queueName) throws JMSException {
+        return getSession().createQueue(queueName);
+    }
+
+    @Override
+    public Topic createTopic(String topicName) throws JMSException {
+        return getSession().createTopic(topicName);
+    }
+
+    @Override
+    public TemporaryQueue createTemporaryQueue() throws JMSException {
+        TemporaryQueue queue = getSession().createTemporaryQueue();
+        connection.onTemporaryQueueCreated(queue);
+        return queue;
+    }
+
+    @Override
+    public TemporaryTopic createTemporaryTopic() throws JMSException {
+        TemporaryTopic topic = getSession().createTemporaryTopic();
+        connection.onTemporaryTopicCreated(topic);
+        return topic;
+    }
+
+    /**
+     * @return the Session that this pooled session is currently using.
+     *
+     * @throws JMSException if this pooled session has been closed.
+     */
+    public Session getSession() throws JMSException {
+        if (closed.get()) {
+            throw new IllegalStateException("The Session is closed");
+        }
+
+        return pooled.getSession();
+    }
+
+    @Override
+    public String toString() {
+        return "JmsPoolSession { " + pooled.getSession() + " }";
+    }
+
+    //----- Internal implementation ------------------------------------------//
+
+    private <T extends MessageConsumer> T addConsumer(T consumer) {
+        consumers.add(consumer);
+        return consumer;
+    }
+
+    private QueueBrowser addBrowser(QueueBrowser browser) {
+        browsers.add(browser);
+        return browser;
+    }
+
+    private boolean closeQuietly(MessageConsumer consumer) {
+        try {
+            consumer.close();
+            return true;
+        } catch (JMSException e) {
+            LOG.debug("Error closing consumer of pooled session: {}", e.getMessage());
+            return false;
+        }
+    }
+}
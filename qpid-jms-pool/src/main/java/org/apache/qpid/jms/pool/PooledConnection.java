@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.pool;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import javax.jms.Connection;
+import javax.jms.ExceptionListener;
+import javax.jms.IllegalStateException;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.apache.qpid.jms.JmsConnection;
+import org.apache.qpid.jms.JmsConnectionListener;
+import org.apache.qpid.jms.exceptions.JmsExceptionSupport;
+import org.apache.qpid.jms.message.JmsInboundMessageDispatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds a Connection that is shared by one or more JmsPoolConnection instances along
+ * with the idle Sessions that have been returned to it for reuse.
+ *
+ * The shared connection is started while any of its borrowers has started it, and is
+ * stopped again once every borrower has either stopped or returned it.
+ */
+final class PooledConnection {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PooledConnection.class);
+
+    private final Connection connection;
+    private final int maxSessions;
+    private final boolean useAnonymousProducers;
+    private final Map<Integer, Deque<PooledSession>> idleSessions = new HashMap<Integer, Deque<PooledSession>>();
+    private final Set<JmsPoolConnection> borrowers = new CopyOnWriteArraySet<JmsPoolConnection>();
+    private final Object startStopLock = new Object();
+
+    private int references;
+    private int activeSessions;
+    private int startedBorrowers;
+    private long lastUsed = System.currentTimeMillis();
+    private boolean expired;
+    private boolean closed;
+    private volatile boolean failed;
+
+    public PooledConnection(Connection connection, int maxSessions, boolean useAnonymousProducers) {
+        this.connection = connection;
+        this.maxSessions = maxSessions;
+        this.useAnonymousProducers = useAnonymousProducers;
+
+        if (connection instanceof JmsConnection) {
+            ((JmsConnection) connection).addConnectionListener(new FailureListener());
+        } else {
+            try {
+                connection.setExceptionListener(new ExceptionListener() {
+
+                    @Override
+                    public void onException(JMSException exception) {
+                        onFailure(exception);
+                    }
+                });
+            } catch (JMSException e) {
+                LOG.debug("Could not register for failures of pooled connection: {}", e.getMessage());
+            }
+        }
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public boolean isUseAnonymousProducers() {
+        return useAnonymousProducers;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public synchronized void borrow() {
+        references++;
+        lastUsed = System.currentTimeMillis();
+    }
+
+    public synchronized boolean isIdleSince(long time) {
+        return references == 0 && lastUsed < time;
+    }
+
+    public void addBorrower(JmsPoolConnection borrower) {
+        borrowers.add(borrower);
+    }
+
+    public void release(JmsPoolConnection borrower) {
+        borrowers.remove(borrower);
+
+        boolean close = false;
+        synchronized (this) {
+            references--;
+            lastUsed = System.currentTimeMillis();
+            close = references <= 0 && (expired || failed);
+        }
+
+        if (close) {
+            close();
+        }
+    }
+
+    /**
+     * Starts the shared connection on behalf of a borrower, the connection is started
+     * if it is not already.
+     *
+     * @throws JMSException if the connection cannot be started.
+     */
+    public void start() throws JMSException {
+        synchronized (startStopLock) {
+            connection.start();
+            startedBorrowers++;
+        }
+    }
+
+    /**
+     * Withdraws a borrower's earlier start, the shared connection is stopped once no
+     * borrower remains started.
+     *
+     * @throws JMSException if the connection cannot be stopped.
+     */
+    public void stop() throws JMSException {
+        synchronized (startStopLock) {
+            if (--startedBorrowers == 0) {
+                connection.stop();
+            }
+        }
+    }
+
+    /**
+     * Marks the connection as no longer available to new borrowers, it is closed
+     * once the last current borrower returns it.
+     */
+    public void expire() {
+        boolean close = false;
+        synchronized (this) {
+            expired = true;
+            close = references <= 0;
+        }
+
+        if (close) {
+            close();
+        }
+    }
+
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            idleSessions.clear();
+        }
+
+        try {
+            connection.close();
+        } catch (JMSException e) {
+            LOG.debug("Error while closing pooled connection: {}", e.getMessage());
+        }
+    }
+
+    //----- Session pooling --------------------------------------------------//
+
+    public PooledSession borrowSession(boolean transacted, int acknowledgeMode) throws JMSException {
+        int key = transacted ? Session.SESSION_TRANSACTED : acknowledgeMode;
+
+        synchronized (this) {
+            if (maxSessions > 0 && activeSessions >= maxSessions) {
+                throw new IllegalStateException(
+                    "The pooled connection already has the maximum of " + maxSessions + " sessions in use");
+            }
+
+            activeSessions++;
+
+            Deque<PooledSession> idle = idleSessions.get(key);
+            if (idle != null && !idle.isEmpty()) {
+                return idle.pop();
+            }
+        }
+
+        try {
+            return new PooledSession(key, connection.createSession(transacted, acknowledgeMode));
+        } catch (JMSException | RuntimeException e) {
+            synchronized (this) {
+                activeSessions--;
+            }
+            throw e;
+        }
+    }
+
+    public void returnSession(PooledSession session, boolean reusable) {
+        synchronized (this) {
+            activeSessions--;
+        }
+
+        if (reusable && !failed) {
+            synchronized (this) {
+                if (!closed && !expired) {
+                    Deque<PooledSession> idle = idleSessions.get(session.getKey());
+                    if (idle == null) {
+                        idle = new ArrayDeque<PooledSession>();
+                        idleSessions.put(session.getKey(), idle);
+                    }
+
+                    if (maxSessions <= 0 || idle.size() < maxSessions) {
+                        idle.push(session);
+                        return;
+                    }
+                }
+            }
+        }
+
+        session.close();
+    }
+
+    @Override
+    public String toString() {
+        return "PooledConnection { " + connection + " }";
+    }
+
+    //----- Failure handling -------------------------------------------------//
+
+    private void onFailure(Throwable error) {
+        LOG.debug("Pooled connection failed: {}", error.getMessage());
+
+        failed = true;
+        synchronized (this) {
+            idleSessions.clear();
+        }
+
+        JMSException exception = JmsExceptionSupport.create(error);
+        for (JmsPoolConnection borrower : borrowers) {
+            borrower.onException(exception);
+        }
+    }
+
+    private final class FailureListener implements JmsConnectionListener {
+
+        @Override
+        public void onConnectionEstablished(URI remoteURI) {
+        }
+
+        @Override
+        public void onConnectionFailure(Throwable error) {
+            onFailure(error);
+        }
+
+        @Override
+        public void onConnectionInterrupted(URI remoteURI) {
+        }
+
+        @Override
+        public void onConnectionRestored(URI remoteURI) {
+        }
+
+        @Override
+        public void onInboundMessage(JmsInboundMessageDispatch envelope) {
+        }
+    }
+}
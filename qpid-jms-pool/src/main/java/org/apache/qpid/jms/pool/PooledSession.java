@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.pool;
+
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Session held by a PooledConnection along with the anonymous producer that is shared
+ * by the producers created from it while it is borrowed.
+ */
+final class PooledSession {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PooledSession.class);
+
+    private final int key;
+    private final Session session;
+    private MessageProducer anonymousProducer;
+
+    public PooledSession(int key, Session session) {
+        this.key = key;
+        this.session = session;
+    }
+
+    public int getKey() {
+        return key;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public MessageProducer getAnonymousProducer() throws JMSException {
+        if (anonymousProducer == null) {
+            anonymousProducer = session.createProducer(null);
+        }
+
+        return anonymousProducer;
+    }
+
+    public void close() {
+        try {
+            session.close();
+        } catch (JMSException e) {
+            LOG.debug("Error while closing pooled session: {}", e.getMessage());
+        }
+    }
+}
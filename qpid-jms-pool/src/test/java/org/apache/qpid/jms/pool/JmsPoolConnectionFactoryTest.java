@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.qpid.jms.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import javax.jms.Connection;
+import javax.jms.IllegalStateException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TemporaryQueue;
+import javax.jms.TemporaryTopic;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JmsPoolConnectionFactoryTest {
+
+    private BrokerService brokerService;
+    private JmsPoolConnectionFactory pool;
+
+    @Before
+    public void setUp() throws Exception {
+        brokerService = new BrokerService();
+        brokerService.setBrokerName("localhost");
+        brokerService.setPersistent(false);
+        brokerService.setUseJmx(false);
+        brokerService.setAdvisorySupport(false);
+        TransportConnector connector = brokerService.addConnector("amqp://0.0.0.0:0");
+        brokerService.start();
+        brokerService.waitUntilStarted();
+
+        pool = new JmsPoolConnectionFactory("amqp://127.0.0.1:" + connector.getConnectUri().getPort());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.stop();
+        }
+        if (brokerService != null) {
+            brokerService.stop();
+            brokerService.waitUntilStopped();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testConnectionIsReusedAfterClose() throws Exception {
+        JmsPoolConnection first = (JmsPoolConnection) pool.createConnection();
+        Connection underlying = first.getConnection();
+        first.close();
+
+        JmsPoolConnection second = (JmsPoolConnection) pool.createConnection();
+        assertSame(underlying, second.getConnection());
+        assertEquals(1, pool.getNumConnections());
+        second.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testConnectionsAreHandedOutInTurnOnceMaxReached() throws Exception {
+        pool.setMaxConnections(2);
+
+        JmsPoolConnection first = (JmsPoolConnection) pool.createConnection();
+        JmsPoolConnection second = (JmsPoolConnection) pool.createConnection();
+        JmsPoolConnection third = (JmsPoolConnection) pool.createConnection();
+        JmsPoolConnection fourth = (JmsPoolConnection) pool.createConnection();
+
+        assertEquals(2, pool.getNumConnections());
+        assertNotSame(first.getConnection(), second.getConnection());
+        assertSame(first.getConnection(), third.getConnection());
+        assertSame(second.getConnection(), fourth.getConnection());
+
+        first.close();
+        second.close();
+        third.close();
+        fourth.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testSessionIsReusedAfterClose() throws Exception {
+        Connection connection = pool.createConnection();
+
+        JmsPoolSession first = (JmsPoolSession) connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Session underlying = first.getSession();
+        first.close();
+
+        JmsPoolSession second = (JmsPoolSession) connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        assertSame(underlying, second.getSession());
+
+        // A session with a different acknowledgement mode is not taken from the same idle set.
+        JmsPoolSession third = (JmsPoolSession) connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        assertNotSame(underlying, third.getSession());
+
+        try {
+            first.createTextMessage();
+            fail("Should not be able to use a closed pooled session");
+        } catch (IllegalStateException ise) {
+        }
+
+        connection.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testTemporaryDestinationsDeletedWhenConnectionClosed() throws Exception {
+        JmsPoolConnection first = (JmsPoolConnection) pool.createConnection();
+        Connection underlying = first.getConnection();
+        Session session = first.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        TemporaryQueue queue = session.createTemporaryQueue();
+        TemporaryTopic topic = session.createTemporaryTopic();
+        session.createConsumer(queue);
+        first.close();
+
+        // The shared connection lives on but the destinations created through it are gone.
+        JmsPoolConnection second = (JmsPoolConnection) pool.createConnection();
+        assertSame(underlying, second.getConnection());
+
+        Session other = second.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageProducer producer = other.createProducer(null);
+
+        try {
+            producer.send(queue, other.createMessage());
+            fail("Should not be able to send to a deleted temporary queue");
+        } catch (IllegalStateException ise) {
+        }
+
+        try {
+            producer.send(topic, other.createMessage());
+            fail("Should not be able to send to a deleted temporary topic");
+        } catch (IllegalStateException ise) {
+        }
+
+        second.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testSessionIsReusedWithoutSessionLimit() throws Exception {
+        pool.setMaxSessionsPerConnection(0);
+
+        Connection connection = pool.createConnection();
+
+        JmsPoolSession first = (JmsPoolSession) connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Session underlying = first.getSession();
+        first.close();
+
+        JmsPoolSession second = (JmsPoolSession) connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        assertSame(underlying, second.getSession());
+
+        connection.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testMaxSessionsPerConnectionLimitsSessionsInUse() throws Exception {
+        pool.setMaxSessionsPerConnection(2);
+
+        Connection first = pool.createConnection();
+        Connection second = pool.createConnection();
+
+        Session session = first.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        second.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+
+        // The limit applies to the shared connection across every borrower of it.
+        try {
+            first.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            fail("Should not be able to exceed the sessions per connection limit");
+        } catch (IllegalStateException ise) {
+        }
+
+        session.close();
+        first.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+        first.close();
+        second.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testSharedConnectionStopsOnceEveryBorrowerStopped() throws Exception {
+        Connection first = pool.createConnection();
+        Connection second = pool.createConnection();
+        first.start();
+        second.start();
+
+        Session session = second.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("testSharedConnectionStopsOnceEveryBorrowerStopped");
+        MessageConsumer consumer = session.createConsumer(queue);
+        MessageProducer producer = session.createProducer(queue);
+
+        // Another borrower still has the connection started, delivery continues.
+        first.stop();
+        producer.send(session.createTextMessage("first"));
+        assertNotNull(consumer.receive(5000));
+
+        second.stop();
+        producer.send(session.createTextMessage("second"));
+        assertNull(consumer.receive(200));
+
+        second.start();
+        assertNotNull(consumer.receive(5000));
+
+        first.close();
+        second.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testProducersShareAnonymousProducer() throws Exception {
+        Connection connection = pool.createConnection();
+        connection.start();
+
+        Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        Queue queue = session.createQueue("testProducersShareAnonymousProducer");
+        MessageConsumer consumer = session.createConsumer(queue);
+
+        for (int i = 0; i < 3; ++i) {
+            MessageProducer producer = session.createProducer(queue);
+            assertTrue(producer instanceof JmsPoolMessageProducer);
+            assertSame(queue, producer.getDestination());
+            producer.send(session.createTextMessage("message-" + i));
+            producer.close();
+        }
+
+        for (int i = 0; i < 3; ++i) {
+            Message received = consumer.receive(5000);
+            assertNotNull(received);
+            assertEquals("message-" + i, ((TextMessage) received).getText());
+        }
+
+        connection.close();
+    }
+
+    @Test(timeout = 60000)
+    public void testIdleConnectionIsEvicted() throws Exception {
+        pool.setIdleTimeout(100);
+        pool.setEvictionInterval(50);
+
+        Connection connection = pool.createConnection();
+        connection.close();
+        assertEquals(1, pool.getNumConnections());
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (pool.getNumConnections() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(0, pool.getNumConnections());
+    }
+
+    @Test(timeout = 60000)
+    public void testBorrowedConnectionIsNotEvicted() throws Exception {
+        pool.setIdleTimeout(100);
+        pool.setEvictionInterval(50);
+
+        JmsPoolConnection connection = (JmsPoolConnection) pool.createConnection();
+        Thread.sleep(300);
+
+        assertEquals(1, pool.getNumConnections());
+        connection.createSession(false, Session.AUTO_ACKNOWLEDGE).close();
+        connection.close();
+    }
+}